@@ -0,0 +1,61 @@
+package com.example.ticketboxcoreservice.configurations;
+
+import com.example.ticketboxcoreservice.enumf.ErrorCode;
+import com.example.ticketboxcoreservice.exception.AppException;
+import com.example.ticketboxcoreservice.service.AdmissionService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Rejects checkout calls that do not carry an admission token for the user in the path. Runs ahead of the JWT
+// filter so a caller that was not admitted anywhere never costs a user lookup or any other DB work. The events the
+// tokens admit to are left in a request attribute, the checkout services match them against the tickets bought.
+@Component
+public class AdmissionFilter extends OncePerRequestFilter {
+    public static final String ADMISSION_HEADER = "X-Admission-Token";
+    public static final String ADMITTED_EVENT_IDS = "admittedEventIds";
+    private static final Pattern CREATE_ORDER_TICKET = Pattern.compile("^/api/order-tickets/create/(\\d+)$");
+    private static final Pattern PURCHASE_CART = Pattern.compile("^/api/orders/purchase/(\\d+)$");
+
+    private final HandlerExceptionResolver handlerExceptionResolver;
+    private final AdmissionService admissionService;
+
+    public AdmissionFilter(HandlerExceptionResolver handlerExceptionResolver, AdmissionService admissionService) {
+        this.handlerExceptionResolver = handlerExceptionResolver;
+        this.admissionService = admissionService;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull FilterChain filterChain) throws ServletException, IOException {
+        Long userId = admissionService.isEnabled() ? checkoutUserId(request) : null;
+        if (userId != null) {
+            Set<Long> admittedEventIds = admissionService.admittedEventIds(request.getHeader(ADMISSION_HEADER), userId);
+            if (admittedEventIds.isEmpty()) {
+                handlerExceptionResolver.resolveException(request, response, null,
+                        new AppException(ErrorCode.ADMISSION_REQUIRED));
+                return;
+            }
+            request.setAttribute(ADMITTED_EVENT_IDS, admittedEventIds);
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private Long checkoutUserId(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        Matcher matcher = null;
+        if (HttpMethod.POST.matches(request.getMethod())) matcher = CREATE_ORDER_TICKET.matcher(path);
+        else if (HttpMethod.PUT.matches(request.getMethod())) matcher = PURCHASE_CART.matcher(path);
+        return matcher != null && matcher.matches() ? Long.valueOf(matcher.group(1)) : null;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.ticketboxcoreservice.configurations;
+
+import com.example.ticketboxcoreservice.enumf.Constants;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
+import jakarta.persistence.metamodel.EntityType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Field;
+import java.util.List;
+
+// Entity ids are handed out in blocks from s_id_block (pooled-lo: a row holds the first id of the next block).
+// Before the application takes requests, every entity's row is created at, or moved up to, one past the highest id
+// already in its table, so rows inserted under AUTO_INCREMENT keep their ids and a row left behind by inserts that
+// bypassed the allocator catches up.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IdBlockSeeder {
+    private final EntityManagerFactory entityManagerFactory;
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void seed() {
+        for (EntityType<?> entityType : entityManagerFactory.getMetamodel().getEntities()) {
+            Class<?> entity = entityType.getJavaType();
+            Table table = entity.getAnnotation(Table.class);
+            TableGenerator generator = findGenerator(entity);
+            if (table == null || generator == null || !Constants.ID_BLOCK_TABLE.equals(generator.table())) continue;
+            try {
+                seed(generator.pkColumnValue(), table.name());
+            } catch (DataAccessException e) {
+                // left as it is, an id handed out twice is refused by the primary key rather than overwriting a row
+                log.warn("Could not seed the id block of {}", table.name(), e);
+            }
+        }
+    }
+
+    private void seed(String segment, String table) {
+        long next = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM " + table, Long.class);
+        List<Long> current = jdbcTemplate.queryForList("SELECT next_val FROM " + Constants.ID_BLOCK_TABLE
+                + " WHERE sequence_name = ?", Long.class, segment);
+        if (current.isEmpty()) {
+            try {
+                jdbcTemplate.update("INSERT INTO " + Constants.ID_BLOCK_TABLE + " (sequence_name, next_val) "
+                        + "VALUES (?, ?)", segment, next);
+                return;
+            } catch (DuplicateKeyException e) {
+                // another node seeded it meanwhile, only catching up may be left
+            }
+        } else if (current.get(0) >= next) {
+            return;
+        }
+        jdbcTemplate.update("UPDATE " + Constants.ID_BLOCK_TABLE + " SET next_val = ? "
+                + "WHERE sequence_name = ? AND next_val < ?", next, segment, next);
+        log.info("Id block of {} moved up to {}", segment, next);
+    }
+
+    private static TableGenerator findGenerator(Class<?> entity) {
+        for (Field field : entity.getDeclaredFields()) {
+            TableGenerator generator = field.getAnnotation(TableGenerator.class);
+            if (generator != null) return generator;
+        }
+        return null;
+    }
+}
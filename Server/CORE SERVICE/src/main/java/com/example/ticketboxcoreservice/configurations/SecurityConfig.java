@@ -23,6 +23,7 @@ public class SecurityConfig {
 
     private final AuthenticationProvider authenticationProvider;
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final AdmissionFilter admissionFilter;
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
@@ -39,8 +40,10 @@ public class SecurityConfig {
                                 .requestMatchers(HttpMethod.GET, "/api/events/event/**").permitAll()
                                 .requestMatchers(HttpMethod.GET, "/api/tickets/event/**").permitAll()
                                 .requestMatchers(HttpMethod.GET, "/api/events/search/**").permitAll()
+                                .requestMatchers(HttpMethod.GET, "/api/events/autocomplete").permitAll()
                                 .requestMatchers(HttpMethod.GET, "/api/events/events").permitAll()
                                 .requestMatchers(HttpMethod.GET, "/api/tickets/lowest-price/**").permitAll()
+                                .requestMatchers(HttpMethod.GET, "/api/ticket-keys").permitAll()
 
                                 // USER endpoints
 
@@ -50,6 +53,8 @@ public class SecurityConfig {
                                 .hasAnyRole("USER", "ADMIN", "APPROVER")
                                 .requestMatchers(HttpMethod.GET, "/api/orders/**")
                                 .hasAnyRole("USER", "ADMIN", "APPROVER")
+                                // admin only, listed before the user rule below that would match it first
+                                .requestMatchers(HttpMethod.PUT, "/api/orders/fulfillment/*/retry").hasRole("ADMIN")
                                 .requestMatchers(HttpMethod.PUT, "/api/orders/**")
                                 .hasAnyRole("USER", "ADMIN", "APPROVER")
                                 .requestMatchers(HttpMethod.DELETE, "/api/orders/**")
@@ -64,6 +69,12 @@ public class SecurityConfig {
                                 .requestMatchers(HttpMethod.PUT, "/api/events/cancel/**")
                                 .hasAnyRole("USER", "ADMIN", "APPROVER")
 
+                                // gate staff only, a manifest lists every token of the event and its merge marks
+                                // order tickets USED, listed before the user rules below that would match it first
+                                .requestMatchers(HttpMethod.GET, "/api/order-tickets/manifest/**")
+                                .hasAnyRole("ADMIN", "GATE")
+                                .requestMatchers(HttpMethod.PUT, "/api/order-tickets/manifest/**")
+                                .hasAnyRole("ADMIN", "GATE")
                                 .requestMatchers(HttpMethod.GET, "/api/order-tickets/**")
                                 .hasAnyRole("USER", "ADMIN", "APPROVER")
                                 .requestMatchers(HttpMethod.PUT, "/api/order-tickets/**")
@@ -73,6 +84,11 @@ public class SecurityConfig {
                                 .requestMatchers(HttpMethod.DELETE, "/api/order-tickets/**")
                                 .hasAnyRole("USER", "ADMIN", "APPROVER")
 
+                                .requestMatchers(HttpMethod.POST, "/api/admission/**")
+                                .hasAnyRole("USER", "ADMIN", "APPROVER")
+                                .requestMatchers(HttpMethod.GET, "/api/admission/**")
+                                .hasAnyRole("USER", "ADMIN", "APPROVER")
+
                                 .requestMatchers(HttpMethod.GET, "/api/events/creator/**")
                                 .hasAnyRole("USER", "ADMIN", "APPROVER")
                                 .requestMatchers(HttpMethod.PUT, "/api/users/{userId}/**")
@@ -114,6 +130,7 @@ public class SecurityConfig {
                                 .requestMatchers(HttpMethod.PUT, "/api/categories/**").hasRole("ADMIN")
                                 .requestMatchers(HttpMethod.DELETE, "/api/categories/**").hasRole("ADMIN")
                                 .requestMatchers(HttpMethod.GET, "/api/users/**").hasRole("ADMIN")
+                                .requestMatchers(HttpMethod.GET, "/api/metrics/**").hasRole("ADMIN")
 
                                 // .requestMatchers(HttpMethod.POST, "/api/images/**").hasRole("ADMIN")
                                 // .requestMatchers(HttpMethod.PUT, "/api/images/**").hasRole("ADMIN")
@@ -123,7 +140,8 @@ public class SecurityConfig {
                                 .anyRequest().denyAll())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authenticationProvider(authenticationProvider)
-                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(admissionFilter, JwtAuthenticationFilter.class);
         return http.build();
     }
 
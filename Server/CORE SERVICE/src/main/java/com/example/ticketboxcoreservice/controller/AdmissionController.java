@@ -0,0 +1,37 @@
+package com.example.ticketboxcoreservice.controller;
+
+import com.example.ticketboxcoreservice.model.dto.response.ApiResponse;
+import com.example.ticketboxcoreservice.service.AdmissionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admission")
+@RequiredArgsConstructor
+@Tag(name = "Admission")
+public class AdmissionController {
+    private final AdmissionService admissionService;
+
+    @Operation(summary = "join the waiting room of an event")
+    @PostMapping("/join/{eventId}/{userId}")
+    public ResponseEntity<ApiResponse> joinQueue(
+            @PathVariable("eventId") Long eventId,
+            @PathVariable("userId") Long userId) {
+        ApiResponse response = ApiResponse.succeed(admissionService.join(eventId, userId));
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    @Operation(summary = "get waiting room position, returns an admission token once admitted")
+    @GetMapping("/status/{eventId}/{userId}")
+    public ResponseEntity<ApiResponse> getQueueStatus(
+            @PathVariable("eventId") Long eventId,
+            @PathVariable("userId") Long userId,
+            @RequestParam("queueToken") String queueToken) {
+        ApiResponse response = ApiResponse.succeed(admissionService.status(eventId, userId, queueToken));
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+}
@@ -1,9 +1,12 @@
 package com.example.ticketboxcoreservice.controller;
 
+import com.example.ticketboxcoreservice.enumf.PageTotal;
 import com.example.ticketboxcoreservice.model.dto.request.EventMediaRequest;
 import com.example.ticketboxcoreservice.model.dto.request.EventRequest;
 import com.example.ticketboxcoreservice.model.dto.response.ApiResponse;
+import com.example.ticketboxcoreservice.service.EventAutocompleteService;
 import com.example.ticketboxcoreservice.service.EventService;
+import com.example.ticketboxcoreservice.utils.SortWhitelist;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -24,7 +27,13 @@ import java.util.List;
 @RequiredArgsConstructor
 @Tag(name = "Event")
 public class EventController {
+    // indexes: category lists read s_cat_event by idx_cat_event_category_event, the others idx_event_status_id,
+    // idx_event_status_start_date, idx_event_host_status_start_date and idx_event_approver_start_date
+    private static final SortWhitelist CATEGORY_EVENT_SORTS = new SortWhitelist("id");
+    private static final SortWhitelist EVENT_SORTS = new SortWhitelist("id", "startDate");
+
     private final EventService eventService;
+    private final EventAutocompleteService eventAutocompleteService;
     private final ModelMapper modelMapper;
 
     @Operation(summary = "create event request by user id")
@@ -96,9 +105,18 @@ public class EventController {
             @PathVariable("status") Integer status,
             @RequestParam(value = "pageNo", defaultValue = "1", required = false) int pageNo,
             @RequestParam(value = "pageSize", defaultValue = "10", required = false) int pageSize,
-            @RequestParam(value = "sortBy", defaultValue = "id", required = false) String sortBy) {
-        Pageable pageable = PageRequest.of(pageNo - 1, pageSize, Sort.by(sortBy).ascending());
-        ApiResponse response = ApiResponse.succeed(eventService.getEventByCategoryIdAndStatus(catId, status, pageable));
+            @RequestParam(value = "sortBy", defaultValue = "id", required = false) String sortBy,
+            @RequestParam(value = "direction", defaultValue = "asc", required = false) String direction,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "total", defaultValue = "exact", required = false) String total) {
+        Sort sort = CATEGORY_EVENT_SORTS.sort(sortBy, direction);
+        Pageable pageable = PageRequest.of(pageNo - 1, pageSize, sort);
+        PageTotal pageTotal = PageTotal.of(total);
+        ApiResponse response = ApiResponse.succeed(cursor != null
+                ? eventService.scrollEventsByCategoryIdAndStatus(catId, status, cursor, pageSize, sort)
+                : pageTotal == PageTotal.EXACT ? eventService.getEventByCategoryIdAndStatus(catId, status, pageable)
+                : eventService.sliceEventsByCategoryIdAndStatus(catId, status, pageable,
+                        pageTotal == PageTotal.ESTIMATE));
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
@@ -109,10 +127,18 @@ public class EventController {
             @PathVariable("status") Integer eventStatus,
             @RequestParam(value = "pageNo", defaultValue = "1", required = false) int pageNo,
             @RequestParam(value = "pageSize", defaultValue = "10", required = false) int pageSize,
-            @RequestParam(value = "sortBy", defaultValue = "id", required = false) String sortBy) {
-        Pageable pageable = PageRequest.of(pageNo - 1, pageSize, Sort.by(sortBy).ascending());
-        ApiResponse response = ApiResponse
-                .succeed(eventService.getEventByCreatorUserId(creatorUserId, eventStatus, pageable));
+            @RequestParam(value = "sortBy", defaultValue = "id", required = false) String sortBy,
+            @RequestParam(value = "direction", defaultValue = "asc", required = false) String direction,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "total", defaultValue = "exact", required = false) String total) {
+        Sort sort = EVENT_SORTS.sort(sortBy, direction);
+        Pageable pageable = PageRequest.of(pageNo - 1, pageSize, sort);
+        PageTotal pageTotal = PageTotal.of(total);
+        ApiResponse response = ApiResponse.succeed(cursor != null
+                ? eventService.scrollEventsByCreatorUserId(creatorUserId, eventStatus, cursor, pageSize, sort)
+                : pageTotal == PageTotal.NONE ? eventService.sliceEventsByCreatorUserId(creatorUserId, eventStatus,
+                        pageable)
+                : eventService.getEventByCreatorUserId(creatorUserId, eventStatus, pageable));
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
@@ -123,10 +149,17 @@ public class EventController {
             @PathVariable("status") Integer status,
             @RequestParam(value = "pageNo", defaultValue = "1", required = false) int pageNo,
             @RequestParam(value = "pageSize", defaultValue = "10", required = false) int pageSize,
-            @RequestParam(value = "sortBy", defaultValue = "id", required = false) String sortBy) {
-        Pageable pageable = PageRequest.of(pageNo - 1, pageSize, Sort.by(sortBy).ascending());
-        ApiResponse response = ApiResponse
-                .succeed(eventService.getEventByApproverUserId(approverUserId, status, pageable));
+            @RequestParam(value = "sortBy", defaultValue = "id", required = false) String sortBy,
+            @RequestParam(value = "direction", defaultValue = "asc", required = false) String direction,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "total", defaultValue = "exact", required = false) String total) {
+        Sort sort = EVENT_SORTS.sort(sortBy, direction);
+        Pageable pageable = PageRequest.of(pageNo - 1, pageSize, sort);
+        PageTotal pageTotal = PageTotal.of(total);
+        ApiResponse response = ApiResponse.succeed(cursor != null
+                ? eventService.scrollEventsByApproverUserId(approverUserId, cursor, pageSize, sort)
+                : pageTotal == PageTotal.NONE ? eventService.sliceEventsByApproverUserId(approverUserId, pageable)
+                : eventService.getEventByApproverUserId(approverUserId, status, pageable));
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
@@ -146,10 +179,25 @@ public class EventController {
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
-    @Operation(summary = "search events by relative comparation of name, org name, address")
+    @Operation(summary = "search events by name, org name, category and address, ranked by relevance")
     @GetMapping("/search/{params}")
-    public ResponseEntity<ApiResponse> getEventsByRelativeName(@PathVariable("params") String params) {
-        ApiResponse response = ApiResponse.succeed(eventService.search(params));
+    public ResponseEntity<ApiResponse> getEventsByRelativeName(
+            @PathVariable("params") String params,
+            @RequestParam(value = "pageNo", defaultValue = "1", required = false) int pageNo,
+            @RequestParam(value = "pageSize", defaultValue = "10", required = false) int pageSize,
+            @RequestParam(value = "fuzzy", defaultValue = "false", required = false) boolean fuzzy) {
+        // results come ranked by relevance, so there is no sortBy
+        Pageable pageable = PageRequest.of(pageNo - 1, pageSize);
+        ApiResponse response = ApiResponse.succeed(eventService.search(params, fuzzy, pageable));
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    @Operation(summary = "search box suggestions of event names, organizers and venues, most popular first")
+    @GetMapping("/autocomplete")
+    public ResponseEntity<ApiResponse> autocomplete(
+            @RequestParam(value = "q") String query,
+            @RequestParam(value = "limit", defaultValue = "10", required = false) int limit) {
+        ApiResponse response = ApiResponse.succeed(eventAutocompleteService.complete(query, limit));
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
@@ -167,9 +215,17 @@ public class EventController {
             @PathVariable("status") Integer status,
             @RequestParam(value = "pageNo", defaultValue = "1", required = false) int pageNo,
             @RequestParam(value = "pageSize", defaultValue = "10", required = false) int pageSize,
-            @RequestParam(value = "sortBy", defaultValue = "id", required = false) String sortBy) {
-        Pageable pageable = PageRequest.of(pageNo - 1, pageSize, Sort.by(sortBy).ascending());
-        ApiResponse response = ApiResponse.succeed(eventService.getAllEventsByStatus(status, pageable));
+            @RequestParam(value = "sortBy", defaultValue = "id", required = false) String sortBy,
+            @RequestParam(value = "direction", defaultValue = "asc", required = false) String direction,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "total", defaultValue = "exact", required = false) String total) {
+        Sort sort = EVENT_SORTS.sort(sortBy, direction);
+        Pageable pageable = PageRequest.of(pageNo - 1, pageSize, sort);
+        PageTotal pageTotal = PageTotal.of(total);
+        ApiResponse response = ApiResponse.succeed(cursor != null
+                ? eventService.scrollEventsByStatus(status, cursor, pageSize, sort)
+                : pageTotal == PageTotal.EXACT ? eventService.getAllEventsByStatus(status, pageable)
+                : eventService.sliceEventsByStatus(status, pageable, pageTotal == PageTotal.ESTIMATE));
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
@@ -0,0 +1,36 @@
+package com.example.ticketboxcoreservice.controller;
+
+import com.example.ticketboxcoreservice.model.dto.response.ApiResponse;
+import com.example.ticketboxcoreservice.service.EventCatalogCache;
+import com.example.ticketboxcoreservice.service.SingleFlightRegistry;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/metrics")
+@RequiredArgsConstructor
+@Tag(name = "Metrics")
+public class MetricsController {
+    private final SingleFlightRegistry singleFlightRegistry;
+    private final EventCatalogCache eventCatalogCache;
+
+    @Operation(summary = "get how many catalog reads were coalesced into another identical in-flight read")
+    @GetMapping("/single-flight")
+    public ResponseEntity<ApiResponse> getSingleFlightStats() {
+        ApiResponse response = ApiResponse.succeed(singleFlightRegistry.getStats());
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    @Operation(summary = "get hit, miss and eviction counts of the event catalog cache")
+    @GetMapping("/event-cache")
+    public ResponseEntity<ApiResponse> getEventCacheStats() {
+        ApiResponse response = ApiResponse.succeed(eventCatalogCache.getStats());
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+}
@@ -1,9 +1,13 @@
 package com.example.ticketboxcoreservice.controller;
 
-
+import com.example.ticketboxcoreservice.configurations.AdmissionFilter;
+import com.example.ticketboxcoreservice.enumf.PageTotal;
 import com.example.ticketboxcoreservice.model.dto.request.EventRequest;
 import com.example.ticketboxcoreservice.model.dto.response.ApiResponse;
+import com.example.ticketboxcoreservice.service.IdempotencyService;
 import com.example.ticketboxcoreservice.service.OrderService;
+import com.example.ticketboxcoreservice.service.PurchaseJournalService;
+import com.example.ticketboxcoreservice.utils.SortWhitelist;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
@@ -14,22 +18,34 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Set;
+
 @RestController
 @RequestMapping("/api/orders")
 @RequiredArgsConstructor
 @Tag(name="Order")
 public class OrderController {
+    // backed by idx_order_buyer_status and idx_order_buyer_status_purchase_date
+    private static final SortWhitelist ORDER_SORTS = new SortWhitelist("id", "purchaseDate");
+
     private final OrderService orderService;
+    private final IdempotencyService idempotencyService;
+    private final PurchaseJournalService purchaseJournalService;
 
-    @Operation(summary = "purchase cart by user id")
+    @Operation(summary = "purchase cart by user id, a retry with the same Idempotency-Key gets the first result")
     @PutMapping("/purchase/{userId}")
     public ResponseEntity<ApiResponse> purchaseCart(
-            @PathVariable("userId") Long userId
+            @PathVariable("userId") Long userId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestAttribute(value = AdmissionFilter.ADMITTED_EVENT_IDS, required = false) Set<Long> admittedEventIds
             ) {
-        ApiResponse response = ApiResponse.succeed(orderService.purchaseCartByUserId(userId));
+        ApiResponse response = idempotencyService.execute("purchase:" + userId, idempotencyKey, null,
+                () -> ApiResponse.succeed(purchaseJournalService.isEnabled()
+                        ? purchaseJournalService.purchase(userId, admittedEventIds)
+                        : orderService.purchaseCartByUserId(userId, admittedEventIds)));
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
-    @Operation(summary = "get cart by user id")
+    @Operation(summary = "get cart by user id, header and lines in one read")
     @GetMapping("/cart/{userId}")
     public ResponseEntity<ApiResponse> getCartByUserId(
             @PathVariable("userId") Long userId
@@ -44,10 +60,34 @@ public class OrderController {
             @PathVariable("userId") Long userId,
             @RequestParam(value = "pageNo", defaultValue = "1", required = false) int pageNo,
             @RequestParam(value = "pageSize", defaultValue = "10", required = false) int pageSize,
-            @RequestParam(value = "sortBy", defaultValue = "id", required = false) String sortBy
+            @RequestParam(value = "sortBy", defaultValue = "id", required = false) String sortBy,
+            @RequestParam(value = "direction", defaultValue = "asc", required = false) String direction,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "total", defaultValue = "exact", required = false) String total
     ) {
-        Pageable pageable = PageRequest.of(pageNo - 1, pageSize, Sort.by(sortBy).ascending());
-        ApiResponse response = ApiResponse.succeed(orderService.getOrderHistoryByUserId(userId, pageable));
+        Sort sort = ORDER_SORTS.sort(sortBy, direction);
+        Pageable pageable = PageRequest.of(pageNo - 1, pageSize, sort);
+        PageTotal pageTotal = PageTotal.of(total);
+        ApiResponse response = ApiResponse.succeed(cursor != null
+                ? orderService.scrollOrderHistoryByUserId(userId, cursor, pageSize, sort)
+                : pageTotal == PageTotal.NONE ? orderService.sliceOrderHistoryByUserId(userId, pageable)
+                : orderService.getOrderHistoryByUserId(userId, pageable));
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    @Operation(summary = "poll the issuing of tickets and receipt of a purchased order")
+    @GetMapping("/fulfillment/{orderId}")
+    public ResponseEntity<ApiResponse> getFulfillmentByOrderId(
+            @PathVariable("orderId") Long orderId) {
+        ApiResponse response = ApiResponse.succeed(orderService.getFulfillmentByOrderId(orderId));
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    @Operation(summary = "queue the fulfillment of an order again after it failed, admin only")
+    @PutMapping("/fulfillment/{orderId}/retry")
+    public ResponseEntity<ApiResponse> requeueFulfillmentByOrderId(
+            @PathVariable("orderId") Long orderId) {
+        ApiResponse response = ApiResponse.succeed(orderService.requeueFulfillmentByOrderId(orderId));
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
@@ -1,10 +1,18 @@
 package com.example.ticketboxcoreservice.controller;
 
+import com.example.ticketboxcoreservice.configurations.AdmissionFilter;
+import com.example.ticketboxcoreservice.enumf.PageTotal;
+import com.example.ticketboxcoreservice.model.dto.request.BatchValidationRequest;
 import com.example.ticketboxcoreservice.model.dto.request.OrderTicketQRCode;
 import com.example.ticketboxcoreservice.model.dto.request.OrderTicketRequest;
+import com.example.ticketboxcoreservice.model.dto.request.UsedDeltaRequest;
 import com.example.ticketboxcoreservice.model.dto.response.ApiResponse;
 import com.example.ticketboxcoreservice.model.entity.OrderTicket;
+import com.example.ticketboxcoreservice.service.IdempotencyService;
 import com.example.ticketboxcoreservice.service.OrderTicketService;
+import com.example.ticketboxcoreservice.service.QrCodeService;
+import com.example.ticketboxcoreservice.service.TicketManifestService;
+import com.example.ticketboxcoreservice.utils.SortWhitelist;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -13,25 +21,39 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/order-tickets")
 @RequiredArgsConstructor
 @Tag(name = "Order Ticket")
 public class OrderTicketController {
+    // backed by the order foreign key index
+    private static final SortWhitelist ORDER_TICKET_SORTS = new SortWhitelist("id");
+
     private final OrderTicketService orderTicketService;
+    private final TicketManifestService ticketManifestService;
+    private final IdempotencyService idempotencyService;
 
-    @Operation(summary = "create order ticket by user id")
+    @Operation(summary = "create order ticket by user id, a retry with the same Idempotency-Key gets the first result")
     @PostMapping("/create/{userId}")
     public ResponseEntity<ApiResponse> createOrderTicket(
             @PathVariable("userId") Long userId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestAttribute(value = AdmissionFilter.ADMITTED_EVENT_IDS, required = false) Set<Long> admittedEventIds,
             @RequestBody @Valid OrderTicketRequest orderTicketRequest) {
-        ApiResponse response = ApiResponse.succeed(orderTicketService.createOrderTicket(userId, orderTicketRequest));
+        ApiResponse response = idempotencyService.execute("create-order-ticket:" + userId, idempotencyKey,
+                orderTicketRequest,
+                () -> ApiResponse.succeed(orderTicketService.createOrderTicket(userId, orderTicketRequest,
+                        admittedEventIds)));
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
@@ -71,15 +93,50 @@ public class OrderTicketController {
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
+    @Operation(summary = "validate a batch of order ticket tokens queued by a gate scanner")
+    @PutMapping(path = "/validate-tokens")
+    public ResponseEntity<ApiResponse> validateOrderTicketsByTokens(
+            @RequestBody @Valid BatchValidationRequest batchValidationRequest) {
+        ApiResponse response = ApiResponse.succeed(
+                orderTicketService.validateOrderTicketsByTokens(batchValidationRequest.getTokens()));
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    @Operation(summary = "get the offline scanning manifest of an event, only changes after the cursor if one is given")
+    @GetMapping("/manifest/{eventId}")
+    public ResponseEntity<ApiResponse> getManifest(
+            @PathVariable("eventId") Long eventId,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        ApiResponse response = ApiResponse.succeed(ticketManifestService.getManifest(eventId, cursor));
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    @Operation(summary = "merge order tickets admitted by a gate while it was offline")
+    @PutMapping("/manifest/{eventId}/used")
+    public ResponseEntity<ApiResponse> mergeUsedDelta(
+            @PathVariable("eventId") Long eventId,
+            @RequestBody @Valid UsedDeltaRequest usedDeltaRequest) {
+        ApiResponse response = ApiResponse.succeed(ticketManifestService.mergeUsedDelta(eventId, usedDeltaRequest));
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
     @Operation(summary = "get cart tickets by user id")
     @GetMapping("/cart/{userId}")
     public ResponseEntity<ApiResponse> getCartTicketsByUserId(
             @PathVariable("userId") Long userId,
             @RequestParam(value = "pageNo", defaultValue = "1", required = false) int pageNo,
             @RequestParam(value = "pageSize", defaultValue = "10", required = false) int pageSize,
-            @RequestParam(value = "sortBy", defaultValue = "id", required = false) String sortBy) {
-        Pageable pageable = PageRequest.of(pageNo - 1, pageSize, Sort.by(sortBy).ascending());
-        ApiResponse response = ApiResponse.succeed(orderTicketService.getCartTicketsByUserId(userId, pageable));
+            @RequestParam(value = "sortBy", defaultValue = "id", required = false) String sortBy,
+            @RequestParam(value = "direction", defaultValue = "asc", required = false) String direction,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "total", defaultValue = "exact", required = false) String total) {
+        Sort sort = ORDER_TICKET_SORTS.sort(sortBy, direction);
+        Pageable pageable = PageRequest.of(pageNo - 1, pageSize, sort);
+        PageTotal pageTotal = PageTotal.of(total);
+        ApiResponse response = ApiResponse.succeed(cursor != null
+                ? orderTicketService.scrollCartTicketsByUserId(userId, cursor, pageSize, sort)
+                : pageTotal == PageTotal.NONE ? orderTicketService.sliceCartTicketsByUserId(userId, pageable)
+                : orderTicketService.getCartTicketsByUserId(userId, pageable));
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
@@ -89,18 +146,52 @@ public class OrderTicketController {
             @PathVariable("orderId") Long orderId,
             @RequestParam(value = "pageNo", defaultValue = "1", required = false) int pageNo,
             @RequestParam(value = "pageSize", defaultValue = "10", required = false) int pageSize,
-            @RequestParam(value = "sortBy", defaultValue = "id", required = false) String sortBy) {
-        Pageable pageable = PageRequest.of(pageNo - 1, pageSize, Sort.by(sortBy).ascending());
-        ApiResponse response = ApiResponse.succeed(orderTicketService.getOrderTicketsByOrderId(orderId, pageable));
+            @RequestParam(value = "sortBy", defaultValue = "id", required = false) String sortBy,
+            @RequestParam(value = "direction", defaultValue = "asc", required = false) String direction,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "total", defaultValue = "exact", required = false) String total) {
+        Sort sort = ORDER_TICKET_SORTS.sort(sortBy, direction);
+        Pageable pageable = PageRequest.of(pageNo - 1, pageSize, sort);
+        PageTotal pageTotal = PageTotal.of(total);
+        ApiResponse response = ApiResponse.succeed(cursor != null
+                ? orderTicketService.scrollOrderTicketsByOrderId(orderId, cursor, pageSize, sort)
+                : pageTotal == PageTotal.NONE ? orderTicketService.sliceOrderTicketsByOrderId(orderId, pageable)
+                : orderTicketService.getOrderTicketsByOrderId(orderId, pageable));
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
     @Operation(summary = "get order ticket qr code")
-    @GetMapping(value = "/qr/{orderTicketId}", produces = MediaType.IMAGE_PNG_VALUE)
+    @GetMapping(value = "/qr/{orderTicketId}", produces = {MediaType.IMAGE_PNG_VALUE, "image/svg+xml"})
     public ResponseEntity<byte[]> getOrderTicketQRCode(
-            @PathVariable("orderTicketId") Long orderTicketId) {
-        byte[] qrCode = orderTicketService.getOrderTicketQRCode(orderTicketId);
-        return ResponseEntity.ok().contentType(MediaType.IMAGE_PNG).body(qrCode);
+            @PathVariable("orderTicketId") Long orderTicketId,
+            @RequestParam(value = "size", defaultValue = "300", required = false) int size,
+            @RequestParam(value = "format", defaultValue = QrCodeService.FORMAT_PNG, required = false) String format) {
+        byte[] qrCode = orderTicketService.getOrderTicketQRCode(orderTicketId, size, format);
+        MediaType contentType = QrCodeService.FORMAT_SVG.equals(format)
+                ? MediaType.valueOf("image/svg+xml") : MediaType.IMAGE_PNG;
+        return ResponseEntity.ok().contentType(contentType).body(qrCode);
+    }
+
+    @Operation(summary = "download the qr codes of every ticket of an order as one zip")
+    @GetMapping(value = "/qr-bundle/{orderId}", produces = "application/zip")
+    public ResponseEntity<StreamingResponseBody> getOrderQRCodeBundle(
+            @PathVariable("orderId") Long orderId,
+            @RequestParam(value = "size", defaultValue = "300", required = false) int size,
+            @RequestParam(value = "format", defaultValue = QrCodeService.FORMAT_PNG, required = false) String format) {
+        StreamingResponseBody bundle = orderTicketService.getOrderQRCodeBundle(orderId, size, format);
+        return ResponseEntity.ok()
+                .contentType(MediaType.valueOf("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"order-" + orderId + "-tickets.zip\"")
+                .body(bundle);
+    }
+
+    @Operation(summary = "get the seed and step of the rotating qr code, for clients that render the code locally")
+    @GetMapping(value = "/dynamic-qr/{orderTicketId}/{buyerId}")
+    public ResponseEntity<ApiResponse> getDynamicQr(
+            @PathVariable("orderTicketId") Long orderTicketId,
+            @PathVariable("buyerId") Long buyerId) {
+        ApiResponse response = ApiResponse.succeed(orderTicketService.getDynamicQr(orderTicketId, buyerId));
+        return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
     @Operation(summary = "get order ticket token by order ticket id and buyer id")
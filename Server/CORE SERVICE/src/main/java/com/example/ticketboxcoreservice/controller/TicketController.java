@@ -1,10 +1,12 @@
 package com.example.ticketboxcoreservice.controller;
 
 
+import com.example.ticketboxcoreservice.enumf.PageTotal;
 import com.example.ticketboxcoreservice.model.dto.request.EventRequest;
 import com.example.ticketboxcoreservice.model.dto.request.TicketRequest;
 import com.example.ticketboxcoreservice.model.dto.response.ApiResponse;
 import com.example.ticketboxcoreservice.service.TicketService;
+import com.example.ticketboxcoreservice.utils.SortWhitelist;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
@@ -20,6 +22,9 @@ import org.springframework.web.bind.annotation.*;
 @RequiredArgsConstructor
 @Tag(name="Ticket")
 public class TicketController {
+    // backed by the event foreign key index and idx_ticket_event_unit_price
+    private static final SortWhitelist TICKET_SORTS = new SortWhitelist("id", "unitPrice");
+
     private final TicketService ticketService;
 
     @Operation(summary = "create ticket request by user id")
@@ -74,9 +79,17 @@ public class TicketController {
             @PathVariable("eventId") Long eventId,
             @RequestParam(value = "pageNo", defaultValue = "1", required = false) int pageNo,
             @RequestParam(value = "pageSize", defaultValue = "10", required = false) int pageSize,
-            @RequestParam(value = "sortBy", defaultValue = "id", required = false) String sortBy) {
-        Pageable pageable = PageRequest.of(pageNo - 1, pageSize, Sort.by(sortBy).ascending());
-        ApiResponse response = ApiResponse.succeed(ticketService.getTicketsByEventId(eventId, pageable));
+            @RequestParam(value = "sortBy", defaultValue = "id", required = false) String sortBy,
+            @RequestParam(value = "direction", defaultValue = "asc", required = false) String direction,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "total", defaultValue = "exact", required = false) String total) {
+        Sort sort = TICKET_SORTS.sort(sortBy, direction);
+        Pageable pageable = PageRequest.of(pageNo - 1, pageSize, sort);
+        PageTotal pageTotal = PageTotal.of(total);
+        ApiResponse response = ApiResponse.succeed(cursor != null
+                ? ticketService.scrollTicketsByEventId(eventId, cursor, pageSize, sort)
+                : pageTotal == PageTotal.NONE ? ticketService.sliceTicketsByEventId(eventId, pageable)
+                : ticketService.getTicketsByEventId(eventId, pageable));
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
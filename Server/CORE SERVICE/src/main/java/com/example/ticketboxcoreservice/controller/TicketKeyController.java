@@ -0,0 +1,27 @@
+package com.example.ticketboxcoreservice.controller;
+
+import com.example.ticketboxcoreservice.model.dto.response.ApiResponse;
+import com.example.ticketboxcoreservice.service.TicketKeyService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/ticket-keys")
+@RequiredArgsConstructor
+@Tag(name = "Ticket Key")
+public class TicketKeyController {
+    private final TicketKeyService ticketKeyService;
+
+    @Operation(summary = "get the public keys that verify signed ticket tokens")
+    @GetMapping
+    public ResponseEntity<ApiResponse> getTicketKeys() {
+        ApiResponse response = ApiResponse.succeed(ticketKeyService.getPublishedKeys());
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+}
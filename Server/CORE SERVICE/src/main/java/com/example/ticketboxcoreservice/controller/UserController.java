@@ -7,13 +7,13 @@ import com.example.ticketboxcoreservice.model.dto.request.UserProfileRequest;
 import com.example.ticketboxcoreservice.model.dto.request.UserRequest;
 import com.example.ticketboxcoreservice.model.dto.response.ApiResponse;
 import com.example.ticketboxcoreservice.service.UserService;
+import com.example.ticketboxcoreservice.utils.SortWhitelist;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.Value;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -25,6 +25,9 @@ import org.springframework.web.bind.annotation.*;
 @RequiredArgsConstructor
 @Tag(name = "User")
 public class UserController {
+    // backed by the primary key and the unique username index
+    private static final SortWhitelist USER_SORTS = new SortWhitelist("id", "username");
+
     private final UserService userService;
 
     @Operation(summary = "get user by user id")
@@ -48,9 +51,13 @@ public class UserController {
     public ResponseEntity<ApiResponse> all(
             @RequestParam(value = "pageNo", defaultValue = "1", required = false) int pageNo,
             @RequestParam(value = "pageSize", defaultValue = "10", required = false) int pageSize,
-            @RequestParam(value = "sortBy", defaultValue = "username", required = false) String sortBy) {
-        Pageable pageable = PageRequest.of(pageNo - 1, pageSize, Sort.by(sortBy).ascending());
-        ApiResponse response = ApiResponse.succeed(userService.getAllUser(pageable));
+            @RequestParam(value = "sortBy", defaultValue = "username", required = false) String sortBy,
+            @RequestParam(value = "direction", defaultValue = "asc", required = false) String direction,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        Sort sort = USER_SORTS.sort(sortBy, direction);
+        ApiResponse response = ApiResponse.succeed(cursor == null
+                ? userService.getAllUser(PageRequest.of(pageNo - 1, pageSize, sort))
+                : userService.scrollAllUsers(cursor, pageSize, sort));
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
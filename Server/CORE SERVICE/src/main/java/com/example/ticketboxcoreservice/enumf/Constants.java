@@ -4,6 +4,9 @@ import lombok.RequiredArgsConstructor;
 
 
 public class Constants {
+    // ids are allocated in blocks from this table, one row per entity table, see IdBlockSeeder
+    public static final String ID_BLOCK_TABLE = "s_id_block";
+
     // image
     public static final Long DEFAULT_AVATAR_IMG_ID = 1l;
 
@@ -15,6 +18,11 @@ public class Constants {
     public static final Integer EVENT_STATUS_RUNNING = 3;
     public static final Integer EVENT_STATUS_ENDED = 4; // event creation request is approved and today is after its end date
 
+    // autocomplete suggestion types
+    public static final String AUTOCOMPLETE_TYPE_EVENT = "EVENT"; // an event name
+    public static final String AUTOCOMPLETE_TYPE_ORGANIZER = "ORGANIZER"; // an event org name
+    public static final String AUTOCOMPLETE_TYPE_VENUE = "VENUE"; // an event address
+
     // Ticket
     public static final Integer TICKET_STATUS_DECLINED = -1; // ticket creation request get declination from approvers
     public static final Integer TICKET_STATUS_CANCELED = 0; // ticket creation request get canceled by its creator
@@ -29,10 +37,14 @@ public class Constants {
     public static final Integer ORDER_STATUS_PENDING = 1; // order payment is waiting for response from payment system
     public static final Integer ORDER_STATUS_NOT_PURCHASED = 0; // order is not purchased, which plays as a cart
     public static final Integer ORDER_STATUS_PURCHASED = 2; // order is purchased
+    public static final Integer ORDER_FULFILLMENT_STATUS_FAILED = -1; // fulfillment job gave up, tickets have no token
+    public static final Integer ORDER_FULFILLMENT_STATUS_PENDING = 0; // order is purchased, tokens and receipt are being issued
+    public static final Integer ORDER_FULFILLMENT_STATUS_DONE = 1; // every ticket of the order has its token
 
     // OrderTicket
     public static final Integer ORDER_TICKET_STATUS_INACTIVE = 0; // order ticket is created and order is not purchased
     public static final Integer ORDER_TICKET_STATUS_ACTIVE = 1; // order ticket is created and order is purchased => QR code is generated
     public static final Integer ORDER_TICKET_STATUS_USED = 3; // QR code is scanned
     public static final Integer ORDER_TICKET_STATUS_PENDING = 2;
+    public static final Integer ORDER_TICKET_STATUS_EXPIRED = -1; // cart hold timed out before the order was purchased
 }
@@ -17,6 +17,7 @@ public enum ErrorCode {
     TOKEN_EXPIRED(400, "Token expired", HttpStatus.BAD_REQUEST),
     USERNAME_CAN_NOT_BE_CHANGED(400, "User name can not be changed", HttpStatus.BAD_REQUEST),
     USER_ALREADY_EXISTS(400, "User already exists", HttpStatus.BAD_REQUEST),
+    EVENT_START_DATE_REQUIRED(400, "Event start date is required", HttpStatus.BAD_REQUEST),
     INVALID_TICKET_SALE_DATE(400, "Ticket sale date is invalid", HttpStatus.BAD_REQUEST),
     USER_IS_ALREADY_APPROVER(400, "User is already an approver", HttpStatus.BAD_REQUEST),
     ADMIN_CANNOT_REGISTER_APPROVER(400, "As an admin, user cannot register to be an approver", HttpStatus.BAD_REQUEST),
@@ -40,12 +41,44 @@ public enum ErrorCode {
 
     ORDER_TICKET_EXPIRED(400, "Order ticket expired.", HttpStatus.BAD_REQUEST),
     ORDER_TICKET_USED(400, "Order ticket used.", HttpStatus.BAD_REQUEST),
+    ORDER_TICKET_TOKEN_INVALID(400, "Order ticket token is malformed or its signature is invalid.",
+            HttpStatus.BAD_REQUEST),
     ORDER_TICKET_UNMATCHED(400, "Validation failed: Scanned token does not match database token.",
             HttpStatus.BAD_REQUEST),
     ORDER_TICKET_QUANTITY_INVALID(400,
             "Order ticket quantity cannot exceeds ticket maximum quantity nor be under the minimum one.",
             HttpStatus.BAD_REQUEST),
+    ORDER_FULFILLMENT_PENDING(409, "Tickets of this order are still being issued, please retry shortly.",
+            HttpStatus.CONFLICT),
     ORDER_TICKET_NOT_INSIDE_CART(400, "Cart does not contain the given order ticket.", HttpStatus.BAD_REQUEST),
+    CART_EMPTY(400, "Cart is empty, add a ticket before purchasing.", HttpStatus.BAD_REQUEST),
+    TICKET_SOLD_OUT(400, "Ticket does not have enough remaining capacity for the requested quantity.",
+            HttpStatus.BAD_REQUEST),
+    PURCHASE_BEING_RECORDED(409, "The previous purchase of this cart is still being recorded, please retry shortly.",
+            HttpStatus.CONFLICT),
+    PURCHASE_JOURNAL_FULL(503, "Checkout is saturated, please try again shortly.", HttpStatus.SERVICE_UNAVAILABLE),
+    PURCHASE_NOT_RECORDED(503, "Purchase could not be recorded, please try again.", HttpStatus.SERVICE_UNAVAILABLE),
+    ADMISSION_REQUIRED(403, "Checkout requires a valid admission token from the waiting room.", HttpStatus.FORBIDDEN),
+    ADMISSION_EXPIRED(400, "Admission window has passed, please join the waiting room again.",
+            HttpStatus.BAD_REQUEST),
+    ADMISSION_QUEUE_FULL(503, "Waiting room is at capacity, please try again later.", HttpStatus.SERVICE_UNAVAILABLE),
+    IDEMPOTENCY_KEY_INVALID(400, "Idempotency-Key must be 1 to 255 characters.", HttpStatus.BAD_REQUEST),
+    IDEMPOTENCY_KEY_REUSED(422, "Idempotency-Key was already used for a different request.",
+            HttpStatus.UNPROCESSABLE_ENTITY),
+    IDEMPOTENCY_REQUEST_IN_PROGRESS(409, "A request with this Idempotency-Key is still being processed.",
+            HttpStatus.CONFLICT),
+    CART_BEING_CREATED(409, "Your cart is being created by another request, please retry shortly.",
+            HttpStatus.CONFLICT),
+    FULFILLMENT_NOT_FAILED(409, "Only orders whose fulfillment failed can be queued again.", HttpStatus.CONFLICT),
+    MANIFEST_CURSOR_INVALID(400, "Manifest cursor is malformed.", HttpStatus.BAD_REQUEST),
+    PAGE_CURSOR_INVALID(400, "Page cursor is malformed or was issued for another sort.", HttpStatus.BAD_REQUEST),
+    SORT_KEY_NOT_ALLOWED(400, "This list cannot be sorted by the given key or direction.", HttpStatus.BAD_REQUEST),
+    SEARCH_PAGE_OUT_OF_RANGE(400, "Search page is too large or too deep, narrow the search instead.",
+            HttpStatus.BAD_REQUEST),
+    PAGE_TOTAL_NOT_ALLOWED(400, "Page total must be exact, estimate or none.", HttpStatus.BAD_REQUEST),
+    QR_CODE_OPTIONS_INVALID(400, "QR code format must be png or svg and its size within the allowed range.",
+            HttpStatus.BAD_REQUEST),
+    QUEUE_TOKEN_INVALID(400, "Waiting room token is invalid or belongs to a closed queue.", HttpStatus.BAD_REQUEST),
 
     ONLY_PDF_ALLOWED(400, "Only PDF files are allowed!", HttpStatus.BAD_REQUEST),
     PASSWORD_NOT_MATCHED(400, "Current password is not correct", HttpStatus.BAD_REQUEST),
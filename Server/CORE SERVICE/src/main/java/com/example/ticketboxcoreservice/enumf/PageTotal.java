@@ -0,0 +1,17 @@
+package com.example.ticketboxcoreservice.enumf;
+
+import com.example.ticketboxcoreservice.exception.AppException;
+
+// how a numbered page reports the size of its list, the total request param of the list endpoints
+public enum PageTotal {
+    EXACT, // COUNT(*) of the list along with the page
+    ESTIMATE, // cached count of the list, refreshed in the background; lists without one count exactly
+    NONE; // no count, size + 1 rows are read to tell hasNext
+
+    public static PageTotal of(String total) {
+        for (PageTotal value : values()) {
+            if (value.name().equalsIgnoreCase(total)) return value;
+        }
+        throw new AppException(ErrorCode.PAGE_TOTAL_NOT_ALLOWED);
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.ticketboxcoreservice.enumf;
+
+// outcome of one token in a batch scan
+public enum ScanResult {
+    ADMITTED,
+    ALREADY_USED,
+    EXPIRED,
+    UNMATCHED,
+    NOT_FOUND,
+}
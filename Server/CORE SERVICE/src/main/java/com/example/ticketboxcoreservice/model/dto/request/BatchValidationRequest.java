@@ -0,0 +1,18 @@
+package com.example.ticketboxcoreservice.model.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchValidationRequest {
+    @NotEmpty(message = "At least one token is required")
+    @Size(max = 1000, message = "At most 1000 tokens per batch")
+    private List<String> tokens;
+}
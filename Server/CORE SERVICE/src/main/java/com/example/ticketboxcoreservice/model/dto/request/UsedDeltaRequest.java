@@ -0,0 +1,19 @@
+package com.example.ticketboxcoreservice.model.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UsedDeltaRequest {
+    private String gateId;
+    @NotEmpty(message = "At least one order ticket id is required")
+    @Size(max = 100000, message = "At most 100000 order ticket ids per upload")
+    private List<Long> orderTicketIds;
+}
@@ -0,0 +1,19 @@
+package com.example.ticketboxcoreservice.model.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class AdmissionResponse {
+    private Long eventId;
+    private Long position;
+    private Long estimatedWaitSeconds;
+    private String queueToken;
+    private String admissionToken;
+    private Long admissionExpiresAt;
+}
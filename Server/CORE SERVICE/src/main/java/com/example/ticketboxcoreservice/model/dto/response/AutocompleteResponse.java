@@ -0,0 +1,15 @@
+package com.example.ticketboxcoreservice.model.dto.response;
+
+import lombok.*;
+
+// one search box suggestion, eventId is only set when the text belongs to a single event
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class AutocompleteResponse {
+    private String text;
+    private String type;
+    private Long eventId;
+}
@@ -0,0 +1,17 @@
+package com.example.ticketboxcoreservice.model.dto.response;
+
+import lombok.*;
+
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CartLineResponse {
+    private Long id;
+    private Integer status;
+    private Long ticketId;
+    private String ticketType;
+    private Double unitPrice;
+    private Long subQuantity;
+}
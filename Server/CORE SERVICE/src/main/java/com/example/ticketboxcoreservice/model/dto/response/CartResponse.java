@@ -0,0 +1,23 @@
+package com.example.ticketboxcoreservice.model.dto.response;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CartResponse {
+    private Long id;
+    private Integer status;
+    private Double totalPrice;
+    private Long quantity;
+    private LocalDateTime createDate;
+    private LocalDateTime updateDate;
+    @Builder.Default
+    private List<CartLineResponse> lines = new ArrayList<>();
+}
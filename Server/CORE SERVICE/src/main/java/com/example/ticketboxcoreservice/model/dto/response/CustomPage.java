@@ -2,18 +2,38 @@ package com.example.ticketboxcoreservice.model.dto.response;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
+import java.util.function.Function;
 
+// a page of a list endpoint, by page number or in cursor mode, where pageNo and totalPages stay 0 and nextCursor
+// fetches the following page (absent on the last one). A page read without a total (total=none) only says hasNext
+// and keeps totalPages 0; totalExact is false when totalPages comes from a cached count that may be behind.
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class CustomPage<T> {
     private int pageNo;
     private int pageSize;
     private int totalPages;
     List<T> pageContent;
+    private String nextCursor;
+    private Boolean hasNext;
+    private Boolean totalExact;
+
+    // a Page carries its exact total, a Slice only whether another page follows
+    public static <E, T> CustomPage<T> of(Slice<E> slice, Function<? super E, ? extends T> mapper) {
+        CustomPageBuilder<T> page = CustomPage.<T>builder()
+                .pageNo(slice.getNumber() + 1)
+                .pageSize(slice.getSize())
+                .hasNext(slice.hasNext())
+                .pageContent(slice.getContent().stream().<T>map(mapper).toList());
+        if (slice instanceof Page<E> withTotal) page.totalPages(withTotal.getTotalPages()).totalExact(true);
+        return page.build();
+    }
 }
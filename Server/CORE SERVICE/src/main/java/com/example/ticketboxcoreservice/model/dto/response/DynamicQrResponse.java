@@ -0,0 +1,21 @@
+package com.example.ticketboxcoreservice.model.dto.response;
+
+import lombok.*;
+
+// code = prefix + base32(orderTicketId as 6 bytes, eventId as 4 bytes,
+//        first 6 bytes of HMAC-SHA256(seed, epochSeconds / stepSeconds as 8 bytes))
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class DynamicQrResponse {
+    private Long orderTicketId;
+    private Long eventId;
+    private String prefix;
+    // base64 encoded
+    private String seed;
+    private Long stepSeconds;
+    // the code of the current step, for clients that do not compute it themselves
+    private String code;
+}
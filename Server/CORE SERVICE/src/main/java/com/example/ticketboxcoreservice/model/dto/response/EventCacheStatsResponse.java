@@ -0,0 +1,29 @@
+package com.example.ticketboxcoreservice.model.dto.response;
+
+import lombok.*;
+
+// counters of the event near-cache since startup, bytes are the estimate the cache bounds itself by
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class EventCacheStatsResponse {
+    private Integer eventEntries;
+    private Long eventBytes;
+    private Long eventHits;
+    private Long eventMisses;
+    private Long eventEvictions;
+    private Integer pageEntries;
+    private Long pageBytes;
+    private Long pageHits;
+    // served past the page TTL while a background reload ran
+    private Long pageStaleHits;
+    private Long pageMisses;
+    private Long pageEvictions;
+    private Integer countEntries;
+    private Long countHits;
+    // answered with a count that may be behind while a background count ran
+    private Long countEstimates;
+    private Long countMisses;
+}
@@ -0,0 +1,17 @@
+package com.example.ticketboxcoreservice.model.dto.response;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class FulfillmentResponse {
+    private Long orderId;
+    private Integer fulfillmentStatus;
+    private String receiptNumber;
+    private LocalDateTime fulfilledAt;
+}
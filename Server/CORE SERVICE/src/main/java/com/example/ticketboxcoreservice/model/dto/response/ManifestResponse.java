@@ -0,0 +1,24 @@
+package com.example.ticketboxcoreservice.model.dto.response;
+
+import lombok.*;
+
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ManifestResponse {
+    private Long eventId;
+    // pass back to get only what changed since this manifest
+    private String cursor;
+    // false when the manifest only holds changes since the given cursor
+    private Boolean full;
+    // bit i of both bitmaps stands for order ticket id baseId + i
+    private Long baseId;
+    private Integer ticketCount;
+    // deflated, base64 encoded little-endian bitmaps of valid and of already used order tickets
+    private String validBitmap;
+    private String usedBitmap;
+    // deflated, base64 encoded varints: the admit count of every valid ticket, in id order
+    private String admitCounts;
+}
@@ -17,4 +17,6 @@ public class OrderResponse {
     private LocalDateTime purchaseDate;
     private LocalDateTime createDate;
     private LocalDateTime updateDate;
+    private Integer fulfillmentStatus;
+    private String receiptNumber;
 }
@@ -0,0 +1,16 @@
+package com.example.ticketboxcoreservice.model.dto.response;
+
+import com.example.ticketboxcoreservice.enumf.ScanResult;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ScanResultResponse {
+    private Long orderTicketId;
+    private ScanResult result;
+}
@@ -0,0 +1,18 @@
+package com.example.ticketboxcoreservice.model.dto.response;
+
+import lombok.*;
+
+// calls of one single-flight group since startup, hitRate is the share of calls that waited on another one's load
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class SingleFlightStatsResponse {
+    private String name;
+    private Long calls;
+    private Long loads;
+    private Long coalesced;
+    private Double hitRate;
+    private Integer inFlight;
+}
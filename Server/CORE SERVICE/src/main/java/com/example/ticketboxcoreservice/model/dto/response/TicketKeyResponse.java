@@ -0,0 +1,18 @@
+package com.example.ticketboxcoreservice.model.dto.response;
+
+import lombok.*;
+
+// a public ticket signing key in JWK form (RFC 8037)
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TicketKeyResponse {
+    private String kid;
+    private String kty;
+    private String crv;
+    // base64url encoded raw 32-byte public key
+    private String x;
+    private Boolean active;
+}
@@ -17,6 +17,7 @@ public class TicketResponse {
     private Double unitPrice;
     private Long capacity;
     private Long sold;
+    private Long held;
     private Integer status;
     private Double ticketPrice;
     private Long minQtyPerOrder;
@@ -0,0 +1,18 @@
+package com.example.ticketboxcoreservice.model.dto.response;
+
+import lombok.*;
+
+import java.util.List;
+
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UsedDeltaResponse {
+    private Integer merged;
+    // admitted offline at this gate but already used elsewhere
+    private List<Long> alreadyUsedIds;
+    // not a sold ticket of this event
+    private List<Long> rejectedIds;
+}
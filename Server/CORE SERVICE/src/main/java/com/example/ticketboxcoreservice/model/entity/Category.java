@@ -1,6 +1,6 @@
 package com.example.ticketboxcoreservice.model.entity;
 
-
+import com.example.ticketboxcoreservice.enumf.Constants;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
@@ -19,7 +19,9 @@ import java.util.Set;
 @Builder()
 public class Category {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "s_category")
+    @TableGenerator(name = "s_category", table = Constants.ID_BLOCK_TABLE, pkColumnValue = "s_category",
+            allocationSize = 10)
     private Long id;
     private String name;
     @ManyToMany(fetch = FetchType.LAZY, cascade = CascadeType.ALL)
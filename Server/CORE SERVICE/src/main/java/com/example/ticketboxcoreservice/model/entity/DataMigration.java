@@ -0,0 +1,22 @@
+package com.example.ticketboxcoreservice.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// a one-off data fix that has run, so that it is not run again on the next start of any node
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "s_data_migration")
+@Builder()
+public class DataMigration {
+    @Id
+    @Column(name = "name", length = 100)
+    private String name;
+    @Column(name = "applied_at", nullable = false)
+    private LocalDateTime appliedAt;
+}
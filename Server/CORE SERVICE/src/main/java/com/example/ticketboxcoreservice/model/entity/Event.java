@@ -17,11 +17,20 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "s_event")
+@Table(name = "s_event", indexes = {
+        @Index(name = "idx_event_update_date", columnList = "update_date"),
+        // the list endpoints filter on these columns and sort by what follows, see EventController
+        @Index(name = "idx_event_status_id", columnList = "status, id"),
+        @Index(name = "idx_event_status_start_date", columnList = "status, start_date, id"),
+        @Index(name = "idx_event_host_status_id", columnList = "host_id, status, id"),
+        @Index(name = "idx_event_host_status_start_date", columnList = "host_id, status, start_date, id"),
+        @Index(name = "idx_event_approver_start_date", columnList = "approver_id, start_date, id")})
 @Builder()
 public class Event {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "s_event")
+    @TableGenerator(name = "s_event", table = Constants.ID_BLOCK_TABLE, pkColumnValue = "s_event",
+            allocationSize = 20)
     private Long id;
     private String name;
     @Column(name = "onl")
@@ -31,6 +40,8 @@ public class Event {
     private String orgName;
     private String orgInfo;
     private Integer status;
+    // required, seek cursors sorted by start date cannot carry a null
+    @Column(nullable = false)
     private LocalDateTime startDate;
     private LocalDateTime endDate;
     private LocalDateTime createDate;
@@ -61,11 +72,17 @@ public class Event {
     @ManyToMany(fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     @JoinTable(name = "s_cat_event",
             joinColumns = @JoinColumn(name = "s_event.id"),
-            inverseJoinColumns = @JoinColumn(name = "s_category.id")
+            inverseJoinColumns = @JoinColumn(name = "s_category.id"),
+            // events of a category in id order
+            indexes = @Index(name = "idx_cat_event_category_event", columnList = "s_category.id, s_event.id")
     )
     @JsonIgnore
     private Set<Category> categories = new HashSet<>();
 
+    public void validateStartDate() {
+        if (startDate == null) throw new AppException(ErrorCode.EVENT_START_DATE_REQUIRED);
+    }
+
     public void approve() {
         updateDate = LocalDateTime.now();
         if (LocalDateTime.now().isBefore(startDate)) status = Constants.EVENT_STATUS_UPCOMING;
@@ -0,0 +1,28 @@
+package com.example.ticketboxcoreservice.model.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// the stored result of a request made with an Idempotency-Key, see IdempotencyService
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "s_idempotency_record", indexes = @Index(name = "idx_idempotency_created_at", columnList = "created_at"))
+@Builder()
+public class IdempotencyRecord {
+    // base64url SHA-256 of scope and client key, so keys of any length fit a fixed-size primary key
+    @Id
+    @Column(name = "key_hash", length = 43)
+    private String keyHash;
+    // base64url SHA-256 of the request body, a key replayed with a different body is rejected
+    @Column(name = "fingerprint", length = 43, nullable = false)
+    private String fingerprint;
+    @Column(name = "response_body", columnDefinition = "TEXT", nullable = false)
+    private String responseBody;
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -1,5 +1,6 @@
 package com.example.ticketboxcoreservice.model.entity;
 
+import com.example.ticketboxcoreservice.enumf.Constants;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -12,7 +13,9 @@ import lombok.*;
 @Builder()
 public class Image {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "s_image")
+    @TableGenerator(name = "s_image", table = Constants.ID_BLOCK_TABLE, pkColumnValue = "s_image",
+            allocationSize = 20)
     private Long id;
     private String url;
     private String publicId;
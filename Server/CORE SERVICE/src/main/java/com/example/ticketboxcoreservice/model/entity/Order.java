@@ -1,5 +1,6 @@
 package com.example.ticketboxcoreservice.model.entity;
 
+import com.example.ticketboxcoreservice.enumf.Constants;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -12,18 +13,35 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "s_order")
+@Table(name = "s_order", uniqueConstraints = @UniqueConstraint(name = "uk_order_cart_owner",
+        columnNames = "cart_owner_id"), indexes = {
+        @Index(name = "idx_order_fulfillment_status", columnList = "fulfillment_status"),
+        // cart lookups go by buyer and status
+        @Index(name = "idx_order_buyer_status", columnList = "buyer_id, status"),
+        // purchase history sorted by date
+        @Index(name = "idx_order_buyer_status_purchase_date", columnList = "buyer_id, status, purchase_date, id")})
 @Builder()
 public class Order {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "s_order")
+    @TableGenerator(name = "s_order", table = Constants.ID_BLOCK_TABLE, pkColumnValue = "s_order",
+            allocationSize = 50)
     private Long id;
     private Integer status;
+    // the buyer while this order is their cart, null once purchased; unique, so nobody ever has two carts
+    private Long cartOwnerId;
     private Double totalPrice;
     private Long quantity;
     private LocalDateTime purchaseDate;
     private LocalDateTime createDate;
     private LocalDateTime updateDate;
+    // tokens and receipt are issued after the purchase commits, null on orders fulfilled before the pipeline existed
+    private Integer fulfillmentStatus;
+    private String receiptNumber;
+    private LocalDateTime fulfilledAt;
+    // failed fulfillment runs so far and the earliest time the sweep runs the job again
+    private Integer fulfillmentAttempts;
+    private LocalDateTime fulfillmentRetryAt;
     @Builder.Default
     @OneToMany(mappedBy = "order", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     private Set<OrderTicket> orderTickets = new HashSet<>();
@@ -36,8 +54,12 @@ public class Order {
         totalPrice = 0d;
         quantity = 0L;
         for (OrderTicket orderTicket : orderTickets) {
+            if (Constants.ORDER_TICKET_STATUS_EXPIRED.equals(orderTicket.getStatus())) continue;
             quantity += orderTicket.getSubQuantity();
-            totalPrice += (double) orderTicket.getSubQuantity() * orderTicket.getTicket().getUnitPrice();
+            // lines added before the price snapshot existed fall back to the current ticket price
+            Double unitPrice = orderTicket.getUnitPrice() != null ? orderTicket.getUnitPrice()
+                    : orderTicket.getTicket().getUnitPrice();
+            totalPrice += (double) orderTicket.getSubQuantity() * unitPrice;
         }
     }
 
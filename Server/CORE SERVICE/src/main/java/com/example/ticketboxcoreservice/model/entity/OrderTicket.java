@@ -1,5 +1,6 @@
 package com.example.ticketboxcoreservice.model.entity;
 
+import com.example.ticketboxcoreservice.enumf.Constants;
 import com.example.ticketboxcoreservice.enumf.ErrorCode;
 import com.example.ticketboxcoreservice.exception.AppException;
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -17,7 +18,9 @@ import java.time.LocalDateTime;
 @Builder()
 public class OrderTicket {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "s_order_ticket")
+    @TableGenerator(name = "s_order_ticket", table = Constants.ID_BLOCK_TABLE, pkColumnValue = "s_order_ticket",
+            allocationSize = 100)
     private Long id;
     private Integer status;
     private String token;
@@ -36,6 +39,11 @@ public class OrderTicket {
     @JoinColumn(name = "relationship.id")
     private Relationship relationship;
     private Long subQuantity;
+    // ticket price when the line was added, cart totals are kept from it so a price change does not reprice carts
+    private Double unitPrice;
+    private LocalDateTime usedAt;
+    // set when the order is purchased; ids are handed out when the line is carted, so manifest deltas are cut on this
+    private LocalDateTime activatedAt;
 
     public void validateSubQuantity() {
         if (subQuantity > ticket.getMaxQtyPerOrder() || subQuantity < ticket.getMinQtyPerOrder()) {
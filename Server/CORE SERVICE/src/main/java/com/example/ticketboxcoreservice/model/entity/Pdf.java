@@ -1,5 +1,6 @@
 package com.example.ticketboxcoreservice.model.entity;
 
+import com.example.ticketboxcoreservice.enumf.Constants;
 
 import jakarta.persistence.*;
 import lombok.*;
@@ -13,7 +14,9 @@ import lombok.*;
 @Builder()
 public class Pdf {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "s_pdf")
+    @TableGenerator(name = "s_pdf", table = Constants.ID_BLOCK_TABLE, pkColumnValue = "s_pdf",
+            allocationSize = 20)
     private Long id;
     private String originalFilename;
     private String publicId;
@@ -1,5 +1,6 @@
 package com.example.ticketboxcoreservice.model.entity;
 
+import com.example.ticketboxcoreservice.enumf.Constants;
 
 import jakarta.persistence.*;
 import lombok.*;
@@ -17,7 +18,9 @@ import java.util.Set;
 @Builder()
 public class Relationship {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "s_relationship")
+    @TableGenerator(name = "s_relationship", table = Constants.ID_BLOCK_TABLE, pkColumnValue = "s_relationship",
+            allocationSize = 10)
     private Long id;
     private String name;
     @ManyToMany(fetch = FetchType.LAZY, cascade = CascadeType.ALL)
@@ -1,5 +1,6 @@
 package com.example.ticketboxcoreservice.model.entity;
 
+import com.example.ticketboxcoreservice.enumf.Constants;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
@@ -16,7 +17,9 @@ import java.util.Set;
 @Builder()
 public class Role {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "s_role")
+    @TableGenerator(name = "s_role", table = Constants.ID_BLOCK_TABLE, pkColumnValue = "s_role",
+            allocationSize = 10)
     private Long id;
     private String name;
     @ManyToMany(fetch = FetchType.LAZY, cascade = CascadeType.ALL)
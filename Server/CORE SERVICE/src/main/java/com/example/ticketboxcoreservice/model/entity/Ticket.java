@@ -6,6 +6,7 @@ import com.example.ticketboxcoreservice.exception.AppException;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDateTime;
 import java.util.HashSet;
@@ -16,11 +17,16 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "s_ticket")
+@Table(name = "s_ticket", indexes = @Index(name = "idx_ticket_event_unit_price",
+        columnList = "event.id, unit_price, id"))
 @Builder()
+// sold is owned by InventoryService, only write the columns that actually changed
+@DynamicUpdate
 public class Ticket {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "s_ticket")
+    @TableGenerator(name = "s_ticket", table = Constants.ID_BLOCK_TABLE, pkColumnValue = "s_ticket",
+            allocationSize = 50)
     private Long id;
     private String type;
     private LocalDateTime startSale;
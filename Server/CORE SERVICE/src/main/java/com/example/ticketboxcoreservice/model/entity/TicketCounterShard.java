@@ -0,0 +1,31 @@
+package com.example.ticketboxcoreservice.model.entity;
+
+import com.example.ticketboxcoreservice.enumf.Constants;
+import jakarta.persistence.*;
+import lombok.*;
+
+// one slice of a ticket's capacity, see ShardedCounterInventoryStrategy
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "s_ticket_counter_shard",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"ticket_id", "shard_no"}))
+@Builder()
+public class TicketCounterShard {
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "s_ticket_counter_shard")
+    @TableGenerator(name = "s_ticket_counter_shard", table = Constants.ID_BLOCK_TABLE, pkColumnValue = "s_ticket_counter_shard",
+            allocationSize = 50)
+    private Long id;
+    @Column(name = "ticket_id", nullable = false)
+    private Long ticketId;
+    @Column(name = "shard_no", nullable = false)
+    private Integer shardNo;
+    private Long capacity;
+    private Long sold;
+    // the part of sold already added to s_ticket.sold by a roll-up
+    @Column(name = "rolled_up_sold")
+    private Long rolledUpSold;
+}
@@ -1,5 +1,6 @@
 package com.example.ticketboxcoreservice.model.entity;
 
+import com.example.ticketboxcoreservice.enumf.Constants;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
@@ -18,7 +19,9 @@ import java.util.*;
 @Builder()
 public class User implements UserDetails {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "s_user")
+    @TableGenerator(name = "s_user", table = Constants.ID_BLOCK_TABLE, pkColumnValue = "s_user",
+            allocationSize = 20)
     private Long id;
     @Column(columnDefinition = "varchar(255) collate 'utf8_bin'", unique = true, nullable = false)
     private String username;
@@ -0,0 +1,7 @@
+package com.example.ticketboxcoreservice.repository;
+
+import com.example.ticketboxcoreservice.model.entity.DataMigration;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface DataMigrationRepository extends JpaRepository<DataMigration, String> {
+}
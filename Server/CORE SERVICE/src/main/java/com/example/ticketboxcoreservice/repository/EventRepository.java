@@ -5,14 +5,20 @@ import com.example.ticketboxcoreservice.model.entity.Event;
 import com.example.ticketboxcoreservice.model.entity.Pdf;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
 import javax.swing.text.html.Option;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface EventRepository extends JpaRepository<Event,Long> {
+public interface EventRepository extends JpaRepository<Event,Long>, JpaSpecificationExecutor<Event> {
     @Query("SELECT e FROM Event e JOIN e.categories c where c.id=:categoryId AND e.status=:eventStatus")
     Page<Event> findByCategoryIdAndStatus(Long categoryId, Integer eventStatus, Pageable pageable);
     @Query("SELECT e FROM Event e JOIN e.host u where u.id=:hostId AND e.status=:eventStatus ")
@@ -22,12 +28,104 @@ public interface EventRepository extends JpaRepository<Event,Long> {
     @Query("SELECT e FROM Event e WHERE e.status=:status")
     Page<Event> findByStatus(Integer status, Pageable pageable);
 
+    // the lists above without their COUNT(*), reading one row past the page to tell whether another one follows
+    @Query("SELECT e FROM Event e JOIN e.categories c where c.id=:categoryId AND e.status=:eventStatus")
+    Slice<Event> findSliceByCategoryIdAndStatus(Long categoryId, Integer eventStatus, Pageable pageable);
+    @Query("SELECT e FROM Event e JOIN e.host u where u.id=:hostId AND e.status=:eventStatus ")
+    Slice<Event> findSliceByHostIdAndStatus(Long hostId, Integer eventStatus, Pageable pageable);
+    @Query("SELECT e FROM Event e JOIN e.approver u where u.id=:approverId")
+    Slice<Event> findSliceByApproverId(Long approverId, Pageable pageable);
+    @Query("SELECT e FROM Event e WHERE e.status=:status")
+    Slice<Event> findSliceByStatus(Integer status, Pageable pageable);
+
+    // list sizes behind the cached totals of EventCatalogCache
+    @Query("SELECT COUNT(e) FROM Event e JOIN e.categories c where c.id=:categoryId AND e.status=:eventStatus")
+    long countByCategoryIdAndStatus(Long categoryId, Integer eventStatus);
+    @Query("SELECT COUNT(e) FROM Event e WHERE e.status=:status")
+    long countByStatus(Integer status);
+
     @Query("SELECT e.contract FROM Event e WHERE e.id=:eventId")
     Optional<Pdf> findContractByEventId(Long eventId);
 
+    // only used until the search index is built
     @Query("SELECT e FROM Event e WHERE e.name LIKE CONCAT('%', :params, '%') OR e.address LIKE CONCAT('%', :params, '%') OR e.orgName LIKE CONCAT('%', :params, '%')")
-    List<Event> search(String params);
+    Page<Event> search(String params, Pageable pageable);
     @Query("SELECT e FROM Event e WHERE e.status=:status")
     Page<Event> findByStatus(String status, Pageable pageable);
 
+    // the searchable text of events, read in id order by the search index
+    @Query("SELECT e.id AS id, e.name AS name, e.address AS address, e.orgName AS orgName FROM Event e "
+            + "WHERE e.id > :afterId ORDER BY e.id")
+    List<SearchRow> findSearchRowsAfter(Long afterId, Pageable pageable);
+
+    @Query("SELECT e.id AS id, e.name AS name, e.address AS address, e.orgName AS orgName FROM Event e "
+            + "WHERE e.updateDate >= :since ORDER BY e.id")
+    List<SearchRow> findSearchRowsUpdatedSince(LocalDateTime since);
+
+    @Query("SELECT e.id AS eventId, c.name AS name FROM Event e JOIN e.categories c WHERE e.id IN :eventIds")
+    List<CategoryNameRow> findCategoryNamesByEventIds(Collection<Long> eventIds);
+
+    // listed events with their tickets sold so far, read in id order by the autocomplete rebuild
+    @Query("SELECT e.id AS id, e.name AS name, e.address AS address, e.orgName AS orgName, "
+            + "COALESCE(SUM(t.sold), 0L) AS sold FROM Event e LEFT JOIN e.tickets t "
+            + "WHERE e.id > :afterId AND e.status IN :statuses "
+            + "GROUP BY e.id, e.name, e.address, e.orgName ORDER BY e.id")
+    List<AutocompleteRow> findAutocompleteRowsAfter(Long afterId, Collection<Integer> statuses, Pageable pageable);
+
+    // the filters of the list queries above, for reading them with a seek cursor
+    static Specification<Event> byCategoryIdAndStatus(Long categoryId, Integer status) {
+        return (root, query, builder) -> builder.and(
+                builder.equal(root.join("categories").get("id"), categoryId),
+                builder.equal(root.get("status"), status));
+    }
+
+    static Specification<Event> byHostIdAndStatus(Long hostId, Integer status) {
+        return (root, query, builder) -> builder.and(
+                builder.equal(root.get("host").get("id"), hostId),
+                builder.equal(root.get("status"), status));
+    }
+
+    // like findByApproverIdAndStatus, every event of the approver whatever its status
+    static Specification<Event> byApproverId(Long approverId) {
+        return (root, query, builder) -> builder.equal(root.get("approver").get("id"), approverId);
+    }
+
+    static Specification<Event> byStatus(Integer status) {
+        return (root, query, builder) -> builder.equal(root.get("status"), status);
+    }
+
+    interface SearchRow {
+        Long getId();
+
+        String getName();
+
+        String getAddress();
+
+        String getOrgName();
+    }
+
+    interface AutocompleteRow {
+        Long getId();
+
+        String getName();
+
+        String getAddress();
+
+        String getOrgName();
+
+        Long getSold();
+    }
+
+    interface CategoryNameRow {
+        Long getEventId();
+
+        String getName();
+    }
+
+
+    // events saved before the start date was required start at their end, or else when they were created
+    @Modifying
+    @Query("update Event e set e.startDate = coalesce(e.endDate, e.createDate, local datetime) " +
+            "where e.startDate is null")
+    int backfillStartDates();
 }
@@ -0,0 +1,14 @@
+package com.example.ticketboxcoreservice.repository;
+
+import com.example.ticketboxcoreservice.model.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord ir WHERE ir.createdAt<:createdBefore")
+    int deleteByCreatedAtBefore(LocalDateTime createdBefore);
+}
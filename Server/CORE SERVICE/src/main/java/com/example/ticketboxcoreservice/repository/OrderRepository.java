@@ -2,21 +2,135 @@ package com.example.ticketboxcoreservice.repository;
 
 import com.example.ticketboxcoreservice.enumf.Constants;
 import com.example.ticketboxcoreservice.model.entity.Order;
+import jakarta.transaction.Transactional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface OrderRepository extends JpaRepository<Order,Long> {
+public interface OrderRepository extends JpaRepository<Order,Long>, JpaSpecificationExecutor<Order> {
     @Query("from Order o where o.buyer.id=:userId and o.status =:status")
     List<Order> findOrderByUserIdAndPurchasedAsList(Long userId, Integer status);
 
+    Optional<Order> findByCartOwnerId(Long cartOwnerId);
+
     @Query("from Order o where o.buyer.id=:userId and o.status =:status")
     Page<Order> findOrderByUserIdAndPurchasedAsPage(Long userId, Integer status, Pageable pageable);
 
+    // findOrderByUserIdAndPurchasedAsPage without its COUNT(*)
+    @Query("from Order o where o.buyer.id=:userId and o.status =:status")
+    Slice<Order> findOrderByUserIdAndPurchasedAsSlice(Long userId, Integer status, Pageable pageable);
+
+    // jobs waiting for a retry are only due once their retry time has passed
+    @Query("select o.id from Order o where o.fulfillmentStatus=:fulfillmentStatus and o.purchaseDate<:purchasedBefore " +
+            "and (o.fulfillmentRetryAt is null or o.fulfillmentRetryAt<=:now)")
+    List<Long> findDueIdsByFulfillmentStatusAndPurchasedBefore(Integer fulfillmentStatus, LocalDateTime purchasedBefore,
+                                                               LocalDateTime now);
+
+    @Query("select o from Order o where o.id in :orderIds and o.fulfillmentStatus=:fulfillmentStatus")
+    List<Order> findAllByIdAndFulfillmentStatus(Collection<Long> orderIds, Integer fulfillmentStatus);
+
+    @Query("select o.id from Order o where o.id in :orderIds and o.status=:status")
+    List<Long> findIdsByIdInAndStatus(Collection<Long> orderIds, Integer status);
+
+    @Modifying
+    @Query("update Order o set o.fulfillmentStatus=:newStatus, o.fulfillmentAttempts=0, o.fulfillmentRetryAt=null " +
+            "where o.id=:orderId and o.fulfillmentStatus=:currentStatus")
+    int resetFulfillment(Long orderId, Integer currentStatus, Integer newStatus);
+
     @Query("select o from Order o join OrderTicket ot on ot.order.id = o.id where ot.id=:orderTicketId")
     Optional<Order> findByOrderTicketId(Long orderTicketId);
+
+    // a cart header with the totals of its lines, what the cart store loads
+    @Query("select o.id as id, o.createDate as createDate, o.updateDate as updateDate, " +
+            "o.quantity as storedQuantity, o.totalPrice as storedTotalPrice, " +
+            "coalesce(sum(ot.subQuantity), 0) as quantity, " +
+            "coalesce(sum(ot.subQuantity * ot.unitPrice), 0) as totalPrice " +
+            "from Order o left join OrderTicket ot on ot.order.id = o.id and ot.status<>:excludedStatus " +
+            "where o.cartOwnerId=:userId " +
+            "group by o.id, o.createDate, o.updateDate, o.quantity, o.totalPrice")
+    Optional<CartTotalsRow> findCartTotalsByUserId(Long userId, Integer excludedStatus);
+
+    @Query("select ot.id as id, ot.status as status, ot.subQuantity as subQuantity, ot.unitPrice as unitPrice, " +
+            "t.id as ticketId, t.type as ticketType " +
+            "from OrderTicket ot join ot.ticket t where ot.order.id=:orderId order by ot.id")
+    List<CartLineRow> findCartLinesByOrderId(Long orderId);
+
+    @Query("select distinct ot.order.buyer.id from OrderTicket ot where ot.id in :orderTicketIds")
+    List<Long> findBuyerIdsByOrderTicketIds(Collection<Long> orderTicketIds);
+
+    // recomputes the totals of the carts holding these lines, e.g. after some of them expired
+    @Modifying
+    @Transactional
+    @Query("update Order o set " +
+            "o.quantity = coalesce((select sum(ot.subQuantity) from OrderTicket ot " +
+            "where ot.order.id = o.id and ot.status<>:excludedStatus), 0), " +
+            "o.totalPrice = coalesce((select sum(ot.subQuantity * ot.unitPrice) from OrderTicket ot " +
+            "where ot.order.id = o.id and ot.status<>:excludedStatus), 0) " +
+            "where o.status=:status and o.id in " +
+            "(select line.order.id from OrderTicket line where line.id in :orderTicketIds)")
+    int recalculateTotalsByOrderTicketIds(Collection<Long> orderTicketIds, Integer status, Integer excludedStatus);
+
+    @Modifying
+    @Query("update Order o set " +
+            "o.quantity = coalesce((select sum(ot.subQuantity) from OrderTicket ot " +
+            "where ot.order.id = o.id and ot.status<>:excludedStatus), 0), " +
+            "o.totalPrice = coalesce((select sum(ot.subQuantity * ot.unitPrice) from OrderTicket ot " +
+            "where ot.order.id = o.id and ot.status<>:excludedStatus), 0) " +
+            "where o.status=:status")
+    int recalculateTotalsByStatus(Integer status, Integer excludedStatus);
+
+    // the newest cart of every buyer, the one that keeps being their cart when carts get an owner
+    @Query("select max(o.id) from Order o where o.status=:status and o.buyer is not null group by o.buyer.id")
+    List<Long> findNewestIdsByStatusGroupByBuyer(Integer status);
+
+    @Modifying
+    @Query("update Order o set o.cartOwnerId = o.buyer.id where o.id in :orderIds and o.cartOwnerId is null")
+    int assignCartOwnerByIdIn(Collection<Long> orderIds);
+
+    // the filter of findOrderByUserIdAndPurchasedAsPage, for reading it with a seek cursor
+    static Specification<Order> byBuyerIdAndStatus(Long userId, Integer status) {
+        return (root, query, builder) -> builder.and(
+                builder.equal(root.get("buyer").get("id"), userId),
+                builder.equal(root.get("status"), status));
+    }
+
+    interface CartTotalsRow {
+        Long getId();
+
+        LocalDateTime getCreateDate();
+
+        LocalDateTime getUpdateDate();
+
+        Long getStoredQuantity();
+
+        Double getStoredTotalPrice();
+
+        Long getQuantity();
+
+        Double getTotalPrice();
+    }
+
+    interface CartLineRow {
+        Long getId();
+
+        Integer getStatus();
+
+        Long getSubQuantity();
+
+        Double getUnitPrice();
+
+        Long getTicketId();
+
+        String getTicketType();
+    }
 }
@@ -2,14 +2,25 @@ package com.example.ticketboxcoreservice.repository;
 
 import com.example.ticketboxcoreservice.model.entity.Order;
 import com.example.ticketboxcoreservice.model.entity.OrderTicket;
+import jakarta.persistence.LockModeType;
+import jakarta.transaction.Transactional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface OrderTicketRepository extends JpaRepository<OrderTicket,Long> {
+public interface OrderTicketRepository extends JpaRepository<OrderTicket,Long>,
+        JpaSpecificationExecutor<OrderTicket> {
     @Query("SELECT ot.status FROM OrderTicket ot WHERE ot.id=:orderTicketId")
     int getOrderTicketStatusByOrderTicketId(Long orderTicketId);
 
@@ -19,9 +30,100 @@ public interface OrderTicketRepository extends JpaRepository<OrderTicket,Long> {
     @Query("SELECT ot FROM OrderTicket ot WHERE ot.order.id=:orderId")
     Page<OrderTicket> findByOrderId(Long orderId, Pageable pageable);
 
+    // findByOrderId without its COUNT(*)
+    @Query("SELECT ot FROM OrderTicket ot WHERE ot.order.id=:orderId")
+    Slice<OrderTicket> findSliceByOrderId(Long orderId, Pageable pageable);
+
     @Query("SELECT ot.subQuantity FROM OrderTicket ot WHERE ot.id=:orderTicketId")
     Optional<Long> getSubQuantityByOrderTicketId(Long orderTicketId);
 
     @Query("SELECT ot.token FROM OrderTicket ot WHERE ot.id=:orderTicketId AND ot.order.buyer.id=:buyerId")
     Optional<String> getTokenByOrderTicketIdAndBuyerId(Long orderTicketId, Long buyerId);
+
+    @Query("SELECT ot.ticket.event.id FROM OrderTicket ot " +
+            "WHERE ot.id=:orderTicketId AND ot.order.buyer.id=:buyerId AND ot.status=:status")
+    Optional<Long> getEventIdByOrderTicketIdAndBuyerIdAndStatus(Long orderTicketId, Long buyerId, Integer status);
+
+    @Query("SELECT ot FROM OrderTicket ot JOIN FETCH ot.ticket WHERE ot.status=:status")
+    List<OrderTicket> findByStatusWithTicket(Integer status);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE OrderTicket ot SET ot.status=:newStatus WHERE ot.id IN :orderTicketIds AND ot.status=:currentStatus")
+    int updateStatusByIdsAndStatus(List<Long> orderTicketIds, Integer currentStatus, Integer newStatus);
+
+    // gives lines added before OrderTicket.unitPrice existed the price of their ticket
+    @Modifying
+    @Query("UPDATE OrderTicket ot SET ot.unitPrice = (SELECT t.unitPrice FROM Ticket t WHERE t.id = ot.ticket.id) " +
+            "WHERE ot.unitPrice IS NULL")
+    int backfillUnitPrices();
+
+    @Query("SELECT ot.id FROM OrderTicket ot WHERE ot.ticket.event.id=:eventId AND ot.status=:status")
+    List<Long> findIdsByEventIdAndStatus(Long eventId, Integer status);
+
+    @Modifying
+    @Query("UPDATE OrderTicket ot SET ot.status=:newStatus, ot.usedAt=:usedAt " +
+            "WHERE ot.id=:orderTicketId AND ot.token=:token AND ot.status=:currentStatus")
+    int updateStatusByIdAndTokenAndStatus(Long orderTicketId, String token, Integer currentStatus, Integer newStatus,
+                                          LocalDateTime usedAt);
+
+    // rotating codes have no stored token to match, the event id they were scanned with has to be the ticket's
+    @Modifying
+    @Query("UPDATE OrderTicket ot SET ot.status=:newStatus, ot.usedAt=:usedAt " +
+            "WHERE ot.id=:orderTicketId AND ot.status=:currentStatus " +
+            "AND ot.ticket.id IN (SELECT t.id FROM Ticket t WHERE t.event.id=:eventId)")
+    int updateStatusByIdAndEventIdAndStatus(Long orderTicketId, Long eventId, Integer currentStatus,
+                                            Integer newStatus, LocalDateTime usedAt);
+
+    @Modifying
+    @Query("UPDATE OrderTicket ot SET ot.status=:newStatus, ot.usedAt=:usedAt " +
+            "WHERE ot.id IN :orderTicketIds AND ot.status=:currentStatus")
+    int updateStatusAndUsedAtByIdsAndStatus(Collection<Long> orderTicketIds, Integer currentStatus, Integer newStatus,
+                                            LocalDateTime usedAt);
+
+    // rows are locked in id order so concurrent batches cannot deadlock on each other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT ot FROM OrderTicket ot WHERE ot.id IN :orderTicketIds ORDER BY ot.id")
+    List<OrderTicket> findAllByIdForUpdate(Collection<Long> orderTicketIds);
+
+    @Query("SELECT ot.id AS id, ot.subQuantity AS subQuantity, ot.status AS status FROM OrderTicket ot " +
+            "WHERE ot.ticket.event.id=:eventId AND ot.status IN :statuses")
+    List<ManifestRow> findManifestRowsByEventId(Long eventId, Collection<Integer> statuses);
+
+    // tickets sold or used since the given time, the two halves of a manifest delta
+    @Query("SELECT ot.id AS id, ot.subQuantity AS subQuantity, ot.status AS status FROM OrderTicket ot " +
+            "WHERE ot.ticket.event.id=:eventId AND ot.status IN :statuses " +
+            "AND (ot.activatedAt >= :since OR ot.usedAt >= :since)")
+    List<ManifestRow> findManifestDeltaByEventId(Long eventId, Collection<Integer> statuses, LocalDateTime since);
+
+    @Query("SELECT ot.id FROM OrderTicket ot WHERE ot.ticket.event.id=:eventId AND ot.id IN :orderTicketIds")
+    List<Long> findIdsByEventIdAndIdIn(Long eventId, Collection<Long> orderTicketIds);
+
+    // lines of fulfilled orders still waiting for their token, with what issuing the token reads
+    @Query("SELECT ot FROM OrderTicket ot JOIN FETCH ot.ticket t JOIN FETCH t.event " +
+            "WHERE ot.order.id IN :orderIds AND ot.status=:status AND ot.token IS NULL")
+    List<OrderTicket> findUnissuedByOrderIds(Collection<Long> orderIds, Integer status);
+
+    @Query("SELECT ot.id AS id, ot.token AS token FROM OrderTicket ot " +
+            "WHERE ot.order.id=:orderId AND ot.token IS NOT NULL ORDER BY ot.id")
+    List<QrTokenRow> findQrTokensByOrderId(Long orderId);
+
+    // the filter of findByOrderId, for reading it with a seek cursor
+    static Specification<OrderTicket> byOrderId(Long orderId) {
+        return (root, query, builder) -> builder.equal(root.get("order").get("id"), orderId);
+    }
+
+    interface ManifestRow {
+        Long getId();
+
+        Long getSubQuantity();
+
+        Integer getStatus();
+    }
+
+    interface QrTokenRow {
+        Long getId();
+
+        String getToken();
+    }
 }
@@ -0,0 +1,55 @@
+package com.example.ticketboxcoreservice.repository;
+
+import com.example.ticketboxcoreservice.model.entity.TicketCounterShard;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface TicketCounterShardRepository extends JpaRepository<TicketCounterShard, Long> {
+    @Query("SELECT s FROM TicketCounterShard s WHERE s.ticketId=:ticketId ORDER BY s.shardNo")
+    List<TicketCounterShard> findByTicketId(Long ticketId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM TicketCounterShard s WHERE s.ticketId=:ticketId ORDER BY s.shardNo")
+    List<TicketCounterShard> findByTicketIdForUpdate(Long ticketId);
+
+    long countByTicketId(Long ticketId);
+
+    // shard sales not yet added to s_ticket.sold
+    @Query("SELECT COALESCE(SUM(s.sold - s.rolledUpSold), 0) FROM TicketCounterShard s WHERE s.ticketId=:ticketId")
+    Long sumNotRolledUpByTicketId(Long ticketId);
+
+    @Query("SELECT DISTINCT s.ticketId FROM TicketCounterShard s WHERE s.sold <> s.rolledUpSold")
+    List<Long> findTicketIdsNotRolledUp();
+
+    // tickets whose shards no longer add up to the ticket's capacity, or to what they sold when that is more
+    @Query("SELECT s.ticketId FROM TicketCounterShard s, Ticket t WHERE t.id = s.ticketId " +
+            "GROUP BY s.ticketId, t.capacity " +
+            "HAVING SUM(s.capacity) <> CASE WHEN t.capacity > SUM(s.sold) THEN t.capacity ELSE SUM(s.sold) END")
+    List<Long> findTicketIdsWithStaleCapacity();
+
+    @Modifying
+    @Query(value = "UPDATE s_ticket_counter_shard SET sold = sold + :quantity WHERE ticket_id = :ticketId AND shard_no = :shardNo AND sold + :quantity <= capacity", nativeQuery = true)
+    int incrementSoldIfAvailable(Long ticketId, Integer shardNo, Long quantity);
+
+    @Modifying
+    @Query(value = "UPDATE s_ticket_counter_shard SET sold = sold - :quantity WHERE ticket_id = :ticketId AND shard_no = :shardNo AND sold >= :quantity", nativeQuery = true)
+    int decrementSold(Long ticketId, Integer shardNo, Long quantity);
+
+    // moves the roll-up mark only if no other roll-up moved it since it was read
+    @Modifying
+    @Query(value = "UPDATE s_ticket_counter_shard SET rolled_up_sold = :sold WHERE id = :id AND rolled_up_sold = :rolledUpSold", nativeQuery = true)
+    int advanceRolledUpSold(Long id, Long rolledUpSold, Long sold);
+
+    @Modifying
+    @Query(value = "UPDATE s_ticket_counter_shard SET capacity = :capacity WHERE id = :id", nativeQuery = true)
+    int updateCapacity(Long id, Long capacity);
+
+    @Modifying
+    @Query(value = "UPDATE s_ticket_counter_shard SET rolled_up_sold = sold WHERE rolled_up_sold IS NULL", nativeQuery = true)
+    int markRolledUp();
+}
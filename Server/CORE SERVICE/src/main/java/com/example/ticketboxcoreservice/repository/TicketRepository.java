@@ -3,15 +3,50 @@ package com.example.ticketboxcoreservice.repository;
 import com.example.ticketboxcoreservice.model.entity.Ticket;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
+import java.util.Optional;
 
-public interface TicketRepository extends JpaRepository<Ticket,Long> {
+public interface TicketRepository extends JpaRepository<Ticket,Long>, JpaSpecificationExecutor<Ticket> {
     @Query("SELECT t FROM Ticket t WHERE t.event.id=:eventId")
     Page<Ticket> findByEventId(Long eventId, Pageable pageable);
 
+    // findByEventId without its COUNT(*)
+    @Query("SELECT t FROM Ticket t WHERE t.event.id=:eventId")
+    Slice<Ticket> findSliceByEventId(Long eventId, Pageable pageable);
+
     @Query("SELECT t.unitPrice FROM Ticket t WHERE t.event.id=:eventId ORDER BY t.unitPrice LIMIT 1")
     List<Double> getLowestTicketPriceByEventId(Long eventId);
+
+    @Query("SELECT t.sold FROM Ticket t WHERE t.id=:ticketId")
+    Optional<Long> getSoldByTicketId(Long ticketId);
+
+    @Modifying
+    @Query(value = "UPDATE s_ticket SET sold = sold + :quantity WHERE id = :ticketId AND sold + :quantity <= capacity", nativeQuery = true)
+    int incrementSoldIfAvailable(Long ticketId, Long quantity);
+
+    @Modifying
+    @Query(value = "UPDATE s_ticket SET sold = sold - :quantity WHERE id = :ticketId AND sold >= :quantity", nativeQuery = true)
+    int decrementSold(Long ticketId, Long quantity);
+
+    @Modifying
+    @Query(value = "UPDATE s_ticket SET sold = sold + :quantity WHERE id = :ticketId", nativeQuery = true)
+    int addSold(Long ticketId, Long quantity);
+
+    // sold of tickets whose shards predate s_ticket_counter_shard.rolled_up_sold, set the way roll-ups used to
+    @Modifying
+    @Query(value = "UPDATE s_ticket SET sold = (SELECT SUM(s.sold) FROM s_ticket_counter_shard s WHERE s.ticket_id = s_ticket.id) " +
+            "WHERE id IN (SELECT s.ticket_id FROM s_ticket_counter_shard s WHERE s.rolled_up_sold IS NULL)", nativeQuery = true)
+    int updateSoldFromCounterShardsNotRolledUp();
+
+    // the filter of findByEventId, for reading it with a seek cursor
+    static Specification<Ticket> byEventId(Long eventId) {
+        return (root, query, builder) -> builder.equal(root.get("event").get("id"), eventId);
+    }
 }
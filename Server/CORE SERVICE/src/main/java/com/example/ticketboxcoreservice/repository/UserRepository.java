@@ -4,12 +4,13 @@ import com.example.ticketboxcoreservice.model.dto.response.ImageResponse;
 import com.example.ticketboxcoreservice.model.dto.response.RoleResponse;
 import com.example.ticketboxcoreservice.model.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 
 import javax.swing.text.html.Option;
 import java.util.Optional;
 import java.util.Set;
 
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificationExecutor<User> {
     Optional<User> findByUsername(String username);
     boolean existsByUsername(String username);
 
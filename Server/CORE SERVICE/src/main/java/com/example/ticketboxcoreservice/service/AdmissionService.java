@@ -0,0 +1,217 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.enumf.ErrorCode;
+import com.example.ticketboxcoreservice.exception.AppException;
+import com.example.ticketboxcoreservice.model.dto.response.AdmissionResponse;
+import com.example.ticketboxcoreservice.model.entity.Ticket;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Virtual waiting room in front of checkout. Every event queue is two counters, the last position handed out and
+// an admission frontier that moves forward at a fixed rate, plus the position of each user still waiting or
+// admitted, so joining again returns the same place instead of a new one. Positions and admissions are carried by
+// HMAC-signed tokens and can be checked without touching the DB. An admission is for one event only: checkout
+// checks it against the events of the tickets being bought.
+@Service
+public class AdmissionService {
+    private static final String QUEUE_PREFIX = "q";
+    private static final String ADMISSION_PREFIX = "a";
+
+    private final Map<Long, EventQueue> queues = new ConcurrentHashMap<>();
+    private ThreadLocal<Mac> mac;
+
+    @Getter
+    @Value("${app.admission.enabled:false}")
+    private boolean enabled;
+    @Value("${app.admission.admits-per-second:50}")
+    private double admitsPerSecond;
+    @Value("${app.admission.token-ttl-ms:300000}")
+    private long tokenTtlMillis;
+    @Value("${app.admission.max-events:1000}")
+    private int maxEvents;
+    @Value("${app.admission.secret:${app.jwt-secret}}")
+    private String secret;
+
+    @PostConstruct
+    public void init() {
+        SecretKeySpec key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac instance = Mac.getInstance("HmacSHA256");
+                instance.init(key);
+                return instance;
+            } catch (GeneralSecurityException exception) {
+                throw new IllegalStateException(exception);
+            }
+        });
+    }
+
+    public AdmissionResponse join(Long eventId, Long userId) {
+        EventQueue queue = queues.get(eventId);
+        if (queue == null) {
+            if (queues.size() >= maxEvents) throw new AppException(ErrorCode.ADMISSION_QUEUE_FULL);
+            queue = queues.computeIfAbsent(eventId, id -> new EventQueue(System.currentTimeMillis()));
+        }
+        long position = queue.enqueue(userId, admitsPerSecond, ttlAdmissions());
+        String queueToken = sign(QUEUE_PREFIX, eventId, userId, queue.getEpoch(), position);
+        return status(eventId, userId, queueToken);
+    }
+
+    // position is 0 once the user is admitted, the admission token stays valid until the frontier is one token
+    // ttl worth of admissions past the user's position
+    public AdmissionResponse status(Long eventId, Long userId, String queueToken) {
+        long[] values = verify(QUEUE_PREFIX, queueToken, userId, ErrorCode.QUEUE_TOKEN_INVALID);
+        EventQueue queue = queues.get(eventId);
+        if (values[0] != eventId || queue == null || values[2] != queue.getEpoch())
+            throw new AppException(ErrorCode.QUEUE_TOKEN_INVALID);
+        long position = values[3];
+        double frontier = queue.advance(admitsPerSecond);
+        AdmissionResponse response = AdmissionResponse.builder()
+                .eventId(eventId)
+                .queueToken(queueToken)
+                .build();
+        if (position > frontier) {
+            long ahead = position - (long) frontier;
+            response.setPosition(ahead);
+            response.setEstimatedWaitSeconds((long) Math.ceil(ahead / admitsPerSecond));
+            return response;
+        }
+        long windowMillis = (long) ((position + ttlAdmissions() - frontier) * 1000 / admitsPerSecond);
+        if (windowMillis <= 0) throw new AppException(ErrorCode.ADMISSION_EXPIRED);
+        long expiresAt = System.currentTimeMillis() + windowMillis;
+        response.setPosition(0L);
+        response.setEstimatedWaitSeconds(0L);
+        response.setAdmissionToken(sign(ADMISSION_PREFIX, eventId, userId, queue.getEpoch(), expiresAt));
+        response.setAdmissionExpiresAt(expiresAt);
+        return response;
+    }
+
+    // the events the user holds a live admission for; a cart spanning events carries one token per event, comma
+    // separated, invalid and expired ones are skipped
+    public Set<Long> admittedEventIds(String admissionTokens, Long userId) {
+        Set<Long> eventIds = new HashSet<>();
+        if (admissionTokens == null) return eventIds;
+        for (String admissionToken : admissionTokens.split(",")) {
+            try {
+                long[] values = verify(ADMISSION_PREFIX, admissionToken.trim(), userId, ErrorCode.ADMISSION_REQUIRED);
+                if (values[3] > System.currentTimeMillis()) eventIds.add(values[0]);
+            } catch (AppException exception) {
+                // not an admission of this user
+            }
+        }
+        return eventIds;
+    }
+
+    // admittedEventIds is what AdmissionFilter read from the request, null when the request did not pass it
+    public void checkAdmitted(Set<Long> admittedEventIds, Collection<Ticket> tickets) {
+        if (!enabled) return;
+        for (Ticket ticket : tickets) {
+            if (admittedEventIds == null || !admittedEventIds.contains(ticket.getEvent().getId()))
+                throw new AppException(ErrorCode.ADMISSION_REQUIRED);
+        }
+    }
+
+    // drop queues that have been fully admitted for longer than a token lives, their tokens are useless by now
+    @Scheduled(fixedDelayString = "${app.admission.token-ttl-ms:300000}")
+    public void evictIdleQueues() {
+        long idleBefore = System.currentTimeMillis() - tokenTtlMillis;
+        queues.values().removeIf(queue -> queue.isIdleSince(idleBefore, admitsPerSecond));
+        queues.values().forEach(queue -> queue.forgetExpired(admitsPerSecond, ttlAdmissions()));
+    }
+
+    public int getQueueCount() {
+        return queues.size();
+    }
+
+    // how far the frontier moves while an admission token lives
+    private double ttlAdmissions() {
+        return admitsPerSecond * tokenTtlMillis / 1000;
+    }
+
+    // token layout: prefix.eventId.userId.epoch.value.signature
+    private String sign(String prefix, long eventId, long userId, long epoch, long value) {
+        String payload = prefix + "." + eventId + "." + userId + "." + epoch + "." + value;
+        return payload + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(hmac(payload));
+    }
+
+    private long[] verify(String prefix, String token, Long userId, ErrorCode errorCode) {
+        int signatureStart = token.lastIndexOf('.');
+        if (signatureStart < 0 || !token.startsWith(prefix + ".")) throw new AppException(errorCode);
+        String payload = token.substring(0, signatureStart);
+        byte[] signature;
+        try {
+            signature = Base64.getUrlDecoder().decode(token.substring(signatureStart + 1));
+        } catch (IllegalArgumentException exception) {
+            throw new AppException(errorCode);
+        }
+        if (!MessageDigest.isEqual(hmac(payload), signature)) throw new AppException(errorCode);
+        String[] parts = payload.split("\\.");
+        if (parts.length != 5) throw new AppException(errorCode);
+        long[] values = new long[4];
+        for (int i = 0; i < 4; i++) values[i] = Long.parseLong(parts[i + 1]);
+        if (values[1] != userId) throw new AppException(errorCode);
+        return values;
+    }
+
+    private byte[] hmac(String payload) {
+        return mac.get().doFinal(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static class EventQueue {
+        @Getter
+        private final long epoch;
+        private final Map<Long, Long> positions = new HashMap<>();
+        private long tail;
+        private double frontier;
+        private long lastAdvanceNanos = System.nanoTime();
+        private long lastActivityMillis;
+
+        private EventQueue(long epoch) {
+            this.epoch = epoch;
+            this.lastActivityMillis = epoch;
+        }
+
+        // the frontier is advanced before the tail grows, so an idle queue never banks admissions for a burst;
+        // a user joining again keeps their place until their admission window has passed
+        private synchronized long enqueue(Long userId, double admitsPerSecond, double ttlAdmissions) {
+            advance(admitsPerSecond);
+            lastActivityMillis = System.currentTimeMillis();
+            Long position = positions.get(userId);
+            if (position != null && position + ttlAdmissions > frontier) return position;
+            positions.put(userId, ++tail);
+            return tail;
+        }
+
+        private synchronized void forgetExpired(double admitsPerSecond, double ttlAdmissions) {
+            double expiredBefore = advance(admitsPerSecond) - ttlAdmissions;
+            positions.values().removeIf(position -> position <= expiredBefore);
+        }
+
+        private synchronized double advance(double admitsPerSecond) {
+            long now = System.nanoTime();
+            frontier = Math.min(tail, frontier + admitsPerSecond * (now - lastAdvanceNanos) / 1_000_000_000d);
+            lastAdvanceNanos = now;
+            return frontier;
+        }
+
+        private synchronized boolean isIdleSince(long idleBefore, double admitsPerSecond) {
+            return advance(admitsPerSecond) >= tail && lastActivityMillis < idleBefore;
+        }
+    }
+}
@@ -9,11 +9,9 @@ import com.example.ticketboxcoreservice.model.dto.request.RegisterRequest;
 import com.example.ticketboxcoreservice.model.dto.response.JwtAuthResponse;
 import com.example.ticketboxcoreservice.model.dto.response.UserResponse;
 import com.example.ticketboxcoreservice.model.entity.Image;
-import com.example.ticketboxcoreservice.model.entity.Order;
 import com.example.ticketboxcoreservice.model.entity.Role;
 import com.example.ticketboxcoreservice.model.entity.User;
 import com.example.ticketboxcoreservice.repository.ImageRepository;
-import com.example.ticketboxcoreservice.repository.OrderRepository;
 import com.example.ticketboxcoreservice.repository.RoleRepository;
 import com.example.ticketboxcoreservice.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
@@ -26,7 +24,6 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.sql.Timestamp;
-import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -40,7 +37,6 @@ public class AuthenticationService {
     private final RoleRepository roleRepository;
     private final JwtService jwtService;
     private final ImageRepository imageRepository;
-    private final OrderRepository orderRepository;
     private final ModelMapper mapper;
 
     public JwtAuthResponse login(LoginRequest loginRequest) {
@@ -106,15 +102,7 @@ public class AuthenticationService {
         imageRepository.save(avatar);
         user.setAvatar(avatar);
 
-        //set default cart for new user
-        Order order = new Order();
-        order.setBuyer(user);
-        order.setCreateDate(LocalDateTime.now());
-        order.setQuantity(0l);
-        order.setTotalPrice(0d);
-        order.setStatus(Constants.ORDER_STATUS_NOT_PURCHASED);
-        order.setUpdateDate(LocalDateTime.now());
-        orderRepository.save(order);
+        // the cart is created on the first add to cart, see CartStore
 
         return modelMapper.map(userRepository.save(user), UserResponse.class);
     }
@@ -0,0 +1,274 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.enumf.Constants;
+import com.example.ticketboxcoreservice.enumf.ErrorCode;
+import com.example.ticketboxcoreservice.exception.AppException;
+import com.example.ticketboxcoreservice.exception.ResourceNotFoundException;
+import com.example.ticketboxcoreservice.model.entity.Order;
+import com.example.ticketboxcoreservice.repository.OrderRepository;
+import com.example.ticketboxcoreservice.repository.UserRepository;
+import com.example.ticketboxcoreservice.utils.LruCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Active carts kept in process, keyed by buyer id. A cart is loaded with one query that sums its lines and is then
+// served from memory; line changes adjust the cached totals and the s_order header is written behind, the changes
+// of dirty carts being coalesced into one batch of atomic increments per flush interval. The cart row is only
+// created when the first ticket is added, and the cached entry only learns its id once that row is committed; the
+// unique cart owner column keeps a buyer from ever having two carts. Lines stay in MySQL and remain the source of
+// truth, so an entry can always be dropped and rebuilt from them, which is what rollbacks, hold expiry and purchases
+// do; the increments a dropped entry had not flushed yet are recovered by the next load, which compares the header
+// with its lines. Like the ticket holds, the store lives on this node only.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CartStore {
+    private final OrderRepository orderRepository;
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    // carts whose header in MySQL is behind, by buyer id; only ever the cached entry, changed together with the
+    // cache under the map's lock for the buyer
+    private final Map<Long, Cart> dirty = new ConcurrentHashMap<>();
+    // a token per load in progress, by buyer id; an invalidation removes it, so a load that raced one is used once
+    // but not cached
+    private final Map<Long, Object> loads = new ConcurrentHashMap<>();
+    private LruCache<Long, Cart> carts;
+
+    @Value("${app.cart-store.max-entries:100000}")
+    private long maxEntries;
+
+    @PostConstruct
+    public void init() {
+        carts = new LruCache<>(maxEntries, cart -> 1);
+    }
+
+    // a buyer without a cart row gets an empty cart whose id is null
+    public Cart get(Long userId) {
+        Cart cart = carts.get(userId);
+        if (cart != null) return cart;
+        Object token = new Object();
+        loads.put(userId, token);
+        Cart loaded;
+        try {
+            loaded = load(userId);
+        } catch (RuntimeException e) {
+            loads.remove(userId, token);
+            throw e;
+        }
+        Cart[] result = {loaded};
+        loads.computeIfPresent(userId, (id, current) -> {
+            if (current != token) return current;
+            Cart cached = carts.putIfAbsent(id, loaded);
+            if (cached != loaded) {
+                result[0] = cached;
+            } else {
+                // what an evicted entry had not flushed yet is part of the repair this load computed
+                dirty.compute(id, (key, evicted) -> hasIncrements(loaded) ? loaded : null);
+            }
+            return null;
+        });
+        return result[0];
+    }
+
+    // creates the cart row on first use, inside the caller's transaction. The caller gets an entry of its own for
+    // the new cart, the cached one is dropped when the transaction ends and reloaded with the committed row; a
+    // concurrent first add of the same buyer waits on the owner key and fails once this one commits
+    public Cart getOrCreate(Long userId) {
+        Cart cart = get(userId);
+        if (cart.getCartId() != null) return cart;
+        LocalDateTime now = LocalDateTime.now();
+        Order order = new Order();
+        order.setBuyer(userRepository.findById(userId).orElseThrow(
+                () -> new ResourceNotFoundException("user", "user id", userId)));
+        order.setCartOwnerId(userId);
+        order.setCreateDate(now);
+        order.setUpdateDate(now);
+        order.setQuantity(0L);
+        order.setTotalPrice(0d);
+        order.setStatus(Constants.ORDER_STATUS_NOT_PURCHASED);
+        try {
+            order = orderRepository.saveAndFlush(order);
+        } catch (DataIntegrityViolationException e) {
+            throw new AppException(ErrorCode.CART_BEING_CREATED);
+        }
+        invalidateAfterCompletion(userId);
+        return new Cart(userId, order.getId(), now, now, 0L, 0d);
+    }
+
+    // applies a line change to the cached totals, the header is moved by the same amounts in the next flush
+    public void adjust(Long userId, Cart cart, long quantityDiff, double priceDiff) {
+        add(cart, quantityDiff, priceDiff);
+        boolean[] cached = new boolean[1];
+        dirty.compute(userId, (id, current) -> {
+            cached[0] = carts.get(id) == cart;
+            return cached[0] ? cart : current;
+        });
+        if (cached[0]) {
+            invalidateOnRollback(userId);
+        } else {
+            // the entry was dropped meanwhile, a reload may already have summed the lines without this change
+            invalidateAfterCompletion(userId);
+        }
+    }
+
+    public void invalidate(Long userId) {
+        loads.remove(userId);
+        dirty.compute(userId, (id, current) -> {
+            carts.invalidate(id);
+            return null;
+        });
+    }
+
+    public void invalidateAll(Collection<Long> userIds) {
+        userIds.forEach(this::invalidate);
+    }
+
+    // used at checkout, the purchased cart is gone from the store once the transaction ends either way
+    public void invalidateAfterCompletion(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                invalidate(userId);
+            }
+        });
+    }
+
+    public int size() {
+        return carts.size();
+    }
+
+    // one batch for every cart changed since the last flush, however many times each one changed
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${app.cart-store.flush-interval-ms:1000}")
+    public void flush() {
+        if (dirty.isEmpty()) return;
+        List<Cart> batch = new ArrayList<>();
+        for (Long userId : dirty.keySet()) {
+            Cart cart = dirty.remove(userId);
+            if (cart != null) batch.add(cart);
+        }
+        List<Object[]> increments = new ArrayList<>(batch.size());
+        for (Cart cart : batch) increments.add(drain(cart));
+        try {
+            // increments, so a header moved by anything else meanwhile is never overwritten; purchased carts were
+            // written by the checkout itself
+            jdbcTemplate.batchUpdate("UPDATE s_order SET quantity = quantity + ?, total_price = total_price + ?, "
+                    + "update_date = ? WHERE id = ? AND status = ?", increments);
+        } catch (RuntimeException e) {
+            log.warn("Could not write {} cart headers, retrying on next flush", batch.size(), e);
+            for (int i = 0; i < batch.size(); i++) {
+                Cart cart = batch.get(i);
+                owe(cart, (Long) increments.get(i)[0], (Double) increments.get(i)[1]);
+                dirty.compute(cart.getUserId(), (id, current) -> carts.get(id) == cart ? cart : current);
+            }
+        }
+    }
+
+    private Cart load(Long userId) {
+        OrderRepository.CartTotalsRow row = orderRepository.findCartTotalsByUserId(userId,
+                Constants.ORDER_TICKET_STATUS_EXPIRED).orElse(null);
+        if (row == null) return new Cart(userId, null, null, null, 0L, 0d);
+        Cart cart = new Cart(userId, row.getId(), row.getCreateDate(), row.getUpdateDate(), row.getQuantity(),
+                row.getTotalPrice());
+        // a header left behind by a dropped entry or a rollback is moved to its lines by the next flush
+        long storedQuantity = row.getStoredQuantity() == null ? 0 : row.getStoredQuantity();
+        double storedTotalPrice = row.getStoredTotalPrice() == null ? 0 : row.getStoredTotalPrice();
+        owe(cart, row.getQuantity() - storedQuantity, row.getTotalPrice() - storedTotalPrice);
+        return cart;
+    }
+
+    private void invalidateOnRollback(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) invalidate(userId);
+            }
+        });
+    }
+
+    // the only writes to a cart's totals, made under the cart's lock; the fields read outside it are volatile
+    private static void add(Cart cart, long quantityDiff, double priceDiff) {
+        synchronized (cart) {
+            cart.quantity += quantityDiff;
+            cart.totalPrice += priceDiff;
+            cart.owedQuantity += quantityDiff;
+            cart.owedTotalPrice += priceDiff;
+            cart.updateDate = LocalDateTime.now();
+        }
+    }
+
+    private static void owe(Cart cart, long quantityDiff, double priceDiff) {
+        synchronized (cart) {
+            cart.owedQuantity += quantityDiff;
+            cart.owedTotalPrice += priceDiff;
+        }
+    }
+
+    private static boolean hasIncrements(Cart cart) {
+        synchronized (cart) {
+            return cart.owedQuantity != 0 || cart.owedTotalPrice != 0;
+        }
+    }
+
+    // the increments for the header, which is then taken to be up to date
+    private static Object[] drain(Cart cart) {
+        synchronized (cart) {
+            Object[] increments = new Object[]{cart.owedQuantity, cart.owedTotalPrice,
+                    cart.updateDate == null ? null : Timestamp.valueOf(cart.updateDate), cart.cartId,
+                    Constants.ORDER_STATUS_NOT_PURCHASED};
+            cart.owedQuantity = 0;
+            cart.owedTotalPrice = 0;
+            return increments;
+        }
+    }
+
+    @Getter
+    public static class Cart {
+        private final Long userId;
+        private final Long cartId;
+        private final LocalDateTime createDate;
+        private volatile LocalDateTime updateDate;
+        private volatile long quantity;
+        private volatile double totalPrice;
+        // not yet added to the s_order header
+        @Getter(AccessLevel.NONE)
+        private long owedQuantity;
+        @Getter(AccessLevel.NONE)
+        private double owedTotalPrice;
+
+        private Cart(Long userId, Long cartId, LocalDateTime createDate, LocalDateTime updateDate, long quantity,
+                     double totalPrice) {
+            this.userId = userId;
+            this.cartId = cartId;
+            this.createDate = createDate;
+            this.updateDate = updateDate;
+            this.quantity = quantity;
+            this.totalPrice = totalPrice;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.exception.ResourceNotFoundException;
+import com.example.ticketboxcoreservice.model.entity.Ticket;
+import com.example.ticketboxcoreservice.repository.TicketRepository;
+import com.example.ticketboxcoreservice.utils.MpscRingBuffer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Single-writer pipeline for ticket inventory: commands are routed by ticket id to one partition, whose worker
+// thread is the only owner of that ticket's remaining capacity. Each drained batch is persisted with one batched
+// JDBC update and one commit before the futures are completed. A reservation whose caller gave up waiting is
+// cancelled: it is skipped if still queued and handed back if it was already persisted. The owned capacity is local
+// to this node, so tickets assigned to the sequencer must not be sold through any other strategy or node. It is
+// reloaded from s_ticket after a capacity edit, and for every ticket periodically to catch edits made elsewhere.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CheckoutSequencer {
+    private static final Long ALL_TICKETS = -1L;
+
+    private final TicketRepository ticketRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.inventory.sequencer.partitions:4}")
+    private int partitionCount;
+    @Value("${app.inventory.sequencer.ring-size:4096}")
+    private int ringSize;
+    @Value("${app.inventory.sequencer.max-batch:256}")
+    private int maxBatch;
+
+    private Partition[] partitions;
+
+    @PostConstruct
+    public void start() {
+        partitions = new Partition[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new Partition(i);
+            partitions[i].thread.start();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        for (Partition partition : partitions) {
+            partition.running = false;
+            LockSupport.unpark(partition.thread);
+        }
+    }
+
+    public CompletableFuture<Boolean> reserve(Long ticketId, Long quantity) {
+        return submit(ticketId, quantity);
+    }
+
+    public CompletableFuture<Boolean> release(Long ticketId, Long quantity) {
+        return submit(ticketId, -quantity);
+    }
+
+    // the owning partition drops the ticket's remaining capacity between batches and reloads it on its next command
+    public void reload(Long ticketId) {
+        Partition partition = partition(ticketId);
+        partition.reloads.add(ticketId);
+        LockSupport.unpark(partition.thread);
+    }
+
+    @Scheduled(fixedDelayString = "${app.inventory.sequencer.reconcile-interval-ms:60000}")
+    public void reloadAll() {
+        for (Partition partition : partitions) {
+            partition.reloads.add(ALL_TICKETS);
+            LockSupport.unpark(partition.thread);
+        }
+    }
+
+    private CompletableFuture<Boolean> submit(Long ticketId, Long delta) {
+        Command command = new Command(ticketId, delta, new CompletableFuture<>());
+        Partition partition = partition(ticketId);
+        if (!partition.ring.offer(command)) {
+            command.result.completeExceptionally(new IllegalStateException("Checkout sequencer is saturated"));
+            return command.result;
+        }
+        LockSupport.unpark(partition.thread);
+        return command.result;
+    }
+
+    private Partition partition(Long ticketId) {
+        return partitions[Math.floorMod(Long.hashCode(ticketId), partitionCount)];
+    }
+
+    private record Command(Long ticketId, Long delta, CompletableFuture<Boolean> result) {
+    }
+
+    private class Partition implements Runnable {
+        private final MpscRingBuffer<Command> ring = new MpscRingBuffer<>(ringSize);
+        private final Map<Long, Long> remainingByTicketId = new HashMap<>();
+        // ticket ids to reload, ALL_TICKETS for every one; only read between batches, when every applied delta is
+        // in s_ticket
+        private final Queue<Long> reloads = new ConcurrentLinkedQueue<>();
+        private final List<Command> batch = new ArrayList<>();
+        private final Thread thread;
+        private volatile boolean running = true;
+
+        private Partition(int index) {
+            this.thread = new Thread(this, "checkout-sequencer-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                dropReloaded();
+                if (ring.drain(batch::add, maxBatch) == 0) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                    continue;
+                }
+                try {
+                    process();
+                } catch (RuntimeException e) {
+                    log.error("Checkout sequencer batch failed", e);
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+
+        private void process() {
+            Map<Long, Long> deltas = new HashMap<>();
+            List<Command> applied = new ArrayList<>();
+            for (Command command : batch) {
+                if (command.result().isCancelled()) continue;
+                Long remaining;
+                try {
+                    remaining = remainingByTicketId.computeIfAbsent(command.ticketId(), this::loadRemaining);
+                } catch (RuntimeException e) {
+                    command.result().completeExceptionally(e);
+                    continue;
+                }
+                if (remaining - command.delta() < 0) {
+                    command.result().complete(false);
+                    continue;
+                }
+                remainingByTicketId.put(command.ticketId(), remaining - command.delta());
+                deltas.merge(command.ticketId(), command.delta(), Long::sum);
+                applied.add(command);
+            }
+            if (applied.isEmpty()) return;
+            try {
+                flush(deltas);
+            } catch (RuntimeException e) {
+                // capacity is reloaded from the database on the next command for these tickets
+                deltas.keySet().forEach(remainingByTicketId::remove);
+                applied.forEach(command -> command.result().completeExceptionally(e));
+                return;
+            }
+            Map<Long, Long> abandoned = new HashMap<>();
+            for (Command command : applied) {
+                if (command.result().complete(true)) continue;
+                // cancelled while the batch was being written
+                remainingByTicketId.merge(command.ticketId(), command.delta(), Long::sum);
+                abandoned.merge(command.ticketId(), -command.delta(), Long::sum);
+            }
+            if (abandoned.isEmpty()) return;
+            try {
+                flush(abandoned);
+            } catch (RuntimeException e) {
+                abandoned.keySet().forEach(remainingByTicketId::remove);
+                log.error("Could not hand back abandoned reservations {}", abandoned, e);
+            }
+        }
+
+        private void dropReloaded() {
+            Long ticketId;
+            while ((ticketId = reloads.poll()) != null) {
+                if (ticketId.equals(ALL_TICKETS)) remainingByTicketId.clear();
+                else remainingByTicketId.remove(ticketId);
+            }
+        }
+
+        private void flush(Map<Long, Long> deltas) {
+            List<Object[]> arguments = new ArrayList<>(deltas.size());
+            deltas.forEach((ticketId, delta) -> {
+                if (delta != 0) arguments.add(new Object[]{delta, ticketId});
+            });
+            new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate("UPDATE s_ticket SET sold = sold + ? WHERE id = ?", arguments));
+        }
+
+        private Long loadRemaining(Long ticketId) {
+            Ticket ticket = ticketRepository.findById(ticketId).orElseThrow(
+                    () -> new ResourceNotFoundException("ticket", "ticket id", ticketId));
+            return ticket.getCapacity() - (ticket.getSold() == null ? 0 : ticket.getSold());
+        }
+    }
+}
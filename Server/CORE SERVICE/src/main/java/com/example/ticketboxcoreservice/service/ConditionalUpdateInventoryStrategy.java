@@ -0,0 +1,42 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.exception.ResourceNotFoundException;
+import com.example.ticketboxcoreservice.repository.TicketRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+// single guarded update on s_ticket: the row lock taken by the update decides the winner
+@Service
+@RequiredArgsConstructor
+public class ConditionalUpdateInventoryStrategy implements InventoryStrategy {
+    public static final String NAME = "conditional-update";
+
+    private final TicketRepository ticketRepository;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isConfiguredFor(Long ticketId) {
+        // default backend, picked when no other strategy claims the ticket
+        return false;
+    }
+
+    @Override
+    public boolean reserve(Long ticketId, Long quantity) {
+        return ticketRepository.incrementSoldIfAvailable(ticketId, quantity) == 1;
+    }
+
+    @Override
+    public void release(Long ticketId, Long quantity) {
+        ticketRepository.decrementSold(ticketId, quantity);
+    }
+
+    @Override
+    public Long getSold(Long ticketId) {
+        return ticketRepository.getSoldByTicketId(ticketId).orElseThrow(
+                () -> new ResourceNotFoundException("ticket", "ticket id", ticketId));
+    }
+}
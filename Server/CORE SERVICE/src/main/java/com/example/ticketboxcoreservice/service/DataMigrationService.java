@@ -0,0 +1,35 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.model.entity.DataMigration;
+import com.example.ticketboxcoreservice.repository.DataMigrationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+// One-off data fixes run at startup. Each is recorded in s_data_migration in the transaction that runs it, the row
+// being inserted first, so a node starting at the same time blocks on it and gives up instead of running the fix
+// twice, and no node runs it again later.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DataMigrationService {
+    private final DataMigrationRepository dataMigrationRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    public void runOnce(String migration, Runnable body) {
+        if (dataMigrationRepository.existsById(migration)) return;
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                dataMigrationRepository.saveAndFlush(new DataMigration(migration, LocalDateTime.now()));
+                body.run();
+            });
+        } catch (DataIntegrityViolationException e) {
+            log.info("Data migration {} was run by another node", migration);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.enumf.Constants;
+import com.example.ticketboxcoreservice.model.dto.response.AutocompleteResponse;
+import com.example.ticketboxcoreservice.repository.EventRepository;
+import com.example.ticketboxcoreservice.utils.CompletionTrie;
+import com.example.ticketboxcoreservice.utils.SearchText;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Search box suggestions for the names, organizers and addresses of listed events, most tickets sold first. They are
+// answered from a prefix trie built in the background from s_event and s_ticket and swapped in whole, so a lookup
+// reads one immutable structure without locking and never touches the database. Every word of a text starts a key,
+// so "noi" suggests "Đêm nhạc Hà Nội"; until the first build finishes there are no suggestions.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EventAutocompleteService {
+    private static final List<Integer> LISTED_STATUSES = List.of(Constants.EVENT_STATUS_UPCOMING,
+            Constants.EVENT_STATUS_RUNNING);
+
+    private final EventRepository eventRepository;
+
+    private volatile CompletionTrie<AutocompleteResponse> trie = CompletionTrie.empty();
+    private ScheduledExecutorService rebuilder;
+
+    @Value("${app.autocomplete.enabled:true}")
+    private boolean enabled;
+    @Value("${app.autocomplete.batch-size:5000}")
+    private int batchSize;
+    @Value("${app.autocomplete.max-results:10}")
+    private int maxResults;
+    @Value("${app.autocomplete.rebuild-interval-ms:300000}")
+    private long rebuildIntervalMillis;
+
+    // a thread of its own, a long rebuild must not hold up the shared scheduler
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+        rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "event-autocomplete-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        rebuilder.scheduleWithFixedDelay(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                // the previous trie keeps serving until the next attempt
+                log.warn("Event autocomplete rebuild failed", e);
+            }
+        }, 0, rebuildIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (rebuilder != null) rebuilder.shutdownNow();
+    }
+
+    public void rebuild() {
+        long startedAt = System.nanoTime();
+        Map<Suggestion, Aggregate> aggregates = new LinkedHashMap<>();
+        long afterId = 0;
+        while (true) {
+            List<EventRepository.AutocompleteRow> rows = eventRepository.findAutocompleteRowsAfter(afterId,
+                    LISTED_STATUSES, PageRequest.of(0, batchSize));
+            if (rows.isEmpty()) break;
+            for (EventRepository.AutocompleteRow row : rows) {
+                long weight = 1 + row.getSold();
+                add(aggregates, Constants.AUTOCOMPLETE_TYPE_EVENT, row.getName(), row.getId(), weight);
+                add(aggregates, Constants.AUTOCOMPLETE_TYPE_ORGANIZER, row.getOrgName(), row.getId(), weight);
+                add(aggregates, Constants.AUTOCOMPLETE_TYPE_VENUE, row.getAddress(), row.getId(), weight);
+            }
+            afterId = rows.get(rows.size() - 1).getId();
+        }
+        CompletionTrie.Builder<AutocompleteResponse> builder = new CompletionTrie.Builder<>(maxResults);
+        for (Map.Entry<Suggestion, Aggregate> entry : aggregates.entrySet()) {
+            Aggregate aggregate = entry.getValue();
+            AutocompleteResponse response = AutocompleteResponse.builder()
+                    .text(aggregate.text)
+                    .type(entry.getKey().type())
+                    .eventId(aggregate.eventCount == 1 ? aggregate.eventId : null)
+                    .build();
+            builder.add(response, aggregate.weight, keys(entry.getKey().folded()));
+        }
+        CompletionTrie<AutocompleteResponse> built = builder.build();
+        trie = built;
+        log.info("Event autocomplete rebuilt with {} suggestions under {} keys in {} ms", built.size(),
+                built.keyCount(), (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    public List<AutocompleteResponse> complete(String query, int limit) {
+        String prefix = prefix(query);
+        if (prefix.isEmpty() || limit <= 0) return List.of();
+        return trie.complete(prefix, Math.min(limit, maxResults));
+    }
+
+    // the folded words joined by single spaces, with a trailing space once the last word is finished, so "ha " only
+    // matches words after "ha" and not "hai"
+    public static String prefix(String query) {
+        List<String> tokens = SearchText.tokens(query);
+        if (tokens.isEmpty()) return "";
+        String prefix = String.join(" ", tokens);
+        char last = query.charAt(query.length() - 1);
+        return Character.isLetterOrDigit(last) || Character.getType(last) == Character.NON_SPACING_MARK
+                ? prefix : prefix + ' ';
+    }
+
+    // one key from each word on, "dem nhac ha noi", "nhac ha noi", "ha noi" and "noi"
+    public static List<String> keys(String folded) {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < folded.length(); i++) {
+            if (i == 0 || folded.charAt(i - 1) == ' ') keys.add(folded.substring(i));
+        }
+        return keys;
+    }
+
+    // the same text on several events is one suggestion carrying their combined sales
+    private static void add(Map<Suggestion, Aggregate> aggregates, String type, String text, Long eventId,
+                            long weight) {
+        String folded = String.join(" ", SearchText.tokens(text));
+        if (folded.isEmpty()) return;
+        Aggregate aggregate = aggregates.computeIfAbsent(new Suggestion(type, folded), key -> new Aggregate());
+        // the spelling of the best selling event is the one shown
+        if (aggregate.text == null || weight > aggregate.bestWeight) {
+            aggregate.text = text.strip();
+            aggregate.bestWeight = weight;
+        }
+        aggregate.weight += weight;
+        aggregate.eventId = eventId;
+        aggregate.eventCount++;
+    }
+
+    private record Suggestion(String type, String folded) {
+    }
+
+    private static final class Aggregate {
+        private String text;
+        private long bestWeight;
+        private long weight;
+        private Long eventId;
+        private int eventCount;
+    }
+}
@@ -0,0 +1,319 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.model.dto.response.CustomPage;
+import com.example.ticketboxcoreservice.model.dto.response.EventCacheStatsResponse;
+import com.example.ticketboxcoreservice.model.dto.response.EventResponse;
+import com.example.ticketboxcoreservice.utils.LruCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+// Near-cache of mapped events and of the public event list pages, each bounded by an estimate of its size in bytes.
+// EventService invalidates precisely when an event changes: the event itself, every cached page showing it and every
+// page of the lists it joined or left, once right away and once more after the transaction ends, so a read racing the
+// write cannot put the old state back. A load that overlapped any invalidation is returned but not cached. The TTLs
+// only bound changes this node does not see. A list page past its TTL is still served for up to page-stale-ms while
+// one background reload replaces it. The sizes of those lists are cached too, for pages read without a COUNT(*):
+// a count stays exact until an event joins or leaves its list or it passes count-ttl-ms, after that it is still
+// returned as an estimate while one background count replaces it.
+@Slf4j
+@Service
+public class EventCatalogCache {
+    // rough per-object overhead of a response and its nested objects, the strings are added on top
+    private static final long RESPONSE_OVERHEAD_BYTES = 160;
+
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong countGeneration = new AtomicLong();
+    private final Set<PageKey> refreshing = ConcurrentHashMap.newKeySet();
+    private final Map<CountKey, Count> counts = new ConcurrentHashMap<>();
+    private final Set<CountKey> counting = ConcurrentHashMap.newKeySet();
+    private final LongAdder eventHits = new LongAdder();
+    private final LongAdder eventMisses = new LongAdder();
+    private final LongAdder pageHits = new LongAdder();
+    private final LongAdder pageMisses = new LongAdder();
+    private final LongAdder pageStaleHits = new LongAdder();
+    private final LongAdder countHits = new LongAdder();
+    private final LongAdder countEstimates = new LongAdder();
+    private final LongAdder countMisses = new LongAdder();
+    private LruCache<Long, Entry<EventResponse>> events;
+    private LruCache<PageKey, Entry<CustomPage<EventResponse>>> pages;
+    private ThreadPoolExecutor refresher;
+
+    @Value("${app.event-cache.enabled:true}")
+    private boolean enabled;
+    @Value("${app.event-cache.event-max-bytes:8388608}")
+    private long eventMaxBytes;
+    @Value("${app.event-cache.page-max-bytes:8388608}")
+    private long pageMaxBytes;
+    @Value("${app.event-cache.event-ttl-ms:300000}")
+    private long eventTtlMillis;
+    @Value("${app.event-cache.page-ttl-ms:10000}")
+    private long pageTtlMillis;
+    @Value("${app.event-cache.page-stale-ms:60000}")
+    private long pageStaleMillis;
+    @Value("${app.event-cache.count-ttl-ms:60000}")
+    private long countTtlMillis;
+
+    @PostConstruct
+    public void init() {
+        events = new LruCache<>(eventMaxBytes, entry -> entry.weight);
+        pages = new LruCache<>(pageMaxBytes, entry -> entry.weight);
+        // one reload at a time is plenty for a handful of hot pages, the rest wait or are served stale a bit longer
+        refresher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(256),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "event-cache-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    public EventResponse getEvent(Long eventId, Function<Long, EventResponse> loader) {
+        if (!enabled) return loader.apply(eventId);
+        Entry<EventResponse> entry = events.get(eventId);
+        if (entry != null && entry.ageMillis() < eventTtlMillis) {
+            eventHits.increment();
+            return entry.value;
+        }
+        eventMisses.increment();
+        long loadedAt = generation.get();
+        EventResponse event = loader.apply(eventId);
+        if (generation.get() == loadedAt) events.put(eventId, new Entry<>(event, weigh(event), Set.of()));
+        return event;
+    }
+
+    public CustomPage<EventResponse> getPage(PageKey key, Supplier<CustomPage<EventResponse>> loader) {
+        if (!enabled) return loader.get();
+        Entry<CustomPage<EventResponse>> entry = pages.get(key);
+        if (entry != null && entry.ageMillis() < pageTtlMillis) {
+            pageHits.increment();
+            return entry.value;
+        }
+        if (entry != null && entry.ageMillis() < pageTtlMillis + pageStaleMillis) {
+            pageStaleHits.increment();
+            refreshInBackground(key, loader);
+            return entry.value;
+        }
+        pageMisses.increment();
+        return loadPage(key, loader);
+    }
+
+    // size of the list by status, within a category when categoryId is not null; only the first read of a list
+    // waits for its count
+    public Total getTotal(Long categoryId, Integer status, LongSupplier counter) {
+        if (!enabled) return new Total(counter.getAsLong(), true);
+        CountKey key = new CountKey(categoryId, status);
+        Count count = counts.get(key);
+        if (count == null) {
+            countMisses.increment();
+            count = loadCount(key, counter);
+            return new Total(count.value(), count.exact());
+        }
+        if (count.exact() && count.ageMillis() < countTtlMillis) {
+            countHits.increment();
+            return new Total(count.value(), true);
+        }
+        countEstimates.increment();
+        countInBackground(key, counter);
+        return new Total(count.value(), false);
+    }
+
+    // the event changed but stayed in the same lists, e.g. new media
+    public void invalidateEvent(Long eventId) {
+        invalidateEvent(eventId, Set.of(), Set.of());
+    }
+
+    // the event may have joined or left the lists of these statuses, on its own and in these categories
+    public void invalidateEvent(Long eventId, Collection<Integer> statuses, Collection<Long> categoryIds) {
+        invalidate(eventId, statuses, categoryIds);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                invalidate(eventId, statuses, categoryIds);
+            }
+        });
+    }
+
+    public EventCacheStatsResponse getStats() {
+        return EventCacheStatsResponse.builder()
+                .eventEntries(events.size())
+                .eventBytes(events.weight())
+                .eventHits(eventHits.sum())
+                .eventMisses(eventMisses.sum())
+                .eventEvictions(events.evictions())
+                .pageEntries(pages.size())
+                .pageBytes(pages.weight())
+                .pageHits(pageHits.sum())
+                .pageStaleHits(pageStaleHits.sum())
+                .pageMisses(pageMisses.sum())
+                .pageEvictions(pages.evictions())
+                .countEntries(counts.size())
+                .countHits(countHits.sum())
+                .countEstimates(countEstimates.sum())
+                .countMisses(countMisses.sum())
+                .build();
+    }
+
+    private void invalidate(Long eventId, Collection<Integer> statuses, Collection<Long> categoryIds) {
+        generation.incrementAndGet();
+        events.invalidate(eventId);
+        String id = String.valueOf(eventId);
+        pages.invalidateIf((key, entry) -> entry.eventIds.contains(id)
+                || (key.status() != null && statuses.contains(key.status()) && (key.categoryId() == null
+                || categoryIds.contains(key.categoryId()))));
+        if (statuses.isEmpty()) return;
+        countGeneration.incrementAndGet();
+        counts.replaceAll((key, count) -> statuses.contains(key.status()) && (key.categoryId() == null
+                || categoryIds.contains(key.categoryId())) ? count.behind() : count);
+    }
+
+    // a count that overlapped an invalidation may have missed the change, it is kept as an estimate only
+    private Count loadCount(CountKey key, LongSupplier counter) {
+        long countedAt = countGeneration.get();
+        long value = counter.getAsLong();
+        Count count = new Count(value, countGeneration.get() == countedAt, System.nanoTime());
+        counts.put(key, count);
+        return count;
+    }
+
+    private void countInBackground(CountKey key, LongSupplier counter) {
+        if (!counting.add(key)) return;
+        try {
+            refresher.execute(() -> {
+                try {
+                    loadCount(key, counter);
+                } catch (RuntimeException e) {
+                    // the old count keeps being served as an estimate, the next read tries again
+                    log.warn("Could not count event list {}", key, e);
+                } finally {
+                    counting.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            counting.remove(key);
+        }
+    }
+
+    private CustomPage<EventResponse> loadPage(PageKey key, Supplier<CustomPage<EventResponse>> loader) {
+        long loadedAt = generation.get();
+        CustomPage<EventResponse> page = loader.get();
+        if (generation.get() == loadedAt) {
+            long weight = page.getPageContent().stream().mapToLong(EventCatalogCache::weigh).sum();
+            Set<String> eventIds = page.getPageContent().stream().map(EventResponse::getId)
+                    .collect(Collectors.toUnmodifiableSet());
+            pages.put(key, new Entry<>(page, RESPONSE_OVERHEAD_BYTES + weight, eventIds));
+        }
+        return page;
+    }
+
+    private void refreshInBackground(PageKey key, Supplier<CustomPage<EventResponse>> loader) {
+        if (!refreshing.add(key)) return;
+        try {
+            refresher.execute(() -> {
+                try {
+                    loadPage(key, loader);
+                } catch (RuntimeException e) {
+                    // the stale page stays until it expires for good, then a caller loads it and sees the error
+                    log.warn("Could not refresh event page {}", key, e);
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+        }
+    }
+
+    private static long weigh(EventResponse event) {
+        return RESPONSE_OVERHEAD_BYTES + 2L * (length(event.getId()) + length(event.getName())
+                + length(event.getAddress()) + length(event.getOrgName()) + length(event.getOrgInfo())
+                + length(event.getImg() == null ? null : event.getImg().getUrl())
+                + length(event.getBanner() == null ? null : event.getBanner().getUrl())
+                + length(event.getInfo() == null ? null : event.getInfo().getUrl()));
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    // categoryId is null for the lists by status only, a sliced page was read without its total
+    public record PageKey(Long categoryId, Integer status, int pageNumber, int pageSize, Sort sort, boolean sliced) {
+        public static PageKey byStatus(Integer status, Pageable pageable) {
+            return byStatus(status, pageable, false);
+        }
+
+        public static PageKey byStatus(Integer status, Pageable pageable, boolean sliced) {
+            return new PageKey(null, status, pageable.getPageNumber(), pageable.getPageSize(), pageable.getSort(),
+                    sliced);
+        }
+
+        public static PageKey byCategory(Long categoryId, Integer status, Pageable pageable) {
+            return byCategory(categoryId, status, pageable, false);
+        }
+
+        public static PageKey byCategory(Long categoryId, Integer status, Pageable pageable, boolean sliced) {
+            return new PageKey(categoryId, status, pageable.getPageNumber(), pageable.getPageSize(),
+                    pageable.getSort(), sliced);
+        }
+    }
+
+    // exact is false when the count may be behind the list
+    public record Total(long count, boolean exact) {
+    }
+
+    private record CountKey(Long categoryId, Integer status) {
+    }
+
+    private record Count(long value, boolean exact, long countedAt) {
+        private Count behind() {
+            return new Count(value, false, countedAt);
+        }
+
+        private long ageMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - countedAt);
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long weight;
+        private final Set<String> eventIds;
+        private final long loadedAt = System.nanoTime();
+
+        private Entry(V value, long weight, Set<String> eventIds) {
+            this.value = value;
+            this.weight = weight;
+            this.eventIds = eventIds;
+        }
+
+        private long ageMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - loadedAt);
+        }
+    }
+}
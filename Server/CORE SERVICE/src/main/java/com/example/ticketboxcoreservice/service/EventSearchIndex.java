@@ -0,0 +1,148 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.repository.EventRepository;
+import com.example.ticketboxcoreservice.utils.InvertedIndex;
+import com.example.ticketboxcoreservice.utils.SearchText;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Full-text index of event name, organizer, category names and address, kept in process so a search never scans
+// s_event. It is built in the background once the application is ready, in id order and batch-size events at a
+// time; searches fall back to the LIKE query until then. EventService feeds it every change it commits, and a
+// periodic pass re-reads events whose update_date moved, which covers changes made before the build finished and
+// changes made through another node. In fuzzy mode a query word also matches indexed words a typo or two away.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EventSearchIndex {
+    // a match in the name counts most, then organizer and category, the address least
+    private static final float NAME_WEIGHT = 3f;
+    private static final float ORG_NAME_WEIGHT = 2f;
+    private static final float CATEGORY_WEIGHT = 2f;
+    private static final float ADDRESS_WEIGHT = 1f;
+
+    private final EventRepository eventRepository;
+
+    private volatile InvertedIndex index;
+    private volatile LocalDateTime syncedUpTo;
+
+    @Value("${app.event-search.enabled:true}")
+    private boolean enabled;
+    @Value("${app.event-search.batch-size:5000}")
+    private int batchSize;
+    @Value("${app.event-search.sync-overlap-ms:10000}")
+    private long syncOverlapMillis;
+    @Value("${app.event-search.fuzzy-max-edits:2}")
+    private int fuzzyMaxEdits;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+        Thread builder = new Thread(this::build, "event-search-build");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    public void build() {
+        long startedAt = System.nanoTime();
+        LocalDateTime syncFrom = LocalDateTime.now();
+        InvertedIndex built = new InvertedIndex(fuzzyMaxEdits);
+        long afterId = 0;
+        while (true) {
+            List<EventRepository.SearchRow> rows = eventRepository.findSearchRowsAfter(afterId,
+                    PageRequest.of(0, batchSize));
+            if (rows.isEmpty()) break;
+            put(built, rows);
+            afterId = rows.get(rows.size() - 1).getId();
+        }
+        syncedUpTo = syncFrom;
+        index = built;
+        log.info("Event search index built with {} events in {} ms", built.size(),
+                (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    @Scheduled(fixedDelayString = "${app.event-search.sync-interval-ms:30000}")
+    public void sync() {
+        InvertedIndex current = index;
+        if (current == null) return;
+        LocalDateTime syncFrom = LocalDateTime.now();
+        List<EventRepository.SearchRow> rows = eventRepository.findSearchRowsUpdatedSince(
+                syncedUpTo.minusNanos(syncOverlapMillis * 1_000_000));
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            put(current, rows.subList(from, Math.min(rows.size(), from + batchSize)));
+        }
+        syncedUpTo = syncFrom;
+    }
+
+    public boolean isReady() {
+        return index != null;
+    }
+
+    public InvertedIndex.Hits search(String query, boolean fuzzy, int offset, int limit) {
+        return index.search(SearchText.tokens(query), fuzzy ? fuzzyMaxEdits : 0, offset, limit);
+    }
+
+    // the text is taken now and applied once the transaction commits, so a rollback leaves the index alone
+    public void indexAfterCommit(Long eventId, String name, String address, String orgName,
+                                 Collection<String> categoryNames) {
+        Map<String, Float> document = document(name, address, orgName, categoryNames);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            put(eventId, document);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                put(eventId, document);
+            }
+        });
+    }
+
+    public static Map<String, Float> document(String name, String address, String orgName,
+                                              Collection<String> categoryNames) {
+        Map<String, Float> terms = new HashMap<>();
+        addTerms(terms, name, NAME_WEIGHT);
+        addTerms(terms, orgName, ORG_NAME_WEIGHT);
+        for (String categoryName : categoryNames) addTerms(terms, categoryName, CATEGORY_WEIGHT);
+        addTerms(terms, address, ADDRESS_WEIGHT);
+        return terms;
+    }
+
+    private void put(Long eventId, Map<String, Float> document) {
+        // before the build finishes the periodic pass picks the change up from update_date
+        InvertedIndex current = index;
+        if (current != null) current.put(eventId, document);
+    }
+
+    private void put(InvertedIndex target, List<EventRepository.SearchRow> rows) {
+        List<Long> eventIds = new ArrayList<>(rows.size());
+        for (EventRepository.SearchRow row : rows) eventIds.add(row.getId());
+        Map<Long, List<String>> categoryNames = new HashMap<>();
+        for (EventRepository.CategoryNameRow row : eventRepository.findCategoryNamesByEventIds(eventIds)) {
+            categoryNames.computeIfAbsent(row.getEventId(), id -> new ArrayList<>()).add(row.getName());
+        }
+        for (EventRepository.SearchRow row : rows) {
+            target.put(row.getId(), document(row.getName(), row.getAddress(), row.getOrgName(),
+                    categoryNames.getOrDefault(row.getId(), List.of())));
+        }
+    }
+
+    private static void addTerms(Map<String, Float> terms, String text, float weight) {
+        for (String token : SearchText.tokens(text)) terms.merge(token, weight, Float::sum);
+    }
+}
@@ -11,21 +11,38 @@ import com.example.ticketboxcoreservice.model.dto.request.PdfRequest;
 import com.example.ticketboxcoreservice.model.dto.response.*;
 import com.example.ticketboxcoreservice.model.entity.*;
 import com.example.ticketboxcoreservice.repository.*;
+import com.example.ticketboxcoreservice.utils.InvertedIndex;
+import com.example.ticketboxcoreservice.utils.KeysetPaging;
+import com.example.ticketboxcoreservice.utils.SingleFlight;
+import jakarta.annotation.PostConstruct;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class EventService {
@@ -37,8 +54,33 @@ public class EventService {
     private final PdfService pdfService;
     private final ImageService imageService;
     private final ModelMapper modelMapper;
+    private final SingleFlightRegistry singleFlightRegistry;
+    private final EventCatalogCache eventCatalogCache;
+    private final EventSearchIndex eventSearchIndex;
+    private final PlatformTransactionManager transactionManager;
+    private final DataMigrationService dataMigrationService;
+
+    private SingleFlight<Long, EventResponse> eventById;
+    @Value("${app.event-search.max-page-size:100}")
+    private int searchMaxPageSize;
+    @Value("${app.event-search.max-results:1000}")
+    private int searchMaxResults;
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void init() {
+        eventById = singleFlightRegistry.register("event-by-id", eventId -> eventId);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
 
     // get userId from session storage
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillStartDates() {
+        dataMigrationService.runOnce("event-start-date-backfill", () ->
+                log.info("Backfilled the start date of {} events", eventRepository.backfillStartDates()));
+    }
+
     @Transactional
     public EventResponse createEvent(Long creatorUserId, EventRequest eventRequest) {
         Event event = modelMapper.map(eventRequest, Event.class);
@@ -46,6 +88,7 @@ public class EventService {
         User host = userRepository.findById(creatorUserId).orElseThrow(
                 () -> new ResourceNotFoundException("user", "user id", creatorUserId));
         event.setHost(host);
+        event.validateStartDate();
         event.setStatus(Constants.EVENT_STATUS_PENDING);
         event.setCreateDate(LocalDateTime.now());
         event.setUpdateDate(LocalDateTime.now());
@@ -53,6 +96,9 @@ public class EventService {
         Category category = categoryRepository.findById(eventRequest.getCategory().getId()).orElseThrow(
                 () -> new ResourceNotFoundException("category", "category id", eventRequest.getCategory().getId()));
         categoryRepository.addCategoryToEvents(category.getId(), event.getId());
+        eventCatalogCache.invalidateEvent(event.getId(), Set.of(event.getStatus()), Set.of(category.getId()));
+        eventSearchIndex.indexAfterCommit(event.getId(), event.getName(), event.getAddress(), event.getOrgName(),
+                List.of(category.getName()));
         return modelMapper.map(eventRepository.save(event), EventResponse.class);
     }
 
@@ -64,9 +110,13 @@ public class EventService {
             throw new AppException(ErrorCode.NON_APPROVERS_CANNOT_APPROVE_OR_DECLINE_EVENTS);
         Event event = eventRepository.findById(eventId).orElseThrow(
                 () -> new ResourceNotFoundException("event", "event id", eventId));
+        Integer previousStatus = event.getStatus();
         event.setApprover(approver);
         event.approve();
         eventRepository.save(event);
+        invalidateCatalog(event, previousStatus);
+        eventSearchIndex.indexAfterCommit(event.getId(), event.getName(), event.getAddress(), event.getOrgName(),
+                categoryNames(event));
         return MessageResponse.builder().message(
                 "Event with id " + eventId + " has been approved successfully by approver with id " + approverUserId)
                 .build();
@@ -81,7 +131,17 @@ public class EventService {
         if (!event.getStatus().equals(Constants.EVENT_STATUS_PENDING))
             throw new AppException(ErrorCode.ONLY_PENDING_EVENT_IS_UPDATABLE);
         event = mapNotNullValuesFromEventReq(eventRequest, event);
+        event.validateStartDate();
         event.setUpdateDate(LocalDateTime.now());
+        // the category given in the request was linked by a native insert the loaded categories do not show yet
+        Set<Long> categoryIds = categoryIds(event);
+        categoryIds.add(eventRequest.getCategory().getId());
+        eventCatalogCache.invalidateEvent(event.getId(), Set.of(event.getStatus()), categoryIds);
+        Set<String> categoryNames = categoryNames(event);
+        categoryRepository.findById(eventRequest.getCategory().getId())
+                .ifPresent(category -> categoryNames.add(category.getName()));
+        eventSearchIndex.indexAfterCommit(event.getId(), event.getName(), event.getAddress(), event.getOrgName(),
+                categoryNames);
         return modelMapper.map(eventRepository.save(event), EventResponse.class);
     }
 
@@ -93,8 +153,10 @@ public class EventService {
             throw new AppException(ErrorCode.ONLY_HOST_CAN_UPDATE_EVENT);
         if (!event.getStatus().equals(Constants.EVENT_STATUS_PENDING))
             throw new AppException(ErrorCode.ONLY_PENDING_EVENT_IS_UPDATABLE);
+        Integer previousStatus = event.getStatus();
         event.cancel();
         eventRepository.save(event);
+        invalidateCatalog(event, previousStatus);
         return MessageResponse.builder().message(
                 "Event with id " + eventId + " has been cancelled successfully by user with id " + creatorUserId)
                 .build();
@@ -108,57 +170,93 @@ public class EventService {
             throw new AppException(ErrorCode.NON_APPROVERS_CANNOT_APPROVE_OR_DECLINE_EVENTS);
         Event event = eventRepository.findById(eventId).orElseThrow(
                 () -> new ResourceNotFoundException("event", "event id", eventId));
+        Integer previousStatus = event.getStatus();
         event.setApprover(approver);
         event.decline();
+        invalidateCatalog(event, previousStatus);
         return MessageResponse.builder().message(
                 "Event with id " + eventId + " has been declined successfully by approver with id " + approverUserId)
                 .build();
     }
 
-    @Transactional
+    // served from the near-cache, concurrent misses for the same event share one load, which runs in its own
+    // transaction so the callers waiting on it do not hold a connection
     public EventResponse getEventByEventId(Long eventId) {
-        Event event = eventRepository.findById(eventId).orElseThrow(
-                () -> new ResourceNotFoundException("event", "event id", eventId));
-        return modelMapper.map(event, EventResponse.class);
+        return eventCatalogCache.getEvent(eventId, key -> singleFlightRegistry.execute(eventById, key,
+                id -> readOnlyTransaction.execute(status -> {
+                    Event event = eventRepository.findById(id).orElseThrow(
+                            () -> new ResourceNotFoundException("event", "event id", id));
+                    return modelMapper.map(event, EventResponse.class);
+                })));
     }
 
-    @Transactional
     public CustomPage<EventResponse> getEventByCategoryIdAndStatus(Long categoryId, Integer eventStatus,
             Pageable pageable) {
-        Page<Event> events = eventRepository.findByCategoryIdAndStatus(categoryId, eventStatus, pageable);
-        return CustomPage.<EventResponse>builder()
-                .pageNo(events.getNumber() + 1)
-                .pageSize(events.getSize())
-                .totalPages(events.getTotalPages())
-                .totalPages(events.getTotalPages())
-                .pageContent(events.getContent().stream().map(
-                        event -> modelMapper.map(event, EventResponse.class)).collect(Collectors.toList()))
-                .build();
+        return eventCatalogCache.getPage(EventCatalogCache.PageKey.byCategory(categoryId, eventStatus, pageable),
+                () -> readOnlyTransaction.execute(status -> CustomPage.of(
+                        eventRepository.findByCategoryIdAndStatus(categoryId, eventStatus, pageable),
+                        event -> modelMapper.map(event, EventResponse.class))));
+    }
+
+    // without COUNT(*), with the cached size of the list when estimateTotal
+    public CustomPage<EventResponse> sliceEventsByCategoryIdAndStatus(Long categoryId, Integer eventStatus,
+            Pageable pageable, boolean estimateTotal) {
+        CustomPage<EventResponse> page = eventCatalogCache.getPage(
+                EventCatalogCache.PageKey.byCategory(categoryId, eventStatus, pageable, true),
+                () -> readOnlyTransaction.execute(status -> CustomPage.of(
+                        eventRepository.findSliceByCategoryIdAndStatus(categoryId, eventStatus, pageable),
+                        event -> modelMapper.map(event, EventResponse.class))));
+        if (!estimateTotal) return page;
+        return withTotal(page, pageable, eventCatalogCache.getTotal(categoryId, eventStatus,
+                () -> eventRepository.countByCategoryIdAndStatus(categoryId, eventStatus)));
+    }
+
+    // cursor mode reads the database directly, only numbered pages are cached
+    @Transactional
+    public CustomPage<EventResponse> scrollEventsByCategoryIdAndStatus(Long categoryId, Integer eventStatus,
+            String cursor, int pageSize, Sort sort) {
+        return KeysetPaging.scroll(eventRepository, EventRepository.byCategoryIdAndStatus(categoryId, eventStatus),
+                cursor, pageSize, sort, event -> modelMapper.map(event, EventResponse.class));
     }
 
     @Transactional
     public CustomPage<EventResponse> getEventByCreatorUserId(Long creatorUserId, Integer status, Pageable pageable) {
-        Page<Event> events = eventRepository.findByHostIdAndStatus(creatorUserId, status, pageable);
-        return CustomPage.<EventResponse>builder()
-                .pageNo(events.getNumber() + 1)
-                .pageSize(events.getSize())
-                .totalPages(events.getTotalPages())
-                .pageContent(events.getContent().stream().map(
-                        event -> modelMapper.map(event, EventResponse.class)).collect(Collectors.toList()))
-                .build();
+        return CustomPage.of(eventRepository.findByHostIdAndStatus(creatorUserId, status, pageable),
+                event -> modelMapper.map(event, EventResponse.class));
+    }
+
+    @Transactional
+    public CustomPage<EventResponse> sliceEventsByCreatorUserId(Long creatorUserId, Integer status,
+            Pageable pageable) {
+        return CustomPage.of(eventRepository.findSliceByHostIdAndStatus(creatorUserId, status, pageable),
+                event -> modelMapper.map(event, EventResponse.class));
+    }
+
+    @Transactional
+    public CustomPage<EventResponse> scrollEventsByCreatorUserId(Long creatorUserId, Integer status, String cursor,
+            int pageSize, Sort sort) {
+        return KeysetPaging.scroll(eventRepository, EventRepository.byHostIdAndStatus(creatorUserId, status),
+                cursor, pageSize, sort, event -> modelMapper.map(event, EventResponse.class));
     }
 
     @Transactional
     public CustomPage<EventResponse> getEventByApproverUserId(Long approverUserId, Integer eventStatus,
             Pageable pageable) {
-        Page<Event> events = eventRepository.findByApproverIdAndStatus(approverUserId, eventStatus, pageable);
-        return CustomPage.<EventResponse>builder()
-                .pageNo(events.getNumber() + 1)
-                .pageSize(events.getSize())
-                .totalPages(events.getTotalPages())
-                .pageContent(events.getContent().stream().map(
-                        event -> modelMapper.map(event, EventResponse.class)).collect(Collectors.toList()))
-                .build();
+        return CustomPage.of(eventRepository.findByApproverIdAndStatus(approverUserId, eventStatus, pageable),
+                event -> modelMapper.map(event, EventResponse.class));
+    }
+
+    @Transactional
+    public CustomPage<EventResponse> sliceEventsByApproverUserId(Long approverUserId, Pageable pageable) {
+        return CustomPage.of(eventRepository.findSliceByApproverId(approverUserId, pageable),
+                event -> modelMapper.map(event, EventResponse.class));
+    }
+
+    @Transactional
+    public CustomPage<EventResponse> scrollEventsByApproverUserId(Long approverUserId, String cursor, int pageSize,
+            Sort sort) {
+        return KeysetPaging.scroll(eventRepository, EventRepository.byApproverId(approverUserId), cursor, pageSize,
+                sort, event -> modelMapper.map(event, EventResponse.class));
     }
 
     @Transactional
@@ -224,14 +322,38 @@ public class EventService {
         } catch (IOException e) {
             throw new IllegalArgumentException(e.getMessage());
         }
+        eventCatalogCache.invalidateEvent(eventId);
         return modelMapper.map(eventRepository.save(event), EventResponse.class);
     }
 
-    @Transactional
-    public List<EventResponse> search(String params) {
-        return eventRepository.search(params).stream()
-                .map(event -> modelMapper.map(event, EventResponse.class))
-                .collect(Collectors.toList());
+    // matched and ranked by the in-memory index, only the events of the requested page are read from MySQL; fuzzy
+    // also matches misspelled words, the LIKE fallback cannot
+    public CustomPage<EventResponse> search(String params, boolean fuzzy, Pageable pageable) {
+        // the search is open to anyone and ranks offset + pageSize hits in memory, so how deep a page reaches is bound
+        if (pageable.getPageSize() > searchMaxPageSize
+                || pageable.getOffset() > searchMaxResults - pageable.getPageSize()) {
+            throw new AppException(ErrorCode.SEARCH_PAGE_OUT_OF_RANGE);
+        }
+        if (!eventSearchIndex.isReady()) return readOnlyTransaction.execute(status -> CustomPage.of(
+                eventRepository.search(params, pageable), event -> modelMapper.map(event, EventResponse.class)));
+        InvertedIndex.Hits hits = eventSearchIndex.search(params, fuzzy, (int) pageable.getOffset(),
+                pageable.getPageSize());
+        List<Long> eventIds = Arrays.stream(hits.ids()).boxed().toList();
+        List<EventResponse> pageContent = readOnlyTransaction.execute(status -> {
+            Map<Long, Event> events = eventRepository.findAllById(eventIds).stream()
+                    .collect(Collectors.toMap(Event::getId, Function.identity()));
+            // an event deleted since it was indexed is skipped
+            return eventIds.stream().map(events::get).filter(Objects::nonNull)
+                    .map(event -> modelMapper.map(event, EventResponse.class)).collect(Collectors.toList());
+        });
+        return CustomPage.<EventResponse>builder()
+                .pageNo(pageable.getPageNumber() + 1)
+                .pageSize(pageable.getPageSize())
+                .totalPages((int) ((hits.total() + pageable.getPageSize() - 1) / pageable.getPageSize()))
+                .hasNext(pageable.getOffset() + pageable.getPageSize() < hits.total())
+                .totalExact(true)
+                .pageContent(pageContent)
+                .build();
     }
 
     @Transactional
@@ -241,18 +363,67 @@ public class EventService {
         return events.stream().map(event -> modelMapper.map(event, EventResponse.class)).collect(Collectors.toList());
     }
 
-    @Transactional
     public CustomPage<EventResponse> getAllEventsByStatus(Integer status, Pageable pageable) {
-        Page<Event> events = eventRepository.findByStatus(status, pageable);
-        return CustomPage.<EventResponse>builder()
-                .pageNo(events.getNumber() + 1)
-                .pageSize(events.getSize())
-                .totalPages(events.getTotalPages())
-                .pageContent(events.getContent().stream().map(
-                        event -> modelMapper.map(event, EventResponse.class)).collect(Collectors.toList()))
+        return eventCatalogCache.getPage(EventCatalogCache.PageKey.byStatus(status, pageable),
+                () -> readOnlyTransaction.execute(transactionStatus -> CustomPage.of(
+                        eventRepository.findByStatus(status, pageable),
+                        event -> modelMapper.map(event, EventResponse.class))));
+    }
+
+    // without COUNT(*), with the cached size of the list when estimateTotal
+    public CustomPage<EventResponse> sliceEventsByStatus(Integer status, Pageable pageable, boolean estimateTotal) {
+        CustomPage<EventResponse> page = eventCatalogCache.getPage(
+                EventCatalogCache.PageKey.byStatus(status, pageable, true),
+                () -> readOnlyTransaction.execute(transactionStatus -> CustomPage.of(
+                        eventRepository.findSliceByStatus(status, pageable),
+                        event -> modelMapper.map(event, EventResponse.class))));
+        if (!estimateTotal) return page;
+        return withTotal(page, pageable, eventCatalogCache.getTotal(null, status,
+                () -> eventRepository.countByStatus(status)));
+    }
+
+    @Transactional
+    public CustomPage<EventResponse> scrollEventsByStatus(Integer status, String cursor, int pageSize, Sort sort) {
+        return KeysetPaging.scroll(eventRepository, EventRepository.byStatus(status), cursor, pageSize, sort,
+                event -> modelMapper.map(event, EventResponse.class));
+    }
+
+    // a cached count below what the page shows is behind, and the last page tells the exact size of the list
+    private static CustomPage<EventResponse> withTotal(CustomPage<EventResponse> page, Pageable pageable,
+            EventCatalogCache.Total total) {
+        long seen = pageable.getOffset() + page.getPageContent().size();
+        long count = total.count();
+        boolean exact = total.exact();
+        if (!page.getHasNext() && (!page.getPageContent().isEmpty() || pageable.getOffset() == 0)) {
+            count = seen;
+            exact = true;
+        } else if (count < seen + (page.getHasNext() ? 1 : 0)) {
+            count = seen + (page.getHasNext() ? 1 : 0);
+            exact = false;
+        }
+        return page.toBuilder()
+                .totalPages((int) ((count + pageable.getPageSize() - 1) / pageable.getPageSize()))
+                .totalExact(exact)
                 .build();
     }
 
+    // the event left the lists of its previous status and joined those of its new one
+    private void invalidateCatalog(Event event, Integer previousStatus) {
+        Set<Integer> statuses = new HashSet<>();
+        statuses.add(previousStatus);
+        statuses.add(event.getStatus());
+        statuses.remove(null);
+        eventCatalogCache.invalidateEvent(event.getId(), statuses, categoryIds(event));
+    }
+
+    private static Set<String> categoryNames(Event event) {
+        return event.getCategories().stream().map(Category::getName).collect(Collectors.toCollection(HashSet::new));
+    }
+
+    private static Set<Long> categoryIds(Event event) {
+        return event.getCategories().stream().map(Category::getId).collect(Collectors.toCollection(HashSet::new));
+    }
+
     private Event mapNotNullValuesFromEventReq(EventRequest request, Event event) {
         // == Simple Primitive/String Fields ==
         Optional.ofNullable(request.getName()).ifPresent(event::setName);
@@ -0,0 +1,254 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.enumf.Constants;
+import com.example.ticketboxcoreservice.enumf.ErrorCode;
+import com.example.ticketboxcoreservice.exception.AppException;
+import com.example.ticketboxcoreservice.exception.ResourceNotFoundException;
+import com.example.ticketboxcoreservice.model.dto.response.FulfillmentResponse;
+import com.example.ticketboxcoreservice.model.entity.Order;
+import com.example.ticketboxcoreservice.model.entity.OrderTicket;
+import com.example.ticketboxcoreservice.repository.OrderRepository;
+import com.example.ticketboxcoreservice.repository.OrderTicketRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Post-purchase work that used to run inside the checkout transaction: ticket tokens, QR pre-rendering and the
+// receipt number. Purchases publish their order id after commit, worker threads drain ids in batches and fulfil a
+// batch in one transaction. The database fulfillment status is the durable job record: pending orders are
+// re-queued on startup and by a periodic sweep, and every step is idempotent (tokens are only issued to lines
+// without one and are deterministic anyway), so a job may safely run more than once. A failed job stays pending with
+// a retry time that backs off exponentially; after max-attempts it is failed until an admin queues it again.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FulfillmentService {
+    private static final DateTimeFormatter RECEIPT_DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final OrderRepository orderRepository;
+    private final OrderTicketRepository orderTicketRepository;
+    private final TicketTokenService ticketTokenService;
+    private final QrCodeService qrCodeService;
+    private final PlatformTransactionManager transactionManager;
+
+    private final BlockingQueue<Long> queue = new LinkedBlockingQueue<>();
+    // ids waiting in the queue, so a sweep does not queue an order a second time
+    private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    @Value("${app.fulfillment.workers:2}")
+    private int workerCount;
+    @Value("${app.fulfillment.batch-size:50}")
+    private int batchSize;
+    @Value("${app.fulfillment.sweep-interval-ms:60000}")
+    private long sweepIntervalMillis;
+    @Value("${app.fulfillment.prerender-size:300}")
+    private int prerenderSize;
+    @Value("${app.fulfillment.max-attempts:5}")
+    private int maxAttempts;
+    @Value("${app.fulfillment.retry-backoff-ms:60000}")
+    private long retryBackoffMillis;
+    @Value("${app.fulfillment.retry-backoff-max-ms:3600000}")
+    private long retryBackoffMaxMillis;
+
+    @PostConstruct
+    public void start() {
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::work, "fulfillment-worker-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+    }
+
+    // the job only exists once the purchase is committed, a rolled back checkout publishes nothing
+    public void publishAfterCommit(Long orderId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(orderId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                enqueue(orderId);
+            }
+        });
+    }
+
+    public FulfillmentResponse getFulfillment(Long orderId) {
+        Order order = orderRepository.findById(orderId).orElseThrow(
+                () -> new ResourceNotFoundException("order", "order id", orderId));
+        Integer fulfillmentStatus = order.getFulfillmentStatus();
+        // orders purchased before the pipeline existed had their tokens issued at checkout
+        if (fulfillmentStatus == null && Constants.ORDER_STATUS_PURCHASED.equals(order.getStatus())) {
+            fulfillmentStatus = Constants.ORDER_FULFILLMENT_STATUS_DONE;
+        }
+        return FulfillmentResponse.builder()
+                .orderId(orderId)
+                .fulfillmentStatus(fulfillmentStatus)
+                .receiptNumber(order.getReceiptNumber())
+                .fulfilledAt(order.getFulfilledAt())
+                .build();
+    }
+
+    // the failed state is terminal for the pipeline, this is the way out once whatever broke the job is fixed
+    @Transactional
+    public FulfillmentResponse requeueFailed(Long orderId) {
+        if (orderRepository.resetFulfillment(orderId, Constants.ORDER_FULFILLMENT_STATUS_FAILED,
+                Constants.ORDER_FULFILLMENT_STATUS_PENDING) == 0) {
+            if (!orderRepository.existsById(orderId))
+                throw new ResourceNotFoundException("order", "order id", orderId);
+            throw new AppException(ErrorCode.FULFILLMENT_NOT_FAILED);
+        }
+        publishAfterCommit(orderId);
+        log.info("Fulfillment of order {} queued again", orderId);
+        return getFulfillment(orderId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePendingJobs() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> orderIds = orderRepository.findDueIdsByFulfillmentStatusAndPurchasedBefore(
+                Constants.ORDER_FULFILLMENT_STATUS_PENDING, now, now);
+        orderIds.forEach(this::enqueue);
+        log.info("Resumed {} pending fulfillment jobs", orderIds.size());
+    }
+
+    // catches jobs whose after-commit publish was lost, e.g. the node died between commit and enqueue, and runs
+    // failed jobs again once their retry time has passed
+    @Scheduled(fixedDelayString = "${app.fulfillment.sweep-interval-ms:60000}")
+    public void sweepPendingJobs() {
+        LocalDateTime now = LocalDateTime.now();
+        orderRepository.findDueIdsByFulfillmentStatusAndPurchasedBefore(Constants.ORDER_FULFILLMENT_STATUS_PENDING,
+                now.minusNanos(sweepIntervalMillis * 1_000_000), now).forEach(this::enqueue);
+    }
+
+    private void enqueue(Long orderId) {
+        if (queued.add(orderId)) queue.add(orderId);
+    }
+
+    private void work() {
+        List<Long> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Long first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                batch.forEach(queued::remove);
+                fulfilBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void fulfilBatch(List<Long> orderIds) {
+        try {
+            prerender(fulfil(orderIds));
+        } catch (RuntimeException e) {
+            if (orderIds.size() == 1) {
+                log.error("Fulfillment of order {} failed", orderIds.get(0), e);
+                recordFailure(orderIds.get(0));
+                return;
+            }
+            // one bad order must not hold back the rest of its batch
+            log.warn("Fulfillment batch of {} orders failed, retrying them one by one", orderIds.size(), e);
+            orderIds.forEach(orderId -> fulfilBatch(List.of(orderId)));
+        }
+    }
+
+    // returns the tokens issued by this run
+    private List<String> fulfil(Collection<Long> orderIds) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            List<Order> orders = orderRepository.findAllByIdAndFulfillmentStatus(orderIds,
+                    Constants.ORDER_FULFILLMENT_STATUS_PENDING);
+            if (orders.isEmpty()) return List.of();
+            List<OrderTicket> orderTickets = orderTicketRepository.findUnissuedByOrderIds(
+                    orders.stream().map(Order::getId).toList(), Constants.ORDER_TICKET_STATUS_ACTIVE);
+            List<String> tokens = new ArrayList<>(orderTickets.size());
+            for (OrderTicket orderTicket : orderTickets) {
+                orderTicket.setToken(ticketTokenService.issue(orderTicket));
+                tokens.add(orderTicket.getToken());
+            }
+            LocalDateTime now = LocalDateTime.now();
+            for (Order order : orders) {
+                if (order.getReceiptNumber() == null) order.setReceiptNumber(receiptNumber(order));
+                order.setFulfillmentStatus(Constants.ORDER_FULFILLMENT_STATUS_DONE);
+                order.setFulfilledAt(now);
+            }
+            return tokens;
+        });
+    }
+
+    // warms the QR cache so the first wallet open after checkout is served from memory
+    private void prerender(List<String> tokens) {
+        for (String token : tokens) {
+            try {
+                qrCodeService.renderQrCode(token, prerenderSize, QrCodeService.FORMAT_PNG);
+            } catch (RuntimeException e) {
+                log.warn("QR pre-rendering failed", e);
+            }
+        }
+    }
+
+    private void recordFailure(Long orderId) {
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                Order order = orderRepository.findById(orderId).orElse(null);
+                if (order == null || !Constants.ORDER_FULFILLMENT_STATUS_PENDING.equals(order.getFulfillmentStatus()))
+                    return;
+                int attempts = (order.getFulfillmentAttempts() == null ? 0 : order.getFulfillmentAttempts()) + 1;
+                order.setFulfillmentAttempts(attempts);
+                if (attempts >= maxAttempts) {
+                    order.setFulfillmentStatus(Constants.ORDER_FULFILLMENT_STATUS_FAILED);
+                    log.error("Fulfillment of order {} gave up after {} attempts", orderId, attempts);
+                    return;
+                }
+                long backoffMillis = Math.min(retryBackoffMaxMillis, retryBackoffMillis << Math.min(attempts - 1, 20));
+                order.setFulfillmentRetryAt(LocalDateTime.now().plusNanos(backoffMillis * 1_000_000));
+            });
+        } catch (RuntimeException e) {
+            // still pending without a retry time, the next sweep runs it again
+            log.error("Could not record failed fulfillment of order {}", orderId, e);
+        }
+    }
+
+    // derived from the order alone, so issuing it twice yields the same number
+    private static String receiptNumber(Order order) {
+        LocalDateTime purchasedAt = order.getPurchaseDate() == null ? LocalDateTime.now() : order.getPurchaseDate();
+        return String.format("TB-%s-%08d", purchasedAt.format(RECEIPT_DATE), order.getId());
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.enumf.ErrorCode;
+import com.example.ticketboxcoreservice.exception.AppException;
+import com.example.ticketboxcoreservice.model.dto.response.ApiResponse;
+import com.example.ticketboxcoreservice.model.entity.IdempotencyRecord;
+import com.example.ticketboxcoreservice.repository.IdempotencyRecordRepository;
+import com.example.ticketboxcoreservice.utils.LruCache;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Runs a request at most once per Idempotency-Key. Results are kept in a bounded LRU in front of the
+// s_idempotency_record table, so a retried request is answered with the original ApiResponse without running the
+// service call again; a duplicate arriving while the first is still running waits for its result. Failed calls are
+// not recorded, nothing was committed for them and a retry runs them again.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IdempotencyService {
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+
+    private final Map<String, CompletableFuture<Result>> inFlight = new ConcurrentHashMap<>();
+    private LruCache<String, Result> results;
+
+    @Value("${app.idempotency.ttl-ms:86400000}")
+    private long ttlMillis;
+    @Value("${app.idempotency.max-entries:10000}")
+    private long maxEntries;
+    @Value("${app.idempotency.wait-timeout-ms:10000}")
+    private long waitTimeoutMillis;
+
+    @PostConstruct
+    public void init() {
+        results = new LruCache<>(maxEntries, result -> 1);
+    }
+
+    // scope separates endpoints and users, so two clients choosing the same key never see each other's result
+    public ApiResponse execute(String scope, String idempotencyKey, Object request, Supplier<ApiResponse> action) {
+        if (idempotencyKey == null) return action.get();
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new AppException(ErrorCode.IDEMPOTENCY_KEY_INVALID);
+        }
+        String keyHash = sha256(scope + '\n' + idempotencyKey);
+        String fingerprint = sha256(request == null ? "" : toJson(request));
+
+        Result result = fresh(results.get(keyHash));
+        if (result != null) return replay(result, fingerprint);
+        CompletableFuture<Result> owned = new CompletableFuture<>();
+        CompletableFuture<Result> running = inFlight.putIfAbsent(keyHash, owned);
+        if (running != null) return replay(await(running), fingerprint);
+        try {
+            // the first run may have finished, or run on another node, between the cache miss and the claim
+            result = fresh(idempotencyRecordRepository.findById(keyHash)
+                    .map(record -> new Result(record.getFingerprint(), fromJson(record.getResponseBody()),
+                            record.getCreatedAt()))
+                    .orElse(null));
+            if (result == null) {
+                result = new Result(fingerprint, action.get(), LocalDateTime.now());
+                store(keyHash, result);
+            }
+            results.put(keyHash, result);
+            owned.complete(result);
+            return replay(result, fingerprint);
+        } catch (RuntimeException e) {
+            owned.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(keyHash, owned);
+        }
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        idempotencyRecordRepository.deleteByCreatedAtBefore(LocalDateTime.now().minusNanos(ttlMillis * 1_000_000));
+    }
+
+    private Result fresh(Result result) {
+        if (result == null || result.createdAt().plusNanos(ttlMillis * 1_000_000).isBefore(LocalDateTime.now())) {
+            return null;
+        }
+        return result;
+    }
+
+    private ApiResponse replay(Result result, String fingerprint) {
+        if (!result.fingerprint().equals(fingerprint)) throw new AppException(ErrorCode.IDEMPOTENCY_KEY_REUSED);
+        return result.response();
+    }
+
+    private Result await(CompletableFuture<Result> running) {
+        try {
+            return running.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            // the duplicate fails the same way the original did
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new AppException(ErrorCode.IDEMPOTENCY_REQUEST_IN_PROGRESS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AppException(ErrorCode.IDEMPOTENCY_REQUEST_IN_PROGRESS);
+        }
+    }
+
+    // the action has committed by now, losing its record only means a retry could run it again
+    private void store(String keyHash, Result result) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            transactionTemplate.executeWithoutResult(status -> idempotencyRecordRepository.save(
+                    IdempotencyRecord.builder()
+                            .keyHash(keyHash)
+                            .fingerprint(result.fingerprint())
+                            .responseBody(toJson(result.response()))
+                            .createdAt(result.createdAt())
+                            .build()));
+        } catch (RuntimeException e) {
+            log.warn("Could not store idempotency record", e);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private ApiResponse fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, ApiResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Result(String fingerprint, ApiResponse response, LocalDateTime createdAt) {
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.enumf.ErrorCode;
+import com.example.ticketboxcoreservice.exception.AppException;
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class InventoryService {
+    private final List<InventoryStrategy> strategies;
+    private final Map<String, InventoryStrategy> strategiesByName;
+    private final Map<Long, InventoryStrategy> strategiesByTicketId = new ConcurrentHashMap<>();
+
+    @Value("${app.inventory.default-strategy:" + ConditionalUpdateInventoryStrategy.NAME + "}")
+    private String defaultStrategy;
+
+    public InventoryService(List<InventoryStrategy> strategies) {
+        this.strategies = strategies;
+        this.strategiesByName = strategies.stream()
+                .collect(Collectors.toMap(InventoryStrategy::getName, Function.identity()));
+    }
+
+    @Transactional
+    public void reserve(Long ticketId, Long quantity) {
+        InventoryStrategy strategy = getStrategy(ticketId);
+        if (!strategy.reserve(ticketId, quantity))
+            throw new AppException(ErrorCode.TICKET_SOLD_OUT);
+        if (!strategy.joinsTransaction() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) strategy.release(ticketId, quantity);
+                }
+            });
+        }
+    }
+
+    @Transactional
+    public void release(Long ticketId, Long quantity) {
+        getStrategy(ticketId).release(ticketId, quantity);
+    }
+
+    @Transactional
+    public Long getSold(Long ticketId) {
+        return getStrategy(ticketId).getSold(ticketId);
+    }
+
+    @Transactional
+    public void capacityChanged(Long ticketId, Long capacity) {
+        getStrategy(ticketId).capacityChanged(ticketId, capacity);
+    }
+
+    // true when the sold counter of every ticket is its s_ticket row, no ticket is kept in shard rows or in memory
+    public boolean keepsSoldOnTicketRows() {
+        return ConditionalUpdateInventoryStrategy.NAME.equals(defaultStrategy)
+                && strategies.stream().noneMatch(InventoryStrategy::hasConfiguredTickets);
+    }
+
+    public InventoryStrategy getStrategy(Long ticketId) {
+        return strategiesByTicketId.computeIfAbsent(ticketId, id -> strategies.stream()
+                .filter(strategy -> strategy.isConfiguredFor(id))
+                .findFirst()
+                .orElseGet(() -> getStrategyByName(defaultStrategy)));
+    }
+
+    private InventoryStrategy getStrategyByName(String name) {
+        InventoryStrategy strategy = strategiesByName.get(name);
+        if (strategy == null) throw new IllegalStateException("Unknown inventory strategy: " + name);
+        return strategy;
+    }
+}
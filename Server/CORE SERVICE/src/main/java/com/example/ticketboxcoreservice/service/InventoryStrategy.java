@@ -0,0 +1,30 @@
+package com.example.ticketboxcoreservice.service;
+
+// backend that owns the sold counter of a ticket, selected per ticket by InventoryService
+public interface InventoryStrategy {
+    String getName();
+
+    // whether the strategy has been assigned to the ticket through configuration
+    boolean isConfiguredFor(Long ticketId);
+
+    // whether any ticket has been assigned to the strategy through configuration
+    default boolean hasConfiguredTickets() {
+        return false;
+    }
+
+    // false when the strategy commits on its own, InventoryService then compensates if the caller rolls back
+    default boolean joinsTransaction() {
+        return true;
+    }
+
+    // atomically add quantity to sold, returns false instead of exceeding capacity
+    boolean reserve(Long ticketId, Long quantity);
+
+    void release(Long ticketId, Long quantity);
+
+    Long getSold(Long ticketId);
+
+    // the ticket's capacity was edited, called in the transaction that saves the edit
+    default void capacityChanged(Long ticketId, Long capacity) {
+    }
+}
@@ -4,85 +4,170 @@ import com.example.ticketboxcoreservice.enumf.Constants;
 import com.example.ticketboxcoreservice.enumf.ErrorCode;
 import com.example.ticketboxcoreservice.exception.AppException;
 import com.example.ticketboxcoreservice.exception.ResourceNotFoundException;
+import com.example.ticketboxcoreservice.model.dto.response.CartLineResponse;
+import com.example.ticketboxcoreservice.model.dto.response.CartResponse;
 import com.example.ticketboxcoreservice.model.dto.response.CustomPage;
+import com.example.ticketboxcoreservice.model.dto.response.FulfillmentResponse;
 import com.example.ticketboxcoreservice.model.dto.response.MessageResponse;
 import com.example.ticketboxcoreservice.model.dto.response.OrderResponse;
 import com.example.ticketboxcoreservice.model.entity.Order;
 import com.example.ticketboxcoreservice.model.entity.OrderTicket;
-import com.example.ticketboxcoreservice.model.entity.Ticket;
 import com.example.ticketboxcoreservice.repository.OrderRepository;
-import com.example.ticketboxcoreservice.repository.UserRepository;
+import com.example.ticketboxcoreservice.repository.OrderTicketRepository;
+import com.example.ticketboxcoreservice.utils.KeysetPaging;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
-import org.springframework.data.domain.Page;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class OrderService {
+    private static final String CART_TOTALS_BACKFILL = "order-ticket-unit-price-backfill";
+    private static final String CART_OWNER_BACKFILL = "order-cart-owner-backfill";
+    private static final int CART_OWNER_BACKFILL_CHUNK = 1000;
+
     private final OrderRepository orderRepository;
-    private final UserRepository userRepository;
+    private final OrderTicketRepository orderTicketRepository;
+    private final CartStore cartStore;
     private final OrderTicketService orderTicketService;
+    private final InventoryService inventoryService;
+    private final TicketHoldService ticketHoldService;
+    private final PurchaseJournalService purchaseJournalService;
+    private final FulfillmentService fulfillmentService;
+    private final DataMigrationService dataMigrationService;
+    private final AdmissionService admissionService;
     private final ModelMapper modelMapper;
 
-    @Transactional
-    public OrderResponse getCartByUserId(Long userId) {
-        List<Order> orders = orderRepository.findOrderByUserIdAndPurchasedAsList(userId,
-                com.example.ticketboxcoreservice.enumf.Constants.ORDER_STATUS_NOT_PURCHASED);
-        orders.forEach(Order::recalculate);
-        if (orders.size() != 1)
-            throw new AppException(ErrorCode.INVALID_NUMBER_OF_CARTS);
-        Order cart = orders.get(0);
-        return modelMapper.map(orderRepository.save(cart), OrderResponse.class);
+    // read only: the header comes from the cart store, the lines from one query, and a buyer who never added a
+    // ticket gets an empty cart without an id
+    public CartResponse getCartByUserId(Long userId) {
+        purchaseJournalService.checkNoPendingPurchase(userId);
+        CartStore.Cart storedCart = cartStore.get(userId);
+        CartResponse cart = CartResponse.builder()
+                .id(storedCart.getCartId())
+                .status(Constants.ORDER_STATUS_NOT_PURCHASED)
+                .totalPrice(storedCart.getTotalPrice())
+                .quantity(storedCart.getQuantity())
+                .createDate(storedCart.getCreateDate())
+                .updateDate(storedCart.getUpdateDate())
+                .build();
+        if (storedCart.getCartId() == null) return cart;
+        for (OrderRepository.CartLineRow row : orderRepository.findCartLinesByOrderId(storedCart.getCartId())) {
+            cart.getLines().add(CartLineResponse.builder()
+                    .id(row.getId())
+                    .status(row.getStatus())
+                    .ticketId(row.getTicketId())
+                    .ticketType(row.getTicketType())
+                    .unitPrice(row.getUnitPrice())
+                    .subQuantity(row.getSubQuantity())
+                    .build());
+        }
+        return cart;
+    }
+
+    // lines added before the unit price snapshot existed get their ticket's price, then cart totals are rebuilt
+    // once from the snapshots so the incremental updates start from a correct base
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillCartTotals() {
+        dataMigrationService.runOnce(CART_TOTALS_BACKFILL, () -> {
+            int lines = orderTicketRepository.backfillUnitPrices();
+            int carts = orderRepository.recalculateTotalsByStatus(Constants.ORDER_STATUS_NOT_PURCHASED,
+                    Constants.ORDER_TICKET_STATUS_EXPIRED);
+            log.info("Backfilled unit prices of {} order tickets, recalculated {} carts", lines, carts);
+        });
+    }
+
+    // carts made before they had an owner get one; of a buyer who ended up with several the newest stays the cart
+    @EventListener(ApplicationReadyEvent.class)
+    public void assignCartOwners() {
+        dataMigrationService.runOnce(CART_OWNER_BACKFILL, () -> {
+            List<Long> cartIds = orderRepository.findNewestIdsByStatusGroupByBuyer(
+                    Constants.ORDER_STATUS_NOT_PURCHASED);
+            int carts = 0;
+            for (int from = 0; from < cartIds.size(); from += CART_OWNER_BACKFILL_CHUNK) {
+                carts += orderRepository.assignCartOwnerByIdIn(
+                        cartIds.subList(from, Math.min(from + CART_OWNER_BACKFILL_CHUNK, cartIds.size())));
+            }
+            log.info("Assigned an owner to {} carts", carts);
+        });
     }
 
     @Transactional
-    public MessageResponse purchaseCartByUserId(Long userId) {
+    public MessageResponse purchaseCartByUserId(Long userId, Set<Long> admittedEventIds) {
         Order cart = getCartByUserIdFunction(userId);
+        // the header is written here, whatever the cart store still has to flush for it is skipped
         cart.recalculate();
         cart.setStatus(com.example.ticketboxcoreservice.enumf.Constants.ORDER_STATUS_PURCHASED);
+        cart.setCartOwnerId(null);
         cart.setPurchaseDate(LocalDateTime.now());
-        for (OrderTicket orderTicket : cart.getOrderTickets()) {
+        cart.setFulfillmentStatus(Constants.ORDER_FULFILLMENT_STATUS_PENDING);
+        // lines whose cart hold expired stay in the order as expired and are not sold
+        List<OrderTicket> purchasedOrderTickets = cart.getOrderTickets().stream()
+                .filter(orderTicket -> Constants.ORDER_TICKET_STATUS_INACTIVE.equals(orderTicket.getStatus()))
+                .collect(Collectors.toList());
+        admissionService.checkAdmitted(admittedEventIds, purchasedOrderTickets.stream()
+                .map(OrderTicket::getTicket)
+                .collect(Collectors.toList()));
+        // reserve in ticket id order so that carts sharing ticket types cannot deadlock on the counter rows
+        Map<Long, Long> quantitiesByTicketId = new TreeMap<>();
+        for (OrderTicket orderTicket : purchasedOrderTickets) {
+            quantitiesByTicketId.merge(orderTicket.getTicket().getId(), orderTicket.getSubQuantity(), Long::sum);
+        }
+        quantitiesByTicketId.forEach(inventoryService::reserve);
+        for (OrderTicket orderTicket : purchasedOrderTickets) {
             orderTicketService.activatePurchasedOrderTicket(orderTicket);
-            Ticket ticket = orderTicket.getTicket();
-            ticket.setSold(ticket.getSold() + (long)orderTicket.getSubQuantity());
-            orderTicket.setTicket(ticket);
         }
+        ticketHoldService.releaseAfterCommit(purchasedOrderTickets.stream()
+                .map(OrderTicket::getId)
+                .collect(Collectors.toList()));
         orderRepository.save(cart);
+        // tokens, QR images and the receipt are issued off the request path once this transaction commits
+        fulfillmentService.publishAfterCommit(cart.getId());
 
-        // create new empty cart for the user
-        Order newCart = new Order();
+        // the next cart is created when the buyer adds a ticket again
+        cartStore.invalidateAfterCompletion(userId);
+        return new MessageResponse("Cart of user with id " + userId + " has been purchased successfully");
+    }
 
-        newCart.setBuyer(userRepository.findById(userId).orElseThrow(
-                () -> new ResourceNotFoundException("user", "user id", "user")));
-        newCart.setCreateDate(LocalDateTime.now());
-        newCart.setQuantity(0l);
-        newCart.setTotalPrice(0d);
-        newCart.setStatus(Constants.ORDER_STATUS_NOT_PURCHASED);
-        newCart.setUpdateDate(LocalDateTime.now());
+    public FulfillmentResponse getFulfillmentByOrderId(Long orderId) {
+        return fulfillmentService.getFulfillment(orderId);
+    }
 
-        orderRepository.save(newCart);
-        return new MessageResponse("Cart of user with id " + userId + " has been purchased successfully");
+    public FulfillmentResponse requeueFulfillmentByOrderId(Long orderId) {
+        return fulfillmentService.requeueFailed(orderId);
     }
 
     @Transactional
     public CustomPage<OrderResponse> getOrderHistoryByUserId(Long userId, Pageable pageable) {
-        Page<Order> purchasedOrders = orderRepository.findOrderByUserIdAndPurchasedAsPage(userId,
-                Constants.ORDER_STATUS_PURCHASED, pageable);
-        return CustomPage.<OrderResponse>builder()
-                .pageNo(purchasedOrders.getNumber() + 1)
-                .pageSize(purchasedOrders.getSize())
-                .totalPages(purchasedOrders.getTotalPages())
-                .pageContent(purchasedOrders.getContent().stream()
-                        .map(order -> modelMapper.map(order, OrderResponse.class))
-                        .collect(Collectors.toList()))
-                .build();
+        return CustomPage.of(orderRepository.findOrderByUserIdAndPurchasedAsPage(userId,
+                Constants.ORDER_STATUS_PURCHASED, pageable), order -> modelMapper.map(order, OrderResponse.class));
+    }
+
+    @Transactional
+    public CustomPage<OrderResponse> sliceOrderHistoryByUserId(Long userId, Pageable pageable) {
+        return CustomPage.of(orderRepository.findOrderByUserIdAndPurchasedAsSlice(userId,
+                Constants.ORDER_STATUS_PURCHASED, pageable), order -> modelMapper.map(order, OrderResponse.class));
+    }
+
+    @Transactional
+    public CustomPage<OrderResponse> scrollOrderHistoryByUserId(Long userId, String cursor, int pageSize, Sort sort) {
+        return KeysetPaging.scroll(orderRepository,
+                OrderRepository.byBuyerIdAndStatus(userId, Constants.ORDER_STATUS_PURCHASED), cursor, pageSize, sort,
+                order -> modelMapper.map(order, OrderResponse.class));
     }
 
     @Transactional
@@ -93,11 +178,15 @@ public class OrderService {
     }
 
     private Order getCartByUserIdFunction(Long userId) {
-        List<Order> orders = orderRepository.findOrderByUserIdAndPurchasedAsList(userId,
-                com.example.ticketboxcoreservice.enumf.Constants.ORDER_STATUS_NOT_PURCHASED);
-        if (orders.size() != 1)
-            throw new AppException(ErrorCode.INVALID_NUMBER_OF_CARTS);
-        return orders.get(0);
+        purchaseJournalService.checkNoPendingPurchase(userId);
+        Long cartId = cartStore.get(userId).getCartId();
+        if (cartId == null)
+            throw new AppException(ErrorCode.CART_EMPTY);
+        Order cart = orderRepository.findById(cartId).orElseThrow(
+                () -> new ResourceNotFoundException("cart", "user id", userId));
+        if (!Constants.ORDER_STATUS_NOT_PURCHASED.equals(cart.getStatus()))
+            throw new AppException(ErrorCode.ONLY_CART_IS_UPDATABLE);
+        return cart;
     }
 
 }
@@ -2,80 +2,107 @@ package com.example.ticketboxcoreservice.service;
 
 import com.example.ticketboxcoreservice.enumf.Constants;
 import com.example.ticketboxcoreservice.enumf.ErrorCode;
+import com.example.ticketboxcoreservice.enumf.ScanResult;
 import com.example.ticketboxcoreservice.exception.AppException;
 import com.example.ticketboxcoreservice.exception.ResourceNotFoundException;
 import com.example.ticketboxcoreservice.model.dto.request.OrderTicketQRCode;
 import com.example.ticketboxcoreservice.model.dto.request.OrderTicketRequest;
 import com.example.ticketboxcoreservice.model.dto.response.CustomPage;
+import com.example.ticketboxcoreservice.model.dto.response.DynamicQrResponse;
 import com.example.ticketboxcoreservice.model.dto.response.MessageResponse;
 import com.example.ticketboxcoreservice.model.dto.response.OrderTicketResponse;
 import com.example.ticketboxcoreservice.model.dto.response.OrderTicketToken;
-import com.example.ticketboxcoreservice.model.entity.Order;
+import com.example.ticketboxcoreservice.model.dto.response.ScanResultResponse;
 import com.example.ticketboxcoreservice.model.entity.OrderTicket;
 import com.example.ticketboxcoreservice.repository.OrderRepository;
 import com.example.ticketboxcoreservice.repository.OrderTicketRepository;
 import com.example.ticketboxcoreservice.repository.RelationshipRepository;
 import com.example.ticketboxcoreservice.repository.TicketRepository;
+import com.example.ticketboxcoreservice.utils.DynamicTicketCodec;
+import com.example.ticketboxcoreservice.utils.KeysetPaging;
+import com.example.ticketboxcoreservice.utils.TicketTokenClaims;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Service
 @RequiredArgsConstructor
 public class OrderTicketService {
-    private final OrderTicketRepository orderTicketRepository;
+    // scans decode into one claims instance per thread and read it before the next verify on that thread
+    private static final ThreadLocal<TicketTokenClaims> SCAN_CLAIMS = ThreadLocal.withInitial(TicketTokenClaims::new);
 
-    private final JwtService jwtService;
+    private final OrderTicketRepository orderTicketRepository;
     private final OrderRepository orderRepository;
     private final QrCodeService qrCodeService;
     private final ModelMapper modelMapper;
     private final TicketRepository ticketRepository;
     private final RelationshipRepository relationshipRepository;
+    private final TicketHoldService ticketHoldService;
+    private final PurchaseJournalService purchaseJournalService;
+    private final CartStore cartStore;
+    private final UsedTicketRegistry usedTicketRegistry;
+    private final TicketTokenService ticketTokenService;
+    private final AdmissionService admissionService;
 
     @Transactional
-    public OrderTicketResponse createOrderTicket(Long userId, OrderTicketRequest orderTicketRequest) {
+    public OrderTicketResponse createOrderTicket(Long userId, OrderTicketRequest orderTicketRequest,
+            Set<Long> admittedEventIds) {
         OrderTicket orderTicket = modelMapper.map(orderTicketRequest, OrderTicket.class);
-        Order cart = getCartByUserIdFunction(userId);
-        orderTicket.setOrder(cart);
+        purchaseJournalService.checkNoPendingPurchase(userId);
         orderTicket.setTicket(
                 ticketRepository.findById(orderTicketRequest.getTicketId()).orElseThrow(
                         () -> new ResourceNotFoundException("ticket", "ticket id", orderTicketRequest.getTicketId())));
+        // an admission to the waiting room of another event does not let the user into this one
+        admissionService.checkAdmitted(admittedEventIds, List.of(orderTicket.getTicket()));
+        CartStore.Cart cart = cartStore.getOrCreate(userId);
+        orderTicket.setOrder(orderRepository.getReferenceById(cart.getCartId()));
         orderTicket.validateSubQuantity();
+        orderTicket.setUnitPrice(orderTicket.getTicket().getUnitPrice());
         orderTicket.setStatus(com.example.ticketboxcoreservice.enumf.Constants.ORDER_TICKET_STATUS_INACTIVE);
         orderTicket.setRelationship(
                 relationshipRepository.findById(orderTicketRequest.getRelationshipId()).orElseThrow(
                         () -> new ResourceNotFoundException("relationship", "relationship id",
                                 orderTicketRequest.getRelationshipId())));
-        return modelMapper.map(orderTicketRepository.save(orderTicket), OrderTicketResponse.class);
+        orderTicket = orderTicketRepository.save(orderTicket);
+        ticketHoldService.hold(orderTicket);
+        cartStore.adjust(userId, cart, orderTicket.getSubQuantity(),
+                orderTicket.getSubQuantity() * orderTicket.getUnitPrice());
+        return modelMapper.map(orderTicket, OrderTicketResponse.class);
     }
 
     @Transactional
     public OrderTicketResponse updateOrderTicket(Long userId, Long orderTicketId,
             OrderTicketRequest orderTicketRequest) {
-        Order cart = getCartByUserIdFunction(userId);
-        boolean isOrderTicketInCart = false;
-        for (OrderTicket orderTicket : cart.getOrderTickets()) {
-            if (orderTicketId.equals(orderTicket.getId()))
-                isOrderTicketInCart = true;
-        }
-        if (!isOrderTicketInCart) {
-            throw new AppException(ErrorCode.ORDER_TICKET_NOT_INSIDE_CART);
-        }
+        CartStore.Cart cart = getCartByUserIdFunction(userId);
         OrderTicket orderTicket = orderTicketRepository.findById(orderTicketId).orElseThrow(
                 () -> new ResourceNotFoundException("ticket", "ticket id", orderTicketId));
+        // compared by id, the cart's lines are not loaded
+        if (!Objects.equals(cart.getCartId(), orderTicket.getOrder().getId())) {
+            throw new AppException(ErrorCode.ORDER_TICKET_NOT_INSIDE_CART);
+        }
         if (!orderTicket.getStatus().equals(Constants.ORDER_TICKET_STATUS_INACTIVE)) {
             throw new AppException(ErrorCode.ONLY_INACTIVE_ORDER_TICKETS_IS_UPDATABLE_AND_REMOVABLE);
         }
-        updateOrderTotals(cart, orderTicket, orderTicketRequest.getSubQuantity());
+        long qtyDiff = orderTicketRequest.getSubQuantity() - orderTicket.getSubQuantity();
         orderTicket.setSubQuantity(orderTicketRequest.getSubQuantity());
         orderTicket.validateSubQuantity();
         if (!Objects.equals(orderTicket.getRelationship().getId(), orderTicketRequest.getRelationshipId()))
@@ -83,14 +110,19 @@ public class OrderTicketService {
                     relationshipRepository.findById(orderTicketRequest.getRelationshipId()).orElseThrow(
                             () -> new ResourceNotFoundException("relationship", "relationship id",
                                     orderTicketRequest.getRelationshipId())));
-        return modelMapper.map(orderTicketRepository.save(orderTicket), OrderTicketResponse.class);
+        orderTicket = orderTicketRepository.save(orderTicket);
+        ticketHoldService.hold(orderTicket);
+        // totals move at the line's snapshot price
+        cartStore.adjust(userId, cart, qtyDiff, qtyDiff * orderTicket.getUnitPrice());
+        return modelMapper.map(orderTicket, OrderTicketResponse.class);
     }
 
     @Transactional
     public MessageResponse deleteOrderTicket(Long orderTicketId) {
 
-        if (orderTicketRepository.getOrderTicketStatusByOrderTicketId(
-                orderTicketId) != com.example.ticketboxcoreservice.enumf.Constants.ORDER_TICKET_STATUS_INACTIVE) {
+        int orderTicketStatus = orderTicketRepository.getOrderTicketStatusByOrderTicketId(orderTicketId);
+        if (orderTicketStatus != Constants.ORDER_TICKET_STATUS_INACTIVE
+                && orderTicketStatus != Constants.ORDER_TICKET_STATUS_EXPIRED) {
             throw new AppException(ErrorCode.ONLY_INACTIVE_ORDER_TICKETS_IS_UPDATABLE_AND_REMOVABLE);
         }
         if (orderTicketRepository.getOrderStatusByOrderTicketId(
@@ -98,20 +130,25 @@ public class OrderTicketService {
             throw new AppException(ErrorCode.ONLY_CART_IS_UPDATABLE);
         }
 
-        Order cart = orderRepository.findByOrderTicketId(orderTicketId).orElseThrow(
-                () -> new ResourceNotFoundException("order", "order ticket id", orderTicketId));
         OrderTicket orderTicket = orderTicketRepository.findById(orderTicketId).orElseThrow(
                 () -> new ResourceNotFoundException("ticket", "ticket id", orderTicketId));
+        Long buyerId = orderTicket.getOrder().getBuyer().getId();
+        CartStore.Cart cart = cartStore.get(buyerId);
 
-        updateOrderTotals(cart, orderTicket, 0l);
         orderTicketRepository.deleteById(orderTicketId);
+        // expired lines are already left out of the cart totals
+        if (orderTicketStatus == Constants.ORDER_TICKET_STATUS_INACTIVE)
+            cartStore.adjust(buyerId, cart, -orderTicket.getSubQuantity(),
+                    -orderTicket.getSubQuantity() * orderTicket.getUnitPrice());
+        ticketHoldService.releaseAfterCommit(List.of(orderTicketId));
         return new MessageResponse("Order ticket with id " + orderTicketId + " is deleted successfully!");
     }
 
     // activate order ticket when its order is purchased
+    // the token is issued later by the fulfillment job, see FulfillmentService
     public void activatePurchasedOrderTicket(OrderTicket orderTicket) {
         orderTicket.setStatus(Constants.ORDER_TICKET_STATUS_ACTIVE);
-        orderTicket.setToken(generateOrderTicketToken(orderTicket));
+        orderTicket.setActivatedAt(LocalDateTime.now());
     }
 
     // /api/order-ticket/qr/
@@ -123,25 +160,104 @@ public class OrderTicketService {
 
     @Transactional
     public OrderTicketResponse validateOrderTicketByToken(String token) {
-        if (jwtService.isOrderTicketTokenExpired(token)) {
-            throw new AppException(ErrorCode.ORDER_TICKET_EXPIRED);
+        TicketTokenClaims claims = ticketTokenService.verify(token, SCAN_CLAIMS.get());
+        Long orderTicketId = claims.getOrderTicketId();
+        // tokens issued before the event id claim existed skip the in-memory check
+        Long eventId = claims.getEventId() == 0 ? null : claims.getEventId();
+
+        // replayed codes are rejected from memory, only a first scan reaches the database
+        if (usedTicketRegistry.isUsed(eventId, orderTicketId)) {
+            throw new AppException(ErrorCode.ORDER_TICKET_USED);
         }
-        Long orderTicketId = jwtService.extractClaimFromOrderTicketToken(token,
-                claims -> claims.get("orderTicketId", Long.class));
+        // the row count decides the winner when two gates scan the same code at once
+        int updated = claims.isDynamic()
+                ? orderTicketRepository.updateStatusByIdAndEventIdAndStatus(orderTicketId, eventId,
+                Constants.ORDER_TICKET_STATUS_ACTIVE, Constants.ORDER_TICKET_STATUS_USED, LocalDateTime.now())
+                : orderTicketRepository.updateStatusByIdAndTokenAndStatus(orderTicketId, token,
+                Constants.ORDER_TICKET_STATUS_ACTIVE, Constants.ORDER_TICKET_STATUS_USED, LocalDateTime.now());
         OrderTicket orderTicket = orderTicketRepository.findById(orderTicketId)
                 .orElseThrow(() -> new ResourceNotFoundException("orderTicket", "orderTicketId", orderTicketId));
+        if (updated == 0) {
+            // Verify that the scanned token matches the token stored in database for this
+            // ticket
+            if (!claims.isDynamic() && !Objects.equals(orderTicket.getToken(), token)) {
+                throw new AppException(ErrorCode.ORDER_TICKET_UNMATCHED);
+            }
+            if (claims.isDynamic() && !Objects.equals(orderTicket.getTicket().getEvent().getId(), eventId)) {
+                throw new AppException(ErrorCode.ORDER_TICKET_UNMATCHED);
+            }
+            if (Objects.equals(orderTicket.getStatus(), Constants.ORDER_TICKET_STATUS_USED)) {
+                usedTicketRegistry.markUsed(eventId, orderTicketId);
+            }
+            throw new AppException(ErrorCode.ORDER_TICKET_USED);
+        }
+        usedTicketRegistry.markUsedAfterCommit(eventId, orderTicketId);
+        return modelMapper.map(orderTicket, OrderTicketResponse.class);
+    }
+
+    // results come back in the order of the given tokens. Signatures are checked in parallel, then the candidate
+    // rows are locked, checked and flipped to USED with a single update, so a batch and single scans of the same
+    // code can never both win
+    @Transactional
+    public List<ScanResultResponse> validateOrderTicketsByTokens(List<String> tokens) {
+        Long[] eventIds = new Long[tokens.size()];
+        boolean[] dynamic = new boolean[tokens.size()];
+        List<ScanResultResponse> results = IntStream.range(0, tokens.size()).parallel().mapToObj(i -> {
+            try {
+                TicketTokenClaims claims = ticketTokenService.verify(tokens.get(i), SCAN_CLAIMS.get());
+                eventIds[i] = claims.getEventId() == 0 ? null : claims.getEventId();
+                dynamic[i] = claims.isDynamic();
+                boolean used = usedTicketRegistry.isUsed(eventIds[i], claims.getOrderTicketId());
+                return new ScanResultResponse(claims.getOrderTicketId(), used ? ScanResult.ALREADY_USED : null);
+            } catch (AppException exception) {
+                return new ScanResultResponse(null, exception.getErrorCode() == ErrorCode.ORDER_TICKET_EXPIRED
+                        ? ScanResult.EXPIRED : ScanResult.UNMATCHED);
+            }
+        }).collect(Collectors.toList());
 
-        // Verify that the scanned token matches the token stored in database for this
-        // ticket
-        if (!Objects.equals(orderTicket.getToken(), token)) {
-            throw new AppException(ErrorCode.ORDER_TICKET_UNMATCHED);
+        Set<Long> candidateIds = new TreeSet<>();
+        for (ScanResultResponse result : results) {
+            if (result.getResult() == null) candidateIds.add(result.getOrderTicketId());
         }
+        if (candidateIds.isEmpty()) return results;
+        Map<Long, OrderTicket> orderTickets = new HashMap<>();
+        for (OrderTicket orderTicket : orderTicketRepository.findAllByIdForUpdate(candidateIds)) {
+            orderTickets.put(orderTicket.getId(), orderTicket);
+        }
+        // rotating codes have no stored token to match, the event id they carry has to be the ticket's
+        Map<Long, Set<Long>> dynamicIdsByEventId = new HashMap<>();
+        for (int i = 0; i < results.size(); i++) {
+            if (dynamic[i] && results.get(i).getResult() == null)
+                dynamicIdsByEventId.computeIfAbsent(eventIds[i], eventId -> new TreeSet<>())
+                        .add(results.get(i).getOrderTicketId());
+        }
+        Map<Long, Set<Long>> eventMatchedIds = new HashMap<>();
+        dynamicIdsByEventId.forEach((eventId, ids) -> eventMatchedIds.put(eventId, eventId == null ? Set.of()
+                : new HashSet<>(orderTicketRepository.findIdsByEventIdAndIdIn(eventId, ids))));
 
-        if (!Objects.equals(orderTicket.getStatus(), Constants.ORDER_TICKET_STATUS_ACTIVE)) {
-            throw new AppException(ErrorCode.ORDER_TICKET_USED);
+        Set<Long> admittedIds = new HashSet<>();
+        for (int i = 0; i < results.size(); i++) {
+            ScanResultResponse result = results.get(i);
+            if (result.getResult() != null) continue;
+            OrderTicket orderTicket = orderTickets.get(result.getOrderTicketId());
+            if (orderTicket == null) {
+                result.setResult(ScanResult.NOT_FOUND);
+            } else if (dynamic[i] ? !eventMatchedIds.get(eventIds[i]).contains(orderTicket.getId())
+                    : !Objects.equals(orderTicket.getToken(), tokens.get(i))) {
+                result.setResult(ScanResult.UNMATCHED);
+            } else if (!Objects.equals(orderTicket.getStatus(), Constants.ORDER_TICKET_STATUS_ACTIVE)
+                    || !admittedIds.add(orderTicket.getId())) {
+                // the same code twice in one batch only gets in once
+                result.setResult(ScanResult.ALREADY_USED);
+            } else {
+                result.setResult(ScanResult.ADMITTED);
+                usedTicketRegistry.markUsedAfterCommit(eventIds[i], orderTicket.getId());
+            }
         }
-        orderTicket.setStatus(com.example.ticketboxcoreservice.enumf.Constants.ORDER_TICKET_STATUS_USED);
-        return modelMapper.map(orderTicketRepository.save(orderTicket), OrderTicketResponse.class);
+        if (!admittedIds.isEmpty())
+            orderTicketRepository.updateStatusAndUsedAtByIdsAndStatus(admittedIds,
+                    Constants.ORDER_TICKET_STATUS_ACTIVE, Constants.ORDER_TICKET_STATUS_USED, LocalDateTime.now());
+        return results;
     }
 
     @Transactional
@@ -153,61 +269,93 @@ public class OrderTicketService {
                 .build();
     }
 
+    // what a ticket holder's app needs to render the rotating code locally; only the buyer of an active ticket
+    // gets its seed
     @Transactional
-    public CustomPage<OrderTicketResponse> getCartTicketsByUserId(Long userId, Pageable pageable) {
-        Order cart = getCartByUserIdFunction(userId);
-        Page<OrderTicket> cartTickets = orderTicketRepository.findByOrderId(cart.getId(), pageable);
-        return CustomPage.<OrderTicketResponse>builder()
-                .pageNo(cartTickets.getNumber() + 1)
-                .pageSize(cartTickets.getSize())
-                .pageContent(cartTickets.getContent().stream()
-                        .map(cartTicket -> modelMapper.map(cartTicket, OrderTicketResponse.class))
-                        .collect(Collectors.toList()))
+    public DynamicQrResponse getDynamicQr(Long orderTicketId, Long buyerId) {
+        Long eventId = orderTicketRepository.getEventIdByOrderTicketIdAndBuyerIdAndStatus(orderTicketId, buyerId,
+                Constants.ORDER_TICKET_STATUS_ACTIVE).orElseThrow(
+                () -> new ResourceNotFoundException("active order ticket",
+                        String.format("order ticket id %s and buyer id %s", orderTicketId, buyerId), ""));
+        return DynamicQrResponse.builder()
+                .orderTicketId(orderTicketId)
+                .eventId(eventId)
+                .prefix(DynamicTicketCodec.PREFIX)
+                .seed(Base64.getEncoder().encodeToString(ticketTokenService.dynamicSeed(orderTicketId, eventId)))
+                .stepSeconds(ticketTokenService.getStepSeconds())
+                .code(ticketTokenService.dynamicCode(orderTicketId, eventId))
                 .build();
     }
 
+    @Transactional
+    public CustomPage<OrderTicketResponse> getCartTicketsByUserId(Long userId, Pageable pageable) {
+        Long cartId = getCartByUserIdFunction(userId).getCartId();
+        Page<OrderTicket> cartTickets = cartId == null ? Page.empty(pageable)
+                : orderTicketRepository.findByOrderId(cartId, pageable);
+        return CustomPage.of(cartTickets, cartTicket -> modelMapper.map(cartTicket, OrderTicketResponse.class));
+    }
+
+    @Transactional
+    public CustomPage<OrderTicketResponse> sliceCartTicketsByUserId(Long userId, Pageable pageable) {
+        Long cartId = getCartByUserIdFunction(userId).getCartId();
+        Slice<OrderTicket> cartTickets = cartId == null ? new SliceImpl<>(List.of(), pageable, false)
+                : orderTicketRepository.findSliceByOrderId(cartId, pageable);
+        return CustomPage.of(cartTickets, cartTicket -> modelMapper.map(cartTicket, OrderTicketResponse.class));
+    }
+
+    @Transactional
+    public CustomPage<OrderTicketResponse> scrollCartTicketsByUserId(Long userId, String cursor, int pageSize,
+                                                                     Sort sort) {
+        Long cartId = getCartByUserIdFunction(userId).getCartId();
+        if (cartId == null) {
+            return CustomPage.<OrderTicketResponse>builder().pageSize(pageSize).pageContent(List.of()).build();
+        }
+        return scrollOrderTicketsByOrderId(cartId, cursor, pageSize, sort);
+    }
+
     @Transactional
     public CustomPage<OrderTicketResponse> getOrderTicketsByOrderId(Long orderId, Pageable pageable) {
-        Page<OrderTicket> orderTickets = orderTicketRepository.findByOrderId(orderId, pageable);
-        return CustomPage.<OrderTicketResponse>builder()
-                .pageNo(orderTickets.getNumber() + 1)
-                .pageSize(orderTickets.getSize())
-                .pageContent(orderTickets.getContent().stream()
-                        .map(orderTicket -> modelMapper.map(orderTicket, OrderTicketResponse.class))
-                        .collect(Collectors.toList()))
-                .build();
+        return CustomPage.of(orderTicketRepository.findByOrderId(orderId, pageable),
+                orderTicket -> modelMapper.map(orderTicket, OrderTicketResponse.class));
     }
 
-    private String generateOrderTicketToken(OrderTicket orderTicket) {
-        Map<String, Object> claims = new HashMap<>();
-        claims.put("orderTicketId", orderTicket.getId());
-        String subject = orderTicket.getId().toString();
-        return jwtService.generateOrderTicketToken(claims, subject,
-                orderTicket.getOrder().getPurchaseDate(),
-                orderTicket.getTicket().getEvent().getEndDate());
+    @Transactional
+    public CustomPage<OrderTicketResponse> sliceOrderTicketsByOrderId(Long orderId, Pageable pageable) {
+        return CustomPage.of(orderTicketRepository.findSliceByOrderId(orderId, pageable),
+                orderTicket -> modelMapper.map(orderTicket, OrderTicketResponse.class));
     }
 
-    private Order getCartByUserIdFunction(Long userId) {
-        List<Order> orders = orderRepository.findOrderByUserIdAndPurchasedAsList(userId,
-                com.example.ticketboxcoreservice.enumf.Constants.ORDER_STATUS_NOT_PURCHASED);
-        if (orders.size() != 1)
-            throw new AppException(ErrorCode.INVALID_NUMBER_OF_CARTS);
-        return orders.get(0);
+    @Transactional
+    public CustomPage<OrderTicketResponse> scrollOrderTicketsByOrderId(Long orderId, String cursor, int pageSize,
+                                                                       Sort sort) {
+        return KeysetPaging.scroll(orderTicketRepository, OrderTicketRepository.byOrderId(orderId), cursor, pageSize,
+                sort, orderTicket -> modelMapper.map(orderTicket, OrderTicketResponse.class));
     }
 
-    private void updateOrderTotals(Order order, OrderTicket orderTicket, Long newQty) {
-        Long qtyDiff = newQty - orderTicket.getSubQuantity();
-        order.setQuantity(order.getQuantity() + qtyDiff);
-        order.setTotalPrice(order.getTotalPrice() + qtyDiff * orderTicket.getTicket().getUnitPrice());
-        orderRepository.save(order);
+    private CartStore.Cart getCartByUserIdFunction(Long userId) {
+        purchaseJournalService.checkNoPendingPurchase(userId);
+        return cartStore.get(userId);
     }
 
-    public byte[] getOrderTicketQRCode(Long orderTicketId) {
+    public byte[] getOrderTicketQRCode(Long orderTicketId, int size, String format) {
         OrderTicket orderTicket = orderTicketRepository.findById(orderTicketId)
                 .orElseThrow(() -> new ResourceNotFoundException("orderTicket", "orderTicketId", orderTicketId));
         if (orderTicket.getToken() == null || orderTicket.getToken().isEmpty()) {
-            throw new AppException(ErrorCode.INTERNAL_ERROR); // Should have a token if purchased
+            // purchased tickets get their token from the fulfillment job shortly after checkout
+            throw new AppException(ErrorCode.ORDER_FULFILLMENT_PENDING);
+        }
+        return qrCodeService.renderQrCode(orderTicket.getToken(), size, format);
+    }
+
+    // the entity reads happen here, inside the request; the returned body only renders and streams
+    public StreamingResponseBody getOrderQRCodeBundle(Long orderId, int size, String format) {
+        qrCodeService.validateOptions(size, format);
+        List<OrderTicketRepository.QrTokenRow> rows = orderTicketRepository.findQrTokensByOrderId(orderId);
+        if (rows.isEmpty()) {
+            throw new ResourceNotFoundException("order tickets with a qr code", "orderId", orderId);
         }
-        return qrCodeService.encodeQrCode(orderTicket.getToken(), 300, 300);
+        List<String> names = rows.stream().map(row -> "order-ticket-" + row.getId()).toList();
+        List<String> tokens = rows.stream().map(OrderTicketRepository.QrTokenRow::getToken).toList();
+        return out -> qrCodeService.writeZip(names, tokens, size, format, out);
     }
 }
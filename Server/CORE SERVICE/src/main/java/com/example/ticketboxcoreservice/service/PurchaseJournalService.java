@@ -0,0 +1,451 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.enumf.Constants;
+import com.example.ticketboxcoreservice.enumf.ErrorCode;
+import com.example.ticketboxcoreservice.exception.AppException;
+import com.example.ticketboxcoreservice.exception.ResourceNotFoundException;
+import com.example.ticketboxcoreservice.model.dto.response.MessageResponse;
+import com.example.ticketboxcoreservice.model.entity.Order;
+import com.example.ticketboxcoreservice.model.entity.OrderTicket;
+import com.example.ticketboxcoreservice.model.entity.Ticket;
+import com.example.ticketboxcoreservice.repository.OrderRepository;
+import com.example.ticketboxcoreservice.repository.TicketRepository;
+import com.example.ticketboxcoreservice.utils.MappedJournal;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Flash-sale checkout that acknowledges a purchase once it is durable in a memory-mapped journal instead of once
+// MySQL has committed it. Capacity is checked against an in-memory ledger, the purchase is appended to the journal
+// and the caller waits for the group commit that fsyncs it together with every purchase appended meanwhile. An
+// applier thread then writes journaled purchases to s_order, s_order_ticket and s_ticket.sold in large batches and
+// advances the journal's applied offset; after a restart everything past that offset is applied again, and orders
+// already marked purchased are skipped, so replay cannot double count. Like the checkout sequencer, the ledger
+// owns remaining capacity on this node: while the journal is enabled, purchases must go through this node only. It is
+// reconciled with s_ticket periodically so capacity edits and sales made outside the journal show up in it. The journal
+// is an inventory backend of its own that reads and adds to s_ticket.sold, so it refuses to start unless every ticket
+// is on the conditional-update strategy, whose sold counter is that same column.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PurchaseJournalService {
+    private final OrderRepository orderRepository;
+    private final TicketRepository ticketRepository;
+    private final TicketHoldService ticketHoldService;
+    private final FulfillmentService fulfillmentService;
+    private final CartStore cartStore;
+    private final AdmissionService admissionService;
+    private final InventoryService inventoryService;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    private final Map<Long, AtomicLong> remainingByTicketId = new ConcurrentHashMap<>();
+    // purchases hold the read lock while they move capacity between the ledger and unapplied, reconciling takes the
+    // write lock so it never sees a purchase counted in one but not yet in the other
+    private final ReadWriteLock ledgerLock = new ReentrantReadWriteLock();
+    // journaled but not yet in the database, sold counts loaded from MySQL miss these
+    private final Map<Long, Long> unappliedByTicketId = new ConcurrentHashMap<>();
+    // buyers whose cart is journaled as purchased but still looks like a cart in MySQL
+    private final Set<Long> pendingUserIds = ConcurrentHashMap.newKeySet();
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private final Object applyLock = new Object();
+    private MappedJournal journal;
+    private Thread committer;
+    private Thread applier;
+    private volatile boolean running = true;
+
+    @Getter
+    @Value("${app.purchase-journal.enabled:false}")
+    private boolean enabled;
+    @Value("${app.purchase-journal.path:purchase.journal}")
+    private String path;
+    @Value("${app.purchase-journal.capacity-bytes:67108864}")
+    private int capacityBytes;
+    @Value("${app.purchase-journal.apply-batch-size:1000}")
+    private int applyBatchSize;
+    @Value("${app.purchase-journal.apply-interval-ms:50}")
+    private long applyIntervalMillis;
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) return;
+        // sharded and sequenced tickets keep sales the ledger never sees and would miss the sales it applies
+        if (!inventoryService.keepsSoldOnTicketRows()) {
+            throw new IllegalStateException("The purchase journal needs every ticket on the "
+                    + ConditionalUpdateInventoryStrategy.NAME + " inventory strategy");
+        }
+        Path journalPath = Path.of(path).toAbsolutePath();
+        Files.createDirectories(journalPath.getParent());
+        journal = MappedJournal.open(journalPath, capacityBytes);
+        int replayed = 0;
+        long offset = journal.getAppliedOffset();
+        byte[] payload;
+        while ((payload = journal.read(offset)) != null) {
+            Purchase purchase = Purchase.decode(payload);
+            pendingUserIds.add(purchase.userId());
+            purchase.quantitiesByTicketId().forEach((ticketId, quantity) ->
+                    unappliedByTicketId.merge(ticketId, quantity, Long::sum));
+            offset = MappedJournal.nextOffset(offset, payload);
+            replayed++;
+        }
+        log.info("Purchase journal {} opened, {} purchases to apply", journalPath, replayed);
+        committer = new Thread(this::commitLoop, "purchase-journal-committer");
+        committer.setDaemon(true);
+        committer.start();
+        applier = new Thread(this::applyLoop, "purchase-journal-applier");
+        applier.setDaemon(true);
+        applier.start();
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (!enabled) return;
+        running = false;
+        LockSupport.unpark(committer);
+        applier.interrupt();
+        journal.close();
+    }
+
+    // same outcome as OrderService.purchaseCartByUserId, acknowledged once the journal record is on disk
+    public MessageResponse purchase(Long userId, Set<Long> admittedEventIds) {
+        // claimed before the cart is read, a second checkout of the same cart cannot read it meanwhile
+        if (!pendingUserIds.add(userId)) throw new AppException(ErrorCode.PURCHASE_BEING_RECORDED);
+        Purchase purchase;
+        try {
+            purchase = new TransactionTemplate(transactionManager).execute(status -> readCart(userId,
+                    admittedEventIds));
+            reserve(purchase);
+        } catch (RuntimeException e) {
+            pendingUserIds.remove(userId);
+            throw e;
+        }
+
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        long end;
+        // appending and queueing the waiter together keeps waiters in offset order
+        synchronized (waiters) {
+            end = journal.append(purchase.encode());
+            if (end >= 0) waiters.add(new Waiter(end, purchase, durable));
+        }
+        if (end < 0) {
+            release(purchase);
+            throw new AppException(ErrorCode.PURCHASE_JOURNAL_FULL);
+        }
+        LockSupport.unpark(committer);
+        try {
+            durable.join();
+        } catch (CompletionException e) {
+            // the committer already cut the record from the journal and gave its capacity back
+            throw new AppException(ErrorCode.PURCHASE_NOT_RECORDED);
+        }
+        ticketHoldService.releaseAfterCommit(purchase.orderTicketIds());
+        return new MessageResponse("Cart of user with id " + userId + " has been purchased successfully");
+    }
+
+    // carts are read-only between the journal acknowledging their purchase and the applier writing it
+    public void checkNoPendingPurchase(Long userId) {
+        if (pendingUserIds.contains(userId)) throw new AppException(ErrorCode.PURCHASE_BEING_RECORDED);
+    }
+
+    private Purchase readCart(Long userId, Set<Long> admittedEventIds) {
+        Order cart = orderRepository.findByCartOwnerId(userId).orElseThrow(
+                () -> new AppException(ErrorCode.CART_EMPTY));
+        cart.recalculate();
+        List<long[]> lines = new ArrayList<>();
+        List<Ticket> tickets = new ArrayList<>();
+        for (OrderTicket orderTicket : cart.getOrderTickets()) {
+            // lines whose cart hold expired stay in the order as expired and are not sold; a hold expiring after this
+            // read no longer counts, the applier activates every journaled line
+            if (!Constants.ORDER_TICKET_STATUS_INACTIVE.equals(orderTicket.getStatus())) continue;
+            lines.add(new long[]{orderTicket.getId(), orderTicket.getTicket().getId(), orderTicket.getSubQuantity()});
+            tickets.add(orderTicket.getTicket());
+        }
+        admissionService.checkAdmitted(admittedEventIds, tickets);
+        return new Purchase(cart.getId(), userId, System.currentTimeMillis(), cart.getQuantity(),
+                cart.getTotalPrice(), lines);
+    }
+
+    // takes every ticket of the purchase from the ledger in ticket id order, a failed purchase gives back what it
+    // already took
+    private void reserve(Purchase purchase) {
+        Map<Long, Long> quantities = purchase.quantitiesByTicketId();
+        ledgerLock.readLock().lock();
+        try {
+            List<Map.Entry<Long, Long>> reserved = new ArrayList<>();
+            for (Map.Entry<Long, Long> entry : quantities.entrySet()) {
+                if (!reserve(entry.getKey(), entry.getValue())) {
+                    reserved.forEach(taken -> remainingByTicketId.get(taken.getKey()).addAndGet(taken.getValue()));
+                    throw new AppException(ErrorCode.TICKET_SOLD_OUT);
+                }
+                reserved.add(entry);
+            }
+            quantities.forEach((ticketId, quantity) -> unappliedByTicketId.merge(ticketId, quantity, Long::sum));
+        } finally {
+            ledgerLock.readLock().unlock();
+        }
+    }
+
+    private boolean reserve(Long ticketId, long quantity) {
+        AtomicLong remaining = remainingByTicketId.get(ticketId);
+        if (remaining == null) remaining = remainingByTicketId.computeIfAbsent(ticketId, this::loadRemaining);
+        long current;
+        do {
+            current = remaining.get();
+            if (current < quantity) return false;
+        } while (!remaining.compareAndSet(current, current - quantity));
+        return true;
+    }
+
+    // undoes reserve for a purchase that was never acknowledged
+    private void release(Purchase purchase) {
+        ledgerLock.readLock().lock();
+        try {
+            purchase.quantitiesByTicketId().forEach((ticketId, quantity) -> {
+                AtomicLong remaining = remainingByTicketId.get(ticketId);
+                if (remaining != null) remaining.addAndGet(quantity);
+                unappliedByTicketId.merge(ticketId, -quantity, Long::sum);
+            });
+        } finally {
+            ledgerLock.readLock().unlock();
+        }
+        pendingUserIds.remove(purchase.userId());
+    }
+
+    // the applier moves quantities from unapplied to sold in one step under the same lock
+    private AtomicLong loadRemaining(Long ticketId) {
+        synchronized (applyLock) {
+            return new AtomicLong(remaining(ticketRepository.findById(ticketId).orElseThrow(
+                    () -> new ResourceNotFoundException("ticket", "ticket id", ticketId))));
+        }
+    }
+
+    // callers hold applyLock
+    private long remaining(Ticket ticket) {
+        long sold = ticket.getSold() == null ? 0 : ticket.getSold();
+        return ticket.getCapacity() - sold - unappliedByTicketId.getOrDefault(ticket.getId(), 0L);
+    }
+
+    // the ledger is loaded once per ticket, this catches capacity edits and tickets sold outside the journal
+    @Scheduled(fixedDelayString = "${app.purchase-journal.reconcile-interval-ms:60000}")
+    public void reconcileLedger() {
+        if (!enabled || remainingByTicketId.isEmpty()) return;
+        ledgerLock.writeLock().lock();
+        try {
+            synchronized (applyLock) {
+                Map<Long, Ticket> tickets = new HashMap<>();
+                ticketRepository.findAllById(remainingByTicketId.keySet())
+                        .forEach(ticket -> tickets.put(ticket.getId(), ticket));
+                remainingByTicketId.entrySet().removeIf(entry -> !tickets.containsKey(entry.getKey()));
+                remainingByTicketId.forEach((ticketId, remaining) ->
+                        remaining.set(remaining(tickets.get(ticketId))));
+            }
+        } finally {
+            ledgerLock.writeLock().unlock();
+        }
+    }
+
+    // group commit: one fsync acknowledges every purchase appended since the previous one
+    private void commitLoop() {
+        while (running) {
+            if (waiters.isEmpty()) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                continue;
+            }
+            try {
+                long durable = journal.force();
+                Waiter waiter;
+                while ((waiter = waiters.peek()) != null && waiter.end() <= durable) {
+                    waiters.poll().durable().complete(null);
+                }
+            } catch (RuntimeException e) {
+                log.error("Purchase journal flush failed", e);
+                failUnflushed(e);
+            }
+        }
+    }
+
+    // nothing past the forced position was acknowledged: it is cut from the journal so it is never applied, and its
+    // buyers are told the purchase failed and get their capacity back
+    private void failUnflushed(RuntimeException cause) {
+        synchronized (waiters) {
+            try {
+                journal.truncate(journal.getForcedPosition());
+            } catch (RuntimeException e) {
+                log.error("Could not cut unacknowledged purchases from the journal", e);
+            }
+            Waiter waiter;
+            while ((waiter = waiters.poll()) != null) {
+                release(waiter.purchase());
+                waiter.durable().completeExceptionally(cause);
+            }
+        }
+    }
+
+    private void applyLoop() {
+        while (running) {
+            try {
+                if (!applyBatch()) Thread.sleep(applyIntervalMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // the applied offset did not move, the same batch is tried again
+                log.error("Applying purchase journal failed", e);
+                try {
+                    Thread.sleep(applyIntervalMillis * 10);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // false when there was nothing to apply
+    private boolean applyBatch() {
+        long from = journal.getAppliedOffset();
+        long durable = journal.getForcedPosition();
+        List<Purchase> batch = new ArrayList<>();
+        long offset = from;
+        byte[] payload;
+        while (offset < durable && batch.size() < applyBatchSize && (payload = journal.read(offset)) != null) {
+            batch.add(Purchase.decode(payload));
+            offset = MappedJournal.nextOffset(offset, payload);
+        }
+        if (batch.isEmpty()) {
+            // rewind once the journal is drained and past half of its size
+            if (journal.getWritePosition() > capacityBytes / 2) journal.reset();
+            return false;
+        }
+        List<Long> appliedOrderIds;
+        synchronized (applyLock) {
+            appliedOrderIds = new TransactionTemplate(transactionManager).execute(status -> write(batch));
+            journal.markApplied(offset);
+            for (Purchase purchase : batch) {
+                purchase.quantitiesByTicketId().forEach((ticketId, quantity) ->
+                        unappliedByTicketId.merge(ticketId, -quantity, Long::sum));
+            }
+        }
+        for (Purchase purchase : batch) {
+            // the next cart is created when the buyer adds a ticket again
+            cartStore.invalidate(purchase.userId());
+            pendingUserIds.remove(purchase.userId());
+        }
+        appliedOrderIds.forEach(fulfillmentService::publishAfterCommit);
+        return true;
+    }
+
+    private List<Long> write(List<Purchase> batch) {
+        List<Long> cartIds = batch.stream().map(Purchase::orderId).toList();
+        // orders already purchased were applied before a crash lost the applied offset
+        Set<Long> open = new HashSet<>(orderRepository.findIdsByIdInAndStatus(cartIds,
+                Constants.ORDER_STATUS_NOT_PURCHASED));
+        List<Object[]> orders = new ArrayList<>();
+        List<Object[]> orderTickets = new ArrayList<>();
+        Map<Long, Long> soldByTicketId = new TreeMap<>();
+        List<Long> applied = new ArrayList<>();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (Purchase purchase : batch) {
+            if (!open.remove(purchase.orderId())) continue;
+            Timestamp purchasedAt = Timestamp.valueOf(LocalDateTime.ofInstant(
+                    Instant.ofEpochMilli(purchase.purchasedAtMillis()), ZoneId.systemDefault()));
+            orders.add(new Object[]{Constants.ORDER_STATUS_PURCHASED, purchasedAt, now, purchase.quantity(),
+                    purchase.totalPrice(), Constants.ORDER_FULFILLMENT_STATUS_PENDING, purchase.orderId(),
+                    Constants.ORDER_STATUS_NOT_PURCHASED});
+            for (long[] line : purchase.lines()) {
+                orderTickets.add(new Object[]{Constants.ORDER_TICKET_STATUS_ACTIVE, now, line[0],
+                        Constants.ORDER_TICKET_STATUS_INACTIVE, Constants.ORDER_TICKET_STATUS_EXPIRED});
+            }
+            purchase.quantitiesByTicketId().forEach((ticketId, quantity) ->
+                    soldByTicketId.merge(ticketId, quantity, Long::sum));
+            applied.add(purchase.orderId());
+        }
+        if (applied.isEmpty()) return applied;
+        jdbcTemplate.batchUpdate("UPDATE s_order SET status = ?, cart_owner_id = NULL, purchase_date = ?, "
+                + "update_date = ?, quantity = ?, total_price = ?, fulfillment_status = ? WHERE id = ? AND status = ?",
+                orders);
+        // sold and the totals above count every journaled line, including one whose hold expired after it was read
+        jdbcTemplate.batchUpdate("UPDATE s_order_ticket SET status = ?, activated_at = ? WHERE id = ? "
+                + "AND status IN (?, ?)", orderTickets);
+        List<Object[]> sold = new ArrayList<>(soldByTicketId.size());
+        soldByTicketId.forEach((ticketId, quantity) -> sold.add(new Object[]{quantity, ticketId}));
+        jdbcTemplate.batchUpdate("UPDATE s_ticket SET sold = sold + ? WHERE id = ?", sold);
+        return applied;
+    }
+
+    private record Waiter(long end, Purchase purchase, CompletableFuture<Void> durable) {
+    }
+
+    // lines are {orderTicketId, ticketId, quantity}
+    private record Purchase(long orderId, long userId, long purchasedAtMillis, long quantity, double totalPrice,
+                            List<long[]> lines) {
+        private byte[] encode() {
+            ByteBuffer buffer = ByteBuffer.allocate(8 * 5 + 4 + lines.size() * 24);
+            buffer.putLong(orderId).putLong(userId).putLong(purchasedAtMillis).putLong(quantity)
+                    .putDouble(totalPrice).putInt(lines.size());
+            for (long[] line : lines) buffer.putLong(line[0]).putLong(line[1]).putLong(line[2]);
+            return buffer.array();
+        }
+
+        private static Purchase decode(byte[] payload) {
+            ByteBuffer buffer = ByteBuffer.wrap(payload);
+            long orderId = buffer.getLong();
+            long userId = buffer.getLong();
+            long purchasedAtMillis = buffer.getLong();
+            long quantity = buffer.getLong();
+            double totalPrice = buffer.getDouble();
+            int lineCount = buffer.getInt();
+            List<long[]> lines = new ArrayList<>(lineCount);
+            for (int i = 0; i < lineCount; i++) {
+                lines.add(new long[]{buffer.getLong(), buffer.getLong(), buffer.getLong()});
+            }
+            return new Purchase(orderId, userId, purchasedAtMillis, quantity, totalPrice, lines);
+        }
+
+        private Map<Long, Long> quantitiesByTicketId() {
+            Map<Long, Long> quantities = new TreeMap<>();
+            for (long[] line : lines) quantities.merge(line[1], line[2], Long::sum);
+            return quantities;
+        }
+
+        private List<Long> orderTicketIds() {
+            List<Long> ids = new ArrayList<>(lines.size());
+            for (long[] line : lines) ids.add(line[0]);
+            return ids;
+        }
+    }
+}
@@ -1,12 +1,19 @@
 package com.example.ticketboxcoreservice.service;
 
+import com.example.ticketboxcoreservice.enumf.ErrorCode;
+import com.example.ticketboxcoreservice.exception.AppException;
+import com.example.ticketboxcoreservice.utils.LruCache;
+import com.example.ticketboxcoreservice.utils.QrImageWriter;
 import com.google.zxing.*;
 import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
 import com.google.zxing.client.j2se.MatrixToImageWriter;
 import com.google.zxing.common.BitMatrix;
 import com.google.zxing.common.HybridBinarizer;
 import com.google.zxing.qrcode.QRCodeWriter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
@@ -15,10 +22,49 @@ import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 @Service
 @RequiredArgsConstructor
 public class QrCodeService {
+    public static final String FORMAT_PNG = "png";
+    public static final String FORMAT_SVG = "svg";
+
+    // one bit per module and no quiet zone, QrImageWriter scales and pads it
+    private static final Map<EncodeHintType, Object> MODULE_HINTS = Map.of(EncodeHintType.MARGIN, 0);
+
+    private final QRCodeWriter qrCodeWriter = new QRCodeWriter();
+    private LruCache<String, byte[]> imageCache;
+    @Value("${app.qr.cache-max-bytes:16777216}")
+    private long cacheMaxBytes;
+    @Value("${app.qr.max-size:1200}")
+    private int maxSize;
+
+    @Value("${app.qr.bundle-parallelism:0}")
+    private int bundleParallelism;
+    private ForkJoinPool bundlePool;
+
+    @PostConstruct
+    void init() {
+        imageCache = new LruCache<>(cacheMaxBytes, image -> image.length);
+        bundlePool = new ForkJoinPool(bundleParallelism > 0
+                ? bundleParallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        bundlePool.shutdownNow();
+    }
+
     public String decodeQrCode(MultipartFile qrCodeImage) {
         String resultStr = null;
         try {
@@ -56,4 +102,57 @@ public class QrCodeService {
         }
         return result;
     }
+
+    // rendered images of a token are immutable, so they are cached by format, size and token
+    public byte[] renderQrCode(String text, int size, String format) {
+        validateOptions(size, format);
+        return imageCache.get(format + ':' + size + ':' + text, key -> {
+            BitMatrix modules = encodeModules(text);
+            return FORMAT_SVG.equals(format)
+                    ? QrImageWriter.writeSvg(modules, size)
+                    : QrImageWriter.writePng(modules, size);
+        });
+    }
+
+    public void validateOptions(int size, String format) {
+        if (size <= 0 || size > maxSize || !(FORMAT_PNG.equals(format) || FORMAT_SVG.equals(format))) {
+            throw new AppException(ErrorCode.QR_CODE_OPTIONS_INVALID);
+        }
+    }
+
+    // Writes one zip entry per text, in order. Images are rendered on the bundle pool at most a window ahead of the
+    // entry being written, so memory holds a window of images rather than the whole bundle.
+    public void writeZip(List<String> names, List<String> texts, int size, String format, OutputStream out)
+            throws IOException {
+        int window = bundlePool.getParallelism() * 2;
+        Deque<ForkJoinTask<byte[]>> inFlight = new ArrayDeque<>(window);
+        int submitted = 0;
+        ZipOutputStream zip = new ZipOutputStream(out);
+        // PNG is already deflated, compressing it again only burns CPU
+        zip.setLevel(FORMAT_PNG.equals(format) ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+        try {
+            for (int i = 0; i < texts.size(); i++) {
+                while (submitted < texts.size() && submitted < i + window) {
+                    String text = texts.get(submitted++);
+                    inFlight.add(bundlePool.submit(() -> renderQrCode(text, size, format)));
+                }
+                byte[] image = inFlight.poll().join();
+                zip.putNextEntry(new ZipEntry(names.get(i) + '.' + format));
+                zip.write(image);
+                zip.closeEntry();
+            }
+            // the servlet container owns the response stream, finish the archive without closing it
+            zip.finish();
+        } finally {
+            inFlight.forEach(task -> task.cancel(true));
+        }
+    }
+
+    public BitMatrix encodeModules(String text) {
+        try {
+            return qrCodeWriter.encode(text, BarcodeFormat.QR_CODE, 0, 0, MODULE_HINTS);
+        } catch (WriterException e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
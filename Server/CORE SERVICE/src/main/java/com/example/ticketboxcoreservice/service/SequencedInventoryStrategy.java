@@ -0,0 +1,100 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.exception.ResourceNotFoundException;
+import com.example.ticketboxcoreservice.repository.TicketRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// hands reservations to the CheckoutSequencer instead of contending on the s_ticket row inside the request
+@Service
+@RequiredArgsConstructor
+public class SequencedInventoryStrategy implements InventoryStrategy {
+    public static final String NAME = "sequenced";
+
+    private final CheckoutSequencer checkoutSequencer;
+    private final TicketRepository ticketRepository;
+
+    @Value("${app.inventory.sequencer.ticket-ids:}")
+    private Set<Long> configuredTicketIds;
+    @Value("${app.inventory.sequencer.reply-timeout-ms:5000}")
+    private long replyTimeoutMillis;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isConfiguredFor(Long ticketId) {
+        return configuredTicketIds.contains(ticketId);
+    }
+
+    @Override
+    public boolean hasConfiguredTickets() {
+        return !configuredTicketIds.isEmpty();
+    }
+
+    @Override
+    public boolean joinsTransaction() {
+        return false;
+    }
+
+    @Override
+    public boolean reserve(Long ticketId, Long quantity) {
+        return await(checkoutSequencer.reserve(ticketId, quantity), true);
+    }
+
+    @Override
+    public void release(Long ticketId, Long quantity) {
+        // a release is applied even if its caller stops waiting, undoing it could oversell
+        await(checkoutSequencer.release(ticketId, quantity), false);
+    }
+
+    @Override
+    public Long getSold(Long ticketId) {
+        return ticketRepository.getSoldByTicketId(ticketId).orElseThrow(
+                () -> new ResourceNotFoundException("ticket", "ticket id", ticketId));
+    }
+
+    // reloaded once the edit is committed, a reload before would read the old capacity
+    @Override
+    public void capacityChanged(Long ticketId, Long capacity) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            checkoutSequencer.reload(ticketId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                checkoutSequencer.reload(ticketId);
+            }
+        });
+    }
+
+    private boolean await(CompletableFuture<Boolean> result, boolean cancelOnTimeout) {
+        try {
+            return result.get(replyTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the checkout sequencer", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Checkout sequencer rejected the command", e.getCause());
+        } catch (TimeoutException e) {
+            // the sequencer skips a cancelled reservation, or hands it back if it was applied meanwhile
+            if (!cancelOnTimeout || result.cancel(false)) {
+                throw new IllegalStateException("Checkout sequencer did not answer in time", e);
+            }
+            // answered between the timeout and the cancel
+            return await(result, false);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.exception.ResourceNotFoundException;
+import com.example.ticketboxcoreservice.model.entity.Ticket;
+import com.example.ticketboxcoreservice.model.entity.TicketCounterShard;
+import com.example.ticketboxcoreservice.repository.TicketCounterShardRepository;
+import com.example.ticketboxcoreservice.repository.TicketRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+// splits the capacity of a hot ticket into sub-counter rows so concurrent buyers lock different rows. What the shards
+// sell is added to s_ticket.sold in the background, so sales other paths record there are kept, and capacity edits
+// are spread over the shards again.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ShardedCounterInventoryStrategy implements InventoryStrategy {
+    public static final String NAME = "sharded-counter";
+    private static final String ROLLED_UP_SOLD_BASELINE = "ticket-counter-shard-rolled-up-sold";
+
+    private final TicketRepository ticketRepository;
+    private final TicketCounterShardRepository ticketCounterShardRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final DataMigrationService dataMigrationService;
+    private final Set<Long> initializedTicketIds = ConcurrentHashMap.newKeySet();
+
+    @Value("${app.inventory.sharded-counter.shard-count:8}")
+    private int shardCount;
+    @Value("${app.inventory.sharded-counter.ticket-ids:}")
+    private Set<Long> configuredTicketIds;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isConfiguredFor(Long ticketId) {
+        return configuredTicketIds.contains(ticketId);
+    }
+
+    @Override
+    public boolean hasConfiguredTickets() {
+        return !configuredTicketIds.isEmpty();
+    }
+
+    @Override
+    public boolean reserve(Long ticketId, Long quantity) {
+        int shards = ensureShards(ticketId);
+        int start = ThreadLocalRandom.current().nextInt(shards);
+        for (int i = 0; i < shards; i++) {
+            int shardNo = (start + i) % shards;
+            if (ticketCounterShardRepository.incrementSoldIfAvailable(ticketId, shardNo, quantity) == 1) return true;
+        }
+        // no single shard has room for the whole quantity, gather it piece by piece
+        return reserveAcrossShards(ticketId, quantity);
+    }
+
+    @Override
+    public void release(Long ticketId, Long quantity) {
+        long remaining = quantity;
+        for (TicketCounterShard shard : ticketCounterShardRepository.findByTicketId(ticketId)) {
+            if (remaining == 0) break;
+            long part = Math.min(remaining, shard.getSold());
+            if (part > 0 && ticketCounterShardRepository.decrementSold(ticketId, shard.getShardNo(), part) == 1)
+                remaining -= part;
+        }
+    }
+
+    @Override
+    public Long getSold(Long ticketId) {
+        Long sold = ticketRepository.getSoldByTicketId(ticketId).orElseThrow(
+                () -> new ResourceNotFoundException("ticket", "ticket id", ticketId));
+        return sold + ticketCounterShardRepository.sumNotRolledUpByTicketId(ticketId);
+    }
+
+    // called with s_ticket already written, the same lock order as a roll-up
+    @Override
+    public void capacityChanged(Long ticketId, Long capacity) {
+        spreadCapacity(ticketId, capacity);
+    }
+
+    @Scheduled(fixedDelayString = "${app.inventory.sharded-counter.rollup-interval-ms:5000}")
+    public void rollUpSold() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (Long ticketId : ticketCounterShardRepository.findTicketIdsNotRolledUp()) {
+            transactionTemplate.executeWithoutResult(status -> rollUpSold(ticketId));
+        }
+        // edits that did not go through TicketService, or raced with the first split of the ticket
+        for (Long ticketId : ticketCounterShardRepository.findTicketIdsWithStaleCapacity()) {
+            transactionTemplate.executeWithoutResult(status -> ticketRepository.findById(ticketId)
+                    .ifPresent(ticket -> spreadCapacity(ticketId, ticket.getCapacity())));
+        }
+    }
+
+    // shards split before roll-ups were incremental had s_ticket.sold overwritten with their sum, done one last time
+    @EventListener(ApplicationReadyEvent.class)
+    public void baselineRolledUpSold() {
+        dataMigrationService.runOnce(ROLLED_UP_SOLD_BASELINE, () -> {
+            int tickets = ticketRepository.updateSoldFromCounterShardsNotRolledUp();
+            ticketCounterShardRepository.markRolledUp();
+            log.info("Set sold of {} sharded tickets from their counter shards", tickets);
+        });
+    }
+
+    private void rollUpSold(Long ticketId) {
+        for (TicketCounterShard shard : ticketCounterShardRepository.findByTicketId(ticketId)) {
+            if (shard.getRolledUpSold() == null) continue;
+            long delta = shard.getSold() - shard.getRolledUpSold();
+            if (delta == 0) continue;
+            // s_ticket is locked before the shard; if a roll-up on another node moved the shard meanwhile, the
+            // delta is taken back
+            ticketRepository.addSold(ticketId, delta);
+            if (ticketCounterShardRepository.advanceRolledUpSold(shard.getId(), shard.getRolledUpSold(),
+                    shard.getSold()) == 0)
+                ticketRepository.addSold(ticketId, -delta);
+        }
+    }
+
+    // every shard keeps what it sold and gets an even part of the capacity left, none when the ticket is oversold
+    private void spreadCapacity(Long ticketId, long capacity) {
+        List<TicketCounterShard> shards = ticketCounterShardRepository.findByTicketIdForUpdate(ticketId);
+        // not split yet, the first sale splits the current capacity
+        if (shards.isEmpty()) return;
+        long free = Math.max(0, capacity - shards.stream().mapToLong(TicketCounterShard::getSold).sum());
+        for (int i = 0; i < shards.size(); i++) {
+            TicketCounterShard shard = shards.get(i);
+            ticketCounterShardRepository.updateCapacity(shard.getId(), shard.getSold() + share(free, i, shards.size()));
+        }
+        log.info("Spread capacity {} of ticket {} over {} counter shards", capacity, ticketId, shards.size());
+    }
+
+    private static long share(long total, int shardNo, int shards) {
+        return total / shards + (shardNo < total % shards ? 1 : 0);
+    }
+
+    private boolean reserveAcrossShards(Long ticketId, Long quantity) {
+        long remaining = quantity;
+        List<long[]> taken = new ArrayList<>();
+        for (TicketCounterShard shard : ticketCounterShardRepository.findByTicketId(ticketId)) {
+            long part = Math.min(remaining, shard.getCapacity() - shard.getSold());
+            if (part > 0 && ticketCounterShardRepository.incrementSoldIfAvailable(ticketId, shard.getShardNo(), part) == 1) {
+                taken.add(new long[]{shard.getShardNo(), part});
+                remaining -= part;
+            }
+            if (remaining == 0) return true;
+        }
+        for (long[] part : taken) {
+            ticketCounterShardRepository.decrementSold(ticketId, (int) part[0], part[1]);
+        }
+        return false;
+    }
+
+    // lazily split capacity and already sold tickets over the shards the first time the ticket is sold,
+    // in its own transaction so the shards are visible to other buyers before the current purchase commits
+    private int ensureShards(Long ticketId) {
+        if (initializedTicketIds.contains(ticketId)) return shardCount;
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        synchronized (initializedTicketIds) {
+            if (initializedTicketIds.contains(ticketId)) return shardCount;
+            transactionTemplate.executeWithoutResult(status -> createShardsIfAbsent(ticketId));
+            initializedTicketIds.add(ticketId);
+        }
+        return shardCount;
+    }
+
+    private void createShardsIfAbsent(Long ticketId) {
+        if (ticketCounterShardRepository.countByTicketId(ticketId) == 0) {
+            Ticket ticket = ticketRepository.findById(ticketId).orElseThrow(
+                    () -> new ResourceNotFoundException("ticket", "ticket id", ticketId));
+            long sold = ticket.getSold() == null ? 0 : ticket.getSold();
+            for (int shardNo = 0; shardNo < shardCount; shardNo++) {
+                long capacity = share(ticket.getCapacity(), shardNo, shardCount);
+                long shardSold = Math.min(sold, capacity);
+                sold -= shardSold;
+                // sold already counts what the shard starts with
+                ticketCounterShardRepository.save(TicketCounterShard.builder()
+                        .ticketId(ticketId)
+                        .shardNo(shardNo)
+                        .capacity(capacity)
+                        .sold(shardSold)
+                        .rolledUpSold(shardSold)
+                        .build());
+            }
+            log.info("Split inventory of ticket {} into {} counter shards", ticketId, shardCount);
+        }
+    }
+}
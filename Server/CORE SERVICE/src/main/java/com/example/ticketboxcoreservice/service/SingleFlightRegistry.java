@@ -0,0 +1,50 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.model.dto.response.SingleFlightStatsResponse;
+import com.example.ticketboxcoreservice.utils.SingleFlight;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+
+// Holds the single-flight groups of the hot catalog reads, one per service method, and reports how many calls each
+// one saved. When disabled every call runs its own load and the groups stay at zero.
+@Service
+public class SingleFlightRegistry {
+    private final Map<String, SingleFlight<?, ?>> groups = new ConcurrentSkipListMap<>();
+
+    @Value("${app.single-flight.enabled:true}")
+    private boolean enabled;
+
+    public <A, V> SingleFlight<A, V> register(String name, Function<? super A, ?> keyFunction) {
+        SingleFlight<A, V> group = new SingleFlight<>(name, keyFunction);
+        if (groups.putIfAbsent(name, group) != null) {
+            throw new IllegalStateException("Single-flight group " + name + " is already registered");
+        }
+        return group;
+    }
+
+    public <A, V> V execute(SingleFlight<A, V> group, A argument, Function<? super A, ? extends V> loader) {
+        return enabled ? group.execute(argument, loader) : loader.apply(argument);
+    }
+
+    public List<SingleFlightStatsResponse> getStats() {
+        return groups.values().stream().map(SingleFlightRegistry::toStats).toList();
+    }
+
+    private static SingleFlightStatsResponse toStats(SingleFlight<?, ?> group) {
+        long calls = group.calls();
+        long coalesced = group.coalesced();
+        return SingleFlightStatsResponse.builder()
+                .name(group.getName())
+                .calls(calls)
+                .loads(calls - coalesced)
+                .coalesced(coalesced)
+                .hitRate(calls == 0 ? 0d : (double) coalesced / calls)
+                .inFlight(group.inFlight())
+                .build();
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.enumf.Constants;
+import com.example.ticketboxcoreservice.enumf.ErrorCode;
+import com.example.ticketboxcoreservice.exception.AppException;
+import com.example.ticketboxcoreservice.model.entity.OrderTicket;
+import com.example.ticketboxcoreservice.model.entity.Ticket;
+import com.example.ticketboxcoreservice.repository.OrderRepository;
+import com.example.ticketboxcoreservice.repository.OrderTicketRepository;
+import com.example.ticketboxcoreservice.utils.HierarchicalTimingWheel;
+import jakarta.annotation.PostConstruct;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Time-limited reservations taken when a ticket is added to a cart. Holds live in memory and expire through a
+// hierarchical timing wheel; expired order tickets are marked in batches, no table is polled for deadlines.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TicketHoldService {
+    private final OrderTicketRepository orderTicketRepository;
+    private final OrderRepository orderRepository;
+    private final CartStore cartStore;
+
+    private final Map<Long, AtomicLong> heldByTicketId = new ConcurrentHashMap<>();
+    private final Map<Long, Hold> holdsByOrderTicketId = new ConcurrentHashMap<>();
+    private final Queue<Long> expiredOrderTicketIds = new ConcurrentLinkedQueue<>();
+    private HierarchicalTimingWheel<Long> timingWheel;
+
+    @Value("${app.cart-hold.ttl-ms:600000}")
+    private long ttlMillis;
+    @Value("${app.cart-hold.tick-ms:100}")
+    private long tickMillis;
+    @Value("${app.cart-hold.wheel-size:512}")
+    private int wheelSize;
+    @Value("${app.cart-hold.expire-batch-size:500}")
+    private int expireBatchSize;
+
+    @PostConstruct
+    public void init() {
+        timingWheel = new HierarchicalTimingWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+    }
+
+    // holds are not persisted, carts that survived a restart get a fresh hold for their lines
+    @Transactional
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreHolds() {
+        List<OrderTicket> orderTickets = orderTicketRepository.findByStatusWithTicket(
+                Constants.ORDER_TICKET_STATUS_INACTIVE);
+        for (OrderTicket orderTicket : orderTickets) {
+            register(orderTicket.getId(), orderTicket.getTicket().getId(), orderTicket.getSubQuantity());
+        }
+        log.info("Restored {} cart holds", orderTickets.size());
+    }
+
+    // hold the line's quantity until the hold expires or is released, a line that is already held is resized
+    // to its new quantity and keeps its original deadline
+    public void hold(OrderTicket orderTicket) {
+        Ticket ticket = orderTicket.getTicket();
+        AtomicLong held = heldByTicketId.computeIfAbsent(ticket.getId(), id -> new AtomicLong());
+        long sold = ticket.getSold() == null ? 0 : ticket.getSold();
+        Hold previous = holdsByOrderTicketId.get(orderTicket.getId());
+        holdsByOrderTicketId.compute(orderTicket.getId(), (orderTicketId, existing) -> {
+            long diff = orderTicket.getSubQuantity() - (existing == null ? 0 : existing.quantity());
+            long current;
+            do {
+                current = held.get();
+                if (diff > 0 && sold + current + diff > ticket.getCapacity())
+                    throw new AppException(ErrorCode.TICKET_SOLD_OUT);
+            } while (!held.compareAndSet(current, current + diff));
+            HierarchicalTimingWheel.Timeout timeout = existing != null ? existing.timeout()
+                    : timingWheel.schedule(orderTicketId, System.currentTimeMillis() + ttlMillis);
+            return new Hold(ticket.getId(), orderTicket.getSubQuantity(), timeout);
+        });
+        if (previous == null) releaseOnRollback(orderTicket.getId());
+    }
+
+    // give the held quantity back, e.g. when the line is removed or converted into a purchase
+    public void release(Long orderTicketId) {
+        Hold hold = holdsByOrderTicketId.remove(orderTicketId);
+        if (hold == null) return;
+        timingWheel.cancel(hold.timeout());
+        heldByTicketId.get(hold.ticketId()).addAndGet(-hold.quantity());
+    }
+
+    public void releaseAfterCommit(List<Long> orderTicketIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            orderTicketIds.forEach(this::release);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                orderTicketIds.forEach(TicketHoldService.this::release);
+            }
+        });
+    }
+
+    public boolean isHeld(Long orderTicketId) {
+        return holdsByOrderTicketId.containsKey(orderTicketId);
+    }
+
+    public Long getHeld(Long ticketId) {
+        AtomicLong held = heldByTicketId.get(ticketId);
+        return held == null ? 0L : held.get();
+    }
+
+    @Scheduled(fixedDelayString = "${app.cart-hold.tick-ms:100}")
+    public void expireHolds() {
+        timingWheel.advance(System.currentTimeMillis(), orderTicketId -> {
+            Hold hold = holdsByOrderTicketId.remove(orderTicketId);
+            if (hold == null) return;
+            heldByTicketId.get(hold.ticketId()).addAndGet(-hold.quantity());
+            expiredOrderTicketIds.add(orderTicketId);
+        });
+        List<Long> batch = new ArrayList<>();
+        Long orderTicketId;
+        while (batch.size() < expireBatchSize && (orderTicketId = expiredOrderTicketIds.poll()) != null) {
+            batch.add(orderTicketId);
+        }
+        if (batch.isEmpty()) return;
+        try {
+            orderTicketRepository.updateStatusByIdsAndStatus(batch, Constants.ORDER_TICKET_STATUS_INACTIVE,
+                    Constants.ORDER_TICKET_STATUS_EXPIRED);
+            // expired lines leave the cart totals; rebuilt from the lines, so a retried batch does not subtract twice
+            orderRepository.recalculateTotalsByOrderTicketIds(batch, Constants.ORDER_STATUS_NOT_PURCHASED,
+                    Constants.ORDER_TICKET_STATUS_EXPIRED);
+            cartStore.invalidateAll(orderRepository.findBuyerIdsByOrderTicketIds(batch));
+        } catch (RuntimeException e) {
+            log.warn("Could not mark {} expired order tickets, retrying on next tick", batch.size(), e);
+            expiredOrderTicketIds.addAll(batch);
+        }
+    }
+
+    private void register(Long orderTicketId, Long ticketId, Long quantity) {
+        heldByTicketId.computeIfAbsent(ticketId, id -> new AtomicLong()).addAndGet(quantity);
+        holdsByOrderTicketId.put(orderTicketId, new Hold(ticketId, quantity,
+                timingWheel.schedule(orderTicketId, System.currentTimeMillis() + ttlMillis)));
+    }
+
+    private void releaseOnRollback(Long orderTicketId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) release(orderTicketId);
+            }
+        });
+    }
+
+    private record Hold(Long ticketId, Long quantity, HierarchicalTimingWheel.Timeout timeout) {
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.model.dto.response.TicketKeyResponse;
+import com.example.ticketboxcoreservice.utils.SignedTicketCodec;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Ed25519 keys of the T2 ticket tokens. The active key signs new tickets; retired public keys stay published and
+// verifiable so tickets signed before a rotation keep working. Public keys are parsed once and looked up by key id.
+@Slf4j
+@Service
+public class TicketKeyService {
+    private final Map<Integer, PublicKey> publicKeysById = new ConcurrentHashMap<>();
+    @Getter
+    private PrivateKey activePrivateKey;
+
+    @Getter
+    @Value("${app.ticket-token.ed25519.active-key-id:1}")
+    private int activeKeyId;
+    // base64 PKCS#8 / X.509 encodings, as written by PrivateKey.getEncoded() and PublicKey.getEncoded()
+    @Value("${app.ticket-token.ed25519.private-key:}")
+    private String privateKey;
+    @Value("${app.ticket-token.ed25519.public-key:}")
+    private String publicKey;
+    // comma separated keyId:base64X509 pairs of keys that no longer sign but must still verify
+    @Value("${app.ticket-token.ed25519.retired-public-keys:}")
+    private String retiredPublicKeys;
+    @Value("${app.ticket-token.signing:hmac}")
+    private String signing;
+
+    @PostConstruct
+    public void init() throws GeneralSecurityException {
+        KeyFactory keyFactory = KeyFactory.getInstance(SignedTicketCodec.ALGORITHM);
+        if (!privateKey.isBlank() && !publicKey.isBlank()) {
+            activePrivateKey = keyFactory.generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(privateKey)));
+            publicKeysById.put(activeKeyId,
+                    keyFactory.generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(publicKey))));
+        } else if ("ed25519".equals(signing)) {
+            KeyPair keyPair = KeyPairGenerator.getInstance(SignedTicketCodec.ALGORITHM).generateKeyPair();
+            activePrivateKey = keyPair.getPrivate();
+            publicKeysById.put(activeKeyId, keyPair.getPublic());
+            log.warn("No ticket signing key configured, generated a temporary one. Tickets issued now stop "
+                    + "verifying after a restart. Public key {}", Base64.getEncoder().encodeToString(
+                    keyPair.getPublic().getEncoded()));
+        }
+        for (String entry : retiredPublicKeys.split(",")) {
+            if (entry.isBlank()) continue;
+            String[] parts = entry.trim().split(":", 2);
+            publicKeysById.putIfAbsent(Integer.parseInt(parts[0]),
+                    keyFactory.generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(parts[1]))));
+        }
+    }
+
+    public boolean canSign() {
+        return activePrivateKey != null;
+    }
+
+    public PublicKey getPublicKey(int keyId) {
+        return publicKeysById.get(keyId);
+    }
+
+    public List<TicketKeyResponse> getPublishedKeys() {
+        List<TicketKeyResponse> keys = new ArrayList<>();
+        publicKeysById.forEach((keyId, key) -> {
+            byte[] encoded = key.getEncoded();
+            // the X.509 encoding of an Ed25519 key ends with the 32 raw key bytes
+            byte[] raw = Arrays.copyOfRange(encoded, encoded.length - 32, encoded.length);
+            keys.add(TicketKeyResponse.builder()
+                    .kid(keyId.toString())
+                    .kty("OKP")
+                    .crv(SignedTicketCodec.ALGORITHM)
+                    .x(Base64.getUrlEncoder().withoutPadding().encodeToString(raw))
+                    .active(keyId == activeKeyId && canSign())
+                    .build());
+        });
+        return keys;
+    }
+}
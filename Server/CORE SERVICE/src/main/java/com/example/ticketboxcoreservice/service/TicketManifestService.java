@@ -0,0 +1,148 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.enumf.Constants;
+import com.example.ticketboxcoreservice.enumf.ErrorCode;
+import com.example.ticketboxcoreservice.exception.AppException;
+import com.example.ticketboxcoreservice.model.dto.request.UsedDeltaRequest;
+import com.example.ticketboxcoreservice.model.dto.response.ManifestResponse;
+import com.example.ticketboxcoreservice.model.dto.response.UsedDeltaResponse;
+import com.example.ticketboxcoreservice.model.entity.OrderTicket;
+import com.example.ticketboxcoreservice.repository.OrderTicketRepository;
+import com.example.ticketboxcoreservice.repository.OrderTicketRepository.ManifestRow;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.Deflater;
+
+// Offline scanning manifests. A gate downloads every sold ticket of an event once as two compressed bitmaps,
+// then only asks for tickets activated or used after its cursor and uploads what it admitted while offline.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TicketManifestService {
+    private static final List<Integer> MANIFEST_STATUSES = List.of(
+            Constants.ORDER_TICKET_STATUS_ACTIVE, Constants.ORDER_TICKET_STATUS_USED);
+
+    private final OrderTicketRepository orderTicketRepository;
+    private final UsedTicketRegistry usedTicketRegistry;
+
+    // a purchase or scan stamped before the previous cursor was cut may commit after it, deltas look back this far
+    @Value("${app.manifest.delta-overlap-ms:10000}")
+    private long deltaOverlapMillis;
+
+    @Transactional
+    public ManifestResponse getManifest(Long eventId, String cursor) {
+        LocalDateTime cutAt = LocalDateTime.now();
+        List<ManifestRow> rows;
+        boolean full = cursor == null || cursor.isBlank();
+        if (full) {
+            rows = orderTicketRepository.findManifestRowsByEventId(eventId, MANIFEST_STATUSES);
+        } else {
+            LocalDateTime since = LocalDateTime.ofInstant(
+                    Instant.ofEpochMilli(parseCursor(cursor) - deltaOverlapMillis), ZoneId.systemDefault());
+            rows = orderTicketRepository.findManifestDeltaByEventId(eventId, MANIFEST_STATUSES, since);
+        }
+        rows = new ArrayList<>(rows);
+        rows.sort(Comparator.comparing(ManifestRow::getId));
+
+        long baseId = rows.isEmpty() ? 0 : rows.get(0).getId();
+        BitSet valid = new BitSet();
+        BitSet used = new BitSet();
+        ByteArrayOutputStream admitCounts = new ByteArrayOutputStream();
+        for (ManifestRow row : rows) {
+            int bit = Math.toIntExact(row.getId() - baseId);
+            valid.set(bit);
+            if (Objects.equals(row.getStatus(), Constants.ORDER_TICKET_STATUS_USED)) used.set(bit);
+            writeVarint(admitCounts, row.getSubQuantity() == null ? 1 : row.getSubQuantity());
+        }
+        return ManifestResponse.builder()
+                .eventId(eventId)
+                .cursor(Long.toString(cutAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()))
+                .full(full)
+                .baseId(baseId)
+                .ticketCount(rows.size())
+                .validBitmap(deflate(valid.toByteArray()))
+                .usedBitmap(deflate(used.toByteArray()))
+                .admitCounts(deflate(admitCounts.toByteArray()))
+                .build();
+    }
+
+    // merging is idempotent, a gate can resend the same delta after a failed upload
+    @Transactional
+    public UsedDeltaResponse mergeUsedDelta(Long eventId, UsedDeltaRequest usedDeltaRequest) {
+        Set<Long> uploadedIds = new TreeSet<>(usedDeltaRequest.getOrderTicketIds());
+        Set<Long> eventIds = new TreeSet<>(orderTicketRepository.findIdsByEventIdAndIdIn(eventId, uploadedIds));
+        List<Long> rejectedIds = new ArrayList<>();
+        List<Long> alreadyUsedIds = new ArrayList<>();
+        List<Long> mergedIds = new ArrayList<>();
+        for (Long id : uploadedIds) {
+            if (!eventIds.contains(id)) rejectedIds.add(id);
+        }
+        if (!eventIds.isEmpty()) {
+            for (OrderTicket orderTicket : orderTicketRepository.findAllByIdForUpdate(eventIds)) {
+                if (Objects.equals(orderTicket.getStatus(), Constants.ORDER_TICKET_STATUS_ACTIVE))
+                    mergedIds.add(orderTicket.getId());
+                else if (Objects.equals(orderTicket.getStatus(), Constants.ORDER_TICKET_STATUS_USED))
+                    alreadyUsedIds.add(orderTicket.getId());
+                else
+                    rejectedIds.add(orderTicket.getId());
+            }
+        }
+        if (!mergedIds.isEmpty()) {
+            orderTicketRepository.updateStatusAndUsedAtByIdsAndStatus(mergedIds,
+                    Constants.ORDER_TICKET_STATUS_ACTIVE, Constants.ORDER_TICKET_STATUS_USED, LocalDateTime.now());
+            mergedIds.forEach(id -> usedTicketRegistry.markUsedAfterCommit(eventId, id));
+        }
+        log.info("Gate {} merged {} offline scans for event {}, {} already used, {} rejected",
+                usedDeltaRequest.getGateId(), mergedIds.size(), eventId, alreadyUsedIds.size(), rejectedIds.size());
+        return UsedDeltaResponse.builder()
+                .merged(mergedIds.size())
+                .alreadyUsedIds(alreadyUsedIds)
+                .rejectedIds(rejectedIds)
+                .build();
+    }
+
+    // cursor layout: cutAtEpochMillis; cursors of the older maxOrderTicketId:cutAt layout are rejected, so gates
+    // holding one download the full manifest again
+    private long parseCursor(String cursor) {
+        try {
+            return Long.parseLong(cursor);
+        } catch (NumberFormatException exception) {
+            throw new AppException(ErrorCode.MANIFEST_CURSOR_INVALID);
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static String deflate(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        deflater.setInput(bytes);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, bytes.length / 4));
+        byte[] buffer = new byte[4096];
+        while (!deflater.finished()) out.write(buffer, 0, deflater.deflate(buffer));
+        deflater.end();
+        return Base64.getEncoder().encodeToString(out.toByteArray());
+    }
+}
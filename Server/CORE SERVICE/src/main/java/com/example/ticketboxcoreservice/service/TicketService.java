@@ -12,16 +12,22 @@ import com.example.ticketboxcoreservice.repository.EventRepository;
 import com.example.ticketboxcoreservice.repository.RelationshipRepository;
 import com.example.ticketboxcoreservice.repository.TicketRepository;
 import com.example.ticketboxcoreservice.repository.UserRepository;
+import com.example.ticketboxcoreservice.utils.KeysetPaging;
+import com.example.ticketboxcoreservice.utils.SingleFlight;
+import jakarta.annotation.PostConstruct;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -31,6 +37,25 @@ public class TicketService {
     private final UserRepository userRepository;
     private final EventRepository eventRepository;
     private final ModelMapper modelMapper;
+    private final TicketHoldService ticketHoldService;
+    private final InventoryService inventoryService;
+    private final SingleFlightRegistry singleFlightRegistry;
+    private final PlatformTransactionManager transactionManager;
+
+    private SingleFlight<EventTicketsQuery, CustomPage<TicketResponse>> ticketsByEventId;
+    private SingleFlight<Long, EventLowestPrice> lowestPriceByEventId;
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void init() {
+        // pages are shared by event and page position, whatever Pageable implementation the request was bound to
+        ticketsByEventId = singleFlightRegistry.register("tickets-by-event-id", query -> List.of(query.eventId(),
+                query.pageable().getPageNumber(), query.pageable().getPageSize(), query.pageable().getSort(),
+                query.sliced()));
+        lowestPriceByEventId = singleFlightRegistry.register("lowest-price-by-event-id", eventId -> eventId);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
 
     @Transactional
     public TicketResponse createTicket(Long creatorUserId, Long eventId, TicketRequest ticketRequest) {
@@ -52,10 +77,15 @@ public class TicketService {
                 () -> new ResourceNotFoundException("event", "event id", ticketId));
         if (!ticket.getEvent().getHost().getId().equals(creatorUserId)) throw new AppException(ErrorCode.ONLY_HOST_CAN_UPDATE_TICKET);
         if (!ticket.getEvent().getStatus().equals(Constants.TICKET_STATUS_PENDING)) throw new AppException(ErrorCode.ONLY_PENDING_TICKET_IS_UPDATABLE);
+        Long capacity = ticket.getCapacity();
         mapNotNullValuesFromTicketReq(ticketRequest, ticket);
         ticket.setUpdateDate(LocalDateTime.now());
         if (!ticket.validateSaleDate()) throw new AppException(ErrorCode.INVALID_TICKET_SALE_DATE);
-        return  modelMapper.map(ticketRepository.save(ticket), TicketResponse.class);
+        // written first, inventory backends lock s_ticket before their own rows
+        Ticket saved = ticketRepository.saveAndFlush(ticket);
+        if (!Objects.equals(saved.getCapacity(), capacity))
+            inventoryService.capacityChanged(ticketId, saved.getCapacity());
+        return  modelMapper.map(saved, TicketResponse.class);
     }
     @Transactional
     public MessageResponse approveTicket(Long approverUserId, Long ticketId) {
@@ -87,26 +117,43 @@ public class TicketService {
     public TicketResponse getTicketByTicketId(Long ticketId) {
         Ticket ticket = ticketRepository.findById(ticketId).orElseThrow(
                 () -> new ResourceNotFoundException("event", "event id", ticketId));
-        return modelMapper.map(ticket, TicketResponse.class);
+        return toTicketResponse(ticket);
     }
-    @Transactional
+    // hot on-sale reads, identical concurrent requests share one load (see SingleFlightRegistry)
     public CustomPage<TicketResponse> getTicketsByEventId(Long eventId, Pageable pageable) {
-        Page<Ticket> tickets = ticketRepository.findByEventId(eventId, pageable);
-        return CustomPage.<TicketResponse>builder()
-                .pageNo(tickets.getNumber()+1)
-                .pageSize(tickets.getSize())
-                .totalPages(tickets.getTotalPages())
-                .pageContent(tickets.getContent().stream().map(
-                        ticket -> modelMapper.map(ticket, TicketResponse.class)
-                ).collect(Collectors.toList())).build();
+        return singleFlightRegistry.execute(ticketsByEventId, new EventTicketsQuery(eventId, pageable, false),
+                query -> readOnlyTransaction.execute(status -> CustomPage.of(
+                        ticketRepository.findByEventId(query.eventId(), query.pageable()), this::toTicketResponse)));
+    }
+
+    // without COUNT(*), the page only tells whether another one follows
+    public CustomPage<TicketResponse> sliceTicketsByEventId(Long eventId, Pageable pageable) {
+        return singleFlightRegistry.execute(ticketsByEventId, new EventTicketsQuery(eventId, pageable, true),
+                query -> readOnlyTransaction.execute(status -> CustomPage.of(
+                        ticketRepository.findSliceByEventId(query.eventId(), query.pageable()),
+                        this::toTicketResponse)));
     }
+
     @Transactional
+    public CustomPage<TicketResponse> scrollTicketsByEventId(Long eventId, String cursor, int pageSize, Sort sort) {
+        return KeysetPaging.scroll(ticketRepository, TicketRepository.byEventId(eventId), cursor, pageSize, sort,
+                this::toTicketResponse);
+    }
+
     public EventLowestPrice getLowestTicketPriceByEventId(Long eventId) {
-        Double lowestPrice = ticketRepository.getLowestTicketPriceByEventId(eventId).get(0);
-        return EventLowestPrice.builder().lowestPrice(lowestPrice).build();
+        return singleFlightRegistry.execute(lowestPriceByEventId, eventId, id -> readOnlyTransaction.execute(status -> {
+            Double lowestPrice = ticketRepository.getLowestTicketPriceByEventId(id).get(0);
+            return EventLowestPrice.builder().lowestPrice(lowestPrice).build();
+        }));
     }
 
 
+    private TicketResponse toTicketResponse(Ticket ticket) {
+        TicketResponse ticketResponse = modelMapper.map(ticket, TicketResponse.class);
+        ticketResponse.setHeld(ticketHoldService.getHeld(ticket.getId()));
+        return ticketResponse;
+    }
+
     private Ticket mapNotNullValuesFromTicketReq(TicketRequest request, Ticket ticket) {
         // --- Map simple fields using Optional for a clean, null-safe check ---
         Optional.ofNullable(request.getType()).ifPresent(ticket::setType);
@@ -117,15 +164,7 @@ public class TicketService {
 
         return ticket;
     }
-}
-
-
-
-
-
-
-
-
-
-
 
+    private record EventTicketsQuery(Long eventId, Pageable pageable, boolean sliced) {
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.enumf.ErrorCode;
+import com.example.ticketboxcoreservice.exception.AppException;
+import com.example.ticketboxcoreservice.model.entity.OrderTicket;
+import com.example.ticketboxcoreservice.utils.CompactTicketCodec;
+import com.example.ticketboxcoreservice.utils.DynamicTicketCodec;
+import com.example.ticketboxcoreservice.utils.SignedTicketCodec;
+import com.example.ticketboxcoreservice.utils.TicketTokenClaims;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.io.Decoders;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.ZoneId;
+
+// Issues and verifies the tokens printed in ticket QR codes. New tickets get compact T1 tokens, or Ed25519 signed T2
+// tokens that scanners can check offline when app.ticket-token.signing is ed25519. Every format issued before,
+// JWT included, keeps verifying until its event is over. Rotating D1 codes are verified here as well.
+@Service
+@RequiredArgsConstructor
+public class TicketTokenService {
+    private final JwtService jwtService;
+    private final TicketKeyService ticketKeyService;
+
+    private CompactTicketCodec compactTicketCodec;
+    private DynamicTicketCodec dynamicTicketCodec;
+
+    @Value("${app.ticket-token.secret:${app.order-ticket-jwt-secret}}")
+    private String secret;
+    @Value("${app.ticket-token.signing:hmac}")
+    private String signing;
+    @Value("${app.dynamic-qr.secret:${app.ticket-token.secret:${app.order-ticket-jwt-secret}}}")
+    private String dynamicSecret;
+    @Getter
+    @Value("${app.dynamic-qr.step-seconds:30}")
+    private long stepSeconds;
+    // steps either side of the current one that still pass, covers clock skew between phones and the server
+    @Value("${app.dynamic-qr.window-steps:1}")
+    private int windowSteps;
+
+    @PostConstruct
+    public void init() {
+        compactTicketCodec = new CompactTicketCodec(Decoders.BASE64.decode(secret));
+        dynamicTicketCodec = new DynamicTicketCodec(Decoders.BASE64.decode(dynamicSecret));
+    }
+
+    // seed a client rotates its code with, code = HMAC-SHA256(seed, epochSeconds / stepSeconds)
+    public byte[] dynamicSeed(Long orderTicketId, Long eventId) {
+        return dynamicTicketCodec.seed(orderTicketId, eventId);
+    }
+
+    public String dynamicCode(Long orderTicketId, Long eventId) {
+        return dynamicTicketCodec.encode(orderTicketId, eventId, currentStep());
+    }
+
+    public long currentStep() {
+        return System.currentTimeMillis() / 1000 / stepSeconds;
+    }
+
+    public String issue(OrderTicket orderTicket) {
+        long expiresAtSeconds = orderTicket.getTicket().getEvent().getEndDate()
+                .atZone(ZoneId.systemDefault()).toEpochSecond();
+        if ("ed25519".equals(signing))
+            return SignedTicketCodec.encode(orderTicket.getId(), orderTicket.getTicket().getEvent().getId(),
+                    expiresAtSeconds, ticketKeyService.getActiveKeyId(), ticketKeyService.getActivePrivateKey());
+        return compactTicketCodec.encode(orderTicket.getId(), orderTicket.getTicket().getEvent().getId(),
+                expiresAtSeconds);
+    }
+
+    // fills the given claims and returns them, so the scan path can reuse one instance per thread
+    public TicketTokenClaims verify(String token, TicketTokenClaims ticketTokenClaims) {
+        ticketTokenClaims.setDynamic(false);
+        if (DynamicTicketCodec.isDynamic(token)) {
+            // a code from a step outside the window and a forged one fail the same MAC check
+            if (!dynamicTicketCodec.decode(token, currentStep(), windowSteps, stepSeconds, ticketTokenClaims))
+                throw new AppException(ErrorCode.ORDER_TICKET_TOKEN_INVALID);
+            return ticketTokenClaims;
+        }
+        if (CompactTicketCodec.isCompact(token) || SignedTicketCodec.isSigned(token)) {
+            boolean valid = CompactTicketCodec.isCompact(token)
+                    ? compactTicketCodec.decode(token, ticketTokenClaims)
+                    : SignedTicketCodec.decode(token, ticketTokenClaims, ticketKeyService::getPublicKey);
+            if (!valid)
+                throw new AppException(ErrorCode.ORDER_TICKET_TOKEN_INVALID);
+            if (ticketTokenClaims.getExpiresAtSeconds() * 1000 < System.currentTimeMillis())
+                throw new AppException(ErrorCode.ORDER_TICKET_EXPIRED);
+            return ticketTokenClaims;
+        }
+        Claims claims;
+        try {
+            claims = jwtService.extractAllClaimsFromOrderTicketToken(token);
+        } catch (ExpiredJwtException exception) {
+            throw new AppException(ErrorCode.ORDER_TICKET_EXPIRED);
+        } catch (JwtException | IllegalArgumentException exception) {
+            throw new AppException(ErrorCode.ORDER_TICKET_TOKEN_INVALID);
+        }
+        Long orderTicketId = claims.get("orderTicketId", Long.class);
+        Long eventId = claims.get("eventId", Long.class);
+        if (orderTicketId == null) throw new AppException(ErrorCode.ORDER_TICKET_TOKEN_INVALID);
+        ticketTokenClaims.setOrderTicketId(orderTicketId);
+        ticketTokenClaims.setEventId(eventId == null ? 0 : eventId);
+        ticketTokenClaims.setExpiresAtSeconds(claims.getExpiration().getTime() / 1000);
+        return ticketTokenClaims;
+    }
+}
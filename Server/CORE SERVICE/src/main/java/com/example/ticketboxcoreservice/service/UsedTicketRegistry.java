@@ -0,0 +1,60 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.enumf.Constants;
+import com.example.ticketboxcoreservice.repository.OrderTicketRepository;
+import com.example.ticketboxcoreservice.utils.ConcurrentBitSet;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per-event set of order ticket ids that have already been scanned, so replayed codes are rejected without a
+// query. The set only ever answers "used"; the conditional update in the database stays the source of truth.
+@Service
+@RequiredArgsConstructor
+public class UsedTicketRegistry {
+    private final OrderTicketRepository orderTicketRepository;
+
+    private final Map<Long, ConcurrentBitSet> usedByEventId = new ConcurrentHashMap<>();
+
+    public boolean isUsed(Long eventId, Long orderTicketId) {
+        if (eventId == null) return false;
+        ConcurrentBitSet used = usedByEventId.get(eventId);
+        if (used == null) used = load(eventId);
+        return used.get(orderTicketId);
+    }
+
+    public void markUsed(Long eventId, Long orderTicketId) {
+        if (eventId == null) return;
+        // an event that is not loaded yet picks the id up from the database when it is
+        ConcurrentBitSet used = usedByEventId.get(eventId);
+        if (used != null) used.set(orderTicketId);
+    }
+
+    // a rolled back scan must not leave the ticket marked as used
+    public void markUsedAfterCommit(Long eventId, Long orderTicketId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            markUsed(eventId, orderTicketId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                markUsed(eventId, orderTicketId);
+            }
+        });
+    }
+
+    private ConcurrentBitSet load(Long eventId) {
+        ConcurrentBitSet used = new ConcurrentBitSet();
+        for (Long orderTicketId : orderTicketRepository.findIdsByEventIdAndStatus(eventId,
+                Constants.ORDER_TICKET_STATUS_USED)) {
+            used.set(orderTicketId);
+        }
+        ConcurrentBitSet existing = usedByEventId.putIfAbsent(eventId, used);
+        return existing != null ? existing : used;
+    }
+}
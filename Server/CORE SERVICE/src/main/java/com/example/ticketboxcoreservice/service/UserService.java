@@ -16,10 +16,14 @@ import com.example.ticketboxcoreservice.model.entity.Role;
 import com.example.ticketboxcoreservice.model.entity.User;
 import com.example.ticketboxcoreservice.repository.RoleRepository;
 import com.example.ticketboxcoreservice.repository.UserRepository;
+import com.example.ticketboxcoreservice.utils.KeysetPaging;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -52,6 +56,12 @@ public class UserService {
 
     }
 
+    @Transactional
+    public CustomPage<UserResponse> scrollAllUsers(String cursor, int pageSize, Sort sort) {
+        return KeysetPaging.scroll(userRepository, Specification.unrestricted(), cursor, pageSize, sort,
+                user -> modelMapper.map(user, UserResponse.class));
+    }
+
     public UserResponse updateUserProfile(Long userId, UserProfileRequest request) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User", "id", userId));
@@ -0,0 +1,57 @@
+package com.example.ticketboxcoreservice.utils;
+
+import java.util.Arrays;
+
+// RFC 4648 Base32 without padding, upper-case only so encoded tokens stay in the QR alphanumeric set.
+// Both directions work on caller-owned arrays.
+public final class Base32 {
+    private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ234567".toCharArray();
+    private static final byte[] DECODE = new byte[128];
+
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) DECODE[ALPHABET[i]] = (byte) i;
+    }
+
+    private Base32() {
+    }
+
+    public static int encodedLength(int byteCount) {
+        return (byteCount * 8 + 4) / 5;
+    }
+
+    public static void encode(byte[] bytes, int byteCount, char[] out, int outOffset) {
+        int position = outOffset;
+        int buffer = 0;
+        int bits = 0;
+        for (int i = 0; i < byteCount; i++) {
+            buffer = (buffer << 8) | (bytes[i] & 0xff);
+            bits += 8;
+            while (bits >= 5) {
+                out[position++] = ALPHABET[(buffer >>> (bits - 5)) & 31];
+                bits -= 5;
+            }
+        }
+        if (bits > 0) out[position] = ALPHABET[(buffer << (5 - bits)) & 31];
+    }
+
+    // decodes in[from, in.length()) into out, false on a character outside the alphabet
+    public static boolean decode(CharSequence in, int from, byte[] out) {
+        int index = 0;
+        int buffer = 0;
+        int bits = 0;
+        for (int i = from; i < in.length(); i++) {
+            char c = in.charAt(i);
+            int value = c < DECODE.length ? DECODE[c] : -1;
+            if (value < 0) return false;
+            buffer = (buffer << 5) | value;
+            bits += 5;
+            if (bits >= 8) {
+                if (index == out.length) return false;
+                out[index++] = (byte) (buffer >>> (bits - 8));
+                bits -= 8;
+            }
+        }
+        return index == out.length;
+    }
+}
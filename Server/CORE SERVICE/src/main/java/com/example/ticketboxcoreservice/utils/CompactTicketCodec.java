@@ -0,0 +1,121 @@
+package com.example.ticketboxcoreservice.utils;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+// Fixed-width ticket token: "T1" followed by 40 Base32 characters encoding 25 bytes, a 48-bit order ticket id, a
+// 32-bit event id, a 32-bit expiry in epoch seconds and the first 88 bits of an HMAC-SHA256 over those 14 bytes.
+// Decoding and verification work on per-thread buffers and a hand-rolled HMAC over MessageDigest, so a verify
+// allocates nothing.
+public class CompactTicketCodec {
+    public static final String PREFIX = "T1";
+    static final int PAYLOAD_BYTES = 14;
+    private static final int MAC_BYTES = 11;
+    private static final int TOKEN_BYTES = PAYLOAD_BYTES + MAC_BYTES;
+    private static final int TOKEN_LENGTH = PREFIX.length() + Base32.encodedLength(TOKEN_BYTES);
+    private static final int BLOCK_SIZE = 64;
+
+    private final byte[] innerPad = new byte[BLOCK_SIZE];
+    private final byte[] outerPad = new byte[BLOCK_SIZE];
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    public CompactTicketCodec(byte[] key) {
+        byte[] blockKey = key;
+        if (key.length > BLOCK_SIZE) blockKey = Scratch.sha256().digest(key);
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            byte keyByte = i < blockKey.length ? blockKey[i] : 0;
+            innerPad[i] = (byte) (keyByte ^ 0x36);
+            outerPad[i] = (byte) (keyByte ^ 0x5c);
+        }
+    }
+
+    public static boolean isCompact(CharSequence token) {
+        return token.length() == TOKEN_LENGTH && token.charAt(0) == PREFIX.charAt(0)
+                && token.charAt(1) == PREFIX.charAt(1);
+    }
+
+    public String encode(long orderTicketId, long eventId, long expiresAtSeconds) {
+        Scratch buffers = scratch.get();
+        byte[] bytes = buffers.token;
+        writePayload(bytes, orderTicketId, eventId, expiresAtSeconds);
+        sign(buffers, bytes);
+        System.arraycopy(buffers.mac, 0, bytes, PAYLOAD_BYTES, MAC_BYTES);
+
+        char[] chars = new char[TOKEN_LENGTH];
+        PREFIX.getChars(0, PREFIX.length(), chars, 0);
+        Base32.encode(bytes, TOKEN_BYTES, chars, PREFIX.length());
+        return new String(chars);
+    }
+
+    // false when the token is malformed or its signature does not match, expiry is left to the caller
+    public boolean decode(CharSequence token, TicketTokenClaims claims) {
+        if (!isCompact(token)) return false;
+        Scratch buffers = scratch.get();
+        byte[] bytes = buffers.token;
+        if (!Base32.decode(token, PREFIX.length(), bytes)) return false;
+        sign(buffers, bytes);
+        int difference = 0;
+        for (int i = 0; i < MAC_BYTES; i++) difference |= buffers.mac[i] ^ bytes[PAYLOAD_BYTES + i];
+        if (difference != 0) return false;
+        readPayload(bytes, claims);
+        return true;
+    }
+
+    // HMAC-SHA256(key, payload) = H(outerPad || H(innerPad || payload)), written into buffers.mac
+    private void sign(Scratch buffers, byte[] payload) {
+        MessageDigest digest = buffers.digest;
+        try {
+            digest.update(innerPad);
+            digest.update(payload, 0, PAYLOAD_BYTES);
+            digest.digest(buffers.mac, 0, buffers.mac.length);
+            digest.update(outerPad);
+            digest.update(buffers.mac, 0, buffers.mac.length);
+            digest.digest(buffers.mac, 0, buffers.mac.length);
+        } catch (DigestException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    // the 14-byte payload shared by every binary token format
+    static void writePayload(byte[] bytes, long orderTicketId, long eventId, long expiresAtSeconds) {
+        if (orderTicketId >>> 48 != 0 || eventId >>> 32 != 0 || expiresAtSeconds >>> 32 != 0)
+            throw new IllegalArgumentException("Ticket token field out of range");
+        writeBytes(bytes, 0, orderTicketId, 6);
+        writeBytes(bytes, 6, eventId, 4);
+        writeBytes(bytes, 10, expiresAtSeconds, 4);
+    }
+
+    static void readPayload(byte[] bytes, TicketTokenClaims claims) {
+        claims.setOrderTicketId(readBytes(bytes, 0, 6));
+        claims.setEventId(readBytes(bytes, 6, 4));
+        claims.setExpiresAtSeconds(readBytes(bytes, 10, 4));
+    }
+
+    static void writeBytes(byte[] bytes, int offset, long value, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            bytes[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    static long readBytes(byte[] bytes, int offset, int length) {
+        long value = 0;
+        for (int i = 0; i < length; i++) value = (value << 8) | (bytes[offset + i] & 0xff);
+        return value;
+    }
+
+    private static class Scratch {
+        private final MessageDigest digest = sha256();
+        private final byte[] token = new byte[TOKEN_BYTES];
+        private final byte[] mac = new byte[32];
+
+        private static MessageDigest sha256() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException exception) {
+                throw new IllegalStateException(exception);
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.ticketboxcoreservice.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+// Immutable path-compressed trie answering "the most popular completions starting with this prefix". Keys are kept
+// sorted in one array and a node only records how deep its shared prefix goes and one key that carries it, so edge
+// labels cost nothing. Every node holds its best completions precomputed, so a lookup is a walk down the prefix and
+// a copy of at most maxResults ids. Nothing changes once built, any number of threads read it without locking and a
+// rebuilt trie replaces it as a whole.
+public final class CompletionTrie<T> {
+    private static final int[] NONE = new int[0];
+
+    private final List<T> completions;
+    private final String[] keys;
+    private final Node root;
+
+    private CompletionTrie(List<T> completions, String[] keys, Node root) {
+        this.completions = completions;
+        this.keys = keys;
+        this.root = root;
+    }
+
+    public static <T> CompletionTrie<T> empty() {
+        return new CompletionTrie<>(List.of(), new String[0], null);
+    }
+
+    // best first, by weight then by the order the completions were added
+    public List<T> complete(String prefix, int limit) {
+        Node node = root;
+        int position = 0;
+        while (node != null) {
+            String key = keys[node.keyIndex];
+            for (; position < prefix.length() && position < node.depth; position++) {
+                if (key.charAt(position) != prefix.charAt(position)) return List.of();
+            }
+            if (position == prefix.length()) {
+                List<T> results = new ArrayList<>(Math.min(limit, node.top.length));
+                for (int i = 0; i < node.top.length && i < limit; i++) results.add(completions.get(node.top[i]));
+                return results;
+            }
+            int child = Arrays.binarySearch(node.childChars, prefix.charAt(position));
+            node = child < 0 ? null : node.children[child];
+        }
+        return List.of();
+    }
+
+    public int size() {
+        return completions.size();
+    }
+
+    public int keyCount() {
+        return keys.length;
+    }
+
+    public static final class Builder<T> {
+        private final int maxResults;
+        private final List<T> completions = new ArrayList<>();
+        private final List<Long> weights = new ArrayList<>();
+        private final List<Key> keys = new ArrayList<>();
+
+        public Builder(int maxResults) {
+            this.maxResults = maxResults;
+        }
+
+        // a completion can be reached through several keys, e.g. from each word of a name, and is returned once
+        public Builder<T> add(T completion, long weight, Iterable<String> completionKeys) {
+            int id = completions.size();
+            completions.add(completion);
+            weights.add(weight);
+            for (String key : completionKeys) keys.add(new Key(key, id));
+            return this;
+        }
+
+        public CompletionTrie<T> build() {
+            long[] weightArray = weights.stream().mapToLong(Long::longValue).toArray();
+            keys.sort(Comparator.comparing(Key::text).thenComparingInt(Key::completion));
+            String[] keyTexts = new String[keys.size()];
+            int[] keyCompletions = new int[keys.size()];
+            for (int i = 0; i < keyTexts.length; i++) {
+                keyTexts[i] = keys.get(i).text();
+                keyCompletions[i] = keys.get(i).completion();
+            }
+            Node root = keyTexts.length == 0 ? null
+                    : new NodeBuilder(keyTexts, keyCompletions, weightArray, maxResults).build(0, keyTexts.length, 0);
+            return new CompletionTrie<>(List.copyOf(completions), keyTexts, root);
+        }
+    }
+
+    private record Key(String text, int completion) {
+    }
+
+    private static final class Node {
+        // length of the prefix shared by every key below, read from keys[keyIndex]
+        private final int depth;
+        private final int keyIndex;
+        private final char[] childChars;
+        private final Node[] children;
+        private final int[] top;
+
+        private Node(int depth, int keyIndex, char[] childChars, Node[] children, int[] top) {
+            this.depth = depth;
+            this.keyIndex = keyIndex;
+            this.childChars = childChars;
+            this.children = children;
+            this.top = top;
+        }
+    }
+
+    private record NodeBuilder(String[] keys, int[] keyCompletions, long[] weights, int maxResults) {
+        // keys[from, to) are sorted and share their first depth characters
+        private Node build(int from, int to, int depth) {
+            String first = keys[from];
+            String last = keys[to - 1];
+            int end = depth;
+            while (end < first.length() && end < last.length() && first.charAt(end) == last.charAt(end)) end++;
+
+            int[] candidates = new int[Math.min(to - from, 16)];
+            int candidateCount = 0;
+            int index = from;
+            // keys ending exactly here sort first
+            for (; index < to && keys[index].length() == end; index++) {
+                if (candidateCount == candidates.length) candidates = Arrays.copyOf(candidates, candidateCount * 2);
+                candidates[candidateCount++] = keyCompletions[index];
+            }
+            List<Character> childChars = new ArrayList<>();
+            List<Node> children = new ArrayList<>();
+            while (index < to) {
+                char c = keys[index].charAt(end);
+                int groupEnd = index;
+                while (groupEnd < to && keys[groupEnd].charAt(end) == c) groupEnd++;
+                Node child = build(index, groupEnd, end + 1);
+                childChars.add(c);
+                children.add(child);
+                if (candidateCount + child.top.length > candidates.length) {
+                    candidates = Arrays.copyOf(candidates, Math.max(candidates.length * 2,
+                            candidateCount + child.top.length));
+                }
+                System.arraycopy(child.top, 0, candidates, candidateCount, child.top.length);
+                candidateCount += child.top.length;
+                index = groupEnd;
+            }
+            char[] chars = new char[childChars.size()];
+            for (int i = 0; i < chars.length; i++) chars[i] = childChars.get(i);
+            return new Node(end, from, chars, children.toArray(Node[]::new), top(candidates, candidateCount));
+        }
+
+        // selection of the best maxResults distinct ids, a node rarely has more than a few dozen candidates
+        private int[] top(int[] candidates, int count) {
+            if (count == 0) return NONE;
+            int[] top = new int[Math.min(count, maxResults)];
+            int size = 0;
+            while (size < top.length) {
+                int best = -1;
+                for (int i = 0; i < count; i++) {
+                    int completion = candidates[i];
+                    if (completion >= 0 && (best < 0 || better(completion, best))) best = completion;
+                }
+                if (best < 0) break;
+                top[size++] = best;
+                // taken, along with every other key of the same completion
+                for (int i = 0; i < count; i++) if (candidates[i] == best) candidates[i] = -1;
+            }
+            return size == top.length ? top : Arrays.copyOf(top, size);
+        }
+
+        private boolean better(int completion, int other) {
+            return weights[completion] > weights[other]
+                    || (weights[completion] == weights[other] && completion < other);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.ticketboxcoreservice.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Grow-only bit set for non-negative ids that is safe for concurrent readers and writers. Bits live in fixed-size
+// pages created on first write, so a set holding one clustered id range only costs the pages that range touches.
+public class ConcurrentBitSet {
+    private static final int PAGE_SHIFT = 12;
+    private static final int WORDS_PER_PAGE = (1 << PAGE_SHIFT) / Long.SIZE;
+
+    private final Map<Long, AtomicLongArray> pages = new ConcurrentHashMap<>();
+
+    public boolean get(long index) {
+        AtomicLongArray page = pages.get(index >>> PAGE_SHIFT);
+        return page != null && (page.get(wordIndex(index)) & bit(index)) != 0;
+    }
+
+    // true when this call flipped the bit, false when it was already set
+    public boolean set(long index) {
+        AtomicLongArray page = pages.computeIfAbsent(index >>> PAGE_SHIFT, key -> new AtomicLongArray(WORDS_PER_PAGE));
+        long mask = bit(index);
+        int wordIndex = wordIndex(index);
+        long word;
+        do {
+            word = page.get(wordIndex);
+            if ((word & mask) != 0) return false;
+        } while (!page.compareAndSet(wordIndex, word, word | mask));
+        return true;
+    }
+
+    public long cardinality() {
+        long count = 0;
+        for (AtomicLongArray page : pages.values()) {
+            for (int i = 0; i < page.length(); i++) count += Long.bitCount(page.get(i));
+        }
+        return count;
+    }
+
+    private static int wordIndex(long index) {
+        return (int) ((index >>> 6) & (WORDS_PER_PAGE - 1));
+    }
+
+    private static long bit(long index) {
+        return 1L << (index & 63);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.ticketboxcoreservice.utils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+
+// Rotating ticket codes: "D1" followed by 26 Base32 characters encoding a 48-bit order ticket id, a 32-bit event id
+// and the first 48 bits of HMAC-SHA256(seed, time step). The per-ticket seed is itself an HMAC of the order ticket
+// id and event id under the server key, so the server re-derives it from the code and never has to store or look it
+// up, and a code whose event id was changed no longer matches its MAC.
+public class DynamicTicketCodec {
+    public static final String PREFIX = "D1";
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int SEED_BYTES = 20;
+    private static final int CODE_BYTES = 16;
+    private static final int TOTP_BYTES = 6;
+    private static final int TOKEN_LENGTH = PREFIX.length() + Base32.encodedLength(CODE_BYTES);
+
+    private final ThreadLocal<Mac> seedMac;
+    private final ThreadLocal<Mac> stepMac = ThreadLocal.withInitial(DynamicTicketCodec::newMac);
+    private final ThreadLocal<byte[]> buffer = ThreadLocal.withInitial(() -> new byte[CODE_BYTES]);
+
+    public DynamicTicketCodec(byte[] key) {
+        SecretKeySpec keySpec = new SecretKeySpec(key, ALGORITHM);
+        seedMac = ThreadLocal.withInitial(() -> {
+            Mac mac = newMac();
+            try {
+                mac.init(keySpec);
+            } catch (GeneralSecurityException exception) {
+                throw new IllegalStateException(exception);
+            }
+            return mac;
+        });
+    }
+
+    public static boolean isDynamic(CharSequence token) {
+        return token.length() == TOKEN_LENGTH && token.charAt(0) == PREFIX.charAt(0)
+                && token.charAt(1) == PREFIX.charAt(1);
+    }
+
+    public byte[] seed(long orderTicketId, long eventId) {
+        Mac mac = seedMac.get();
+        mac.update(PREFIX.getBytes(StandardCharsets.US_ASCII));
+        for (int shift = 56; shift >= 0; shift -= 8) mac.update((byte) (orderTicketId >>> shift));
+        for (int shift = 56; shift >= 0; shift -= 8) mac.update((byte) (eventId >>> shift));
+        byte[] seed = new byte[SEED_BYTES];
+        System.arraycopy(mac.doFinal(), 0, seed, 0, SEED_BYTES);
+        return seed;
+    }
+
+    public String encode(long orderTicketId, long eventId, long step) {
+        byte[] bytes = buffer.get();
+        if (orderTicketId >>> 48 != 0 || eventId >>> 32 != 0)
+            throw new IllegalArgumentException("Ticket code field out of range");
+        CompactTicketCodec.writeBytes(bytes, 0, orderTicketId, 6);
+        CompactTicketCodec.writeBytes(bytes, 6, eventId, 4);
+        System.arraycopy(totp(seed(orderTicketId, eventId), step), 0, bytes, 10, TOTP_BYTES);
+        char[] chars = new char[TOKEN_LENGTH];
+        PREFIX.getChars(0, PREFIX.length(), chars, 0);
+        Base32.encode(bytes, CODE_BYTES, chars, PREFIX.length());
+        return new String(chars);
+    }
+
+    // accepts codes of the steps currentStep - window .. currentStep + window, the step that matched goes into
+    // claims as the code's expiry
+    public boolean decode(CharSequence token, long currentStep, int window, long stepSeconds,
+                          TicketTokenClaims claims) {
+        if (!isDynamic(token)) return false;
+        byte[] bytes = buffer.get();
+        if (!Base32.decode(token, PREFIX.length(), bytes)) return false;
+        long orderTicketId = CompactTicketCodec.readBytes(bytes, 0, 6);
+        long eventId = CompactTicketCodec.readBytes(bytes, 6, 4);
+        byte[] seed = seed(orderTicketId, eventId);
+        for (long step = currentStep - window; step <= currentStep + window; step++) {
+            byte[] expected = totp(seed, step);
+            int difference = 0;
+            for (int i = 0; i < TOTP_BYTES; i++) difference |= expected[i] ^ bytes[10 + i];
+            if (difference == 0) {
+                claims.setOrderTicketId(orderTicketId);
+                claims.setEventId(eventId);
+                claims.setExpiresAtSeconds((step + window + 1) * stepSeconds);
+                claims.setDynamic(true);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // HMAC-SHA256(seed, big-endian step), what a client computes from the seed it was handed
+    private byte[] totp(byte[] seed, long step) {
+        Mac mac = stepMac.get();
+        try {
+            mac.init(new SecretKeySpec(seed, ALGORITHM));
+        } catch (GeneralSecurityException exception) {
+            throw new IllegalStateException(exception);
+        }
+        for (int shift = 56; shift >= 0; shift -= 8) mac.update((byte) (step >>> shift));
+        return mac.doFinal();
+    }
+
+    private static Mac newMac() {
+        try {
+            return Mac.getInstance(ALGORITHM);
+        } catch (GeneralSecurityException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.ticketboxcoreservice.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+// Hierarchical timing wheel: scheduling and cancelling are O(1) list operations on a bucket, every level is
+// wheelSize times coarser than the one below and entries cascade down as the clock reaches their bucket.
+// Only non-empty buckets are queued, so the driver never walks empty ticks.
+public class HierarchicalTimingWheel<T> {
+    private final PriorityQueue<Bucket> queue = new PriorityQueue<>((a, b) -> Long.compare(a.expiration, b.expiration));
+    private final Bucket overdue = new Bucket();
+    private final Level root;
+    private int size;
+
+    public HierarchicalTimingWheel(long tickMs, int wheelSize, long startMs) {
+        this.root = new Level(tickMs, wheelSize, startMs);
+    }
+
+    public synchronized Timeout schedule(T payload, long expirationMs) {
+        Entry entry = new Entry(payload, expirationMs);
+        if (!root.add(entry)) overdue.add(entry);
+        size++;
+        return entry;
+    }
+
+    public synchronized boolean cancel(Timeout timeout) {
+        Entry entry = (Entry) timeout;
+        if (entry.bucket == null) return false;
+        entry.bucket.remove(entry);
+        size--;
+        return true;
+    }
+
+    // fires every entry due at nowMs, callbacks run outside of the wheel lock
+    public void advance(long nowMs, Consumer<T> onExpire) {
+        List<T> expired = new ArrayList<>();
+        synchronized (this) {
+            for (Entry entry : overdue.drain()) {
+                size--;
+                expired.add(entry.payload);
+            }
+            Bucket bucket;
+            while ((bucket = queue.peek()) != null && bucket.expiration <= nowMs) {
+                queue.poll();
+                root.advanceClock(bucket.expiration);
+                for (Entry entry : bucket.drain()) {
+                    if (!root.add(entry)) {
+                        size--;
+                        expired.add(entry.payload);
+                    }
+                }
+            }
+            root.advanceClock(nowMs);
+        }
+        expired.forEach(onExpire);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public interface Timeout {
+        long getExpirationMs();
+    }
+
+    private class Entry implements Timeout {
+        private final T payload;
+        private final long expirationMs;
+        private Entry prev;
+        private Entry next;
+        private Bucket bucket;
+
+        private Entry(T payload, long expirationMs) {
+            this.payload = payload;
+            this.expirationMs = expirationMs;
+        }
+
+        @Override
+        public long getExpirationMs() {
+            return expirationMs;
+        }
+    }
+
+    private class Bucket {
+        private final Entry head = new Entry(null, -1);
+        private long expiration = -1;
+
+        private Bucket() {
+            head.prev = head;
+            head.next = head;
+        }
+
+        private void add(Entry entry) {
+            entry.bucket = this;
+            entry.prev = head.prev;
+            entry.next = head;
+            head.prev.next = entry;
+            head.prev = entry;
+        }
+
+        private void remove(Entry entry) {
+            entry.prev.next = entry.next;
+            entry.next.prev = entry.prev;
+            entry.prev = null;
+            entry.next = null;
+            entry.bucket = null;
+        }
+
+        private List<Entry> drain() {
+            List<Entry> entries = new ArrayList<>();
+            while (head.next != head) {
+                Entry entry = head.next;
+                remove(entry);
+                entries.add(entry);
+            }
+            expiration = -1;
+            return entries;
+        }
+    }
+
+    private class Level {
+        private final long tickMs;
+        private final int wheelSize;
+        private final long interval;
+        private final List<Bucket> buckets;
+        private long currentTime;
+        private Level overflow;
+
+        private Level(long tickMs, int wheelSize, long startMs) {
+            this.tickMs = tickMs;
+            this.wheelSize = wheelSize;
+            this.interval = tickMs * wheelSize;
+            this.currentTime = startMs - (startMs % tickMs);
+            this.buckets = new ArrayList<>(wheelSize);
+            for (int i = 0; i < wheelSize; i++) buckets.add(new Bucket());
+        }
+
+        // false when the entry is already due at this level's resolution
+        private boolean add(Entry entry) {
+            if (entry.expirationMs < currentTime + tickMs) return false;
+            if (entry.expirationMs < currentTime + interval) {
+                long virtualId = entry.expirationMs / tickMs;
+                Bucket bucket = buckets.get((int) (virtualId % wheelSize));
+                bucket.add(entry);
+                long bucketExpiration = virtualId * tickMs;
+                // a bucket only changes expiration after it has been drained, i.e. when it is not queued
+                if (bucket.expiration != bucketExpiration) {
+                    bucket.expiration = bucketExpiration;
+                    queue.offer(bucket);
+                }
+                return true;
+            }
+            if (overflow == null) overflow = new Level(interval, wheelSize, currentTime);
+            return overflow.add(entry);
+        }
+
+        private void advanceClock(long timeMs) {
+            if (timeMs >= currentTime + tickMs) {
+                currentTime = timeMs - (timeMs % tickMs);
+                if (overflow != null) overflow.advanceClock(currentTime);
+            }
+        }
+    }
+}
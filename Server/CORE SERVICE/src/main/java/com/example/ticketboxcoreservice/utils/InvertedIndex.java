@@ -0,0 +1,453 @@
+package com.example.ticketboxcoreservice.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Inverted index ranking documents with BM25 (k1 1.2, b 0.75). A document is a bag of terms with weighted
+// frequencies, so a caller can count a term in a title more than in an address. Documents get increasing ordinals and
+// each posting list is kept sorted by ordinal, so a query walks the list of its rarest term and probes the others
+// with galloping search, scoring one document at a time without a per-document score array. Replacing or removing a
+// document only marks its ordinal deleted; the lists are compacted once a quarter of the ordinals are dead, until
+// then document frequencies still count them. Built with maxEdits above zero it also keeps its terms in a
+// SymmetricDeleteDictionary, so a query word can match the terms a few typos away. The last word of a query also
+// matches the longer terms it begins, as the user may still be typing it.
+public class InvertedIndex {
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int MIN_COMPACTION = 1024;
+    // a shorter last word would begin too many terms, and only the first few in order are expanded
+    private static final int MIN_PREFIX_LENGTH = 3;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    private static final float PREFIX_BOOST = 0.5f;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> postings = new HashMap<>();
+    // the keys of postings in order, for prefix lookups
+    private final NavigableSet<String> sortedTerms = new TreeSet<>();
+    private final SymmetricDeleteDictionary dictionary;
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private long[] ids = new long[1024];
+    private float[] lengths = new float[1024];
+    private int size;
+    private int deletedCount;
+    private double totalLength;
+
+    public InvertedIndex() {
+        this(0);
+    }
+
+    public InvertedIndex(int maxEdits) {
+        this.dictionary = maxEdits > 0 ? new SymmetricDeleteDictionary(maxEdits) : null;
+    }
+
+    // replaces whatever was indexed under id, an empty bag just removes it
+    public void put(long id, Map<String, Float> terms) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            if (terms.isEmpty()) return;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+            }
+            int ordinal = size++;
+            float length = 0;
+            for (Map.Entry<String, Float> term : terms.entrySet()) {
+                postings.computeIfAbsent(term.getKey(), key -> {
+                    sortedTerms.add(key);
+                    if (dictionary != null) dictionary.add(key);
+                    return new Postings();
+                }).add(ordinal, term.getValue());
+                length += term.getValue();
+            }
+            ids[ordinal] = id;
+            lengths[ordinal] = length;
+            totalLength += length;
+            ordinals.put(id, ordinal);
+            if (deletedCount > MIN_COMPACTION && deletedCount * 4 > size) compact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // documents containing every one of the terms, best first and ties broken by the earlier indexed document; words
+    // match whole terms, or the start of one for the last word, never the middle of a term as LIKE '%...%' did
+    public Hits search(Collection<String> terms, int offset, int limit) {
+        return search(terms, 0, offset, limit);
+    }
+
+    // as above, but a term also matches the indexed terms up to maxEdits typos away (insertions, deletions,
+    // substitutions, adjacent swaps), scoring lower the further they are; short words are allowed fewer typos
+    public Hits search(Collection<String> terms, int maxEdits, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            int live = size - deletedCount;
+            List<TermMatches> groups = new ArrayList<>();
+            List<String> words = new ArrayList<>(new LinkedHashSet<>(terms));
+            for (int w = 0; w < words.size(); w++) {
+                String word = words.get(w);
+                boolean prefix = w == words.size() - 1;
+                TermMatches matches = dictionary == null || maxEdits == 0 ? exactMatches(word, prefix)
+                        : fuzzyMatches(word, Math.min(maxEdits, allowedEdits(word)), prefix);
+                if (matches == null) return new Hits(0, new long[0], new float[0]);
+                groups.add(matches);
+            }
+            if (groups.isEmpty() || limit <= 0) return new Hits(0, new long[0], new float[0]);
+            // the rarest term drives the walk, the other lists are only probed at its documents
+            groups.sort(Comparator.comparingInt(group -> group.size));
+            float[] idfs = new float[groups.size()];
+            for (int i = 0; i < idfs.length; i++) {
+                // for a term with typos the summed list sizes, an upper bound of the documents matching it
+                int documentFrequency = Math.min(groups.get(i).size, live);
+                idfs[i] = (float) Math.log(1 + (live - documentFrequency + 0.5) / (documentFrequency + 0.5));
+            }
+            float averageLength = (float) (totalLength / live);
+            TopScores top = new TopScores(offset + limit);
+            float[] frequencies = new float[groups.size()];
+            Postings driver = groups.get(0).union();
+            long total = 0;
+            candidates:
+            for (int d = 0; d < driver.size; d++) {
+                int ordinal = driver.ordinals[d];
+                if (deleted.get(ordinal)) continue;
+                frequencies[0] = driver.frequencies[d];
+                for (int i = 1; i < frequencies.length; i++) {
+                    frequencies[i] = groups.get(i).probe(ordinal);
+                    if (frequencies[i] < 0) break candidates;
+                    if (frequencies[i] == 0) continue candidates;
+                }
+                float norm = K1 * (1 - B + B * lengths[ordinal] / averageLength);
+                float score = 0;
+                for (int i = 0; i < frequencies.length; i++) {
+                    score += idfs[i] * frequencies[i] * (K1 + 1) / (frequencies[i] + norm);
+                }
+                total++;
+                top.offer(ordinal, score);
+            }
+            return top.hits(total, offset, ids);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private TermMatches exactMatches(String word, boolean prefix) {
+        Map<String, Float> boosts = new LinkedHashMap<>();
+        boosts.put(word, 1f);
+        if (prefix) addPrefixMatches(word, boosts);
+        return termMatches(boosts);
+    }
+
+    // the lists of every term matching the word
+    private TermMatches fuzzyMatches(String word, int edits, boolean prefix) {
+        Map<String, Float> boosts = new LinkedHashMap<>();
+        // an exact match counts fully, one typo half, two a third
+        dictionary.lookup(word, edits).forEach((term, distance) -> boosts.put(term, 1f / (1 + distance)));
+        if (prefix) addPrefixMatches(word, boosts);
+        return termMatches(boosts);
+    }
+
+    // a term the word only begins counts like one typo
+    private void addPrefixMatches(String word, Map<String, Float> boosts) {
+        if (word.length() < MIN_PREFIX_LENGTH) return;
+        int expanded = 0;
+        for (String term : sortedTerms.subSet(word, false, word + Character.MAX_VALUE, false)) {
+            if (expanded++ == MAX_PREFIX_EXPANSIONS) break;
+            boosts.putIfAbsent(term, PREFIX_BOOST);
+        }
+    }
+
+    private TermMatches termMatches(Map<String, Float> boosts) {
+        List<Postings> lists = new ArrayList<>(boosts.size());
+        float[] listBoosts = new float[boosts.size()];
+        for (Map.Entry<String, Float> boost : boosts.entrySet()) {
+            Postings list = postings.get(boost.getKey());
+            if (list == null) continue;
+            listBoosts[lists.size()] = boost.getValue();
+            lists.add(list);
+        }
+        return lists.isEmpty() ? null : new TermMatches(lists, listBoosts);
+    }
+
+    // one typo from three letters on and two from six, fewer would match too many unrelated words
+    private static int allowedEdits(String word) {
+        return word.length() < 3 ? 0 : word.length() < 6 ? 1 : 2;
+    }
+
+    private void removeLocked(long id) {
+        Integer ordinal = ordinals.remove(id);
+        if (ordinal == null) return;
+        deleted.set(ordinal);
+        deletedCount++;
+        totalLength -= lengths[ordinal];
+    }
+
+    // drops deleted ordinals from every list and renumbers the rest in the same order
+    private void compact() {
+        int[] renumbered = new int[size];
+        int next = 0;
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            if (deleted.get(ordinal)) {
+                renumbered[ordinal] = -1;
+                continue;
+            }
+            renumbered[ordinal] = next;
+            ids[next] = ids[ordinal];
+            lengths[next] = lengths[ordinal];
+            next++;
+        }
+        postings.entrySet().removeIf(entry -> {
+            if (entry.getValue().renumber(renumbered) > 0) return false;
+            sortedTerms.remove(entry.getKey());
+            if (dictionary != null) dictionary.remove(entry.getKey());
+            return true;
+        });
+        ordinals.replaceAll((id, ordinal) -> renumbered[ordinal]);
+        size = next;
+        deleted.clear();
+        deletedCount = 0;
+    }
+
+    public record Hits(long total, long[] ids, float[] scores) {
+    }
+
+    private static final class Postings {
+        private int[] ordinals = new int[4];
+        private float[] frequencies = new float[4];
+        private int size;
+
+        private void add(int ordinal, float frequency) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            ordinals[size] = ordinal;
+            frequencies[size] = frequency;
+            size++;
+        }
+
+        private Postings scaled(float boost) {
+            if (boost == 1f) return this;
+            Postings scaled = new Postings();
+            scaled.ordinals = ordinals;
+            scaled.frequencies = new float[size];
+            for (int i = 0; i < size; i++) scaled.frequencies[i] = frequencies[i] * boost;
+            scaled.size = size;
+            return scaled;
+        }
+
+        // merge of two lists sorted by ordinal, taking the higher frequency where both have a document
+        private Postings union(Postings other, float boost) {
+            Postings union = new Postings();
+            union.ordinals = new int[size + other.size];
+            union.frequencies = new float[size + other.size];
+            int i = 0;
+            int j = 0;
+            while (i < size || j < other.size) {
+                int ordinal;
+                float frequency;
+                if (j == other.size || (i < size && ordinals[i] < other.ordinals[j])) {
+                    ordinal = ordinals[i];
+                    frequency = frequencies[i++];
+                } else if (i == size || other.ordinals[j] < ordinals[i]) {
+                    ordinal = other.ordinals[j];
+                    frequency = other.frequencies[j++] * boost;
+                } else {
+                    ordinal = ordinals[i];
+                    frequency = Math.max(frequencies[i++], other.frequencies[j++] * boost);
+                }
+                union.ordinals[union.size] = ordinal;
+                union.frequencies[union.size] = frequency;
+                union.size++;
+            }
+            return union;
+        }
+
+        // first position at or after from whose ordinal is at least ordinal, galloping then binary search
+        private int advance(int from, int ordinal) {
+            int step = 1;
+            int low = from;
+            int high = from;
+            while (high < size && ordinals[high] < ordinal) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            high = Math.min(high, size);
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (ordinals[middle] < ordinal) low = middle + 1;
+                else high = middle;
+            }
+            return low;
+        }
+
+        private int renumber(int[] renumbered) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int ordinal = renumbered[ordinals[i]];
+                if (ordinal < 0) continue;
+                ordinals[kept] = ordinal;
+                frequencies[kept] = frequencies[i];
+                kept++;
+            }
+            size = kept;
+            return kept;
+        }
+    }
+
+    // the posting lists a query term matches, itself and its spellings a few typos away; only the rarest term's
+    // lists are merged into one, the others are probed list by list
+    private static final class TermMatches {
+        private final List<Postings> lists;
+        private final float[] boosts;
+        private final int[] cursors;
+        private final int size;
+
+        private TermMatches(List<Postings> lists, float[] boosts) {
+            this.lists = lists;
+            this.boosts = boosts;
+            this.cursors = new int[lists.size()];
+            int size = 0;
+            for (Postings list : lists) size += list.size;
+            this.size = size;
+        }
+
+        // a document found through several spellings keeps its best match
+        private Postings union() {
+            Postings union = lists.get(0).scaled(boosts[0]);
+            for (int i = 1; i < lists.size(); i++) union = union.union(lists.get(i), boosts[i]);
+            return union;
+        }
+
+        // best boosted frequency of the ordinal, 0 when no list has it, -1 once every list is past it; ordinals
+        // must be probed in increasing order
+        private float probe(int ordinal) {
+            float best = 0;
+            boolean remaining = false;
+            for (int i = 0; i < cursors.length; i++) {
+                Postings list = lists.get(i);
+                cursors[i] = list.advance(cursors[i], ordinal);
+                if (cursors[i] == list.size) continue;
+                remaining = true;
+                if (list.ordinals[cursors[i]] == ordinal) {
+                    best = Math.max(best, list.frequencies[cursors[i]] * boosts[i]);
+                }
+            }
+            return best > 0 ? best : remaining ? 0 : -1;
+        }
+    }
+
+    // bounded min-heap of the best offset + limit ordinals, its root is the worst one kept
+    private static final class TopScores {
+        private final int capacity;
+        private final int[] ordinals;
+        private final float[] scores;
+        private int size;
+
+        private TopScores(int capacity) {
+            this.capacity = capacity;
+            this.ordinals = new int[capacity];
+            this.scores = new float[capacity];
+        }
+
+        private void offer(int ordinal, float score) {
+            if (size < capacity) {
+                ordinals[size] = ordinal;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (worse(ordinals[0], scores[0], ordinal, score)) {
+                ordinals[0] = ordinal;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        private Hits hits(long total, int offset, long[] ids) {
+            int count = size;
+            int[] sortedOrdinals = new int[count];
+            float[] sortedScores = new float[count];
+            // popping the root repeatedly yields the worst first
+            for (int i = count - 1; i >= 0; i--) {
+                sortedOrdinals[i] = ordinals[0];
+                sortedScores[i] = scores[0];
+                size--;
+                ordinals[0] = ordinals[size];
+                scores[0] = scores[size];
+                siftDown(0);
+            }
+            int from = Math.min(offset, count);
+            long[] pageIds = new long[count - from];
+            float[] pageScores = new float[count - from];
+            for (int i = from; i < count; i++) {
+                pageIds[i - from] = ids[sortedOrdinals[i]];
+                pageScores[i - from] = sortedScores[i];
+            }
+            return new Hits(total, pageIds, pageScores);
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (!worse(ordinals[index], scores[index], ordinals[parent], scores[parent])) return;
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int worst = index;
+                for (int child = 2 * index + 1; child <= 2 * index + 2 && child < size; child++) {
+                    if (worse(ordinals[child], scores[child], ordinals[worst], scores[worst])) worst = child;
+                }
+                if (worst == index) return;
+                swap(index, worst);
+                index = worst;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int ordinal = ordinals[a];
+            ordinals[a] = ordinals[b];
+            ordinals[b] = ordinal;
+            float score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+
+        private static boolean worse(int ordinal, float score, int otherOrdinal, float otherScore) {
+            return score < otherScore || (score == otherScore && ordinal > otherOrdinal);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.ticketboxcoreservice.utils;
+
+import com.example.ticketboxcoreservice.enumf.ErrorCode;
+import com.example.ticketboxcoreservice.exception.AppException;
+import com.example.ticketboxcoreservice.model.dto.response.CustomPage;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+// Cursor mode of the list endpoints. A page is read with WHERE (sort keys) > (keys of the last row seen) ORDER BY
+// sort keys LIMIT size, so a deep page costs the same as the first one instead of skipping OFFSET rows. The cursor
+// handed to the client carries those keys encoded, it is opaque to the client and only valid for the sort it was
+// issued for. An empty cursor asks for the first page.
+public final class KeysetPaging {
+    private static final byte VERSION = 1;
+    private static final byte LONG = 'L';
+    private static final byte INTEGER = 'I';
+    private static final byte DOUBLE = 'D';
+    private static final byte STRING = 'S';
+    private static final byte DATE_TIME = 'T';
+
+    private KeysetPaging() {
+    }
+
+    // the caller provides the transaction, mapper may touch lazy associations
+    public static <T, R> CustomPage<R> scroll(JpaSpecificationExecutor<T> repository, Specification<T> filter,
+                                              String cursor, int pageSize, Sort sort,
+                                              Function<? super T, ? extends R> mapper) {
+        ScrollPosition position = cursor.isEmpty() ? ScrollPosition.keyset() : decode(cursor, sort);
+        Window<T> window = repository.findBy(filter, query -> query.sortBy(sort).limit(pageSize).scroll(position));
+        String nextCursor = window.hasNext() && !window.isEmpty()
+                ? encode((KeysetScrollPosition) window.positionAt(window.size() - 1)) : null;
+        return CustomPage.<R>builder()
+                .pageSize(pageSize)
+                .pageContent(window.getContent().stream().<R>map(mapper).toList())
+                .hasNext(nextCursor != null)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    public static String encode(KeysetScrollPosition position) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeByte(position.getKeys().size());
+            for (Map.Entry<String, Object> key : position.getKeys().entrySet()) {
+                out.writeUTF(key.getKey());
+                Object value = key.getValue();
+                if (value instanceof Long number) {
+                    out.writeByte(LONG);
+                    out.writeLong(number);
+                } else if (value instanceof Integer number) {
+                    out.writeByte(INTEGER);
+                    out.writeInt(number);
+                } else if (value instanceof Double number) {
+                    out.writeByte(DOUBLE);
+                    out.writeDouble(number);
+                } else if (value instanceof String text) {
+                    out.writeByte(STRING);
+                    out.writeUTF(text);
+                } else if (value instanceof LocalDateTime dateTime) {
+                    out.writeByte(DATE_TIME);
+                    out.writeUTF(dateTime.toString());
+                } else {
+                    // only whitelisted non-null columns are sorted on
+                    throw new IllegalStateException("Unsupported sort key value " + key);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    static KeysetScrollPosition decode(String cursor, Sort sort) {
+        Set<String> expected = new HashSet<>();
+        for (Sort.Order order : sort) expected.add(order.getProperty());
+        Map<String, Object> keys = new LinkedHashMap<>();
+        try (DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor)))) {
+            if (in.readByte() != VERSION) throw new AppException(ErrorCode.PAGE_CURSOR_INVALID);
+            int count = in.readByte();
+            for (int i = 0; i < count; i++) {
+                String property = in.readUTF();
+                Object value = switch (in.readByte()) {
+                    case LONG -> in.readLong();
+                    case INTEGER -> in.readInt();
+                    case DOUBLE -> in.readDouble();
+                    case STRING -> in.readUTF();
+                    case DATE_TIME -> LocalDateTime.parse(in.readUTF());
+                    default -> throw new AppException(ErrorCode.PAGE_CURSOR_INVALID);
+                };
+                keys.put(property, value);
+            }
+            if (in.available() > 0) throw new AppException(ErrorCode.PAGE_CURSOR_INVALID);
+        } catch (IOException | RuntimeException e) {
+            if (e instanceof AppException appException) throw appException;
+            throw new AppException(ErrorCode.PAGE_CURSOR_INVALID);
+        }
+        // a cursor of another sort would seek on keys the query does not order by
+        if (!keys.keySet().equals(expected)) throw new AppException(ErrorCode.PAGE_CURSOR_INVALID);
+        return ScrollPosition.forward(keys);
+    }
+}
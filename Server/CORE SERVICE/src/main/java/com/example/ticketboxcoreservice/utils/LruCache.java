@@ -0,0 +1,101 @@
+package com.example.ticketboxcoreservice.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+// Least-recently-used cache bounded by the summed weight of its values rather than by entry count, so a few large
+// values cannot push memory past the bound. Loads run outside the lock; two threads missing on the same key may
+// both load it and the later put wins, which is harmless for values derived purely from the key.
+public class LruCache<K, V> {
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ToLongFunction<V> weigher;
+    private final long maxWeight;
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public LruCache(long maxWeight, ToLongFunction<V> weigher) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    public synchronized V get(K key) {
+        V value = entries.get(key);
+        if (value == null) misses++;
+        else hits++;
+        return value;
+    }
+
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value != null) return value;
+        value = loader.apply(key);
+        put(key, value);
+        return value;
+    }
+
+    public synchronized void put(K key, V value) {
+        long valueWeight = weigher.applyAsLong(value);
+        // a value heavier than the whole cache would only evict everything else
+        if (valueWeight > maxWeight) return;
+        V previous = entries.put(key, value);
+        if (previous != null) weight -= weigher.applyAsLong(previous);
+        weight += valueWeight;
+        Iterator<Map.Entry<K, V>> eldest = entries.entrySet().iterator();
+        while (weight > maxWeight && eldest.hasNext()) {
+            weight -= weigher.applyAsLong(eldest.next().getValue());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    // keeps the value already cached under key, if any, and returns the one the cache ends up holding
+    public synchronized V putIfAbsent(K key, V value) {
+        V existing = entries.get(key);
+        if (existing != null) return existing;
+        put(key, value);
+        return value;
+    }
+
+    public synchronized void invalidate(K key) {
+        V previous = entries.remove(key);
+        if (previous != null) weight -= weigher.applyAsLong(previous);
+    }
+
+    // walks every entry under the lock, meant for caches small enough to scan on a write
+    public synchronized void invalidateIf(BiPredicate<? super K, ? super V> predicate) {
+        Iterator<Map.Entry<K, V>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<K, V> entry = iterator.next();
+            if (!predicate.test(entry.getKey(), entry.getValue())) continue;
+            weight -= weigher.applyAsLong(entry.getValue());
+            iterator.remove();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long weight() {
+        return weight;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    // entries pushed out by the weight bound, invalidations are not counted
+    public synchronized long evictions() {
+        return evictions;
+    }
+}
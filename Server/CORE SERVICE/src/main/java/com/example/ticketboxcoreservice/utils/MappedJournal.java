@@ -0,0 +1,173 @@
+package com.example.ticketboxcoreservice.utils;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+// Append-only record log in a fixed-size memory-mapped file. Layout:
+//   header: magic int, generation int, applied offset long
+//   record: payload length int, generation int, CRC32C of generation and payload int, payload
+// Appends only write to the page cache, force() makes everything appended so far durable. On open the log is
+// scanned from the start and ends at the first record that is empty, torn (bad CRC) or of an older generation;
+// reset() starts a new generation so stale records left behind after a rewind are never read back.
+public class MappedJournal implements AutoCloseable {
+    public static final int HEADER_BYTES = 16;
+    private static final int RECORD_HEADER_BYTES = 12;
+    private static final int MAGIC = 0x54424A31; // TBJ1
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final CRC32C crc = new CRC32C();
+    private int generation;
+    private long appliedOffset;
+    private long writePosition;
+    private long forcedPosition;
+
+    private MappedJournal(FileChannel channel, MappedByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    public static MappedJournal open(Path path, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        MappedJournal journal = new MappedJournal(channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity));
+        journal.recover();
+        return journal;
+    }
+
+    // returns the offset just past the record, or -1 when the journal has no room left for it
+    public synchronized long append(byte[] payload) {
+        long end = writePosition + RECORD_HEADER_BYTES + payload.length;
+        // a zero length field must follow the last record so a scan knows where the log ends
+        if (end + 4 > buffer.capacity()) return -1;
+        int position = (int) writePosition;
+        buffer.putInt(position + 4, generation);
+        buffer.put(position + RECORD_HEADER_BYTES, payload);
+        buffer.putInt(position + 8, checksum(position + 4, payload.length));
+        buffer.putInt((int) end, 0);
+        // the length goes in last, a record whose length is visible is complete
+        buffer.putInt(position, payload.length);
+        writePosition = end;
+        return end;
+    }
+
+    // flushes every record appended so far and returns the position that is now durable; appends are not blocked
+    // while the flush runs, which is what lets one flush cover a whole group of them
+    public long force() {
+        long from;
+        long to;
+        int flushedGeneration;
+        synchronized (this) {
+            from = forcedPosition;
+            to = writePosition;
+            flushedGeneration = generation;
+        }
+        if (to > from) buffer.force((int) from, (int) (to - from));
+        synchronized (this) {
+            if (generation == flushedGeneration && to > forcedPosition) forcedPosition = to;
+            return forcedPosition;
+        }
+    }
+
+    public synchronized long getForcedPosition() {
+        return forcedPosition;
+    }
+
+    // payload of the record at offset, or null when offset is the end of the log
+    public synchronized byte[] read(long offset) {
+        if (offset >= writePosition) return null;
+        int length = buffer.getInt((int) offset);
+        byte[] payload = new byte[length];
+        buffer.get((int) offset + RECORD_HEADER_BYTES, payload);
+        return payload;
+    }
+
+    public static long nextOffset(long offset, byte[] payload) {
+        return offset + RECORD_HEADER_BYTES + payload.length;
+    }
+
+    // records before offset are in the database, a restart replays from here
+    public synchronized void markApplied(long offset) {
+        appliedOffset = offset;
+        buffer.putLong(8, offset);
+        buffer.force(0, HEADER_BYTES);
+    }
+
+    // drops every record from position on; for records that were never acknowledged because forcing them failed
+    public synchronized void truncate(long position) {
+        if (position < appliedOffset || position > writePosition)
+            throw new IllegalArgumentException("Cannot truncate the journal at " + position);
+        buffer.putInt((int) position, 0);
+        writePosition = position;
+        if (forcedPosition > position) forcedPosition = position;
+        buffer.force((int) position, 4);
+    }
+
+    // rewinds an empty journal; false while records are still waiting to be applied
+    public synchronized boolean reset() {
+        if (appliedOffset != writePosition) return false;
+        generation++;
+        buffer.putInt(HEADER_BYTES, 0);
+        buffer.putInt(4, generation);
+        buffer.putLong(8, HEADER_BYTES);
+        buffer.force(0, HEADER_BYTES + 4);
+        appliedOffset = HEADER_BYTES;
+        writePosition = HEADER_BYTES;
+        forcedPosition = HEADER_BYTES;
+        return true;
+    }
+
+    public synchronized long getAppliedOffset() {
+        return appliedOffset;
+    }
+
+    public synchronized long getWritePosition() {
+        return writePosition;
+    }
+
+    public int capacity() {
+        return buffer.capacity();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private void recover() {
+        if (buffer.getInt(0) != MAGIC) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, 0);
+            buffer.putLong(8, HEADER_BYTES);
+            buffer.putInt(HEADER_BYTES, 0);
+            buffer.force(0, HEADER_BYTES + 4);
+        }
+        generation = buffer.getInt(4);
+        appliedOffset = buffer.getLong(8);
+        long position = HEADER_BYTES;
+        while (position + RECORD_HEADER_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt((int) position);
+            if (length <= 0 || position + RECORD_HEADER_BYTES + length + 4 > buffer.capacity()) break;
+            if (buffer.getInt((int) position + 4) != generation) break;
+            if (buffer.getInt((int) position + 8) != checksum((int) position + 4, length)) break;
+            position += RECORD_HEADER_BYTES + length;
+        }
+        // drop a torn tail so the next append does not leave garbage between two valid records
+        buffer.putInt((int) position, 0);
+        writePosition = position;
+        forcedPosition = position;
+        if (appliedOffset > writePosition) appliedOffset = writePosition;
+    }
+
+    private int checksum(int generationPosition, int payloadLength) {
+        crc.reset();
+        crc.update(buffer.slice(generationPosition, 4));
+        crc.update(buffer.slice(generationPosition + 8, payloadLength));
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.ticketboxcoreservice.utils;
+
+import com.google.zxing.common.BitMatrix;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+// Renders a module-level BitMatrix (one bit per QR module, no quiet zone) as a 1-bit palette PNG or an SVG path.
+// Pixels land exactly where ZXing's QRCodeWriter + MatrixToImageWriter would put them, but the scaled image is
+// never materialised: each module row is packed once and its repeats are Up-filtered, and the deflater and scanline buffers are
+// reused per thread.
+public final class QrImageWriter {
+    public static final int QUIET_ZONE = 4;
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    // index 0 white, index 1 black
+    private static final byte[] PALETTE = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0, 0, 0};
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    private QrImageWriter() {
+    }
+
+    public static byte[] writePng(BitMatrix modules, int size) {
+        int inputWidth = modules.getWidth();
+        int outputWidth = Math.max(size, inputWidth + QUIET_ZONE * 2);
+        int multiple = outputWidth / (inputWidth + QUIET_ZONE * 2);
+        int padding = (outputWidth - inputWidth * multiple) / 2;
+        int stride = 1 + (outputWidth + 7) / 8;
+
+        Buffers buffers = BUFFERS.get();
+        byte[] raw = buffers.raw(stride * outputWidth);
+        // a blank scanline is filter byte 0 followed by zeroes, i.e. white pixels
+        Arrays.fill(raw, 0, stride * outputWidth, (byte) 0);
+        for (int y = 0; y < inputWidth; y++) {
+            int rowStart = (padding + y * multiple) * stride;
+            for (int x = 0; x < inputWidth; x++) {
+                if (!modules.get(x, y)) continue;
+                int from = padding + x * multiple;
+                for (int px = from; px < from + multiple; px++) {
+                    raw[rowStart + 1 + (px >> 3)] |= (byte) (0x80 >>> (px & 7));
+                }
+            }
+            // the repeats of a module row use the Up filter, which leaves them all zero and nearly free to deflate
+            for (int r = 1; r < multiple; r++) {
+                raw[rowStart + r * stride] = 2;
+            }
+        }
+
+        Deflater deflater = buffers.deflater;
+        deflater.reset();
+        deflater.setInput(raw, 0, stride * outputWidth);
+        deflater.finish();
+        byte[] compressed = buffers.compressed;
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            if (compressedLength == compressed.length) {
+                compressed = buffers.compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+
+        byte[] png = new byte[SIGNATURE.length + (12 + 13) + (12 + PALETTE.length) + (12 + compressedLength) + 12];
+        System.arraycopy(SIGNATURE, 0, png, 0, SIGNATURE.length);
+        int offset = SIGNATURE.length;
+        byte[] header = buffers.header;
+        writeInt(header, 0, outputWidth);
+        writeInt(header, 4, outputWidth);
+        header[8] = 1; // bit depth
+        header[9] = 3; // palette colour type
+        offset = writeChunk(png, offset, "IHDR", header, 13, buffers.crc);
+        offset = writeChunk(png, offset, "PLTE", PALETTE, PALETTE.length, buffers.crc);
+        offset = writeChunk(png, offset, "IDAT", compressed, compressedLength, buffers.crc);
+        writeChunk(png, offset, "IEND", header, 0, buffers.crc);
+        return png;
+    }
+
+    // vector output scales without a size, the size only sets the default width and height of the element
+    public static byte[] writeSvg(BitMatrix modules, int size) {
+        int inputWidth = modules.getWidth();
+        int viewBox = inputWidth + QUIET_ZONE * 2;
+        StringBuilder svg = new StringBuilder(256 + inputWidth * inputWidth * 2)
+                .append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(size)
+                .append("\" height=\"").append(size)
+                .append("\" viewBox=\"0 0 ").append(viewBox).append(' ').append(viewBox)
+                .append("\" shape-rendering=\"crispEdges\"><rect width=\"100%\" height=\"100%\" fill=\"#fff\"/>")
+                .append("<path fill=\"#000\" d=\"");
+        // one sub-path per horizontal run of dark modules
+        for (int y = 0; y < inputWidth; y++) {
+            int x = 0;
+            while (x < inputWidth) {
+                if (!modules.get(x, y)) {
+                    x++;
+                    continue;
+                }
+                int runStart = x;
+                while (x < inputWidth && modules.get(x, y)) x++;
+                svg.append('M').append(runStart + QUIET_ZONE).append(' ').append(y + QUIET_ZONE)
+                        .append('h').append(x - runStart).append("v1h-").append(x - runStart).append('z');
+            }
+        }
+        svg.append("\"/></svg>");
+        return svg.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static int writeChunk(byte[] png, int offset, String type, byte[] data, int length, CRC32 crc) {
+        writeInt(png, offset, length);
+        for (int i = 0; i < 4; i++) png[offset + 4 + i] = (byte) type.charAt(i);
+        System.arraycopy(data, 0, png, offset + 8, length);
+        crc.reset();
+        crc.update(png, offset + 4, 4 + length);
+        writeInt(png, offset + 8 + length, (int) crc.getValue());
+        return offset + 12 + length;
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    private static final class Buffers {
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        private final CRC32 crc = new CRC32();
+        private final byte[] header = new byte[13];
+        private byte[] raw = new byte[0];
+        private byte[] compressed = new byte[4096];
+
+        private byte[] raw(int length) {
+            if (raw.length < length) raw = new byte[length];
+            return raw;
+        }
+    }
+}
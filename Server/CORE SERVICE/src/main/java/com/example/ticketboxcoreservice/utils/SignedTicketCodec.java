@@ -0,0 +1,74 @@
+package com.example.ticketboxcoreservice.utils;
+
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.function.IntFunction;
+
+// Publicly verifiable ticket token: "T2" followed by 128 Base32 characters encoding 80 bytes, the 14-byte T1
+// payload, a 16-bit key id and an Ed25519 signature over both. Anyone holding the published public key of that
+// key id can check a token without calling the server.
+public final class SignedTicketCodec {
+    public static final String PREFIX = "T2";
+    public static final String ALGORITHM = "Ed25519";
+    private static final int SIGNED_BYTES = CompactTicketCodec.PAYLOAD_BYTES + 2;
+    private static final int SIGNATURE_BYTES = 64;
+    private static final int TOKEN_BYTES = SIGNED_BYTES + SIGNATURE_BYTES;
+    private static final int TOKEN_LENGTH = PREFIX.length() + Base32.encodedLength(TOKEN_BYTES);
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[TOKEN_BYTES]);
+    private static final ThreadLocal<Signature> SIGNATURE = ThreadLocal.withInitial(() -> {
+        try {
+            return Signature.getInstance(ALGORITHM);
+        } catch (GeneralSecurityException exception) {
+            throw new IllegalStateException(exception);
+        }
+    });
+
+    private SignedTicketCodec() {
+    }
+
+    public static boolean isSigned(CharSequence token) {
+        return token.length() == TOKEN_LENGTH && token.charAt(0) == PREFIX.charAt(0)
+                && token.charAt(1) == PREFIX.charAt(1);
+    }
+
+    public static String encode(long orderTicketId, long eventId, long expiresAtSeconds, int keyId,
+                                PrivateKey privateKey) {
+        byte[] bytes = BUFFER.get();
+        CompactTicketCodec.writePayload(bytes, orderTicketId, eventId, expiresAtSeconds);
+        CompactTicketCodec.writeBytes(bytes, CompactTicketCodec.PAYLOAD_BYTES, keyId, 2);
+        try {
+            Signature signature = SIGNATURE.get();
+            signature.initSign(privateKey);
+            signature.update(bytes, 0, SIGNED_BYTES);
+            signature.sign(bytes, SIGNED_BYTES, SIGNATURE_BYTES);
+        } catch (GeneralSecurityException exception) {
+            throw new IllegalStateException(exception);
+        }
+        char[] chars = new char[TOKEN_LENGTH];
+        PREFIX.getChars(0, PREFIX.length(), chars, 0);
+        Base32.encode(bytes, TOKEN_BYTES, chars, PREFIX.length());
+        return new String(chars);
+    }
+
+    // false when the token is malformed, names an unknown key id or its signature does not match
+    public static boolean decode(CharSequence token, TicketTokenClaims claims, IntFunction<PublicKey> publicKeys) {
+        if (!isSigned(token)) return false;
+        byte[] bytes = BUFFER.get();
+        if (!Base32.decode(token, PREFIX.length(), bytes)) return false;
+        PublicKey publicKey = publicKeys.apply(
+                (int) CompactTicketCodec.readBytes(bytes, CompactTicketCodec.PAYLOAD_BYTES, 2));
+        if (publicKey == null) return false;
+        try {
+            Signature signature = SIGNATURE.get();
+            signature.initVerify(publicKey);
+            signature.update(bytes, 0, SIGNED_BYTES);
+            if (!signature.verify(bytes, SIGNED_BYTES, SIGNATURE_BYTES)) return false;
+        } catch (GeneralSecurityException exception) {
+            return false;
+        }
+        CompactTicketCodec.readPayload(bytes, claims);
+        return true;
+    }
+}
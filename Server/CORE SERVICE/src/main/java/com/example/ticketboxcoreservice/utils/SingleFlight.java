@@ -0,0 +1,73 @@
+package com.example.ticketboxcoreservice.utils;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// Coalesces concurrent identical calls: the first caller for a key runs the loader, callers arriving while it runs
+// wait for it and get the same result or exception. Nothing is kept once the call completes, so a caller arriving
+// afterwards loads again and this never serves anything older than the slowest in-flight load. The key function
+// decides which arguments count as identical.
+public class SingleFlight<A, V> {
+    private final String name;
+    private final Function<? super A, ?> keyFunction;
+    private final Map<Object, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public SingleFlight(String name, Function<? super A, ?> keyFunction) {
+        this.name = name;
+        this.keyFunction = keyFunction;
+    }
+
+    public V execute(A argument, Function<? super A, ? extends V> loader) {
+        calls.increment();
+        Object key = keyFunction.apply(argument);
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> leader = inFlight.putIfAbsent(key, call);
+        if (leader != null) {
+            coalesced.increment();
+            return await(leader);
+        }
+        try {
+            V value = loader.apply(argument);
+            call.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long calls() {
+        return calls.sum();
+    }
+
+    public long coalesced() {
+        return coalesced.sum();
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    // followers get the leader's own exception, so error handling does not depend on who ran the load
+    private static <V> V await(CompletableFuture<V> leader) {
+        try {
+            return leader.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            if (e.getCause() instanceof Error error) throw error;
+            throw e;
+        }
+    }
+}
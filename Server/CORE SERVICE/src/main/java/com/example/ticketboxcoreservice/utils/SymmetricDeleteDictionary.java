@@ -0,0 +1,116 @@
+package com.example.ticketboxcoreservice.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Dictionary answering "which terms are within n edits of this word" without comparing the word to every term
+// (symmetric delete). Each term is stored under every string obtained by deleting up to maxEdits of its characters;
+// a query generates its own deletes and only the terms found under them are candidates, which are then checked with
+// the real edit distance. Deletes are taken from the first PREFIX_LENGTH characters only, which bounds the entries per
+// term and still finds every term within the distance. Not thread safe, InvertedIndex guards it with its own lock.
+public class SymmetricDeleteDictionary {
+    private static final int PREFIX_LENGTH = 7;
+
+    private final int maxEdits;
+    private final Set<String> terms = new HashSet<>();
+    private final Map<String, List<String>> deletes = new HashMap<>();
+
+    public SymmetricDeleteDictionary(int maxEdits) {
+        this.maxEdits = maxEdits;
+    }
+
+    public void add(String term) {
+        if (!terms.add(term)) return;
+        for (String delete : deletes(term, maxEdits)) {
+            deletes.computeIfAbsent(delete, key -> new ArrayList<>(1)).add(term);
+        }
+    }
+
+    public void remove(String term) {
+        if (!terms.remove(term)) return;
+        for (String delete : deletes(term, maxEdits)) {
+            List<String> list = deletes.get(delete);
+            list.remove(term);
+            if (list.isEmpty()) deletes.remove(delete);
+        }
+    }
+
+    public int size() {
+        return terms.size();
+    }
+
+    // terms within edits of word with their distance, the word itself first when it is a term
+    public Map<String, Integer> lookup(String word, int edits) {
+        edits = Math.min(edits, maxEdits);
+        Map<String, Integer> matches = new LinkedHashMap<>();
+        if (terms.contains(word)) matches.put(word, 0);
+        if (edits == 0) return matches;
+        for (String delete : deletes(word, edits)) {
+            List<String> candidates = deletes.get(delete);
+            if (candidates == null) continue;
+            for (String candidate : candidates) {
+                if (matches.containsKey(candidate) || Math.abs(candidate.length() - word.length()) > edits) continue;
+                int distance = distance(word, candidate, edits);
+                if (distance <= edits) matches.put(candidate, distance);
+            }
+        }
+        return matches;
+    }
+
+    // the term's prefix with every combination of up to edits characters deleted, including none
+    private static Set<String> deletes(String term, int edits) {
+        Set<String> deletes = new HashSet<>();
+        String prefix = term.length() > PREFIX_LENGTH ? term.substring(0, PREFIX_LENGTH) : term;
+        deletes.add(prefix);
+        List<String> level = List.of(prefix);
+        for (int edit = 0; edit < edits; edit++) {
+            List<String> next = new ArrayList<>();
+            for (String word : level) {
+                for (int i = 0; i < word.length(); i++) {
+                    String delete = word.substring(0, i) + word.substring(i + 1);
+                    if (deletes.add(delete)) next.add(delete);
+                }
+            }
+            level = next;
+        }
+        return deletes;
+    }
+
+    // Levenshtein distance with adjacent transpositions counted as one edit, anything past max is reported as
+    // max + 1; only the band of width 2 * max + 1 around the diagonal is computed
+    public static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) return max + 1;
+        int[] previousPrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) previous[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            int from = Math.max(1, i - max);
+            int to = Math.min(b.length(), i + max);
+            current[0] = i;
+            if (from > 1) current[from - 1] = max + 1;
+            int rowMin = i <= max ? i : max + 1;
+            for (int j = from; j <= to; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previousPrevious[j - 2] + 1);
+                }
+                current[j] = Math.min(value, max + 1);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (to < b.length()) current[to + 1] = max + 1;
+            if (rowMin > max) return max + 1;
+            int[] recycled = previousPrevious;
+            previousPrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+}
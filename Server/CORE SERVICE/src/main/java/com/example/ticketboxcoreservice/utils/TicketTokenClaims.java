@@ -0,0 +1,15 @@
+package com.example.ticketboxcoreservice.utils;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// what a ticket token vouches for, whichever format it was issued in; eventId is 0 for tokens that do not carry it
+@Getter
+@Setter
+public class TicketTokenClaims {
+    private long orderTicketId;
+    private long eventId;
+    private long expiresAtSeconds;
+    // rotating codes prove the ticket by their HMAC, they are never equal to the token stored on the order ticket
+    private boolean dynamic;
+}
@@ -0,0 +1,18 @@
+package com.example.ticketboxcoreservice;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Marks a timing run. These print throughput and compare speeds, which depends on the machine, so they are
+// left out of the default test run and only run with mvn test -Pbenchmark.
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Tag("benchmark")
+@Test
+public @interface Benchmark {
+}
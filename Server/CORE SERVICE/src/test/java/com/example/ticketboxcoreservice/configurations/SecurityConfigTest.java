@@ -0,0 +1,69 @@
+package com.example.ticketboxcoreservice.configurations;
+
+import com.example.ticketboxcoreservice.controller.OrderTicketController;
+import com.example.ticketboxcoreservice.service.AdmissionService;
+import com.example.ticketboxcoreservice.service.IdempotencyService;
+import com.example.ticketboxcoreservice.service.JwtService;
+import com.example.ticketboxcoreservice.service.OrderTicketService;
+import com.example.ticketboxcoreservice.service.TicketManifestService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(OrderTicketController.class)
+@Import(SecurityConfig.class)
+class SecurityConfigTest {
+    private static final String USED_DELTA = "{\"orderTicketIds\":[1]}";
+
+    @MockitoBean
+    private OrderTicketService orderTicketService;
+    @MockitoBean
+    private TicketManifestService ticketManifestService;
+    @MockitoBean
+    private IdempotencyService idempotencyService;
+    @MockitoBean
+    private AdmissionService admissionService;
+    @MockitoBean
+    private JwtService jwtService;
+    @MockitoBean
+    private UserDetailsService userDetailsService;
+    @MockitoBean
+    private AuthenticationProvider authenticationProvider;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void aUserCanNeitherDownloadAManifestNorMarkTicketsUsed() throws Exception {
+        mockMvc.perform(get("/api/order-tickets/manifest/1")).andExpect(status().isForbidden());
+        mockMvc.perform(put("/api/order-tickets/manifest/1/used")
+                        .contentType(MediaType.APPLICATION_JSON).content(USED_DELTA))
+                .andExpect(status().isForbidden());
+        verify(ticketManifestService, never()).getManifest(any(), any());
+        verify(ticketManifestService, never()).mergeUsedDelta(any(), any());
+    }
+
+    @Test
+    @WithMockUser(roles = "GATE")
+    void aGateCanDownloadAManifestAndMarkTicketsUsed() throws Exception {
+        mockMvc.perform(get("/api/order-tickets/manifest/1")).andExpect(status().isOk());
+        mockMvc.perform(put("/api/order-tickets/manifest/1/used")
+                        .contentType(MediaType.APPLICATION_JSON).content(USED_DELTA))
+                .andExpect(status().isOk());
+    }
+}
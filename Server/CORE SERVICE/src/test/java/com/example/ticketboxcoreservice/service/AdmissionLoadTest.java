@@ -0,0 +1,182 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.enumf.ErrorCode;
+import com.example.ticketboxcoreservice.exception.AppException;
+import com.example.ticketboxcoreservice.model.dto.response.AdmissionResponse;
+import com.example.ticketboxcoreservice.model.entity.Event;
+import com.example.ticketboxcoreservice.model.entity.Ticket;
+import com.example.ticketboxcoreservice.repository.TicketRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Checkouts reserve a ticket in a real transaction on a Hikari pool; the load the database sees is the number of
+// connections in use plus the threads waiting for one, sampled by every checkout while it holds its connection.
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:admission;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.datasource.hikari.maximum-pool-size=20",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.show_sql=false",
+        "logging.level.org.hibernate=WARN",
+        "logging.level.org.springframework=WARN",
+        "app.admission.enabled=true",
+        "app.admission.admits-per-second=200",
+        "app.admission.token-ttl-ms=60000",
+        "app.admission.secret=admission-load-test"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({AdmissionService.class, ConditionalUpdateInventoryStrategy.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AdmissionLoadTest {
+    // admits-per-second is below what one hot ticket row takes in checkouts here, so a few overlap at a time;
+    // the bound is twice the pool, anything past it means checkouts queue for connections as the queue grows
+    private static final int MAX_CONNECTION_DEMAND = 40;
+
+    @Autowired
+    private AdmissionService admissionService;
+    @Autowired
+    private ConditionalUpdateInventoryStrategy inventoryStrategy;
+    @Autowired
+    private TicketRepository ticketRepository;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void connectionDemandStaysFlatAsQueueGrows() throws Exception {
+        // the first wave warms up the pool and the JIT, its peak says nothing about the queue
+        runWave(0, 100);
+        long eventId = 0;
+        for (int users : new int[]{100, 400, 800}) {
+            int peak = runWave(++eventId, users);
+            assertTrue(peak <= MAX_CONNECTION_DEMAND, "peak connection demand " + peak + " for " + users + " users");
+        }
+    }
+
+    @Test
+    void joiningAgainKeepsThePlaceInLine() {
+        long eventId = 100;
+        AdmissionResponse first = admissionService.join(eventId, 1L);
+        admissionService.join(eventId, 2L);
+        AdmissionResponse again = admissionService.join(eventId, 1L);
+        assertEquals(first.getQueueToken(), again.getQueueToken());
+        AdmissionResponse third = admissionService.join(eventId, 3L);
+        assertNotEquals(first.getQueueToken(), third.getQueueToken());
+        assertEquals(3L, Long.parseLong(third.getQueueToken().split("\\.")[4]));
+    }
+
+    @Test
+    void anAdmissionOnlyLetsTheUserBuyTicketsOfItsEvent() throws InterruptedException {
+        long quietEventId = 200;
+        long hotEventId = 201;
+        String quiet = admit(quietEventId, 1L);
+        String hot = admit(hotEventId, 1L);
+
+        Set<Long> admitted = admissionService.admittedEventIds(quiet, 1L);
+        assertEquals(Set.of(quietEventId), admitted);
+        admissionService.checkAdmitted(admitted, List.of(ticketOf(quietEventId)));
+        assertEquals(ErrorCode.ADMISSION_REQUIRED, assertThrows(AppException.class,
+                () -> admissionService.checkAdmitted(admitted, List.of(ticketOf(hotEventId)))).getErrorCode());
+        // a cart spanning both events needs an admission to each
+        admissionService.checkAdmitted(admissionService.admittedEventIds(quiet + "," + hot, 1L),
+                List.of(ticketOf(quietEventId), ticketOf(hotEventId)));
+        // someone else's admission counts for nothing
+        assertTrue(admissionService.admittedEventIds(hot, 2L).isEmpty());
+    }
+
+    private String admit(long eventId, long userId) throws InterruptedException {
+        String queueToken = admissionService.join(eventId, userId).getQueueToken();
+        AdmissionResponse status;
+        while ((status = admissionService.status(eventId, userId, queueToken)).getAdmissionToken() == null) {
+            Thread.sleep(1);
+        }
+        return status.getAdmissionToken();
+    }
+
+    private static Ticket ticketOf(long eventId) {
+        Event event = new Event();
+        event.setId(eventId);
+        Ticket ticket = new Ticket();
+        ticket.setEvent(event);
+        return ticket;
+    }
+
+    // every user joins at once, then polls in queue order until admitted and checks out on an unbounded pool, so
+    // the only thing limiting the connections asked for is the admission rate
+    private int runWave(long eventId, int users) throws Exception {
+        Long ticketId = createTicket(users);
+        List<AdmissionResponse> waiting = new LinkedList<>();
+        for (long userId = 1; userId <= users; userId++) waiting.add(admissionService.join(eventId, userId));
+
+        ExecutorService checkouts = Executors.newCachedThreadPool();
+        AtomicInteger peak = new AtomicInteger();
+        while (!waiting.isEmpty()) {
+            Iterator<AdmissionResponse> iterator = waiting.iterator();
+            while (iterator.hasNext()) {
+                AdmissionResponse queued = iterator.next();
+                long owner = Long.parseLong(queued.getQueueToken().split("\\.")[2]);
+                AdmissionResponse status = admissionService.status(eventId, owner, queued.getQueueToken());
+                // admission is FIFO, nobody behind a waiting user can be admitted yet
+                if (status.getAdmissionToken() == null) break;
+                assertTrue(admissionService.admittedEventIds(status.getAdmissionToken(), owner).contains(eventId));
+                iterator.remove();
+                checkouts.submit(() -> checkout(ticketId, peak));
+            }
+            Thread.sleep(1);
+        }
+        checkouts.shutdown();
+        assertTrue(checkouts.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(users, ticketRepository.getSoldByTicketId(ticketId).orElseThrow());
+        return peak.get();
+    }
+
+    private void checkout(Long ticketId, AtomicInteger peak) {
+        HikariPoolMXBean pool = pool();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            assertTrue(inventoryStrategy.reserve(ticketId, 1L));
+            peak.accumulateAndGet(pool.getActiveConnections() + pool.getThreadsAwaitingConnection(), Math::max);
+        });
+    }
+
+    private HikariPoolMXBean pool() {
+        try {
+            return dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+        } catch (SQLException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private Long createTicket(long capacity) {
+        Ticket ticket = new Ticket();
+        ticket.setCapacity(capacity);
+        ticket.setSold(0L);
+        return ticketRepository.save(ticket).getId();
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.enumf.Constants;
+import com.example.ticketboxcoreservice.enumf.ErrorCode;
+import com.example.ticketboxcoreservice.exception.AppException;
+import com.example.ticketboxcoreservice.model.entity.Order;
+import com.example.ticketboxcoreservice.model.entity.OrderTicket;
+import com.example.ticketboxcoreservice.model.entity.Ticket;
+import com.example.ticketboxcoreservice.model.entity.User;
+import com.example.ticketboxcoreservice.repository.OrderRepository;
+import com.example.ticketboxcoreservice.repository.OrderTicketRepository;
+import com.example.ticketboxcoreservice.repository.TicketRepository;
+import com.example.ticketboxcoreservice.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.show_sql=false",
+        "logging.level.org.hibernate=WARN",
+        "logging.level.org.springframework=WARN"})
+@Import(CartStore.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CartStoreTest {
+    // the user table is not part of the test schema, buyers are references to ids that are never read
+    @MockitoBean
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartStore cartStore;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private OrderTicketRepository orderTicketRepository;
+    @Autowired
+    private TicketRepository ticketRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void referenceBuyers() {
+        when(userRepository.findById(any())).thenAnswer(invocation ->
+                Optional.of(entityManager.getReference(User.class, invocation.getArgument(0))));
+    }
+
+    @Test
+    void concurrentFirstAddsLeaveOneCartAndTheLoserRetriesIntoIt() throws Exception {
+        Long userId = 61L;
+        CountDownLatch created = new CountDownLatch(1);
+        CountDownLatch secondTrying = new CountDownLatch(1);
+        ExecutorService buyers = Executors.newFixedThreadPool(2);
+        Future<Long> first = buyers.submit(() -> inTransaction(() -> {
+            Long cartId = cartStore.getOrCreate(userId).getCartId();
+            // the row is not committed yet, nobody else may see its id
+            assertNull(cartStore.get(userId).getCartId());
+            created.countDown();
+            await(secondTrying);
+            // long enough for the second insert to be waiting on the owner key
+            sleep(200);
+            return cartId;
+        }));
+        Future<Long> second = buyers.submit(() -> {
+            await(created);
+            secondTrying.countDown();
+            return inTransaction(() -> cartStore.getOrCreate(userId).getCartId());
+        });
+
+        Long cartId = first.get(10, TimeUnit.SECONDS);
+        AppException lost = (AppException) assertThrows(Exception.class,
+                () -> second.get(10, TimeUnit.SECONDS)).getCause();
+        assertEquals(ErrorCode.CART_BEING_CREATED, lost.getErrorCode());
+        buyers.shutdown();
+
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM s_order WHERE cart_owner_id = ?",
+                Integer.class, userId));
+        assertEquals(cartId, cartStore.get(userId).getCartId());
+        assertEquals(cartId, inTransaction(() -> cartStore.getOrCreate(userId).getCartId()));
+    }
+
+    @Test
+    void headerIsWrittenBehindAsIncrementsThatKeepOtherWrites() {
+        Long userId = 62L;
+        Long ticketId = createTicket();
+        Long cartId = inTransaction(() -> addLine(userId, ticketId, 2));
+        // the first lines were added to a cart only its transaction knew, the load owes them to the header
+        CartStore.Cart cart = cartStore.get(userId);
+        assertEquals(cartId, cart.getCartId());
+        assertEquals(2L, cart.getQuantity());
+        assertEquals(0L, header(cartId).getQuantity());
+        cartStore.flush();
+        assertEquals(2L, header(cartId).getQuantity());
+        assertEquals(20d, header(cartId).getTotalPrice());
+
+        inTransaction(() -> addLine(userId, ticketId, 3));
+        assertEquals(5L, cartStore.get(userId).getQuantity());
+        assertEquals(2L, header(cartId).getQuantity());
+        // another node moved the header meanwhile, the flush adds to it instead of writing over it
+        jdbcTemplate.update("UPDATE s_order SET quantity = quantity + 1 WHERE id = ?", cartId);
+        cartStore.flush();
+        assertEquals(6L, header(cartId).getQuantity());
+        assertEquals(50d, header(cartId).getTotalPrice());
+    }
+
+    @Test
+    void rolledBackChangesAreGoneFromTheStore() {
+        Long userId = 63L;
+        Long ticketId = createTicket();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            addLine(userId, ticketId, 1);
+            status.setRollbackOnly();
+        });
+        assertNull(cartStore.get(userId).getCartId());
+        assertEquals(0L, cartStore.get(userId).getQuantity());
+
+        Long cartId = inTransaction(() -> addLine(userId, ticketId, 1));
+        transaction.executeWithoutResult(status -> {
+            addLine(userId, ticketId, 4);
+            assertEquals(5L, cartStore.get(userId).getQuantity());
+            status.setRollbackOnly();
+        });
+        CartStore.Cart cart = cartStore.get(userId);
+        assertEquals(cartId, cart.getCartId());
+        assertEquals(1L, cart.getQuantity());
+        assertEquals(10d, cart.getTotalPrice());
+        cartStore.flush();
+        assertEquals(1L, header(cartId).getQuantity());
+    }
+
+    // what adding a ticket to the cart does, see OrderTicketService.createOrderTicket
+    private Long addLine(Long userId, Long ticketId, long quantity) {
+        CartStore.Cart cart = cartStore.getOrCreate(userId);
+        OrderTicket orderTicket = new OrderTicket();
+        orderTicket.setOrder(orderRepository.getReferenceById(cart.getCartId()));
+        orderTicket.setTicket(ticketRepository.getReferenceById(ticketId));
+        orderTicket.setSubQuantity(quantity);
+        orderTicket.setUnitPrice(10d);
+        orderTicket.setStatus(Constants.ORDER_TICKET_STATUS_INACTIVE);
+        orderTicketRepository.save(orderTicket);
+        cartStore.adjust(userId, cart, quantity, 10d * quantity);
+        return cart.getCartId();
+    }
+
+    private Order header(Long cartId) {
+        Order order = orderRepository.findById(cartId).orElseThrow();
+        assertNotNull(order.getCartOwnerId());
+        return order;
+    }
+
+    private Long createTicket() {
+        Ticket ticket = new Ticket();
+        ticket.setType("standard");
+        ticket.setUnitPrice(10d);
+        ticket.setCapacity(100L);
+        ticket.setSold(0L);
+        return ticketRepository.save(ticket).getId();
+    }
+
+    private <T> T inTransaction(Supplier<T> step) {
+        return new TransactionTemplate(transactionManager).execute(status -> step.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.Benchmark;
+import com.example.ticketboxcoreservice.configurations.ModelMapperConfig;
+import com.example.ticketboxcoreservice.enumf.Constants;
+import com.example.ticketboxcoreservice.model.dto.response.CartResponse;
+import com.example.ticketboxcoreservice.model.dto.response.OrderResponse;
+import com.example.ticketboxcoreservice.model.entity.Event;
+import com.example.ticketboxcoreservice.model.entity.Order;
+import com.example.ticketboxcoreservice.model.entity.OrderTicket;
+import com.example.ticketboxcoreservice.model.entity.Ticket;
+import com.example.ticketboxcoreservice.repository.EventRepository;
+import com.example.ticketboxcoreservice.repository.OrderRepository;
+import com.example.ticketboxcoreservice.repository.OrderTicketRepository;
+import com.example.ticketboxcoreservice.repository.TicketRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Cart views per second of the old read path (load the cart, recalculate it from every line and its ticket, save
+// it, all in a write transaction) against the read-only one (header from the cart store, lines from a single
+// projection query), on a cart of LINES lines.
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.show_sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate=WARN",
+        "logging.level.org.springframework=WARN"})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({OrderService.class, OrderTicketService.class, CartStore.class, InventoryService.class,
+        ConditionalUpdateInventoryStrategy.class, JwtService.class, TicketTokenService.class, TicketKeyService.class,
+        QrCodeService.class, TicketHoldService.class, UsedTicketRegistry.class, PurchaseJournalService.class,
+        FulfillmentService.class, DataMigrationService.class, AdmissionService.class, ModelMapperConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CartViewBenchmarkTest {
+    private static final long USER_ID = 42L;
+    private static final long BENCHMARK_USER_ID = 43L;
+    private static final int LINES = 20;
+    private static final int WARMUP = 500;
+    private static final int ITERATIONS = 2_000;
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private TicketRepository ticketRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private OrderTicketRepository orderTicketRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ModelMapper modelMapper;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void readOnlyCartViewMatchesTheRecalculatedCartInOneStatement() {
+        Long cartId = createCart(USER_ID);
+        CartResponse cart = orderService.getCartByUserId(USER_ID);
+        OrderResponse recalculated = recalculatingView(USER_ID).get();
+        assertEquals(cartId, cart.getId());
+        assertEquals(LINES, cart.getLines().size());
+        assertEquals(recalculated.getQuantity(), cart.getQuantity());
+        assertEquals(recalculated.getTotalPrice(), cart.getTotalPrice());
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        orderService.getCartByUserId(USER_ID);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityUpdateCount());
+    }
+
+    @Benchmark
+    void readOnlyCartViewIsFaster() {
+        createCart(BENCHMARK_USER_ID);
+        long beforeRate = viewsPerSecond(recalculatingView(BENCHMARK_USER_ID));
+        long afterRate = viewsPerSecond(() -> orderService.getCartByUserId(BENCHMARK_USER_ID));
+        System.out.printf("cart view: %d lines, recalculate and save %d views/s, read-only %d views/s%n",
+                LINES, beforeRate, afterRate);
+        assertTrue(afterRate > beforeRate);
+    }
+
+    private Supplier<OrderResponse> recalculatingView(long userId) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        return () -> transactionTemplate.execute(status -> {
+            Order cart = orderRepository.findOrderByUserIdAndPurchasedAsList(userId,
+                    Constants.ORDER_STATUS_NOT_PURCHASED).get(0);
+            cart.recalculate();
+            return modelMapper.map(orderRepository.save(cart), OrderResponse.class);
+        });
+    }
+
+    private Long createCart(long userId) {
+        Long cartId = new TransactionTemplate(transactionManager).execute(status -> createCart());
+        // the buyer and cart owner are set through JDBC, the user table is not part of the test schema
+        jdbcTemplate.update("update s_order set buyer_id = ?, cart_owner_id = ? where id = ?", userId, userId,
+                cartId);
+        return cartId;
+    }
+
+    private Long createCart() {
+        Event event = new Event();
+        event.setStartDate(LocalDateTime.now());
+        event.setEndDate(LocalDateTime.now().plusDays(1));
+        event = eventRepository.save(event);
+        List<Ticket> tickets = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Ticket ticket = new Ticket();
+            ticket.setEvent(event);
+            ticket.setType("type-" + i);
+            ticket.setUnitPrice(10d * (i + 1));
+            ticket.setCapacity(1_000L);
+            ticket.setSold(0L);
+            tickets.add(ticketRepository.save(ticket));
+        }
+        Order cart = new Order();
+        cart.setStatus(Constants.ORDER_STATUS_NOT_PURCHASED);
+        cart.setQuantity(0L);
+        cart.setTotalPrice(0d);
+        cart.setCreateDate(LocalDateTime.now());
+        cart = orderRepository.save(cart);
+
+        List<OrderTicket> orderTickets = new ArrayList<>();
+        for (int i = 0; i < LINES; i++) {
+            Ticket ticket = tickets.get(i % tickets.size());
+            OrderTicket orderTicket = new OrderTicket();
+            orderTicket.setOrder(cart);
+            orderTicket.setTicket(ticket);
+            orderTicket.setSubQuantity((long) (i % 3 + 1));
+            orderTicket.setUnitPrice(ticket.getUnitPrice());
+            orderTicket.setStatus(Constants.ORDER_TICKET_STATUS_INACTIVE);
+            orderTickets.add(orderTicket);
+            cart.setQuantity(cart.getQuantity() + orderTicket.getSubQuantity());
+            cart.setTotalPrice(cart.getTotalPrice() + orderTicket.getSubQuantity() * orderTicket.getUnitPrice());
+        }
+        orderTicketRepository.saveAll(orderTickets);
+        return cart.getId();
+    }
+
+    private static long viewsPerSecond(Supplier<?> view) {
+        for (int i = 0; i < WARMUP; i++) view.get();
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) view.get();
+        return ITERATIONS * 1_000_000_000L / Math.max(1, System.nanoTime() - startedAt);
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.Benchmark;
+import com.example.ticketboxcoreservice.configurations.ModelMapperConfig;
+import com.example.ticketboxcoreservice.model.dto.response.CustomPage;
+import com.example.ticketboxcoreservice.model.dto.response.SingleFlightStatsResponse;
+import com.example.ticketboxcoreservice.model.dto.response.TicketResponse;
+import com.example.ticketboxcoreservice.model.entity.Event;
+import com.example.ticketboxcoreservice.model.entity.Ticket;
+import com.example.ticketboxcoreservice.repository.EventRepository;
+import com.example.ticketboxcoreservice.repository.TicketRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// An on-sale rush on one event: CLIENTS threads released together ask for the same ticket page and lowest price,
+// ROUNDS times over, once with every request running its own queries and once through the single-flight groups.
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.show_sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate=WARN",
+        "logging.level.org.springframework=WARN"})
+@Import({TicketService.class, TicketHoldService.class, CartStore.class, SingleFlightRegistry.class,
+        InventoryService.class, ConditionalUpdateInventoryStrategy.class, ModelMapperConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CatalogReadCoalescingLoadTest {
+    private static final int CLIENTS = 64;
+    private static final int ROUNDS = 20;
+    private static final int TICKETS = 20;
+
+    @Autowired
+    private TicketService ticketService;
+    @Autowired
+    private SingleFlightRegistry singleFlightRegistry;
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private TicketRepository ticketRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void identicalConcurrentReadsShareOneLoad() throws Exception {
+        Rushes rushes = rushUncoalescedThenCoalesced();
+
+        for (int i = 0; i < rushes.coalesced().size(); i++) {
+            assertEquals(rushes.uncoalesced().get(i).getPageContent().size(),
+                    rushes.coalesced().get(i).getPageContent().size());
+            assertEquals(rushes.uncoalesced().get(i).getTotalPages(), rushes.coalesced().get(i).getTotalPages());
+        }
+        assertEquals((long) CLIENTS * ROUNDS, rushes.calls());
+        assertEquals(rushes.calls() - rushes.coalescedCalls(), rushes.loads());
+        assertTrue(rushes.coalescedCalls() > 0);
+        assertTrue(rushes.coalescedStatements() < rushes.uncoalescedStatements());
+    }
+
+    @Benchmark
+    void singleFlightCutsStatementsAndTimeOfARush() throws Exception {
+        Rushes rushes = rushUncoalescedThenCoalesced();
+
+        System.out.printf("catalog reads: %d clients x %d rounds, uncoalesced %d statements in %d ms, "
+                        + "single-flight %d statements in %d ms, page hit rate %.2f%n", CLIENTS, ROUNDS,
+                rushes.uncoalescedStatements(), rushes.uncoalescedNanos() / 1_000_000,
+                rushes.coalescedStatements(), rushes.coalescedNanos() / 1_000_000,
+                (double) rushes.coalescedCalls() / rushes.calls());
+        assertTrue(rushes.coalescedStatements() < rushes.uncoalescedStatements());
+    }
+
+    private Rushes rushUncoalescedThenCoalesced() throws Exception {
+        Long eventId = new TransactionTemplate(transactionManager).execute(status -> createEvent());
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        ReflectionTestUtils.setField(singleFlightRegistry, "enabled", false);
+        statistics.clear();
+        long start = System.nanoTime();
+        List<CustomPage<TicketResponse>> uncoalesced = rush(eventId);
+        long uncoalescedNanos = System.nanoTime() - start;
+        long uncoalescedStatements = statistics.getPrepareStatementCount();
+
+        // the group counters are shared by the context, only what this rush adds is its own
+        SingleFlightStatsResponse before = pageStats();
+        ReflectionTestUtils.setField(singleFlightRegistry, "enabled", true);
+        statistics.clear();
+        start = System.nanoTime();
+        List<CustomPage<TicketResponse>> coalesced = rush(eventId);
+        long coalescedNanos = System.nanoTime() - start;
+        long coalescedStatements = statistics.getPrepareStatementCount();
+        SingleFlightStatsResponse after = pageStats();
+
+        return new Rushes(uncoalesced, uncoalescedStatements, uncoalescedNanos, coalesced, coalescedStatements,
+                coalescedNanos, after.getCalls() - before.getCalls(), after.getLoads() - before.getLoads(),
+                after.getCoalesced() - before.getCoalesced());
+    }
+
+    private SingleFlightStatsResponse pageStats() {
+        return singleFlightRegistry.getStats().stream()
+                .filter(stats -> stats.getName().equals("tickets-by-event-id")).findFirst().orElseThrow();
+    }
+
+    private List<CustomPage<TicketResponse>> rush(Long eventId) throws Exception {
+        List<CustomPage<TicketResponse>> pages = new ArrayList<>();
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<CustomPage<TicketResponse>>> responses = new ArrayList<>();
+                for (int i = 0; i < CLIENTS; i++) {
+                    responses.add(clients.submit(() -> {
+                        start.await();
+                        ticketService.getLowestTicketPriceByEventId(eventId);
+                        return ticketService.getTicketsByEventId(eventId, PageRequest.of(0, 10));
+                    }));
+                }
+                start.countDown();
+                for (Future<CustomPage<TicketResponse>> response : responses) pages.add(response.get());
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+        return pages;
+    }
+
+    private Long createEvent() {
+        Event event = new Event();
+        event.setStartDate(LocalDateTime.now());
+        event.setEndDate(LocalDateTime.now().plusDays(1));
+        event = eventRepository.save(event);
+        for (int i = 0; i < TICKETS; i++) {
+            Ticket ticket = new Ticket();
+            ticket.setEvent(event);
+            ticket.setType("type-" + i);
+            ticket.setUnitPrice(10d * (i + 1));
+            ticket.setCapacity(1_000L);
+            ticket.setSold(0L);
+            ticketRepository.save(ticket);
+        }
+        return event.getId();
+    }
+
+    private record Rushes(List<CustomPage<TicketResponse>> uncoalesced, long uncoalescedStatements,
+                          long uncoalescedNanos, List<CustomPage<TicketResponse>> coalesced,
+                          long coalescedStatements, long coalescedNanos, long calls, long loads,
+                          long coalescedCalls) {
+    }
+}
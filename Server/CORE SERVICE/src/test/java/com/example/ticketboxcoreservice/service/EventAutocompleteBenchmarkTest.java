@@ -0,0 +1,146 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.Benchmark;
+import com.example.ticketboxcoreservice.enumf.Constants;
+import com.example.ticketboxcoreservice.model.dto.response.AutocompleteResponse;
+import com.example.ticketboxcoreservice.repository.EventRepository;
+import com.example.ticketboxcoreservice.utils.CompletionTrie;
+import com.example.ticketboxcoreservice.utils.SearchText;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Latency of single suggestion lookups on a trie holding the names, organizers and addresses of EVENTS generated
+// events, with prefixes of one to a dozen characters typed without diacritics as a user types them keystroke by
+// keystroke, then checks folding, ranking by sales and merging of the same text across events.
+class EventAutocompleteBenchmarkTest {
+    private static final int EVENTS = 100_000;
+    private static final int LOOKUPS = 100_000;
+    private static final int LIMIT = 10;
+
+    @Benchmark
+    void lookupsStayUnderAMillisecondAtP99() {
+        Random random = new Random(5);
+        String[] vocabulary = EventSearchBenchmarkTest.vocabulary();
+        String[] names = new String[EVENTS];
+        CompletionTrie.Builder<String> builder = new CompletionTrie.Builder<>(LIMIT);
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < EVENTS; i++) {
+            names[i] = EventSearchBenchmarkTest.phrase(random, vocabulary, 4);
+            // sales are as skewed as the words
+            long weight = 1 + (long) Math.pow(10_000, random.nextDouble());
+            add(builder, names[i], weight);
+            add(builder, EventSearchBenchmarkTest.phrase(random, vocabulary, 2), weight);
+            add(builder, EventSearchBenchmarkTest.phrase(random, vocabulary, 5), weight);
+        }
+        CompletionTrie<String> trie = builder.build();
+        long buildMillis = (System.nanoTime() - startedAt) / 1_000_000;
+
+        String[] prefixes = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            String typed = EventAutocompleteService.prefix(names[random.nextInt(EVENTS)]);
+            prefixes[i] = typed.substring(0, 1 + random.nextInt(Math.min(12, typed.length())));
+        }
+        for (int i = 0; i < 20_000; i++) trie.complete(prefixes[i], LIMIT);
+        long[] nanos = new long[LOOKUPS];
+        long found = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            long lookupStartedAt = System.nanoTime();
+            found += trie.complete(prefixes[i], LIMIT).size();
+            nanos[i] = System.nanoTime() - lookupStartedAt;
+        }
+        Arrays.sort(nanos);
+        double p50Micros = nanos[LOOKUPS / 2] / 1e3;
+        double p99Micros = nanos[LOOKUPS * 99 / 100] / 1e3;
+
+        System.out.printf("event autocomplete: %d suggestions under %d keys built in %d ms, lookup p50 %.1f us, "
+                + "p99 %.1f us%n", trie.size(), trie.keyCount(), buildMillis, p50Micros, p99Micros);
+        // every prefix is taken from an event name, so each lookup finds at least that one
+        assertTrue(found >= LOOKUPS);
+        assertTrue(p99Micros < 1_000);
+    }
+
+    @Test
+    void foldsRanksBySalesAndMergesRepeatedTexts() {
+        EventRepository eventRepository = mock(EventRepository.class);
+        when(eventRepository.findAutocompleteRowsAfter(eq(0L), any(), any(Pageable.class))).thenReturn(List.of(
+                row(1L, "Đêm nhạc Hà Nội", "Nhà hát lớn Hà Nội", "Đông Tây", 5L),
+                row(2L, "Hà Anh Tuấn live", "SVĐ Mỹ Đình", "Đông Tây", 50L),
+                row(3L, "Hài kịch cuối tuần", "Nhà hát lớn Hà Nội", "IDECAF", 0L)));
+        when(eventRepository.findAutocompleteRowsAfter(eq(3L), any(), any(Pageable.class))).thenReturn(List.of());
+        EventAutocompleteService service = new EventAutocompleteService(eventRepository);
+        ReflectionTestUtils.setField(service, "batchSize", 100);
+        ReflectionTestUtils.setField(service, "maxResults", LIMIT);
+        assertTrue(service.complete("ha", LIMIT).isEmpty());
+        service.rebuild();
+
+        // "ha" starts words of every event, the best selling first; "ha " only matches the word ha itself
+        List<AutocompleteResponse> ha = service.complete("HA", LIMIT);
+        assertEquals("Hà Anh Tuấn live", ha.get(0).getText());
+        assertEquals(2L, ha.get(0).getEventId());
+        assertTrue(ha.stream().anyMatch(suggestion -> suggestion.getText().equals("Hài kịch cuối tuần")));
+        assertFalse(service.complete("ha ", LIMIT).stream()
+                .anyMatch(suggestion -> suggestion.getText().equals("Hài kịch cuối tuần")));
+        assertEquals(List.of("Đêm nhạc Hà Nội"), service.complete("nhạc ha n", LIMIT).stream()
+                .map(AutocompleteResponse::getText).toList());
+
+        // one organizer and one venue across two events, with the sales of both and no single event
+        List<AutocompleteResponse> dong = service.complete("dong", LIMIT);
+        assertEquals(1, dong.size());
+        assertEquals(Constants.AUTOCOMPLETE_TYPE_ORGANIZER, dong.get(0).getType());
+        assertNull(dong.get(0).getEventId());
+        List<AutocompleteResponse> venue = service.complete("nha hat", LIMIT);
+        assertEquals(1, venue.size());
+        assertEquals(Constants.AUTOCOMPLETE_TYPE_VENUE, venue.get(0).getType());
+        assertEquals(1, service.complete("ha", 1).size());
+        assertTrue(service.complete("  ", LIMIT).isEmpty());
+        assertTrue(service.complete("xyz", LIMIT).isEmpty());
+    }
+
+    private static void add(CompletionTrie.Builder<String> builder, String text, long weight) {
+        builder.add(text, weight, EventAutocompleteService.keys(String.join(" ", SearchText.tokens(text))));
+    }
+
+    private static EventRepository.AutocompleteRow row(Long id, String name, String address, String orgName,
+                                                       Long sold) {
+        return new EventRepository.AutocompleteRow() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public String getAddress() {
+                return address;
+            }
+
+            @Override
+            public String getOrgName() {
+                return orgName;
+            }
+
+            @Override
+            public Long getSold() {
+                return sold;
+            }
+        };
+    }
+}
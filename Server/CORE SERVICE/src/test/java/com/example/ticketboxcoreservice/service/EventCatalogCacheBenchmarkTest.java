@@ -0,0 +1,175 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.Benchmark;
+import com.example.ticketboxcoreservice.configurations.ModelMapperConfig;
+import com.example.ticketboxcoreservice.enumf.Constants;
+import com.example.ticketboxcoreservice.model.dto.request.EventMediaRequest;
+import com.example.ticketboxcoreservice.model.dto.response.CustomPage;
+import com.example.ticketboxcoreservice.model.dto.response.EventCacheStatsResponse;
+import com.example.ticketboxcoreservice.model.dto.response.EventResponse;
+import com.example.ticketboxcoreservice.model.entity.Event;
+import com.example.ticketboxcoreservice.repository.EventRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Event views and list pages per second straight from the database and from the near-cache, then checks that a
+// change drops only what it touches and that an expired page is served stale while it reloads.
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.show_sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate=WARN",
+        "logging.level.org.springframework=WARN"})
+@Import({EventService.class, EventCatalogCache.class, EventSearchIndex.class, SingleFlightRegistry.class,
+        DataMigrationService.class, ModelMapperConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EventCatalogCacheBenchmarkTest {
+    private static final int EVENTS = 40;
+    private static final int WARMUP = 500;
+    private static final int ITERATIONS = 5_000;
+    private static final Pageable FIRST_PAGE = PageRequest.of(0, 20);
+    private static final Pageable SECOND_PAGE = PageRequest.of(1, 20);
+
+    @MockitoBean
+    private UserService userService;
+    @MockitoBean
+    private PdfService pdfService;
+    @MockitoBean
+    private ImageService imageService;
+
+    @Autowired
+    private EventService eventService;
+    @Autowired
+    private EventCatalogCache eventCatalogCache;
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void cachedReadsSkipTheDatabaseAndAreInvalidatedPrecisely() throws InterruptedException {
+        List<Long> eventIds = new TransactionTemplate(transactionManager).execute(status -> createEvents());
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        eventService.getEventByEventId(eventIds.get(0));
+        eventService.getAllEventsByStatus(Constants.EVENT_STATUS_UPCOMING, FIRST_PAGE);
+        statistics.clear();
+        eventService.getEventByEventId(eventIds.get(0));
+        eventService.getAllEventsByStatus(Constants.EVENT_STATUS_UPCOMING, FIRST_PAGE);
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        // new media on an event of the first page reloads that page only
+        CustomPage<EventResponse> first = eventService.getAllEventsByStatus(Constants.EVENT_STATUS_UPCOMING,
+                FIRST_PAGE);
+        CustomPage<EventResponse> second = eventService.getAllEventsByStatus(Constants.EVENT_STATUS_UPCOMING,
+                SECOND_PAGE);
+        Long firstPageEventId = Long.valueOf(first.getPageContent().get(0).getId());
+        jdbcTemplate.update("UPDATE s_event SET name = ? WHERE id = ?", "renamed", firstPageEventId);
+        eventService.updateEventMultipartFiles(firstPageEventId, new EventMediaRequest());
+        CustomPage<EventResponse> firstAfter = eventService.getAllEventsByStatus(Constants.EVENT_STATUS_UPCOMING,
+                FIRST_PAGE);
+        assertNotSame(first, firstAfter);
+        assertEquals("renamed", firstAfter.getPageContent().get(0).getName());
+        assertSame(second, eventService.getAllEventsByStatus(Constants.EVENT_STATUS_UPCOMING, SECOND_PAGE));
+        assertEquals("renamed", eventService.getEventByEventId(firstPageEventId).getName());
+
+        // an event leaving the list shifts every page of it, pages of other lists stay
+        CustomPage<EventResponse> pending = eventService.getAllEventsByStatus(Constants.EVENT_STATUS_PENDING,
+                FIRST_PAGE);
+        CustomPage<EventResponse> ended = eventService.getAllEventsByStatus(Constants.EVENT_STATUS_ENDED, FIRST_PAGE);
+        Long lastEventId = eventIds.get(EVENTS - 1);
+        jdbcTemplate.update("UPDATE s_event SET status = ? WHERE id = ?", Constants.EVENT_STATUS_PENDING,
+                lastEventId);
+        eventCatalogCache.invalidateEvent(lastEventId,
+                Set.of(Constants.EVENT_STATUS_UPCOMING, Constants.EVENT_STATUS_PENDING), Set.of());
+        assertEquals(EVENTS - 1 - 20, eventService.getAllEventsByStatus(Constants.EVENT_STATUS_UPCOMING,
+                SECOND_PAGE).getPageContent().size());
+        assertEquals(1, eventService.getAllEventsByStatus(Constants.EVENT_STATUS_PENDING, FIRST_PAGE)
+                .getPageContent().size());
+        assertNotSame(pending, eventService.getAllEventsByStatus(Constants.EVENT_STATUS_PENDING, FIRST_PAGE));
+        assertSame(ended, eventService.getAllEventsByStatus(Constants.EVENT_STATUS_ENDED, FIRST_PAGE));
+
+        // past its TTL a page is answered from the cache while a single background load replaces it
+        ReflectionTestUtils.setField(eventCatalogCache, "pageTtlMillis", 0L);
+        CustomPage<EventResponse> stale = eventService.getAllEventsByStatus(Constants.EVENT_STATUS_ENDED, FIRST_PAGE);
+        assertSame(ended, stale);
+        assertEquals(1, eventCatalogCache.getStats().getPageStaleHits());
+        ReflectionTestUtils.setField(eventCatalogCache, "pageTtlMillis", 60_000L);
+        for (int i = 0; i < 100 && ended == eventService.getAllEventsByStatus(Constants.EVENT_STATUS_ENDED,
+                FIRST_PAGE); i++) {
+            Thread.sleep(10);
+        }
+        assertNotSame(ended, eventService.getAllEventsByStatus(Constants.EVENT_STATUS_ENDED, FIRST_PAGE));
+    }
+
+    @Benchmark
+    void cachedReadsAreFaster() {
+        Long eventId = new TransactionTemplate(transactionManager).execute(status -> createEvents()).get(0);
+        ReflectionTestUtils.setField(eventCatalogCache, "enabled", false);
+        long uncachedViews = perSecond(() -> eventService.getEventByEventId(eventId));
+        long uncachedPages = perSecond(() -> eventService.getAllEventsByStatus(Constants.EVENT_STATUS_UPCOMING,
+                FIRST_PAGE));
+        ReflectionTestUtils.setField(eventCatalogCache, "enabled", true);
+        long cachedViews = perSecond(() -> eventService.getEventByEventId(eventId));
+        long cachedPages = perSecond(() -> eventService.getAllEventsByStatus(Constants.EVENT_STATUS_UPCOMING,
+                FIRST_PAGE));
+        EventCacheStatsResponse stats = eventCatalogCache.getStats();
+        System.out.printf("event cache: event view %d/s uncached, %d/s cached; list page %d/s uncached, "
+                        + "%d/s cached; %d bytes in %d entries%n", uncachedViews, cachedViews, uncachedPages,
+                cachedPages, stats.getEventBytes() + stats.getPageBytes(), stats.getEventEntries()
+                        + stats.getPageEntries());
+        assertTrue(cachedViews > uncachedViews);
+        assertTrue(cachedPages > uncachedPages);
+    }
+
+    private List<Long> createEvents() {
+        List<Long> eventIds = new ArrayList<>();
+        for (int i = 0; i < EVENTS; i++) {
+            Event event = new Event();
+            event.setName("event-" + i);
+            event.setAddress("address of event " + i);
+            event.setOrgName("organizer " + i);
+            event.setStatus(Constants.EVENT_STATUS_UPCOMING);
+            event.setCreateDate(LocalDateTime.now());
+            event.setStartDate(LocalDateTime.now().plusDays(1));
+            event.setEndDate(LocalDateTime.now().plusDays(2));
+            eventIds.add(eventRepository.save(event).getId());
+        }
+        return eventIds;
+    }
+
+    private static long perSecond(Supplier<?> read) {
+        for (int i = 0; i < WARMUP; i++) read.get();
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) read.get();
+        return ITERATIONS * 1_000_000_000L / Math.max(1, System.nanoTime() - startedAt);
+    }
+}
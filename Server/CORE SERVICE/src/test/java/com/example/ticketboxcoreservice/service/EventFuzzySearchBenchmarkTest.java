@@ -0,0 +1,158 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.Benchmark;
+import com.example.ticketboxcoreservice.utils.InvertedIndex;
+import com.example.ticketboxcoreservice.utils.SearchText;
+import com.example.ticketboxcoreservice.utils.SymmetricDeleteDictionary;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Misspelled searches over EVENTS generated events, each named after one of ARTISTS made-up artists followed by a
+// few Vietnamese-like words. A query is an event's artist with one typo (two from six letters on) and the word after
+// it. Exact search finds almost none of them; fuzzy search is timed per query and against the cheap alternative for
+// the typo alone, comparing the word with every artist name in the dictionary.
+class EventFuzzySearchBenchmarkTest {
+    private static final int EVENTS = 200_000;
+    private static final int ARTISTS = 50_000;
+    private static final int QUERIES = 2_000;
+    private static final int SCAN_QUERIES = 200;
+    private static final int PAGE_SIZE = 10;
+    private static final int MAX_EDITS = 2;
+    private static final String CONSONANTS = "bcdfghklmnprstvz";
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+
+    @Benchmark
+    void fuzzySearchFindsMisspelledArtistsWithoutScanningTheDictionary() {
+        Random random = new Random(3);
+        String[] vocabulary = EventSearchBenchmarkTest.vocabulary();
+        String[] artists = artists(random);
+        String[] names = new String[EVENTS];
+        InvertedIndex index = new InvertedIndex(MAX_EDITS);
+        long startedAt = System.nanoTime();
+        for (int id = 1; id <= EVENTS; id++) {
+            String artist = artists[random.nextInt(ARTISTS)];
+            names[id - 1] = artist + ' ' + EventSearchBenchmarkTest.phrase(random, vocabulary, 3);
+            index.put(id, EventSearchIndex.document(names[id - 1], EventSearchBenchmarkTest.phrase(random,
+                    vocabulary, 5), EventSearchBenchmarkTest.phrase(random, vocabulary, 2), List.of()));
+        }
+        long buildMillis = (System.nanoTime() - startedAt) / 1_000_000;
+
+        int[] targets = new int[QUERIES];
+        String[] typos = new String[QUERIES];
+        List<List<String>> queries = new ArrayList<>();
+        for (int i = 0; i < QUERIES; i++) {
+            targets[i] = 1 + random.nextInt(EVENTS);
+            List<String> words = SearchText.tokens(names[targets[i] - 1]);
+            typos[i] = misspell(random, words.get(0));
+            queries.add(List.of(typos[i], words.get(1)));
+        }
+        int exactFound = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            if (contains(index.search(queries.get(i), 0, PAGE_SIZE).ids(), targets[i])) exactFound++;
+        }
+        for (int i = 0; i < 200; i++) index.search(queries.get(i), MAX_EDITS, 0, PAGE_SIZE);
+        long[] nanos = new long[QUERIES];
+        int fuzzyFound = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            long queryStartedAt = System.nanoTime();
+            long[] ids = index.search(queries.get(i), MAX_EDITS, 0, PAGE_SIZE).ids();
+            nanos[i] = System.nanoTime() - queryStartedAt;
+            if (contains(ids, targets[i])) fuzzyFound++;
+        }
+        Arrays.sort(nanos);
+        double p50Millis = nanos[QUERIES / 2] / 1e6;
+        double p99Millis = nanos[QUERIES * 99 / 100] / 1e6;
+
+        startedAt = System.nanoTime();
+        long scanMatched = 0;
+        for (int i = 0; i < SCAN_QUERIES; i++) {
+            for (String artist : artists) {
+                if (SymmetricDeleteDictionary.distance(typos[i], artist, MAX_EDITS) <= MAX_EDITS) scanMatched++;
+            }
+        }
+        double scanMillis = (System.nanoTime() - startedAt) / 1e6 / SCAN_QUERIES;
+
+        System.out.printf("fuzzy event search: %d events indexed in %d ms, found %d of %d misspelled queries exact "
+                        + "and %d fuzzy, fuzzy p50 %.2f ms, p99 %.2f ms; scanning %d artist names for the typo "
+                        + "alone %.2f ms/query%n", EVENTS, buildMillis, exactFound, QUERIES, fuzzyFound, p50Millis,
+                p99Millis, ARTISTS, scanMillis);
+        assertTrue(scanMatched >= SCAN_QUERIES);
+        assertTrue(exactFound < QUERIES / 10);
+        assertTrue(fuzzyFound > QUERIES * 9 / 10);
+        assertTrue(p50Millis < scanMillis);
+    }
+
+    @Test
+    void matchesTyposAndRanksExactMatchesFirst() {
+        InvertedIndex index = new InvertedIndex(MAX_EDITS);
+        index.put(1, EventSearchIndex.document("Phương Mỹ Chi live", "Nhà hát Hòa Bình", "Đông Tây", List.of()));
+        index.put(2, EventSearchIndex.document("Đêm nhạc Hà Nội", "Nhà hát lớn", "Đông Tây", List.of()));
+        index.put(3, EventSearchIndex.document("Đêm nhất Hà Nội", "Cung văn hóa", "Nhã Nam", List.of()));
+
+        assertArrayEquals(new long[]{1}, index.search(SearchText.tokens("phuog my chi"), MAX_EDITS, 0, PAGE_SIZE)
+                .ids());
+        assertArrayEquals(new long[]{1}, index.search(SearchText.tokens("hoa bnih"), MAX_EDITS, 0, PAGE_SIZE).ids());
+        assertEquals(0, index.search(SearchText.tokens("hoa bnih"), 0, PAGE_SIZE).total());
+        // one typo away from both nhac and nhat, the exact one first; exact search finds only it
+        assertArrayEquals(new long[]{2, 3}, index.search(SearchText.tokens("dem nhac"), MAX_EDITS, 0, PAGE_SIZE)
+                .ids());
+        assertArrayEquals(new long[]{2}, index.search(SearchText.tokens("dem nhac"), 0, PAGE_SIZE).ids());
+        // two letter words get no typos
+        assertEquals(0, index.search(SearchText.tokens("dem hi"), MAX_EDITS, 0, PAGE_SIZE).total());
+
+        assertEquals(1, SymmetricDeleteDictionary.distance("binh", "bnih", 2));
+        assertEquals(3, SymmetricDeleteDictionary.distance("kitten", "sitting", 3));
+        assertEquals(3, SymmetricDeleteDictionary.distance("kitten", "sitting", 2));
+        assertEquals(2, SymmetricDeleteDictionary.distance("phuong", "phuo", 2));
+    }
+
+    // pronounceable made-up names of five to ten letters, all different
+    private static String[] artists(Random random) {
+        Set<String> artists = new LinkedHashSet<>();
+        while (artists.size() < ARTISTS) {
+            int length = 5 + random.nextInt(6);
+            StringBuilder artist = new StringBuilder(length);
+            for (int i = 0; i < length; i++) {
+                artist.append(i % 2 == 0 ? CONSONANTS.charAt(random.nextInt(CONSONANTS.length()))
+                        : "aeiou".charAt(random.nextInt(5)));
+            }
+            artists.add(artist.toString());
+        }
+        return artists.toArray(String[]::new);
+    }
+
+    // as many deleted, inserted, replaced or swapped letters as fuzzy search allows for the word
+    private static String misspell(Random random, String word) {
+        StringBuilder typo = new StringBuilder(word);
+        int edits = word.length() < 6 ? 1 : 2;
+        for (int edit = 0; edit < edits; edit++) {
+            int at = random.nextInt(typo.length() - 1);
+            switch (random.nextInt(4)) {
+                case 0 -> typo.deleteCharAt(at);
+                case 1 -> typo.insert(at, LETTERS.charAt(random.nextInt(LETTERS.length())));
+                case 2 -> typo.setCharAt(at, LETTERS.charAt(random.nextInt(LETTERS.length())));
+                default -> {
+                    char swapped = typo.charAt(at);
+                    typo.setCharAt(at, typo.charAt(at + 1));
+                    typo.setCharAt(at + 1, swapped);
+                }
+            }
+        }
+        return typo.toString();
+    }
+
+    private static boolean contains(long[] ids, long id) {
+        for (long candidate : ids) if (candidate == id) return true;
+        return false;
+    }
+}
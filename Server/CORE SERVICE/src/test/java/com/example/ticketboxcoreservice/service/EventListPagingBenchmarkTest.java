@@ -0,0 +1,265 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.Benchmark;
+import com.example.ticketboxcoreservice.configurations.ModelMapperConfig;
+import com.example.ticketboxcoreservice.enumf.Constants;
+import com.example.ticketboxcoreservice.enumf.ErrorCode;
+import com.example.ticketboxcoreservice.enumf.PageTotal;
+import com.example.ticketboxcoreservice.exception.AppException;
+import com.example.ticketboxcoreservice.model.dto.response.CustomPage;
+import com.example.ticketboxcoreservice.model.dto.response.EventResponse;
+import com.example.ticketboxcoreservice.utils.KeysetPaging;
+import com.example.ticketboxcoreservice.utils.SortWhitelist;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The last page of a long event list by page number (OFFSET) and by seek cursor, then walks the whole list in cursor
+// mode, with many events sharing a start date, checking every event comes exactly once and in order. Last, a page with
+// its COUNT(*) against one read as a slice, and the cached total going inexact when the list changes.
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.show_sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate=WARN",
+        "logging.level.org.springframework=WARN"})
+@Import({EventService.class, EventCatalogCache.class, EventSearchIndex.class, SingleFlightRegistry.class,
+        DataMigrationService.class, ModelMapperConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+// the 50k events and the switched off cache must not reach other tests sharing this context
+@DirtiesContext
+class EventListPagingBenchmarkTest {
+    private static final int EVENTS = 50_000;
+    private static final int WALKED_EVENTS = 10_000;
+    private static final int PAGE_SIZE = 20;
+    private static final int ROUNDS = 20;
+    private static final SortWhitelist EVENT_SORTS = new SortWhitelist("id", "startDate");
+
+    @MockitoBean
+    private UserService userService;
+    @MockitoBean
+    private PdfService pdfService;
+    @MockitoBean
+    private ImageService imageService;
+
+    @Autowired
+    private EventService eventService;
+    @Autowired
+    private EventCatalogCache eventCatalogCache;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Benchmark
+    void deepPagesAreCheaperBySeekCursorThanByOffset() {
+        insertEvents(EVENTS);
+        ReflectionTestUtils.setField(eventCatalogCache, "enabled", false);
+        Sort sort = EVENT_SORTS.sort("id", "asc");
+        int lastPage = EVENTS / PAGE_SIZE;
+        // the cursor the page before the last one hands out, positioned after its last event
+        CustomPage<EventResponse> secondToLast = eventService.getAllEventsByStatus(Constants.EVENT_STATUS_UPCOMING,
+                PageRequest.of(lastPage - 2, PAGE_SIZE, sort));
+        String cursor = KeysetPaging.encode(ScrollPosition.forward(Map.of("id",
+                Long.valueOf(secondToLast.getPageContent().get(PAGE_SIZE - 1).getId()))));
+
+        for (int i = 0; i < 3; i++) {
+            eventService.getAllEventsByStatus(Constants.EVENT_STATUS_UPCOMING,
+                    PageRequest.of(lastPage - 1, PAGE_SIZE, sort));
+            eventService.scrollEventsByStatus(Constants.EVENT_STATUS_UPCOMING, cursor, PAGE_SIZE, sort);
+        }
+        long startedAt = System.nanoTime();
+        CustomPage<EventResponse> byOffset = null;
+        for (int i = 0; i < ROUNDS; i++) {
+            byOffset = eventService.getAllEventsByStatus(Constants.EVENT_STATUS_UPCOMING,
+                    PageRequest.of(lastPage - 1, PAGE_SIZE, sort));
+        }
+        double offsetMillis = (System.nanoTime() - startedAt) / 1e6 / ROUNDS;
+        startedAt = System.nanoTime();
+        CustomPage<EventResponse> byCursor = null;
+        for (int i = 0; i < ROUNDS; i++) {
+            byCursor = eventService.scrollEventsByStatus(Constants.EVENT_STATUS_UPCOMING, cursor, PAGE_SIZE, sort);
+        }
+        double cursorMillis = (System.nanoTime() - startedAt) / 1e6 / ROUNDS;
+
+        System.out.printf("event list paging over %d events: last page by offset %.2f ms, by cursor %.2f ms%n",
+                EVENTS, offsetMillis, cursorMillis);
+        assertEquals(ids(byOffset), ids(byCursor));
+        assertNull(byCursor.getNextCursor());
+        assertTrue(cursorMillis * 2 < offsetMillis);
+    }
+
+    @Test
+    void cursorModeWalksEveryEventOnceInOrder() {
+        insertEvents(WALKED_EVENTS);
+        for (String direction : List.of("asc", "desc")) {
+            Sort sort = EVENT_SORTS.sort("startDate", direction);
+            List<Long> walked = new ArrayList<>();
+            String cursor = "";
+            while (cursor != null) {
+                CustomPage<EventResponse> page = eventService.scrollEventsByStatus(Constants.EVENT_STATUS_UPCOMING,
+                        cursor, 500, sort);
+                walked.addAll(ids(page));
+                cursor = page.getNextCursor();
+            }
+            // start dates repeat every 100 events, ties are broken by id in the same direction
+            Comparator<Long> order = Comparator.<Long>comparingLong(id -> id % 100).thenComparingLong(id -> id);
+            List<Long> expected = new ArrayList<>();
+            for (long id = 1; id <= WALKED_EVENTS; id++) expected.add(id);
+            expected.sort(direction.equals("asc") ? order : order.reversed());
+            assertEquals(expected, walked);
+        }
+
+        Sort byId = EVENT_SORTS.sort("id", "asc");
+        String cursor = eventService.scrollEventsByStatus(Constants.EVENT_STATUS_UPCOMING, "", PAGE_SIZE, byId)
+                .getNextCursor();
+        assertEquals(ErrorCode.PAGE_CURSOR_INVALID, assertThrows(AppException.class, () -> eventService
+                .scrollEventsByStatus(Constants.EVENT_STATUS_UPCOMING, cursor, PAGE_SIZE,
+                        EVENT_SORTS.sort("startDate", "asc"))).getErrorCode());
+        assertEquals(ErrorCode.PAGE_CURSOR_INVALID, assertThrows(AppException.class, () -> eventService
+                .scrollEventsByStatus(Constants.EVENT_STATUS_UPCOMING, "not-a-cursor", PAGE_SIZE, byId))
+                .getErrorCode());
+        assertEquals(ErrorCode.SORT_KEY_NOT_ALLOWED, assertThrows(AppException.class,
+                () -> EVENT_SORTS.sort("orgInfo", "asc")).getErrorCode());
+        assertEquals(ErrorCode.SORT_KEY_NOT_ALLOWED, assertThrows(AppException.class,
+                () -> EVENT_SORTS.sort("id", "sideways")).getErrorCode());
+
+        // every whitelisted sort has its index
+        List<String> indexes = jdbcTemplate.queryForList("SELECT LOWER(INDEX_NAME) FROM INFORMATION_SCHEMA.INDEXES",
+                String.class);
+        for (String index : List.of("idx_event_status_id", "idx_event_status_start_date", "idx_event_host_status_id",
+                "idx_event_host_status_start_date", "idx_event_approver_start_date", "idx_cat_event_category_event",
+                "idx_ticket_event_unit_price", "idx_order_buyer_status_purchase_date")) {
+            assertTrue(indexes.contains(index), index);
+        }
+    }
+
+    @Test
+    void slicesSkipTheCountAndEstimatedTotalsComeFromTheCache() throws InterruptedException {
+        insertEvents(EVENTS);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        ReflectionTestUtils.setField(eventCatalogCache, "enabled", false);
+        Pageable firstPage = PageRequest.of(0, PAGE_SIZE, EVENT_SORTS.sort("id", "asc"));
+        Supplier<CustomPage<EventResponse>> counted = () -> eventService.getAllEventsByStatus(
+                Constants.EVENT_STATUS_UPCOMING, firstPage);
+        Supplier<CustomPage<EventResponse>> sliced = () -> eventService.sliceEventsByStatus(
+                Constants.EVENT_STATUS_UPCOMING, firstPage, false);
+        statistics.clear();
+        CustomPage<EventResponse> page = counted.get();
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(EVENTS / PAGE_SIZE, page.getTotalPages());
+        assertTrue(page.getHasNext() && page.getTotalExact());
+        statistics.clear();
+        CustomPage<EventResponse> slice = sliced.get();
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(ids(page), ids(slice));
+        assertTrue(slice.getHasNext());
+        assertEquals(0, slice.getTotalPages());
+        assertNull(slice.getTotalExact());
+
+        // the count is taken once, then the page and its total both come from the cache
+        ReflectionTestUtils.setField(eventCatalogCache, "enabled", true);
+        CustomPage<EventResponse> estimated = eventService.sliceEventsByStatus(Constants.EVENT_STATUS_UPCOMING,
+                firstPage, true);
+        assertEquals(EVENTS / PAGE_SIZE, estimated.getTotalPages());
+        assertTrue(estimated.getTotalExact());
+        statistics.clear();
+        eventService.sliceEventsByStatus(Constants.EVENT_STATUS_UPCOMING, firstPage, true);
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        // an event joining the list makes the total an estimate until the background count catches up
+        long addedId = EVENTS + 1;
+        jdbcTemplate.update("INSERT INTO s_event (id, name, status, start_date, create_date) VALUES (?, ?, ?, ?, ?)",
+                addedId, "event-" + addedId, Constants.EVENT_STATUS_UPCOMING, Timestamp.valueOf(LocalDateTime.now()),
+                Timestamp.valueOf(LocalDateTime.now()));
+        eventCatalogCache.invalidateEvent(addedId, Set.of(Constants.EVENT_STATUS_UPCOMING), Set.of());
+        estimated = eventService.sliceEventsByStatus(Constants.EVENT_STATUS_UPCOMING, firstPage, true);
+        assertEquals(EVENTS / PAGE_SIZE, estimated.getTotalPages());
+        assertFalse(estimated.getTotalExact());
+        for (int i = 0; i < 100 && !estimated.getTotalExact(); i++) {
+            Thread.sleep(10);
+            estimated = eventService.sliceEventsByStatus(Constants.EVENT_STATUS_UPCOMING, firstPage, true);
+        }
+        assertTrue(estimated.getTotalExact());
+        assertEquals(EVENTS / PAGE_SIZE + 1, estimated.getTotalPages());
+        assertEquals(1, eventCatalogCache.getStats().getCountMisses());
+
+        // the last page knows the size of the list without any count
+        ReflectionTestUtils.setField(eventCatalogCache, "enabled", false);
+        CustomPage<EventResponse> last = eventService.sliceEventsByStatus(Constants.EVENT_STATUS_UPCOMING,
+                PageRequest.of(EVENTS / PAGE_SIZE, PAGE_SIZE, firstPage.getSort()), false);
+        assertFalse(last.getHasNext());
+        assertEquals(List.of(addedId), ids(last));
+        assertEquals(ErrorCode.PAGE_TOTAL_NOT_ALLOWED, assertThrows(AppException.class,
+                () -> PageTotal.of("roughly")).getErrorCode());
+        assertEquals(PageTotal.ESTIMATE, PageTotal.of("estimate"));
+    }
+
+    @Benchmark
+    void slicesAreCheaperThanCountedPages() {
+        insertEvents(EVENTS);
+        ReflectionTestUtils.setField(eventCatalogCache, "enabled", false);
+        Pageable firstPage = PageRequest.of(0, PAGE_SIZE, EVENT_SORTS.sort("id", "asc"));
+        double countedMillis = millisPerRead(() -> eventService.getAllEventsByStatus(
+                Constants.EVENT_STATUS_UPCOMING, firstPage));
+        double slicedMillis = millisPerRead(() -> eventService.sliceEventsByStatus(
+                Constants.EVENT_STATUS_UPCOMING, firstPage, false));
+        System.out.printf("event list over %d events: first page with COUNT(*) %.2f ms, as a slice %.2f ms%n",
+                EVENTS, countedMillis, slicedMillis);
+        // H2 sorts the matching rows for both reads where MySQL walks idx_event_status_id, the saving is the count
+        assertTrue(slicedMillis < countedMillis);
+    }
+
+    private static double millisPerRead(Supplier<CustomPage<EventResponse>> read) {
+        for (int i = 0; i < 3; i++) read.get();
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) read.get();
+        return (System.nanoTime() - startedAt) / 1e6 / ROUNDS;
+    }
+
+    // start dates repeat every 100 ids
+    private void insertEvents(int count) {
+        jdbcTemplate.update("DELETE FROM s_event");
+        LocalDateTime base = LocalDateTime.of(2026, 1, 1, 20, 0);
+        List<Object[]> rows = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            rows.add(new Object[]{id, "event-" + id, Constants.EVENT_STATUS_UPCOMING,
+                    Timestamp.valueOf(base.plusDays(id % 100)), Timestamp.valueOf(base)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO s_event (id, name, status, start_date, create_date) "
+                + "VALUES (?, ?, ?, ?, ?)", rows);
+    }
+
+    private static List<Long> ids(CustomPage<EventResponse> page) {
+        return page.getPageContent().stream().map(event -> Long.valueOf(event.getId())).toList();
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.Benchmark;
+import com.example.ticketboxcoreservice.utils.InvertedIndex;
+import com.example.ticketboxcoreservice.utils.SearchText;
+import org.junit.jupiter.api.Test;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Search over EVENTS generated events: the inverted index against a scan testing every event's folded text for the
+// query, which is what LIKE '%x%' does row by row (the scan is even spared the database round trip and the row
+// reads). Words are Vietnamese-like syllables drawn with a skewed distribution, so a few are very common, and each
+// query is two adjacent words of some event's name typed without diacritics, as most users do.
+class EventSearchBenchmarkTest {
+    private static final int EVENTS = 1_000_000;
+    private static final int INDEX_QUERIES = 2_000;
+    private static final int SCAN_QUERIES = 20;
+    private static final int PAGE_SIZE = 10;
+    private static final String[] ONSETS = {"", "b", "c", "ch", "d", "đ", "g", "gi", "h", "kh", "l", "m", "n", "ng",
+            "nh", "ph", "qu", "s", "t", "th", "tr", "v", "x"};
+    private static final String[] VOWELS = {"a", "ă", "â", "e", "ê", "i", "o", "ô", "ơ", "u", "ư", "y", "iê", "ươ"};
+    // no tone, huyền, sắc, hỏi, ngã, nặng as combining marks
+    private static final String[] TONES = {"", "\u0300", "\u0301", "\u0309", "\u0303", "\u0323"};
+    private static final String[] CODAS = {"", "c", "ch", "m", "n", "ng", "nh", "p", "t", "i", "o", "u"};
+    private static final String[] CATEGORIES = {"Âm nhạc", "Thể thao", "Hội thảo", "Sân khấu", "Triển lãm",
+            "Ẩm thực"};
+
+    @Benchmark
+    void indexAnswersRankedPagesFasterThanScanningEveryEvent() {
+        Random random = new Random(7);
+        String[] vocabulary = vocabulary();
+        String[] names = new String[EVENTS];
+        String[] scanned = new String[EVENTS];
+        InvertedIndex index = new InvertedIndex();
+        long startedAt = System.nanoTime();
+        for (int id = 1; id <= EVENTS; id++) {
+            String name = phrase(random, vocabulary, 4);
+            String address = phrase(random, vocabulary, 5);
+            String orgName = phrase(random, vocabulary, 2);
+            names[id - 1] = name;
+            String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+            index.put(id, EventSearchIndex.document(name, address, orgName, List.of(category)));
+            scanned[id - 1] = SearchText.fold(name + '\n' + address + '\n' + orgName);
+        }
+        long buildMillis = (System.nanoTime() - startedAt) / 1_000_000;
+
+        String[] queries = new String[INDEX_QUERIES];
+        for (int i = 0; i < queries.length; i++) {
+            List<String> words = SearchText.tokens(names[random.nextInt(EVENTS)]);
+            int first = random.nextInt(words.size() - 1);
+            queries[i] = words.get(first) + ' ' + words.get(first + 1);
+        }
+        for (int i = 0; i < 200; i++) index.search(SearchText.tokens(queries[i]), 0, PAGE_SIZE);
+        startedAt = System.nanoTime();
+        long matched = 0;
+        for (String query : queries) matched += index.search(SearchText.tokens(query), 0, PAGE_SIZE).total();
+        double indexMillis = (System.nanoTime() - startedAt) / 1e6 / INDEX_QUERIES;
+
+        startedAt = System.nanoTime();
+        long scanMatched = 0;
+        for (int i = 0; i < SCAN_QUERIES; i++) {
+            for (String text : scanned) if (text.contains(queries[i])) scanMatched++;
+        }
+        double scanMillis = (System.nanoTime() - startedAt) / 1e6 / SCAN_QUERIES;
+
+        System.out.printf("event search: %d events indexed in %d ms, index %.2f ms/query (%d matches on average), "
+                        + "scan %.1f ms/query%n", EVENTS, buildMillis, indexMillis, matched / INDEX_QUERIES,
+                scanMillis);
+        assertEquals(EVENTS, index.size());
+        // every query is taken from an event, both approaches find at least that one
+        assertTrue(matched >= INDEX_QUERIES);
+        assertTrue(scanMatched >= SCAN_QUERIES);
+        assertTrue(indexMillis * 10 < scanMillis);
+    }
+
+    @Test
+    void foldsDiacriticsAndRanksNameMatchesFirst() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, EventSearchIndex.document("Triển lãm tranh", "36 Hà Nội", "Bảo tàng", List.of("Triển lãm")));
+        index.put(2, EventSearchIndex.document("Đêm nhạc Hà Nội", "Nhà hát lớn", "Đông Tây", List.of("Âm nhạc")));
+        index.put(3, EventSearchIndex.document("Hội chợ sách", "Đà Nẵng", "Nhã Nam", List.of("Triển lãm")));
+
+        assertArrayEquals(new long[]{2, 1}, index.search(SearchText.tokens("ha noi"), 0, PAGE_SIZE).ids());
+        assertArrayEquals(new long[]{2}, index.search(SearchText.tokens("DEM NHAC"), 0, PAGE_SIZE).ids());
+        assertArrayEquals(new long[]{3}, index.search(SearchText.tokens("đà nẵng"), 0, PAGE_SIZE).ids());
+        assertEquals(2, index.search(SearchText.tokens("triển lãm"), 0, PAGE_SIZE).total());
+        assertArrayEquals(new long[]{3}, index.search(SearchText.tokens("trien lam"), 1, PAGE_SIZE).ids());
+        // the last word may still be being typed, from three letters on it also matches the start of a term, below a
+        // whole term
+        assertArrayEquals(new long[]{3}, index.search(SearchText.tokens("hoi cho sac"), 0, PAGE_SIZE).ids());
+        assertEquals(0, index.search(SearchText.tokens("hoi cho sa"), 0, PAGE_SIZE).total());
+        assertEquals(0, index.search(SearchText.tokens("sac cho"), 0, PAGE_SIZE).total());
+        index.put(4, EventSearchIndex.document("Sách cũ", "Huế", "Nhã Nam", List.of()));
+        index.put(5, EventSearchIndex.document("Sắc màu", "Huế", "Nhã Nam", List.of()));
+        InvertedIndex.Hits hits = index.search(SearchText.tokens("sac"), 0, PAGE_SIZE);
+        assertEquals(3, hits.total());
+        assertEquals(5, hits.ids()[0]);
+        index.remove(4);
+        index.remove(5);
+
+        // a changed event is found by its new text only, a removed one not at all
+        index.put(1, EventSearchIndex.document("Hòa nhạc mùa thu", "Huế", "Bảo tàng", List.of("Âm nhạc")));
+        assertArrayEquals(new long[]{3}, index.search(SearchText.tokens("trien lam"), 0, PAGE_SIZE).ids());
+        index.remove(2);
+        assertArrayEquals(new long[]{1}, index.search(SearchText.tokens("nhac"), 0, PAGE_SIZE).ids());
+    }
+
+    // every onset, vowel, tone and coda combination, about 23k syllables with the tone mark on the vowel
+    static String[] vocabulary() {
+        List<String> vocabulary = new ArrayList<>();
+        for (String vowel : VOWELS) {
+            for (String tone : TONES) {
+                for (String coda : CODAS) {
+                    for (String onset : ONSETS) {
+                        String syllable = Normalizer.normalize(onset + vowel + tone + coda, Normalizer.Form.NFC);
+                        vocabulary.add(Character.toUpperCase(syllable.charAt(0)) + syllable.substring(1));
+                    }
+                }
+            }
+        }
+        // shuffled so the common words are not all built on the same vowel
+        Collections.shuffle(vocabulary, new Random(11));
+        return vocabulary.toArray(String[]::new);
+    }
+
+    // log-uniform over the vocabulary, close to the long tail of real words
+    static String phrase(Random random, String[] vocabulary, int words) {
+        StringBuilder phrase = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) phrase.append(' ');
+            phrase.append(vocabulary[(int) Math.pow(vocabulary.length, random.nextDouble()) - 1]);
+        }
+        return phrase.toString();
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.enumf.Constants;
+import com.example.ticketboxcoreservice.enumf.ErrorCode;
+import com.example.ticketboxcoreservice.exception.AppException;
+import com.example.ticketboxcoreservice.model.entity.Event;
+import com.example.ticketboxcoreservice.model.entity.Order;
+import com.example.ticketboxcoreservice.model.entity.OrderTicket;
+import com.example.ticketboxcoreservice.model.entity.Ticket;
+import com.example.ticketboxcoreservice.repository.EventRepository;
+import com.example.ticketboxcoreservice.repository.OrderRepository;
+import com.example.ticketboxcoreservice.repository.OrderTicketRepository;
+import com.example.ticketboxcoreservice.repository.TicketRepository;
+import com.example.ticketboxcoreservice.utils.TicketTokenClaims;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.show_sql=false",
+        "logging.level.org.hibernate=WARN",
+        "logging.level.org.springframework=WARN",
+        "app.fulfillment.workers=1",
+        "app.fulfillment.sweep-interval-ms=600000",
+        "app.fulfillment.max-attempts=3",
+        "app.fulfillment.retry-backoff-ms=0",
+        "app.jwt-secret=fe7276816fef85a611a8d9864c9679e491729cf34601a31d43aa30f866eb515d",
+        "app.jwt-expiration-milliseconds=3600000",
+        "app.order-ticket-jwt-secret=fe7276816fef85a611a8d9864c9679e491729cf34601a31d43aa30f866eb515d"})
+@Import({FulfillmentService.class, TicketTokenService.class, JwtService.class, TicketKeyService.class,
+        ObjectMapper.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class FulfillmentPipelineTest {
+    @MockitoBean
+    private QrCodeService qrCodeService;
+
+    @Autowired
+    private FulfillmentService fulfillmentService;
+    // the real one, an inline mock would rewrite its bytecode for every later test in the fork
+    @Autowired
+    private TicketTokenService ticketTokenService;
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private TicketRepository ticketRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private OrderTicketRepository orderTicketRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void publishedOrdersGetTokensAndAReceiptOnceHoweverOftenTheJobRuns() throws InterruptedException {
+        Order order = createPendingOrder(2, LocalDateTime.now().plusDays(1));
+        fulfillmentService.publishAfterCommit(order.getId());
+        Order done = awaitOrder(order.getId(), fulfilled());
+        List<OrderTicket> lines = orderTicketRepository.findAllById(lineIds(order.getId()));
+        TicketTokenClaims claims = new TicketTokenClaims();
+        lines.forEach(line ->
+                assertEquals(line.getId(), ticketTokenService.verify(line.getToken(), claims).getOrderTicketId()));
+        assertTrue(done.getReceiptNumber().matches("TB-\\d{8}-0*" + order.getId()));
+        assertNotNull(done.getFulfilledAt());
+
+        // a job that runs again, e.g. after a crash between its commit and the dequeue, issues nothing new
+        jdbcTemplate.update("UPDATE s_order_ticket SET token = ? WHERE id = ?", "issued-before", lines.get(0).getId());
+        jdbcTemplate.update("UPDATE s_order SET fulfillment_status = ? WHERE id = ?",
+                Constants.ORDER_FULFILLMENT_STATUS_PENDING, order.getId());
+        fulfillmentService.publishAfterCommit(order.getId());
+        Order again = awaitOrder(order.getId(), fulfilled());
+        assertEquals(done.getReceiptNumber(), again.getReceiptNumber());
+        assertEquals("issued-before", orderTicketRepository.findById(lines.get(0).getId()).orElseThrow().getToken());
+        assertEquals(lines.get(1).getToken(),
+                orderTicketRepository.findById(lines.get(1).getId()).orElseThrow().getToken());
+    }
+
+    @Test
+    void pendingJobsAreResumedAfterARestartOnceTheyAreDue() throws InterruptedException {
+        // purchased before the restart, the after-commit publish died with the old node
+        Order lost = createPendingOrder(1, LocalDateTime.now().plusDays(1));
+        Order waiting = createPendingOrder(1, LocalDateTime.now().plusDays(1));
+        jdbcTemplate.update("UPDATE s_order SET fulfillment_retry_at = ? WHERE id = ?",
+                Timestamp.valueOf(LocalDateTime.now().plusHours(1)), waiting.getId());
+
+        fulfillmentService.resumePendingJobs();
+        awaitOrder(lost.getId(), fulfilled());
+        assertEquals(Constants.ORDER_FULFILLMENT_STATUS_PENDING,
+                orderRepository.findById(waiting.getId()).orElseThrow().getFulfillmentStatus());
+    }
+
+    @Test
+    void failedJobsBackOffThenFailAndAreQueuedAgainByAnAdmin() throws InterruptedException {
+        // a token cannot be issued for an event without an end date, so every attempt fails
+        Order order = createPendingOrder(1, null);
+        Long lineId = lineIds(order.getId()).get(0);
+
+        ReflectionTestUtils.setField(fulfillmentService, "retryBackoffMillis", 60_000L);
+        fulfillmentService.publishAfterCommit(order.getId());
+        Order failedOnce = awaitOrder(order.getId(), attempts(1));
+        assertEquals(Constants.ORDER_FULFILLMENT_STATUS_PENDING, failedOnce.getFulfillmentStatus());
+        assertTrue(failedOnce.getFulfillmentRetryAt().isAfter(LocalDateTime.now().plusSeconds(50)));
+        assertFalse(orderRepository.findDueIdsByFulfillmentStatusAndPurchasedBefore(
+                Constants.ORDER_FULFILLMENT_STATUS_PENDING, LocalDateTime.now(), LocalDateTime.now())
+                .contains(order.getId()));
+
+        // retries come from the sweep once they are due, the last allowed attempt fails the job for good
+        ReflectionTestUtils.setField(fulfillmentService, "retryBackoffMillis", 0L);
+        jdbcTemplate.update("UPDATE s_order SET fulfillment_retry_at = ? WHERE id = ?",
+                Timestamp.valueOf(LocalDateTime.now()), order.getId());
+        fulfillmentService.sweepPendingJobs();
+        awaitOrder(order.getId(), attempts(2));
+        fulfillmentService.sweepPendingJobs();
+        Order failed = awaitOrder(order.getId(), attempts(3));
+        assertEquals(Constants.ORDER_FULFILLMENT_STATUS_FAILED, failed.getFulfillmentStatus());
+        fulfillmentService.sweepPendingJobs();
+        assertEquals(3, orderRepository.findById(order.getId()).orElseThrow().getFulfillmentAttempts());
+
+        // once whatever broke the job is fixed an admin queues it again
+        jdbcTemplate.update("UPDATE s_event SET end_date = ? WHERE id = ?",
+                Timestamp.valueOf(LocalDateTime.now().plusDays(1)), eventIdOf(lineId));
+        assertEquals(Constants.ORDER_FULFILLMENT_STATUS_PENDING,
+                fulfillmentService.requeueFailed(order.getId()).getFulfillmentStatus());
+        Order done = awaitOrder(order.getId(), fulfilled());
+        assertEquals(0, done.getFulfillmentAttempts());
+        assertNotNull(orderTicketRepository.findById(lineId).orElseThrow().getToken());
+        assertEquals(ErrorCode.FULFILLMENT_NOT_FAILED, assertThrows(AppException.class,
+                () -> fulfillmentService.requeueFailed(order.getId())).getErrorCode());
+    }
+
+    private static Predicate<Order> fulfilled() {
+        return order -> Constants.ORDER_FULFILLMENT_STATUS_DONE.equals(order.getFulfillmentStatus());
+    }
+
+    private static Predicate<Order> attempts(int attempts) {
+        return order -> order.getFulfillmentAttempts() != null && order.getFulfillmentAttempts() == attempts;
+    }
+
+    private Order awaitOrder(Long orderId, Predicate<Order> condition) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            Order order = orderRepository.findById(orderId).orElseThrow();
+            if (condition.test(order)) return order;
+            Thread.sleep(10);
+        }
+        throw new AssertionError("order " + orderId + " did not reach the expected fulfillment state");
+    }
+
+    private List<Long> lineIds(Long orderId) {
+        return orderTicketRepository.findAll().stream()
+                .filter(orderTicket -> orderTicket.getOrder().getId().equals(orderId))
+                .map(OrderTicket::getId).sorted().toList();
+    }
+
+    private Long eventIdOf(Long orderTicketId) {
+        return new TransactionTemplate(transactionManager).execute(status ->
+                orderTicketRepository.findById(orderTicketId).orElseThrow().getTicket().getEvent().getId());
+    }
+
+    private Order createPendingOrder(int lines, LocalDateTime eventEnd) {
+        return new TransactionTemplate(transactionManager).execute(status ->
+                createPendingOrderInTransaction(lines, eventEnd));
+    }
+
+    private Order createPendingOrderInTransaction(int lines, LocalDateTime eventEnd) {
+        Event event = new Event();
+        event.setStartDate(LocalDateTime.now().minusDays(1));
+        event.setEndDate(eventEnd);
+        event = eventRepository.save(event);
+        Ticket ticket = new Ticket();
+        ticket.setEvent(event);
+        ticket.setType("standard");
+        ticket.setUnitPrice(10d);
+        ticket.setCapacity(100L);
+        ticket.setSold((long) lines);
+        ticket = ticketRepository.save(ticket);
+        Order order = new Order();
+        order.setStatus(Constants.ORDER_STATUS_PURCHASED);
+        order.setQuantity((long) lines);
+        order.setTotalPrice(10d * lines);
+        order.setCreateDate(LocalDateTime.now().minusHours(1));
+        order.setPurchaseDate(LocalDateTime.now().minusHours(1));
+        order.setFulfillmentStatus(Constants.ORDER_FULFILLMENT_STATUS_PENDING);
+        order = orderRepository.save(order);
+        for (int i = 0; i < lines; i++) {
+            OrderTicket orderTicket = new OrderTicket();
+            orderTicket.setOrder(order);
+            orderTicket.setTicket(ticket);
+            orderTicket.setSubQuantity(1L);
+            orderTicket.setUnitPrice(10d);
+            orderTicket.setStatus(Constants.ORDER_TICKET_STATUS_ACTIVE);
+            orderTicketRepository.save(orderTicket);
+        }
+        return order;
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.Benchmark;
+import com.example.ticketboxcoreservice.configurations.ModelMapperConfig;
+import com.example.ticketboxcoreservice.enumf.Constants;
+import com.example.ticketboxcoreservice.enumf.ErrorCode;
+import com.example.ticketboxcoreservice.exception.AppException;
+import com.example.ticketboxcoreservice.model.entity.Event;
+import com.example.ticketboxcoreservice.model.entity.Order;
+import com.example.ticketboxcoreservice.model.entity.OrderTicket;
+import com.example.ticketboxcoreservice.model.entity.Ticket;
+import com.example.ticketboxcoreservice.repository.EventRepository;
+import com.example.ticketboxcoreservice.repository.OrderRepository;
+import com.example.ticketboxcoreservice.repository.OrderTicketRepository;
+import com.example.ticketboxcoreservice.repository.TicketRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.show_sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate=WARN",
+        "logging.level.org.springframework=WARN"})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({OrderTicketService.class, CartStore.class, JwtService.class, TicketTokenService.class,
+        TicketKeyService.class, QrCodeService.class, TicketHoldService.class, UsedTicketRegistry.class,
+        PurchaseJournalService.class, InventoryService.class, ConditionalUpdateInventoryStrategy.class,
+        FulfillmentService.class, AdmissionService.class, ModelMapperConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class GateScanBenchmarkTest {
+    private static final int TICKETS = 2000;
+    private static final int GATES = 2;
+    private static final int THREADS = 8;
+
+    @Autowired
+    private OrderTicketService orderTicketService;
+    @Autowired
+    private TicketTokenService ticketTokenService;
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private TicketRepository ticketRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private OrderTicketRepository orderTicketRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void everyCodeIsAdmittedOnceAndReplaysNeverReachTheDatabase() throws InterruptedException {
+        List<String> tokens = new TransactionTemplate(transactionManager).execute(status -> issueTokens());
+
+        // every code is scanned at every gate at the same time, exactly one scan per code may win
+        List<String> scans = new ArrayList<>();
+        for (int gate = 0; gate < GATES; gate++) scans.addAll(tokens);
+        Collections.shuffle(scans);
+        AtomicInteger admitted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        scan(scans, admitted, rejected);
+        assertEquals(TICKETS, admitted.get());
+        assertEquals(TICKETS * (GATES - 1), rejected.get());
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        admitted.set(0);
+        rejected.set(0);
+        scan(tokens, admitted, rejected);
+        assertEquals(0, admitted.get());
+        assertEquals(TICKETS, rejected.get());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Benchmark
+    void scansPerSecond() throws InterruptedException {
+        List<String> tokens = new TransactionTemplate(transactionManager).execute(status -> issueTokens());
+        List<String> scans = new ArrayList<>();
+        for (int gate = 0; gate < GATES; gate++) scans.addAll(tokens);
+        Collections.shuffle(scans);
+        AtomicInteger admitted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        long firstScanRate = scan(scans, admitted, rejected);
+        System.out.printf("gate scan: %d concurrent scans at %d gates, %d admitted, %d scans/s%n",
+                scans.size(), GATES, admitted.get(), firstScanRate);
+        rejected.set(0);
+        long replayRate = scan(tokens, admitted, rejected);
+        System.out.printf("gate scan: %d replayed codes rejected, %d scans/s%n", rejected.get(), replayRate);
+        assertEquals(TICKETS, admitted.get());
+    }
+
+    // returns scans/s; a scan failing with anything but ORDER_TICKET_USED fails the test
+    private long scan(List<String> tokens, AtomicInteger admitted, AtomicInteger rejected)
+            throws InterruptedException {
+        Queue<Throwable> unexpected = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long startedAt = System.nanoTime();
+        for (String token : tokens) {
+            executor.submit(() -> {
+                try {
+                    orderTicketService.validateOrderTicketByToken(token);
+                    admitted.incrementAndGet();
+                } catch (AppException exception) {
+                    if (exception.getErrorCode() == ErrorCode.ORDER_TICKET_USED) rejected.incrementAndGet();
+                    else unexpected.add(exception);
+                } catch (RuntimeException exception) {
+                    unexpected.add(exception);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES));
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        if (!unexpected.isEmpty()) fail("scan failed unexpectedly", unexpected.peek());
+        return tokens.size() * 1000L / elapsedMillis;
+    }
+
+    private List<String> issueTokens() {
+        Event event = new Event();
+        event.setStartDate(LocalDateTime.now());
+        event.setEndDate(LocalDateTime.now().plusDays(1));
+        event = eventRepository.save(event);
+        Ticket ticket = new Ticket();
+        ticket.setEvent(event);
+        ticket.setCapacity((long) TICKETS);
+        ticket.setSold((long) TICKETS);
+        ticket = ticketRepository.save(ticket);
+        Order order = new Order();
+        order.setStatus(Constants.ORDER_STATUS_PURCHASED);
+        order.setPurchaseDate(LocalDateTime.now());
+        order = orderRepository.save(order);
+
+        List<OrderTicket> orderTickets = new ArrayList<>();
+        for (int i = 0; i < TICKETS; i++) {
+            OrderTicket orderTicket = new OrderTicket();
+            orderTicket.setOrder(order);
+            orderTicket.setTicket(ticket);
+            orderTicket.setSubQuantity(1L);
+            orderTicket.setStatus(Constants.ORDER_TICKET_STATUS_ACTIVE);
+            orderTickets.add(orderTicket);
+        }
+        orderTickets = orderTicketRepository.saveAll(orderTickets);
+        List<String> tokens = new ArrayList<>();
+        for (OrderTicket orderTicket : orderTickets) {
+            String token = ticketTokenService.issue(orderTicket);
+            orderTicket.setToken(token);
+            tokens.add(token);
+        }
+        return tokens;
+    }
+}
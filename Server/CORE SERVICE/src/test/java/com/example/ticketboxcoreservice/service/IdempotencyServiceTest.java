@@ -0,0 +1,119 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.enumf.ErrorCode;
+import com.example.ticketboxcoreservice.exception.AppException;
+import com.example.ticketboxcoreservice.model.dto.response.ApiResponse;
+import com.example.ticketboxcoreservice.utils.LruCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.show_sql=false",
+        "logging.level.org.hibernate=WARN",
+        "logging.level.org.springframework=WARN"})
+@Import({IdempotencyService.class, ObjectMapper.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotencyServiceTest {
+    private static final Supplier<ApiResponse> MUST_NOT_RUN = () -> fail("the action ran a second time");
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Test
+    void concurrentDuplicateWaitsForTheFirstRequestAndGetsItsResult() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        Supplier<ApiResponse> slowAction = () -> {
+            runs.incrementAndGet();
+            started.countDown();
+            try {
+                assertTrue(release.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return ApiResponse.succeed(Map.of("orderId", 7));
+        };
+
+        ExecutorService clients = Executors.newFixedThreadPool(2);
+        Future<ApiResponse> first = clients.submit(
+                () -> idempotencyService.execute("purchase:1", "concurrent", null, slowAction));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        Future<ApiResponse> duplicate = clients.submit(
+                () -> idempotencyService.execute("purchase:1", "concurrent", null, slowAction));
+        Thread.sleep(200);
+        assertFalse(duplicate.isDone());
+
+        release.countDown();
+        assertSame(first.get(10, TimeUnit.SECONDS), duplicate.get(10, TimeUnit.SECONDS));
+        assertEquals(1, runs.get());
+        clients.shutdown();
+    }
+
+    @Test
+    void retriedRequestIsAnsweredWithTheStoredResponse() {
+        Map<String, Integer> request = Map.of("ticketId", 3, "quantity", 2);
+        ApiResponse original = idempotencyService.execute("create-order-ticket:1", "replay", request,
+                () -> ApiResponse.succeed(Map.of("orderTicketId", 11)));
+        assertSame(original, idempotencyService.execute("create-order-ticket:1", "replay", request, MUST_NOT_RUN));
+
+        // after a restart, or on another node, the cache is cold and the record answers
+        forgetCachedResults();
+        ApiResponse replayed = idempotencyService.execute("create-order-ticket:1", "replay", request, MUST_NOT_RUN);
+        assertEquals(original.getCode(), replayed.getCode());
+        assertEquals(original.getData(), replayed.getData());
+    }
+
+    @Test
+    void reusedKeyWithADifferentPayloadIsRejected() {
+        idempotencyService.execute("create-order-ticket:2", "reused", Map.of("ticketId", 3, "quantity", 2),
+                () -> ApiResponse.succeed(Map.of("orderTicketId", 12)));
+        assertEquals(ErrorCode.IDEMPOTENCY_KEY_REUSED, assertThrows(AppException.class,
+                () -> idempotencyService.execute("create-order-ticket:2", "reused",
+                        Map.of("ticketId", 3, "quantity", 5), MUST_NOT_RUN)).getErrorCode());
+        forgetCachedResults();
+        assertEquals(ErrorCode.IDEMPOTENCY_KEY_REUSED, assertThrows(AppException.class,
+                () -> idempotencyService.execute("create-order-ticket:2", "reused",
+                        Map.of("ticketId", 4, "quantity", 2), MUST_NOT_RUN)).getErrorCode());
+        // the same key from another user is a different request
+        assertEquals(200, idempotencyService.execute("create-order-ticket:3", "reused",
+                Map.of("ticketId", 4, "quantity", 2), () -> ApiResponse.succeed(null)).getCode());
+    }
+
+    @Test
+    void failedRequestIsNotRecordedAndRunsAgain() {
+        assertThrows(AppException.class, () -> idempotencyService.execute("purchase:4", "failed", null, () -> {
+            throw new AppException(ErrorCode.INVALID_NUMBER_OF_CARTS);
+        }));
+        assertEquals(200, idempotencyService.execute("purchase:4", "failed", null,
+                () -> ApiResponse.succeed(null)).getCode());
+    }
+
+    private void forgetCachedResults() {
+        LruCache<?, ?> results = (LruCache<?, ?>) ReflectionTestUtils.getField(idempotencyService, "results");
+        results.invalidateIf((key, value) -> true);
+    }
+}
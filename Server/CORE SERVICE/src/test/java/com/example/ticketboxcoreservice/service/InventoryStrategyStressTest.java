@@ -0,0 +1,229 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.Benchmark;
+import com.example.ticketboxcoreservice.model.entity.Ticket;
+import com.example.ticketboxcoreservice.repository.TicketRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.show_sql=false",
+        "logging.level.org.hibernate=WARN",
+        "logging.level.org.springframework=WARN"})
+@Import({ConditionalUpdateInventoryStrategy.class, ShardedCounterInventoryStrategy.class,
+        SequencedInventoryStrategy.class, CheckoutSequencer.class, DataMigrationService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class InventoryStrategyStressTest {
+    private static final long CAPACITY = 500;
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 100;
+
+    @Autowired
+    private TicketRepository ticketRepository;
+    @Autowired
+    private ConditionalUpdateInventoryStrategy conditionalUpdateInventoryStrategy;
+    @Autowired
+    private ShardedCounterInventoryStrategy shardedCounterInventoryStrategy;
+    @Autowired
+    private SequencedInventoryStrategy sequencedInventoryStrategy;
+    @Autowired
+    private CheckoutSequencer checkoutSequencer;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void conditionalUpdateNeverOversells() throws InterruptedException {
+        assertNoOversell(conditionalUpdateInventoryStrategy);
+    }
+
+    @Test
+    void shardedCounterNeverOversells() throws InterruptedException {
+        assertNoOversell(shardedCounterInventoryStrategy);
+    }
+
+    @Test
+    void sequencedNeverOversells() throws InterruptedException {
+        assertNoOversell(sequencedInventoryStrategy);
+    }
+
+    @Test
+    void shardedCounterFollowsCapacityEdits() {
+        Long ticketId = createTicket(100);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        assertEquals(Boolean.TRUE, transactionTemplate.execute(status ->
+                shardedCounterInventoryStrategy.reserve(ticketId, 10L)));
+
+        // lowered through TicketService, which tells the strategy in the same transaction
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE s_ticket SET capacity = 20 WHERE id = ?", ticketId);
+            shardedCounterInventoryStrategy.capacityChanged(ticketId, 20L);
+        });
+        assertEquals(10, reserveUntilSoldOut(shardedCounterInventoryStrategy, ticketId));
+
+        // raised without telling the strategy, the next roll-up spreads it
+        jdbcTemplate.update("UPDATE s_ticket SET capacity = 40 WHERE id = ?", ticketId);
+        shardedCounterInventoryStrategy.rollUpSold();
+        assertEquals(20, reserveUntilSoldOut(shardedCounterInventoryStrategy, ticketId));
+        shardedCounterInventoryStrategy.rollUpSold();
+        assertEquals(40L, ticketRepository.getSoldByTicketId(ticketId).orElseThrow());
+    }
+
+    @Test
+    void shardedRollUpKeepsSalesRecordedOnTheTicket() {
+        Long ticketId = createTicket(100);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.execute(status -> shardedCounterInventoryStrategy.reserve(ticketId, 5L));
+        shardedCounterInventoryStrategy.rollUpSold();
+        assertEquals(5L, ticketRepository.getSoldByTicketId(ticketId).orElseThrow());
+
+        // sold by another path straight on s_ticket, then two more through the shards
+        jdbcTemplate.update("UPDATE s_ticket SET sold = sold + 3 WHERE id = ?", ticketId);
+        transactionTemplate.execute(status -> shardedCounterInventoryStrategy.reserve(ticketId, 2L));
+        assertEquals(Long.valueOf(10), transactionTemplate.execute(status ->
+                shardedCounterInventoryStrategy.getSold(ticketId)));
+        shardedCounterInventoryStrategy.rollUpSold();
+        shardedCounterInventoryStrategy.rollUpSold();
+        assertEquals(10L, ticketRepository.getSoldByTicketId(ticketId).orElseThrow());
+
+        transactionTemplate.executeWithoutResult(status -> shardedCounterInventoryStrategy.release(ticketId, 4L));
+        shardedCounterInventoryStrategy.rollUpSold();
+        assertEquals(6L, ticketRepository.getSoldByTicketId(ticketId).orElseThrow());
+    }
+
+    @Test
+    void sequencedFollowsCapacityEdits() {
+        Long ticketId = createTicket(10);
+        assertTrue(sequencedInventoryStrategy.reserve(ticketId, 5L));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE s_ticket SET capacity = 20 WHERE id = ?", ticketId);
+            sequencedInventoryStrategy.capacityChanged(ticketId, 20L);
+        });
+        assertEquals(15, reserveUntilSoldOut(sequencedInventoryStrategy, ticketId));
+
+        // edited without telling the strategy, picked up by the periodic reload
+        jdbcTemplate.update("UPDATE s_ticket SET capacity = 25 WHERE id = ?", ticketId);
+        assertEquals(0, reserveUntilSoldOut(sequencedInventoryStrategy, ticketId));
+        checkoutSequencer.reloadAll();
+        assertEquals(5, reserveUntilSoldOut(sequencedInventoryStrategy, ticketId));
+        assertEquals(25L, ticketRepository.getSoldByTicketId(ticketId).orElseThrow());
+    }
+
+    @Benchmark
+    void reservationThroughputPerStrategy() throws InterruptedException {
+        // capacity for every attempt, so each one is a committed reservation
+        long capacity = THREADS * ATTEMPTS_PER_THREAD;
+        for (InventoryStrategy strategy : List.of(conditionalUpdateInventoryStrategy, shardedCounterInventoryStrategy,
+                sequencedInventoryStrategy)) {
+            Rush rush = rush(strategy, capacity);
+            long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(rush.elapsedNanos()));
+            System.out.printf("%s: %d reservations by %d threads in %d ms, %d reservations/s%n", strategy.getName(),
+                    rush.accepted(), THREADS, elapsedMillis, rush.accepted() * 1000 / elapsedMillis);
+            assertEquals(capacity, rush.accepted(), strategy.getName());
+        }
+    }
+
+    @Test
+    void sequencedHandsBackReservationsWhoseCallerTimedOut() throws InterruptedException {
+        Long ticketId = createTicket(CAPACITY);
+
+        // no wait at all, most callers give up before the sequencer answers
+        ReflectionTestUtils.setField(sequencedInventoryStrategy, "replyTimeoutMillis", 0L);
+        AtomicLong accepted = new AtomicLong();
+        AtomicLong timedOut = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            executor.submit(() -> {
+                for (int attempt = 0; attempt < ATTEMPTS_PER_THREAD / 4; attempt++) {
+                    try {
+                        if (sequencedInventoryStrategy.reserve(ticketId, 1L)) accepted.incrementAndGet();
+                    } catch (IllegalStateException e) {
+                        timedOut.incrementAndGet();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        ReflectionTestUtils.setField(sequencedInventoryStrategy, "replyTimeoutMillis", 5000L);
+        // queued commands are done once a waited for one is answered, the partition works in order
+        assertTrue(sequencedInventoryStrategy.reserve(ticketId, 0L));
+
+        assertTrue(timedOut.get() > 0);
+        assertEquals(accepted.get(), ticketRepository.getSoldByTicketId(ticketId).orElseThrow());
+        long remaining = 0;
+        while (sequencedInventoryStrategy.reserve(ticketId, 1L)) remaining++;
+        assertEquals(CAPACITY, accepted.get() + remaining);
+        assertEquals(CAPACITY, ticketRepository.getSoldByTicketId(ticketId).orElseThrow());
+    }
+
+    private void assertNoOversell(InventoryStrategy strategy) throws InterruptedException {
+        Rush rush = rush(strategy, CAPACITY);
+        Long sold = new TransactionTemplate(transactionManager).execute(status -> strategy.getSold(rush.ticketId()));
+        assertEquals(CAPACITY, rush.accepted(), strategy.getName());
+        assertEquals(CAPACITY, sold);
+    }
+
+    // every thread tries ATTEMPTS_PER_THREAD single reservations on a fresh ticket
+    private Rush rush(InventoryStrategy strategy, long capacity) throws InterruptedException {
+        Long ticketId = createTicket(capacity);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        AtomicLong accepted = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            executor.submit(() -> {
+                start.await();
+                for (int attempt = 0; attempt < ATTEMPTS_PER_THREAD; attempt++) {
+                    if (Boolean.TRUE.equals(transactionTemplate.execute(status -> strategy.reserve(ticketId, 1L))))
+                        accepted.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        long startedAt = System.nanoTime();
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES));
+        return new Rush(ticketId, accepted.get(), System.nanoTime() - startedAt);
+    }
+
+    private long reserveUntilSoldOut(InventoryStrategy strategy, Long ticketId) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long reserved = 0;
+        while (Boolean.TRUE.equals(transactionTemplate.execute(status -> strategy.reserve(ticketId, 1L)))) reserved++;
+        assertEquals(Boolean.FALSE, transactionTemplate.execute(status -> strategy.reserve(ticketId, 1L)));
+        return reserved;
+    }
+
+    private Long createTicket(long capacity) {
+        Ticket ticket = new Ticket();
+        ticket.setCapacity(capacity);
+        ticket.setSold(0L);
+        return ticketRepository.save(ticket).getId();
+    }
+
+    private record Rush(Long ticketId, long accepted, long elapsedNanos) {
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.Benchmark;
+import com.example.ticketboxcoreservice.configurations.IdBlockSeeder;
+import com.example.ticketboxcoreservice.enumf.Constants;
+import com.example.ticketboxcoreservice.model.entity.Event;
+import com.example.ticketboxcoreservice.model.entity.Order;
+import com.example.ticketboxcoreservice.model.entity.OrderTicket;
+import com.example.ticketboxcoreservice.model.entity.Ticket;
+import com.example.ticketboxcoreservice.repository.EventRepository;
+import com.example.ticketboxcoreservice.repository.OrderRepository;
+import com.example.ticketboxcoreservice.repository.OrderTicketRepository;
+import com.example.ticketboxcoreservice.repository.TicketRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Inserts TICKETS order tickets the way IDENTITY forced (one INSERT round trip per row, flushed as it is persisted)
+// and with block-allocated ids, where Hibernate groups them into JDBC batches of hibernate.jdbc.batch_size.
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.show_sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate=WARN",
+        "logging.level.org.springframework=WARN"})
+@Import(IdBlockSeeder.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderTicketInsertBenchmarkTest {
+    private static final int TICKETS = 5_000;
+    private static final long LEGACY_ID = 1_000_000L;
+
+    private Long ticketId;
+
+    @Autowired
+    private IdBlockSeeder idBlockSeeder;
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private TicketRepository ticketRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private OrderTicketRepository orderTicketRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void blockAllocatedIdsBatchInsertsAndStayAboveExistingIds() {
+        Inserts inserts = insertOneByOneThenBatched();
+
+        assertTrue(inserts.ids().stream().allMatch(id -> id > LEGACY_ID));
+        assertEquals(TICKETS, inserts.ids().stream().distinct().count());
+        assertEquals(TICKETS * 2L + 1, orderTicketRepository.count());
+        assertTrue(inserts.batchedStatements() * 10 < inserts.perRowStatements());
+    }
+
+    @Benchmark
+    void batchedInsertsOutrunRowByRowFlushes() {
+        Inserts inserts = insertOneByOneThenBatched();
+
+        System.out.printf("order ticket insert: %d rows, flushed one by one %d rows/s with %d prepared statements, "
+                        + "batched %d rows/s with %d%n", TICKETS, rowsPerSecond(inserts.perRowNanos()),
+                inserts.perRowStatements(), rowsPerSecond(inserts.batchedNanos()), inserts.batchedStatements());
+        assertTrue(inserts.batchedNanos() < inserts.perRowNanos());
+    }
+
+    private Inserts insertOneByOneThenBatched() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Long orderId = transactionTemplate.execute(status -> createOrder());
+        // a row written under AUTO_INCREMENT before the switch, the seeder moves the block past it
+        jdbcTemplate.update("INSERT INTO s_order_ticket (id, status, sub_quantity) VALUES (?, ?, ?)", LEGACY_ID,
+                Constants.ORDER_TICKET_STATUS_USED, 1L);
+        idBlockSeeder.seed();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < TICKETS; i++) {
+                entityManager.persist(orderTickets(orderId, 1).get(0));
+                entityManager.flush();
+                // keeps the persistence context small, so only the round trips are measured
+                entityManager.clear();
+            }
+        });
+        long perRowNanos = System.nanoTime() - start;
+        long perRowStatements = statistics.getPrepareStatementCount();
+
+        statistics.clear();
+        start = System.nanoTime();
+        List<Long> ids = transactionTemplate.execute(status -> orderTicketRepository.saveAll(orderTickets(orderId, TICKETS))
+                .stream().map(OrderTicket::getId).toList());
+        long batchedNanos = System.nanoTime() - start;
+        return new Inserts(ids, perRowStatements, perRowNanos, statistics.getPrepareStatementCount(), batchedNanos);
+    }
+
+    private static long rowsPerSecond(long nanos) {
+        return TICKETS * 1_000_000_000L / Math.max(1, nanos);
+    }
+
+    private Long createOrder() {
+        Event event = new Event();
+        event.setStartDate(LocalDateTime.now());
+        event.setEndDate(LocalDateTime.now().plusDays(1));
+        event = eventRepository.save(event);
+        Ticket ticket = new Ticket();
+        ticket.setEvent(event);
+        ticket.setUnitPrice(10d);
+        ticket.setCapacity((long) TICKETS * 2);
+        ticket.setSold(0L);
+        ticketId = ticketRepository.save(ticket).getId();
+        Order order = new Order();
+        order.setStatus(Constants.ORDER_STATUS_PURCHASED);
+        order.setPurchaseDate(LocalDateTime.now());
+        return orderRepository.save(order).getId();
+    }
+
+    private List<OrderTicket> orderTickets(Long orderId, int count) {
+        Order order = orderRepository.getReferenceById(orderId);
+        Ticket ticket = ticketRepository.getReferenceById(ticketId);
+        List<OrderTicket> orderTickets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            OrderTicket orderTicket = new OrderTicket();
+            orderTicket.setOrder(order);
+            orderTicket.setTicket(ticket);
+            orderTicket.setSubQuantity(1L);
+            orderTicket.setUnitPrice(10d);
+            orderTicket.setStatus(Constants.ORDER_TICKET_STATUS_ACTIVE);
+            orderTickets.add(orderTicket);
+        }
+        return orderTickets;
+    }
+
+    private record Inserts(List<Long> ids, long perRowStatements, long perRowNanos, long batchedStatements,
+                           long batchedNanos) {
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.enumf.Constants;
+import com.example.ticketboxcoreservice.enumf.ErrorCode;
+import com.example.ticketboxcoreservice.exception.AppException;
+import com.example.ticketboxcoreservice.model.entity.Event;
+import com.example.ticketboxcoreservice.model.entity.Order;
+import com.example.ticketboxcoreservice.model.entity.OrderTicket;
+import com.example.ticketboxcoreservice.model.entity.Ticket;
+import com.example.ticketboxcoreservice.repository.EventRepository;
+import com.example.ticketboxcoreservice.repository.OrderRepository;
+import com.example.ticketboxcoreservice.repository.OrderTicketRepository;
+import com.example.ticketboxcoreservice.repository.TicketRepository;
+import com.example.ticketboxcoreservice.utils.MappedJournal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Each service instance stands for one run of the node; the tests stop one and start another on the same journal.
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.show_sql=false",
+        "logging.level.org.hibernate=WARN",
+        "logging.level.org.springframework=WARN"})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PurchaseJournalServiceTest {
+    private static final int CAPACITY_BYTES = 64 * 1024;
+
+    @TempDir
+    private Path directory;
+
+    @Autowired
+    private EventRepository eventRepository;
+    @Autowired
+    private TicketRepository ticketRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private OrderTicketRepository orderTicketRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<PurchaseJournalService> running = new ArrayList<>();
+
+    @AfterEach
+    void stopNodes() throws IOException {
+        for (PurchaseJournalService node : running) node.stop();
+    }
+
+    @Test
+    void replayAfterLosingTheAppliedOffsetAppliesEachPurchaseOnce() throws Exception {
+        Path path = directory.resolve("replay.journal");
+        Long ticketId = createTicket(10);
+        Long cartId = createCart(51L, ticketId, 3);
+
+        PurchaseJournalService first = start(path, mock(FulfillmentService.class));
+        first.purchase(51L, null);
+        awaitApplied(first, 51L);
+        first.stop();
+        running.remove(first);
+        // the crash lost the applied offset, everything the journal holds is replayed
+        try (MappedJournal journal = MappedJournal.open(path, CAPACITY_BYTES)) {
+            journal.markApplied(MappedJournal.HEADER_BYTES);
+        }
+
+        FulfillmentService fulfillment = mock(FulfillmentService.class);
+        PurchaseJournalService second = start(path, fulfillment);
+        awaitApplied(second, 51L);
+        assertEquals(3L, ticketRepository.getSoldByTicketId(ticketId).orElseThrow());
+        assertEquals(Constants.ORDER_STATUS_PURCHASED, orderRepository.findById(cartId).orElseThrow().getStatus());
+        verify(fulfillment, never()).publishAfterCommit(any());
+
+        createCart(52L, ticketId, 8);
+        assertEquals(ErrorCode.TICKET_SOLD_OUT,
+                assertThrows(AppException.class, () -> second.purchase(52L, null)).getErrorCode());
+        second.checkNoPendingPurchase(52L);
+    }
+
+    @Test
+    void failedFlushCutsThePurchaseFromTheJournalAndGivesItsCapacityBack() throws Exception {
+        Path path = directory.resolve("flush.journal");
+        Long ticketId = createTicket(2);
+        createCart(53L, ticketId, 2);
+        PurchaseJournalService node = start(path, mock(FulfillmentService.class));
+        MappedJournal journal = (MappedJournal) ReflectionTestUtils.getField(node, "journal");
+        MappedJournal failingOnce = spy(journal);
+        doThrow(new UncheckedIOException(new IOException("disk gone")))
+                .doCallRealMethod().when(failingOnce).force();
+        ReflectionTestUtils.setField(node, "journal", failingOnce);
+
+        assertEquals(ErrorCode.PURCHASE_NOT_RECORDED,
+                assertThrows(AppException.class, () -> node.purchase(53L, null)).getErrorCode());
+        node.checkNoPendingPurchase(53L);
+        assertEquals(failingOnce.getForcedPosition(), failingOnce.getWritePosition());
+
+        // the whole capacity is back, and nothing of the failed attempt is ever applied
+        node.purchase(53L, null);
+        awaitApplied(node, 53L);
+        assertEquals(2L, ticketRepository.getSoldByTicketId(ticketId).orElseThrow());
+    }
+
+    @Test
+    void ledgerPicksUpCapacityEditsAndSalesMadeOutsideTheJournal() throws Exception {
+        Path path = directory.resolve("reconcile.journal");
+        Long ticketId = createTicket(10);
+        createCart(54L, ticketId, 1);
+        PurchaseJournalService node = start(path, mock(FulfillmentService.class));
+        node.purchase(54L, null);
+        awaitApplied(node, 54L);
+
+        jdbcTemplate.update("UPDATE s_ticket SET capacity = 4, sold = sold + 1 WHERE id = ?", ticketId);
+        node.reconcileLedger();
+        createCart(55L, ticketId, 3);
+        assertEquals(ErrorCode.TICKET_SOLD_OUT,
+                assertThrows(AppException.class, () -> node.purchase(55L, null)).getErrorCode());
+        createCart(56L, ticketId, 2);
+        node.purchase(56L, null);
+        awaitApplied(node, 56L);
+        assertEquals(4L, ticketRepository.getSoldByTicketId(ticketId).orElseThrow());
+    }
+
+    @Test
+    void aHoldExpiringAfterTheCartWasReadIsStillSold() throws Exception {
+        Path path = directory.resolve("expiry.journal");
+        Long ticketId = createTicket(5);
+        Long cartId = createCart(57L, ticketId, 2);
+        Long orderTicketId = new TransactionTemplate(transactionManager).execute(status ->
+                orderRepository.findById(cartId).orElseThrow().getOrderTickets().iterator().next().getId());
+        PurchaseJournalService node = start(path, mock(FulfillmentService.class));
+        MappedJournal journal = (MappedJournal) ReflectionTestUtils.getField(node, "journal");
+        MappedJournal expiringMeanwhile = spy(journal);
+        // what TicketHoldService.expireHolds writes when the hold fires between reading the cart and journaling it
+        doAnswer(invocation -> {
+            jdbcTemplate.update("UPDATE s_order_ticket SET status = ? WHERE id = ?",
+                    Constants.ORDER_TICKET_STATUS_EXPIRED, orderTicketId);
+            jdbcTemplate.update("UPDATE s_order SET quantity = 0, total_price = 0 WHERE id = ?", cartId);
+            return invocation.callRealMethod();
+        }).when(expiringMeanwhile).append(any());
+        ReflectionTestUtils.setField(node, "journal", expiringMeanwhile);
+
+        node.purchase(57L, null);
+        awaitApplied(node, 57L);
+        assertEquals(2L, ticketRepository.getSoldByTicketId(ticketId).orElseThrow());
+        assertEquals(Constants.ORDER_TICKET_STATUS_ACTIVE, jdbcTemplate.queryForObject(
+                "SELECT status FROM s_order_ticket WHERE id = ?", Integer.class, orderTicketId));
+        Order order = orderRepository.findById(cartId).orElseThrow();
+        assertEquals(Constants.ORDER_STATUS_PURCHASED, order.getStatus());
+        assertEquals(2L, order.getQuantity());
+        assertEquals(20d, order.getTotalPrice());
+    }
+
+    @Test
+    void refusesToStartWhileATicketIsOnAnotherInventoryStrategy() {
+        InventoryService inventoryService = mock(InventoryService.class);
+        when(inventoryService.keepsSoldOnTicketRows()).thenReturn(false);
+        assertThrows(IllegalStateException.class, () -> start(directory.resolve("strategy.journal"),
+                mock(FulfillmentService.class), inventoryService));
+    }
+
+    private PurchaseJournalService start(Path path, FulfillmentService fulfillmentService) throws IOException {
+        InventoryService inventoryService = mock(InventoryService.class);
+        when(inventoryService.keepsSoldOnTicketRows()).thenReturn(true);
+        return start(path, fulfillmentService, inventoryService);
+    }
+
+    private PurchaseJournalService start(Path path, FulfillmentService fulfillmentService,
+                                         InventoryService inventoryService) throws IOException {
+        PurchaseJournalService node = new PurchaseJournalService(orderRepository, ticketRepository,
+                mock(TicketHoldService.class), fulfillmentService, mock(CartStore.class), mock(AdmissionService.class),
+                inventoryService, jdbcTemplate, transactionManager);
+        ReflectionTestUtils.setField(node, "enabled", true);
+        ReflectionTestUtils.setField(node, "path", path.toString());
+        ReflectionTestUtils.setField(node, "capacityBytes", CAPACITY_BYTES);
+        ReflectionTestUtils.setField(node, "applyBatchSize", 100);
+        ReflectionTestUtils.setField(node, "applyIntervalMillis", 5L);
+        node.start();
+        running.add(node);
+        return node;
+    }
+
+    // the buyer is readable as a cart owner again once the applier has written the purchase
+    private static void awaitApplied(PurchaseJournalService node, Long userId) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            try {
+                node.checkNoPendingPurchase(userId);
+                return;
+            } catch (AppException e) {
+                Thread.sleep(10);
+            }
+        }
+        throw new AssertionError("purchase of user " + userId + " was not applied");
+    }
+
+    private Long createTicket(long capacity) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Event event = new Event();
+            event.setStartDate(LocalDateTime.now());
+            event.setEndDate(LocalDateTime.now().plusDays(1));
+            Ticket ticket = new Ticket();
+            ticket.setEvent(eventRepository.save(event));
+            ticket.setType("standard");
+            ticket.setUnitPrice(10d);
+            ticket.setCapacity(capacity);
+            ticket.setSold(0L);
+            return ticketRepository.save(ticket).getId();
+        });
+    }
+
+    private Long createCart(Long userId, Long ticketId, long quantity) {
+        Long cartId = new TransactionTemplate(transactionManager).execute(status -> {
+            Order cart = new Order();
+            cart.setStatus(Constants.ORDER_STATUS_NOT_PURCHASED);
+            cart.setQuantity(quantity);
+            cart.setTotalPrice(10d * quantity);
+            cart.setCreateDate(LocalDateTime.now());
+            cart = orderRepository.save(cart);
+            OrderTicket orderTicket = new OrderTicket();
+            orderTicket.setOrder(cart);
+            orderTicket.setTicket(ticketRepository.getReferenceById(ticketId));
+            orderTicket.setSubQuantity(quantity);
+            orderTicket.setUnitPrice(10d);
+            orderTicket.setStatus(Constants.ORDER_TICKET_STATUS_INACTIVE);
+            orderTicketRepository.save(orderTicket);
+            return cart.getId();
+        });
+        // the buyer and cart owner are set through JDBC, the user table is not part of the test schema
+        jdbcTemplate.update("update s_order set buyer_id = ?, cart_owner_id = ? where id = ?", userId, userId,
+                cartId);
+        return cartId;
+    }
+}
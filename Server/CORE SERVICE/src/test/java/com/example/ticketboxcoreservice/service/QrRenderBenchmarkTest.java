@@ -0,0 +1,98 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.Benchmark;
+import com.example.ticketboxcoreservice.utils.QrImageWriter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.function.IntConsumer;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Compares the ZXing javase path (QRCodeWriter -> MatrixToImageWriter -> ImageIO) with QrImageWriter on a 300 px
+// ticket code, uncached and through the LRU cache.
+@SpringJUnitConfig(QrCodeService.class)
+class QrRenderBenchmarkTest {
+    private static final String TOKEN = "T1AAAAAB4JAAAAAMFAAAAAAAZ3Q4UWKQJ7D5XHG2CZ";
+    private static final int SIZE = 300;
+    private static final int WARMUP = 300;
+    private static final int ITERATIONS = 1_000;
+
+    @Autowired
+    private QrCodeService qrCodeService;
+
+    @Test
+    void directPngMatchesZxingPixelsAndIsCached() throws Exception {
+        byte[] zxing = qrCodeService.encodeQrCode(TOKEN, SIZE, SIZE);
+        byte[] direct = QrImageWriter.writePng(qrCodeService.encodeModules(TOKEN), SIZE);
+        assertArrayEquals(pixels(zxing), pixels(direct));
+        // ImageIO picks a filter per row, the fixed Up filter lands within a few percent of it
+        assertTrue(direct.length < zxing.length * 1.1);
+        assertSame(qrCodeService.renderQrCode(TOKEN, SIZE, QrCodeService.FORMAT_PNG),
+                qrCodeService.renderQrCode(TOKEN, SIZE, QrCodeService.FORMAT_PNG));
+    }
+
+    @Benchmark
+    void directPngIsCheaperThanZxing() {
+        byte[] zxing = qrCodeService.encodeQrCode(TOKEN, SIZE, SIZE);
+        byte[] direct = QrImageWriter.writePng(qrCodeService.encodeModules(TOKEN), SIZE);
+        double zxingNanos = nanosPerOp(i -> qrCodeService.encodeQrCode(TOKEN, SIZE, SIZE));
+        double directNanos = nanosPerOp(i -> QrImageWriter.writePng(qrCodeService.encodeModules(TOKEN), SIZE));
+        double moduleNanos = nanosPerOp(i -> qrCodeService.encodeModules(TOKEN));
+        double cachedNanos = nanosPerOp(i -> qrCodeService.renderQrCode(TOKEN, SIZE, QrCodeService.FORMAT_PNG));
+        long zxingBytes = allocatedBytes(() -> qrCodeService.encodeQrCode(TOKEN, SIZE, SIZE));
+        long directBytes = allocatedBytes(() -> QrImageWriter.writePng(qrCodeService.encodeModules(TOKEN), SIZE));
+
+        System.out.printf("qr render: zxing javase %d byte png, %.0f ns, %d bytes allocated%n",
+                zxing.length, zxingNanos, zxingBytes);
+        System.out.printf("qr render: direct %d byte png, %.0f ns (%.0f ns of it module encoding), "
+                + "%d bytes allocated, cached %.0f ns%n", direct.length, directNanos, moduleNanos, directBytes,
+                cachedNanos);
+        assertTrue(directNanos < zxingNanos);
+        assertTrue(directBytes < zxingBytes);
+        assertTrue(cachedNanos < directNanos);
+    }
+
+    @Test
+    void svgDrawsOneRunPerDarkSegment() {
+        String svg = new String(qrCodeService.renderQrCode(TOKEN, SIZE, QrCodeService.FORMAT_SVG),
+                StandardCharsets.US_ASCII);
+        int dimension = qrCodeService.encodeModules(TOKEN).getWidth() + QrImageWriter.QUIET_ZONE * 2;
+        assertTrue(svg.startsWith("<svg"));
+        assertTrue(svg.contains("viewBox=\"0 0 " + dimension + " " + dimension + "\""));
+        // the top-left finder pattern starts with a run of seven dark modules inside the quiet zone
+        assertTrue(svg.contains("M4 4h7v1h-7z"));
+        assertEquals(svg.lastIndexOf("</svg>"), svg.length() - "</svg>".length());
+    }
+
+    private static int[] pixels(byte[] png) throws Exception {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    private static double nanosPerOp(IntConsumer operation) {
+        for (int i = 0; i < WARMUP; i++) operation.accept(i);
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) operation.accept(i);
+        return (System.nanoTime() - startedAt) / (double) ITERATIONS;
+    }
+
+    private static long allocatedBytes(Runnable runnable) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        LongSupplier allocated = () -> threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        runnable.run();
+        long before = allocated.getAsLong();
+        runnable.run();
+        return allocated.getAsLong() - before;
+    }
+}
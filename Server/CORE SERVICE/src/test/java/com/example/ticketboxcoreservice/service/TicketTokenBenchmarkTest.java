@@ -0,0 +1,188 @@
+package com.example.ticketboxcoreservice.service;
+
+import com.example.ticketboxcoreservice.Benchmark;
+import com.example.ticketboxcoreservice.enumf.ErrorCode;
+import com.example.ticketboxcoreservice.exception.AppException;
+import com.example.ticketboxcoreservice.utils.Base32;
+import com.example.ticketboxcoreservice.utils.CompactTicketCodec;
+import com.example.ticketboxcoreservice.utils.DynamicTicketCodec;
+import com.example.ticketboxcoreservice.utils.SignedTicketCodec;
+import com.example.ticketboxcoreservice.utils.TicketTokenClaims;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.Encoder;
+import com.google.zxing.qrcode.encoder.QRCode;
+import io.jsonwebtoken.io.Decoders;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.lang.management.ManagementFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringJUnitConfig({JwtService.class, TicketTokenService.class, TicketKeyService.class, ObjectMapper.class})
+@TestPropertySource(properties = {
+        "app.jwt-secret=fe7276816fef85a611a8d9864c9679e491729cf34601a31d43aa30f866eb515d",
+        "app.jwt-expiration-milliseconds=3600000",
+        "app.order-ticket-jwt-secret=fe7276816fef85a611a8d9864c9679e491729cf34601a31d43aa30f866eb515d"})
+class TicketTokenBenchmarkTest {
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 100_000;
+
+    @Autowired
+    private JwtService jwtService;
+    @Autowired
+    private TicketTokenService ticketTokenService;
+    @Value("${app.order-ticket-jwt-secret}")
+    private String secret;
+
+    @Test
+    void compactTokensAreSmallerThanJwtAndVerifyWithoutAllocating() throws Exception {
+        CompactTicketCodec codec = new CompactTicketCodec(Decoders.BASE64.decode(secret));
+        LocalDateTime eventEnd = LocalDateTime.now().plusDays(30);
+        String jwt = jwtService.generateOrderTicketToken(Map.of("orderTicketId", 123456L, "eventId", 789L),
+                "123456", LocalDateTime.now(), eventEnd);
+        String compact = codec.encode(123456L, 789L, eventEnd.atZone(ZoneId.systemDefault()).toEpochSecond());
+
+        TicketTokenClaims claims = new TicketTokenClaims();
+        long decodeAllocations = allocatedBytes(() -> {
+            for (int i = 0; i < ITERATIONS; i++) codec.decode(compact, claims);
+        });
+        assertEquals(123456L, ticketTokenService.verify(compact, claims).getOrderTicketId());
+        assertEquals(789L, claims.getEventId());
+        assertEquals(123456L, ticketTokenService.verify(jwt, claims).getOrderTicketId());
+        assertFalse(codec.decode(tamper(compact), claims));
+        long verifyAllocations = allocatedBytes(() -> {
+            for (int i = 0; i < ITERATIONS; i++) ticketTokenService.verify(compact, claims);
+        });
+        assertTrue(qrModules(compact) < qrModules(jwt));
+        assertTrue(decodeAllocations < ITERATIONS, "decode should not allocate");
+        assertTrue(verifyAllocations < ITERATIONS, "verify of a compact token should not allocate");
+    }
+
+    @Benchmark
+    void compactTokensAreCheaperThanJwt() throws Exception {
+        CompactTicketCodec codec = new CompactTicketCodec(Decoders.BASE64.decode(secret));
+        LocalDateTime eventEnd = LocalDateTime.now().plusDays(30);
+        long expiresAt = eventEnd.atZone(ZoneId.systemDefault()).toEpochSecond();
+        String jwt = jwtService.generateOrderTicketToken(Map.of("orderTicketId", 123456L, "eventId", 789L),
+                "123456", LocalDateTime.now(), eventEnd);
+        String compact = codec.encode(123456L, 789L, expiresAt);
+
+        double jwtEncode = nanosPerOp(i -> jwtService.generateOrderTicketToken(
+                Map.of("orderTicketId", i, "eventId", 789L), Long.toString(i), LocalDateTime.now(), eventEnd));
+        double compactEncode = nanosPerOp(i -> codec.encode(i, 789L, expiresAt));
+        TicketTokenClaims claims = new TicketTokenClaims();
+        double jwtVerify = nanosPerOp(i -> ticketTokenService.verify(jwt, claims));
+        double compactVerify = nanosPerOp(i -> ticketTokenService.verify(compact, claims));
+        int jwtModules = qrModules(jwt);
+        int compactModules = qrModules(compact);
+
+        System.out.printf("ticket token: jwt %d chars, %dx%d QR modules, encode %.0f ns, verify %.0f ns%n",
+                jwt.length(), jwtModules, jwtModules, jwtEncode, jwtVerify);
+        System.out.printf("ticket token: compact %d chars, %dx%d QR modules, encode %.0f ns, verify %.0f ns%n",
+                compact.length(), compactModules, compactModules, compactEncode, compactVerify);
+        assertTrue(compactVerify < jwtVerify);
+    }
+
+    @Test
+    void signedTokensVerifyWithThePublicKeyOnly() throws Exception {
+        KeyPair keyPair = KeyPairGenerator.getInstance(SignedTicketCodec.ALGORITHM).generateKeyPair();
+        long expiresAt = LocalDateTime.now().plusDays(30).atZone(ZoneId.systemDefault()).toEpochSecond();
+        String signed = SignedTicketCodec.encode(123456L, 789L, expiresAt, 7, keyPair.getPrivate());
+
+        TicketTokenClaims claims = new TicketTokenClaims();
+        assertTrue(SignedTicketCodec.decode(signed, claims, keyId -> keyId == 7 ? keyPair.getPublic() : null));
+        assertEquals(123456L, claims.getOrderTicketId());
+        assertEquals(789L, claims.getEventId());
+        assertFalse(SignedTicketCodec.decode(signed, claims, keyId -> null));
+        assertFalse(SignedTicketCodec.decode(tamper(signed), claims, keyId -> keyPair.getPublic()));
+    }
+
+    @Benchmark
+    void signedTokensVerifyInAboutAMillisecond() throws Exception {
+        KeyPair keyPair = KeyPairGenerator.getInstance(SignedTicketCodec.ALGORITHM).generateKeyPair();
+        long expiresAt = LocalDateTime.now().plusDays(30).atZone(ZoneId.systemDefault()).toEpochSecond();
+        String signed = SignedTicketCodec.encode(123456L, 789L, expiresAt, 7, keyPair.getPrivate());
+        // the JDK's Ed25519 is pure Java and around a millisecond per verify, keep the run short
+        double signedVerify = nanosPerOp(i -> SignedTicketCodec.decode(signed, new TicketTokenClaims(),
+                keyId -> keyPair.getPublic()), 200, 1000);
+        int signedModules = qrModules(signed);
+        System.out.printf("ticket token: signed %d chars, %dx%d QR modules, verify %.0f ns%n",
+                signed.length(), signedModules, signedModules, signedVerify);
+        assertTrue(signedVerify < 10_000_000);
+    }
+
+    @Test
+    void dynamicCodesAreBoundToTheirEvent() {
+        TicketTokenClaims claims = new TicketTokenClaims();
+        String code = ticketTokenService.dynamicCode(123456L, 789L);
+        assertTrue(ticketTokenService.verify(code, claims).isDynamic());
+        assertEquals(789L, claims.getEventId());
+
+        // the same code with another event id keeps its MAC, which no longer matches
+        byte[] bytes = new byte[16];
+        assertTrue(Base32.decode(code, DynamicTicketCodec.PREFIX.length(), bytes));
+        bytes[9] ^= 1;
+        char[] chars = code.toCharArray();
+        Base32.encode(bytes, bytes.length, chars, DynamicTicketCodec.PREFIX.length());
+        assertEquals(ErrorCode.ORDER_TICKET_TOKEN_INVALID, assertThrows(AppException.class,
+                () -> ticketTokenService.verify(new String(chars), claims)).getErrorCode());
+
+        // a code from outside the step window fails like a forged one
+        DynamicTicketCodec codec = new DynamicTicketCodec(Decoders.BASE64.decode(secret));
+        String stale = codec.encode(123456L, 789L, ticketTokenService.currentStep() - 5);
+        assertEquals(ErrorCode.ORDER_TICKET_TOKEN_INVALID, assertThrows(AppException.class,
+                () -> ticketTokenService.verify(stale, claims)).getErrorCode());
+        // a compact token verified into the same claims is not taken for a rotating code
+        String compact = new CompactTicketCodec(Decoders.BASE64.decode(secret)).encode(123456L, 789L,
+                System.currentTimeMillis() / 1000 + 3600);
+        assertFalse(ticketTokenService.verify(compact, claims).isDynamic());
+    }
+
+    private static String tamper(String token) {
+        char last = token.charAt(token.length() - 1);
+        return token.substring(0, token.length() - 1) + (last == 'A' ? 'B' : 'A');
+    }
+
+    private static int qrModules(String content) throws Exception {
+        QRCode code = Encoder.encode(content, ErrorCorrectionLevel.L);
+        return code.getVersion().getDimensionForVersion();
+    }
+
+    private static double nanosPerOp(LongConsumer operation) {
+        return nanosPerOp(operation, WARMUP, ITERATIONS);
+    }
+
+    private static double nanosPerOp(LongConsumer operation, int warmup, int iterations) {
+        for (long i = 0; i < warmup; i++) operation.accept(i);
+        long startedAt = System.nanoTime();
+        for (long i = 0; i < iterations; i++) operation.accept(i);
+        return (System.nanoTime() - startedAt) / (double) iterations;
+    }
+
+    private static long allocatedBytes(Runnable runnable) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        LongSupplier allocated = () -> threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        runnable.run();
+        long before = allocated.getAsLong();
+        runnable.run();
+        return allocated.getAsLong() - before;
+    }
+
+    private interface LongConsumer {
+        void accept(long value);
+    }
+}
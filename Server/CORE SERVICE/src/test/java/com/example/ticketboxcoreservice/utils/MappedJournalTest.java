@@ -0,0 +1,110 @@
+package com.example.ticketboxcoreservice.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MappedJournalTest {
+    private static final int CAPACITY = 4096;
+    private static final int RECORD_HEADER_BYTES = 12;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void recoveryStopsAtATornRecordAndOverwritesIt() throws IOException {
+        Path path = directory.resolve("torn.journal");
+        long secondEnd;
+        try (MappedJournal journal = MappedJournal.open(path, CAPACITY)) {
+            journal.append(bytes("first"));
+            secondEnd = journal.append(bytes("second"));
+            journal.append(bytes("third"));
+            journal.force();
+        }
+        // a crash in the middle of writing the third record leaves its length but not all of its payload
+        corrupt(path, secondEnd + RECORD_HEADER_BYTES + 2);
+
+        try (MappedJournal journal = MappedJournal.open(path, CAPACITY)) {
+            assertEquals(List.of("first", "second"), records(journal));
+            assertEquals(secondEnd, journal.getWritePosition());
+            journal.append(bytes("3rd"));
+            journal.force();
+        }
+        try (MappedJournal journal = MappedJournal.open(path, CAPACITY)) {
+            assertEquals(List.of("first", "second", "3rd"), records(journal));
+        }
+    }
+
+    @Test
+    void appliedOffsetSurvivesAReopenAndRecordsBeforeAResetAreNeverReadBack() throws IOException {
+        Path path = directory.resolve("generations.journal");
+        try (MappedJournal journal = MappedJournal.open(path, CAPACITY)) {
+            long firstEnd = journal.append(bytes("applied"));
+            journal.append(bytes("pending"));
+            journal.force();
+            journal.markApplied(firstEnd);
+        }
+        try (MappedJournal journal = MappedJournal.open(path, CAPACITY)) {
+            assertEquals(List.of("pending"), records(journal));
+            journal.markApplied(journal.getWritePosition());
+            journal.reset();
+            // shorter than what it overwrites, the old records behind it must not be read back
+            journal.append(bytes("new"));
+            journal.force();
+        }
+        try (MappedJournal journal = MappedJournal.open(path, CAPACITY)) {
+            assertEquals(List.of("new"), records(journal));
+        }
+    }
+
+    @Test
+    void truncatedRecordsAreGoneAfterAReopen() throws IOException {
+        Path path = directory.resolve("truncated.journal");
+        try (MappedJournal journal = MappedJournal.open(path, CAPACITY)) {
+            journal.append(bytes("acknowledged"));
+            long durable = journal.force();
+            journal.append(bytes("never acknowledged"));
+            journal.truncate(durable);
+            assertEquals(durable, journal.getWritePosition());
+            journal.append(bytes("next"));
+            journal.force();
+        }
+        try (MappedJournal journal = MappedJournal.open(path, CAPACITY)) {
+            assertEquals(List.of("acknowledged", "next"), records(journal));
+        }
+    }
+
+    private static List<String> records(MappedJournal journal) {
+        List<String> records = new ArrayList<>();
+        long offset = journal.getAppliedOffset();
+        byte[] payload;
+        while ((payload = journal.read(offset)) != null) {
+            records.add(new String(payload, StandardCharsets.UTF_8));
+            offset = MappedJournal.nextOffset(offset, payload);
+        }
+        return records;
+    }
+
+    private static void corrupt(Path path, long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer value = ByteBuffer.allocate(1);
+            channel.read(value, position);
+            value.put(0, (byte) (value.get(0) ^ 0xff)).rewind();
+            channel.write(value, position);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}